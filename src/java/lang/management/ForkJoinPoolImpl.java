@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.lang.management;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import javax.management.ObjectName;
+
+import sun.management.Util;
+
+/**
+ * Implementation class for the common pool's {@link ForkJoinPoolMXBean}.
+ */
+class ForkJoinPoolImpl implements ForkJoinPoolMXBean {
+
+    private static ForkJoinPoolImpl instance;
+
+    /**
+     * Returns the MXBean for the common pool.
+     */
+    static synchronized ForkJoinPoolMXBean getCommonPoolMXBean() {
+        if (instance == null) {
+            instance = new ForkJoinPoolImpl(ForkJoinPool.commonPool());
+        }
+        return instance;
+    }
+
+    private final ForkJoinPool pool;
+
+    private ForkJoinPoolImpl(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public int getPoolSize() {
+        return pool.getPoolSize();
+    }
+
+    public int getActiveThreadCount() {
+        return pool.getActiveThreadCount();
+    }
+
+    public int getRunningThreadCount() {
+        return pool.getRunningThreadCount();
+    }
+
+    public int getQueuedSubmissionCount() {
+        return pool.getQueuedSubmissionCount();
+    }
+
+    public long getQueuedTaskCount() {
+        return pool.getQueuedTaskCount();
+    }
+
+    public long getStealCount() {
+        return pool.getStealCount();
+    }
+
+    public boolean isMetricsEnabled() {
+        return pool.isMetricsEnabled();
+    }
+
+    public long getParkCount() {
+        return pool.getMetrics().getParkCount();
+    }
+
+    public long getParkTime() {
+        return pool.getMetrics().getParkTime();
+    }
+
+    public long getCompensationCount() {
+        return pool.getMetrics().getCompensationCount();
+    }
+
+    public long[] getStealLatencyHistogram() {
+        return pool.getMetrics().getStealLatencyHistogram();
+    }
+
+    public String[] getWorkerNames() {
+        List<ForkJoinPool.WorkerMetrics> list = pool.getWorkerMetrics();
+        String[] names = new String[list.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = list.get(i).getWorkerName();
+        }
+        return names;
+    }
+
+    public long[] getWorkerStealCounts() {
+        List<ForkJoinPool.WorkerMetrics> list = pool.getWorkerMetrics();
+        long[] counts = new long[list.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = list.get(i).getStealCount();
+        }
+        return counts;
+    }
+
+    public long[] getWorkerQueuedTaskCounts() {
+        List<ForkJoinPool.WorkerMetrics> list = pool.getWorkerMetrics();
+        long[] counts = new long[list.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = list.get(i).getQueuedTaskCount();
+        }
+        return counts;
+    }
+
+    public long[] getWorkerParkCounts() {
+        List<ForkJoinPool.WorkerMetrics> list = pool.getWorkerMetrics();
+        long[] counts = new long[list.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = list.get(i).getParkCount();
+        }
+        return counts;
+    }
+
+    public long[] getWorkerParkTimes() {
+        List<ForkJoinPool.WorkerMetrics> list = pool.getWorkerMetrics();
+        long[] times = new long[list.size()];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = list.get(i).getParkTime();
+        }
+        return times;
+    }
+
+    public ObjectName getObjectName() {
+        return Util.newObjectName("java.util.concurrent:type=ForkJoinPool");
+    }
+}
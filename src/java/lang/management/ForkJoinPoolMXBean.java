@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.lang.management;
+
+/**
+ * The management interface for the {@linkplain
+ * java.util.concurrent.ForkJoinPool#commonPool common pool} of
+ * {@link java.util.concurrent.ForkJoinPool}, which executes tasks
+ * including parallel stream operations and asynchronous {@link
+ * java.util.concurrent.CompletableFuture} stages that are not given
+ * an explicit executor.
+ *
+ * <p> A Java virtual machine has a single instance of the implementation
+ * class of this interface.  This instance implementing this interface is
+ * an <a href="ManagementFactory.html#MXBean">MXBean</a>
+ * that can be obtained by calling the
+ * {@link ManagementFactory#getPlatformMXBean(Class)} method.
+ *
+ * <p>The {@code ObjectName} for uniquely identifying the MXBean for
+ * the common pool within an {@link javax.management.MBeanServer
+ * MBeanServer} is:
+ * <blockquote>
+ *    {@code java.util.concurrent:type=ForkJoinPool}
+ * </blockquote>
+ *
+ * <p> Steal and queue counts are always available.  Park,
+ * compensation and steal latency metrics are recorded only if the
+ * system property {@code java.util.concurrent.ForkJoinPool.metrics}
+ * is set to {@code true}, as reported by {@link #isMetricsEnabled},
+ * and are otherwise zero.  All values are estimates, obtained
+ * without synchronizing with the worker threads.
+ *
+ * <p> The per-worker attributes are arrays indexed by worker, in the
+ * order of {@link #getWorkerNames}.  Because workers may start and
+ * terminate between calls, values from different calls should be
+ * matched by worker name.
+ *
+ * @see java.util.concurrent.ForkJoinPool#getMetrics
+ * @see java.util.concurrent.ForkJoinPool#getWorkerMetrics
+ * @since   1.8
+ */
+public interface ForkJoinPoolMXBean extends PlatformManagedObject {
+
+    /**
+     * Returns the targeted parallelism level of the common pool.
+     *
+     * @return the targeted parallelism level
+     */
+    int getParallelism();
+
+    /**
+     * Returns the number of worker threads that have started but
+     * not yet terminated.
+     *
+     * @return the number of worker threads
+     */
+    int getPoolSize();
+
+    /**
+     * Returns an estimate of the number of threads that are
+     * currently stealing or executing tasks.
+     *
+     * @return the number of active threads
+     */
+    int getActiveThreadCount();
+
+    /**
+     * Returns an estimate of the number of worker threads that are
+     * not blocked waiting to join tasks or for other managed
+     * synchronization.
+     *
+     * @return the number of running threads
+     */
+    int getRunningThreadCount();
+
+    /**
+     * Returns an estimate of the number of tasks submitted to the
+     * common pool that have not yet begun executing.
+     *
+     * @return the number of queued submissions
+     */
+    int getQueuedSubmissionCount();
+
+    /**
+     * Returns an estimate of the total number of tasks currently
+     * held in queues by worker threads.
+     *
+     * @return the number of queued tasks
+     */
+    long getQueuedTaskCount();
+
+    /**
+     * Returns an estimate of the total number of tasks stolen from
+     * one thread's work queue by another.
+     *
+     * @return the number of steals
+     */
+    long getStealCount();
+
+    /**
+     * Returns {@code true} if park, compensation and steal latency
+     * metrics are recorded.
+     *
+     * @return {@code true} if metrics are recorded
+     */
+    boolean isMetricsEnabled();
+
+    /**
+     * Returns the total number of times worker threads blocked
+     * waiting for tasks, including workers that have terminated.
+     *
+     * @return the number of parks
+     */
+    long getParkCount();
+
+    /**
+     * Returns the total time worker threads spent blocked waiting
+     * for tasks, in nanoseconds, including workers that have
+     * terminated.
+     *
+     * @return the park time in nanoseconds
+     */
+    long getParkTime();
+
+    /**
+     * Returns the total number of times a spare worker thread was
+     * released or created to compensate for a worker blocking in a
+     * join or managed block.
+     *
+     * @return the number of compensations
+     */
+    long getCompensationCount();
+
+    /**
+     * Returns a histogram of the times stolen tasks spent queued
+     * before being stolen, totalled over all worker threads.
+     * Element {@code i} holds the number of tasks that waited at
+     * least 2<sup>i-1</sup> but less than 2<sup>i</sup> nanoseconds,
+     * except that element 0 holds those that waited less than one
+     * nanosecond, and the last element holds all that waited longer.
+     *
+     * @return the steal latency histogram
+     */
+    long[] getStealLatencyHistogram();
+
+    /**
+     * Returns the names of the current worker threads.
+     *
+     * @return the names of the worker threads
+     */
+    String[] getWorkerNames();
+
+    /**
+     * Returns the number of steals by each current worker thread.
+     *
+     * @return the steal count of each worker thread
+     */
+    long[] getWorkerStealCounts();
+
+    /**
+     * Returns the number of tasks queued by each current worker
+     * thread.
+     *
+     * @return the queued task count of each worker thread
+     */
+    long[] getWorkerQueuedTaskCounts();
+
+    /**
+     * Returns the number of parks of each current worker thread.
+     *
+     * @return the park count of each worker thread
+     */
+    long[] getWorkerParkCounts();
+
+    /**
+     * Returns the park time of each current worker thread, in
+     * nanoseconds.
+     *
+     * @return the park time of each worker thread in nanoseconds
+     */
+    long[] getWorkerParkTimes();
+}
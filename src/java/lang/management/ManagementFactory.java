@@ -171,6 +171,14 @@ import sun.management.ExtendedPlatformComponent;
  * <td> {@link java.util.logging.LogManager#LOGGING_MXBEAN_NAME
  *             java.util.logging:type=Logging}</td>
  * </tr>
+ * <tr>
+ * <td> {@link ForkJoinPoolMXBean} </td>
+ * <td> {@code java.util.concurrent:type=ForkJoinPool}</td>
+ * </tr>
+ * <tr>
+ * <td> {@link ZStreamPoolMXBean} </td>
+ * <td> {@code java.util.zip:type=ZStreamPool}</td>
+ * </tr>
  * </table>
  * </blockquote>
  *
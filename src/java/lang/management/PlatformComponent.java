@@ -216,6 +216,32 @@ enum PlatformComponent {
             }
         }),
 
+    /**
+     * Common pool of ForkJoinPool.
+     */
+    FORK_JOIN_POOL(
+        "java.lang.management.ForkJoinPoolMXBean",
+        "java.util.concurrent", "ForkJoinPool", defaultKeyProperties(),
+        true, // singleton
+        new MXBeanFetcher<ForkJoinPoolMXBean>() {
+            public List<ForkJoinPoolMXBean> getMXBeans() {
+                return Collections.singletonList(ForkJoinPoolImpl.getCommonPoolMXBean());
+            }
+        }),
+
+    /**
+     * Pool of zlib streams.
+     */
+    ZSTREAM_POOL(
+        "java.lang.management.ZStreamPoolMXBean",
+        "java.util.zip", "ZStreamPool", defaultKeyProperties(),
+        true, // singleton
+        new MXBeanFetcher<ZStreamPoolMXBean>() {
+            public List<ZStreamPoolMXBean> getMXBeans() {
+                return Collections.singletonList(ZStreamPoolImpl.getZStreamPoolMXBean());
+            }
+        }),
+
 
     // Sun Platform Extension
 
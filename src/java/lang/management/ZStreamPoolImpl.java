@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.lang.management;
+
+import java.util.zip.ZStreamPool;
+import javax.management.ObjectName;
+
+import sun.management.Util;
+
+/**
+ * Implementation class for the {@link ZStreamPoolMXBean}.
+ */
+class ZStreamPoolImpl implements ZStreamPoolMXBean {
+
+    private static ZStreamPoolImpl instance;
+
+    /**
+     * Returns the MXBean for the pool of zlib streams.
+     */
+    static synchronized ZStreamPoolMXBean getZStreamPoolMXBean() {
+        if (instance == null) {
+            instance = new ZStreamPoolImpl();
+        }
+        return instance;
+    }
+
+    private ZStreamPoolImpl() {
+    }
+
+    public long getLiveInflaterCount() {
+        return ZStreamPool.getLiveInflaterCount();
+    }
+
+    public long getLiveDeflaterCount() {
+        return ZStreamPool.getLiveDeflaterCount();
+    }
+
+    public int getPooledInflaterCount() {
+        return ZStreamPool.getPooledInflaterCount();
+    }
+
+    public int getPooledDeflaterCount() {
+        return ZStreamPool.getPooledDeflaterCount();
+    }
+
+    public long getInflaterHitCount() {
+        return ZStreamPool.getInflaterHitCount();
+    }
+
+    public long getInflaterMissCount() {
+        return ZStreamPool.getInflaterMissCount();
+    }
+
+    public long getDeflaterHitCount() {
+        return ZStreamPool.getDeflaterHitCount();
+    }
+
+    public long getDeflaterMissCount() {
+        return ZStreamPool.getDeflaterMissCount();
+    }
+
+    public ObjectName getObjectName() {
+        return Util.newObjectName("java.util.zip:type=ZStreamPool");
+    }
+}
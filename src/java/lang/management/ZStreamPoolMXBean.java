@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.lang.management;
+
+/**
+ * The management interface for the {@linkplain java.util.zip.ZStreamPool
+ * pool} of {@link java.util.zip.Inflater} and {@link
+ * java.util.zip.Deflater} objects, which hold native zlib streams,
+ * shared by {@link java.util.zip.ZipFile} and the compressing and
+ * decompressing streams of {@code java.util.zip}.
+ *
+ * <p> A Java virtual machine has a single instance of the implementation
+ * class of this interface.  This instance implementing this interface is
+ * an <a href="ManagementFactory.html#MXBean">MXBean</a>
+ * that can be obtained by calling the
+ * {@link ManagementFactory#getPlatformMXBean(Class)} method.
+ *
+ * <p>The {@code ObjectName} for uniquely identifying the MXBean for
+ * the pool within an {@link javax.management.MBeanServer
+ * MBeanServer} is:
+ * <blockquote>
+ *    {@code java.util.zip:type=ZStreamPool}
+ * </blockquote>
+ *
+ * <p> All values are estimates, obtained without synchronizing with
+ * threads using the pool.
+ *
+ * @see java.util.zip.ZStreamPool
+ * @since   1.8
+ */
+public interface ZStreamPoolMXBean extends PlatformManagedObject {
+
+    /**
+     * Returns the number of inflaters whose native zlib stream has
+     * been created and not yet ended, whether pooled or in use.
+     *
+     * @return the number of live inflaters
+     */
+    long getLiveInflaterCount();
+
+    /**
+     * Returns the number of deflaters whose native zlib stream has
+     * been created and not yet ended, whether pooled or in use.
+     *
+     * @return the number of live deflaters
+     */
+    long getLiveDeflaterCount();
+
+    /**
+     * Returns the number of inflaters held in the pool.
+     *
+     * @return the number of pooled inflaters
+     */
+    int getPooledInflaterCount();
+
+    /**
+     * Returns the number of deflaters held in the pool.
+     *
+     * @return the number of pooled deflaters
+     */
+    int getPooledDeflaterCount();
+
+    /**
+     * Returns the number of inflaters obtained from the pool.
+     *
+     * @return the number of inflater requests satisfied by the pool
+     */
+    long getInflaterHitCount();
+
+    /**
+     * Returns the number of inflaters created because the pool held
+     * none.
+     *
+     * @return the number of inflater requests not satisfied by the pool
+     */
+    long getInflaterMissCount();
+
+    /**
+     * Returns the number of deflaters obtained from the pool.
+     *
+     * @return the number of deflater requests satisfied by the pool
+     */
+    long getDeflaterHitCount();
+
+    /**
+     * Returns the number of deflaters created because the pool held
+     * none.
+     *
+     * @return the number of deflater requests not satisfied by the pool
+     */
+    long getDeflaterMissCount();
+}
@@ -400,13 +400,24 @@ abstract class AbstractPlainSocketImpl extends SocketImpl
     }
 
     /**
-     * Accepts connections.
+     * Accepts connections. When invoked by a worker thread of a
+     * lightweight thread executor, waits for a connection as a
+     * managed blocker.
      * @param s the connection
      */
     protected void accept(SocketImpl s) throws IOException {
         acquireFD();
         try {
-            socketAccept(s);
+            if (!SocketBlocker.isManaged())
+                socketAccept(s);
+            else {
+                new SocketBlocker() {
+                    int perform() throws IOException {
+                        socketAccept(s);
+                        return 0;
+                    }
+                }.run();
+            }
         } finally {
             releaseFD();
         }
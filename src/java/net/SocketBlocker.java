@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.net;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import sun.misc.LightweightWorkerThread;
+
+/**
+ * A blocking socket operation that, when invoked by a worker thread
+ * of a lightweight thread executor, is performed as a {@link
+ * ForkJoinPool.ManagedBlocker}, so that the pool may activate a
+ * spare thread to maintain its parallelism while the worker is
+ * blocked. Callers check {@link #isManaged} first, so that other
+ * threads perform the operation directly, without allocation.
+ * Note this class should <b>NOT</b> be public.
+ *
+ * @see java.util.concurrent.Executors#newLightweightThreadExecutor
+ */
+abstract class SocketBlocker implements ForkJoinPool.ManagedBlocker {
+
+    private int result;
+    private IOException failure;
+    private boolean done;
+
+    /**
+     * Performs the blocking operation.
+     * @return the result of the operation
+     * @exception IOException If an I/O error has occurred.
+     */
+    abstract int perform() throws IOException;
+
+    /**
+     * Returns true if blocking operations of the current thread
+     * should be managed, that is, if it is a worker thread of a
+     * lightweight thread executor.
+     */
+    static boolean isManaged() {
+        return Thread.currentThread() instanceof LightweightWorkerThread;
+    }
+
+    /**
+     * Performs the blocking operation as a managed blocker.
+     * @return the result of the operation
+     * @exception IOException If an I/O error has occurred.
+     */
+    final int run() throws IOException {
+        try {
+            ForkJoinPool.managedBlock(this);
+        } catch (RejectedExecutionException | InterruptedException ex) {
+            // the pool could not replace this thread; block anyway
+            // (InterruptedException is declared but only thrown by block)
+            if (!done)
+                block();
+        }
+        if (failure != null)
+            throw failure;
+        return result;
+    }
+
+    public final boolean block() {
+        try {
+            result = perform();
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            done = true;
+        }
+        return true;
+    }
+
+    public final boolean isReleasable() {
+        return done;
+    }
+}
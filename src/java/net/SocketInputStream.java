@@ -81,7 +81,9 @@ class SocketInputStream extends FileInputStream
 
     /**
      * Reads into an array of bytes at the specified offset using
-     * the received socket primitive.
+     * the received socket primitive. When invoked by a worker thread
+     * of a lightweight thread executor, the read is performed as a
+     * managed blocker.
      * @param fd the FileDescriptor
      * @param b the buffer into which the data is read
      * @param off the start offset of the data
@@ -99,7 +101,9 @@ class SocketInputStream extends FileInputStream
     // wrap native call to allow instrumentation
     /**
      * Reads into an array of bytes at the specified offset using
-     * the received socket primitive.
+     * the received socket primitive. When invoked by a worker thread
+     * of a lightweight thread executor, the read is performed as a
+     * managed blocker.
      * @param fd the FileDescriptor
      * @param b the buffer into which the data is read
      * @param off the start offset of the data
@@ -113,7 +117,13 @@ class SocketInputStream extends FileInputStream
                            byte b[], int off, int len,
                            int timeout)
         throws IOException {
-        return socketRead0(fd, b, off, len, timeout);
+        if (!SocketBlocker.isManaged())
+            return socketRead0(fd, b, off, len, timeout);
+        return new SocketBlocker() {
+            int perform() throws IOException {
+                return socketRead0(fd, b, off, len, timeout);
+            }
+        }.run();
     }
 
     /**
@@ -37,6 +37,7 @@ import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
@@ -73,6 +74,7 @@ import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -3784,4 +3786,151 @@ public final class Files {
     public static Stream<String> lines(Path path) throws IOException {
         return lines(path, StandardCharsets.UTF_8);
     }
+
+    /**
+     * Read all lines from a file as a {@code Stream} of character sequences
+     * viewing the bytes of the file in place.  The file is read through
+     * memory mappings, and lines whose every byte is a character of the
+     * specified charset, such as all lines of an ASCII file, are not copied
+     * into the heap.  Other lines are decoded as by {@link #lines(Path,
+     * Charset) lines}.  The same line terminators as specified by {@code
+     * readAllLines} are supported.
+     *
+     * <p> The stream splits at line boundaries for parallel processing.  Its
+     * lines are those of the file as of the size of the file when it was
+     * opened; a file whose size is not known, such as some special files,
+     * has no lines.  A line is a view of the mapped file, so it reflects
+     * later changes to the contents of the file, and should be converted to
+     * a {@code String} with {@link CharSequence#toString() toString} if it
+     * is to be kept.  The mappings remain valid after the stream is closed,
+     * until they are garbage collected.  If the file is truncated while the
+     * stream or its lines are in use, an unspecified exception may be
+     * thrown, as for a {@link java.nio.MappedByteBuffer}; {@link
+     * #lines(Path, Charset) lines} should be used for files that may change.
+     *
+     * <p> After this method returns, then any subsequent I/O exception that
+     * occurs while reading from the file or when a malformed or unmappable byte
+     * sequence is read, is wrapped in an {@link UncheckedIOException} that will
+     * be thrown from the
+     * {@link java.util.stream.Stream} method that caused the read to take
+     * place. In case an {@code IOException} is thrown when closing the file,
+     * it is also wrapped as an {@code UncheckedIOException}.
+     *
+     * <p> The returned stream encapsulates a {@link FileChannel}.  If timely
+     * disposal of file system resources is required, the try-with-resources
+     * construct should be used to ensure that the stream's
+     * {@link Stream#close close} method is invoked after the stream operations
+     * are completed.
+     *
+     * @param   path
+     *          the path to the file
+     * @param   cs
+     *          the charset of the file, which must be one of
+     *          {@link StandardCharsets#US_ASCII US-ASCII},
+     *          {@link StandardCharsets#ISO_8859_1 ISO-8859-1} and
+     *          {@link StandardCharsets#UTF_8 UTF-8}
+     *
+     * @return  the lines from the file as a {@code Stream}
+     *
+     * @throws  IllegalArgumentException
+     *          if the charset is not supported
+     * @throws  UnsupportedOperationException
+     *          if the file system of the path does not support file channels
+     * @throws  IOException
+     *          if an I/O error occurs opening the file
+     * @throws  SecurityException
+     *          In the case of the default provider, and a security manager is
+     *          installed, the {@link SecurityManager#checkRead(String) checkRead}
+     *          method is invoked to check read access to the file.
+     *
+     * @see     #lines(Path, Charset)
+     * @since   1.8
+     */
+    public static Stream<CharSequence> lineSequences(Path path, Charset cs) throws IOException {
+        if (!MappedFileSpliterator.OfLines.isSupported(cs))
+            throw new IllegalArgumentException(cs.name());
+        return mappedStream(path, (fc, size) -> new MappedFileSpliterator.OfCharSequences(fc, 0, size, cs));
+    }
+
+    /**
+     * Read all fixed-size records of a file as a {@code Stream} of read-only
+     * byte buffers viewing the bytes of the file in place.  The file is read
+     * through memory mappings, and the bytes of the records are not copied
+     * into the heap.  Each buffer has a position of zero and a capacity and
+     * limit of {@code recordSize}, except the last if the size of the file
+     * is not a multiple of {@code recordSize}, which holds the remaining
+     * bytes.
+     *
+     * <p> The stream is {@link java.util.Spliterator#SIZED sized}, and splits
+     * at record boundaries for parallel processing.  Its records are those of
+     * the file as of the size of the file when it was opened.  A buffer is a
+     * view of the mapped file, so it reflects later changes to the contents
+     * of the file.  The mappings remain valid after the stream is closed,
+     * until they are garbage collected.  If the file is truncated while the
+     * stream or its records are in use, an unspecified exception may be
+     * thrown, as for a {@link java.nio.MappedByteBuffer}.
+     *
+     * <p> After this method returns, then any subsequent I/O exception that
+     * occurs while reading from the file is wrapped in an {@link
+     * UncheckedIOException} that will be thrown from the
+     * {@link java.util.stream.Stream} method that caused the read to take
+     * place. In case an {@code IOException} is thrown when closing the file,
+     * it is also wrapped as an {@code UncheckedIOException}.
+     *
+     * <p> The returned stream encapsulates a {@link FileChannel}.  If timely
+     * disposal of file system resources is required, the try-with-resources
+     * construct should be used to ensure that the stream's
+     * {@link Stream#close close} method is invoked after the stream operations
+     * are completed.
+     *
+     * @param   path
+     *          the path to the file
+     * @param   recordSize
+     *          the size of a record in bytes
+     *
+     * @return  the records of the file as a {@code Stream}
+     *
+     * @throws  IllegalArgumentException
+     *          if {@code recordSize} is not positive
+     * @throws  UnsupportedOperationException
+     *          if the file system of the path does not support file channels
+     * @throws  IOException
+     *          if an I/O error occurs opening the file
+     * @throws  SecurityException
+     *          In the case of the default provider, and a security manager is
+     *          installed, the {@link SecurityManager#checkRead(String) checkRead}
+     *          method is invoked to check read access to the file.
+     *
+     * @since   1.8
+     */
+    public static Stream<ByteBuffer> records(Path path, int recordSize) throws IOException {
+        if (recordSize <= 0)
+            throw new IllegalArgumentException(Integer.toString(recordSize));
+        return mappedStream(path, (fc, size) -> new MappedFileSpliterator.OfRecords(fc, 0, size, recordSize));
+    }
+
+    /**
+     * Opens a file channel for reading, and returns a stream over the
+     * spliterator made by the given function from the channel and the size
+     * of the file.  The stream closes the channel when it is closed.
+     */
+    private static <T> Stream<T> mappedStream(Path path,
+                                              BiFunction<FileChannel, Long, Spliterator<T>> source)
+        throws IOException
+    {
+        FileChannel fc = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return StreamSupport.stream(source.apply(fc, fc.size()), false)
+                                .onClose(asUncheckedRunnable(fc));
+        } catch (Error|RuntimeException|IOException e) {
+            try {
+                fc.close();
+            } catch (IOException ex) {
+                try {
+                    e.addSuppressed(ex);
+                } catch (Throwable ignore) {}
+            }
+            throw e;
+        }
+    }
 }
@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.nio.file;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A spliterator over a region of a file, traversed through read-only memory
+ * mappings of a window of the file at a time, so that its elements are read
+ * without copying the bytes of the file into the heap.  Mappings are made
+ * lazily, per split, so that parallel traversals of files larger than a
+ * single mapping may proceed independently.  Mappings are released when they
+ * become unreachable, and are not affected by closing the channel.
+ */
+abstract class MappedFileSpliterator<T> implements Spliterator<T> {
+
+    /** The size of the window of the file mapped at a time */
+    static final long WINDOW_SIZE = 1L << 26;
+
+    /** The maximum size of a window, bounding the size of an element */
+    static final long MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+    final FileChannel fc;
+    long index;       // the position of the next element
+    final long fence; // one past the position of the last element
+
+    private ByteBuffer window; // null until mapped
+    private long windowStart;
+
+    MappedFileSpliterator(FileChannel fc, long index, long fence) {
+        this.fc = fc;
+        this.index = index;
+        this.fence = fence;
+    }
+
+    /**
+     * Returns the mapped window, mapping one of the given size at the given
+     * position if the current window does not cover the position.
+     */
+    final ByteBuffer window(long position, long size) {
+        ByteBuffer w = window;
+        if (w == null || position < windowStart || position >= windowStart + w.capacity())
+            w = map(position, size);
+        return w;
+    }
+
+    /** Maps a window of the given size at the given position. */
+    final ByteBuffer map(long position, long size) {
+        try {
+            window = fc.map(FileChannel.MapMode.READ_ONLY, position, size);
+            windowStart = position;
+            return window;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Returns the position in the file of the start of the window. */
+    final long windowStart() {
+        return windowStart;
+    }
+
+    /**
+     * Returns a read-only view of the given portion of a window, with
+     * position zero.
+     */
+    static ByteBuffer slice(ByteBuffer window, int off, int len) {
+        ByteBuffer d = window.duplicate();
+        d.position(off);
+        d.limit(off + len);
+        return d.slice();
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        Objects.requireNonNull(action);
+        while (tryAdvance(action)) { }
+    }
+
+    @Override
+    public Comparator<? super T> getComparator() {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * A spliterator over the lines of a file of a charset in which the bytes
+     * of carriage return and line feed always encode those characters, such
+     * as US-ASCII, ISO-8859-1 and UTF-8.  Lines are terminated as by
+     * {@link java.io.BufferedReader#readLine()}.  Splits are made at the first
+     * line terminator after the middle of the region, found by reading
+     * forward from there.
+     */
+    abstract static class OfLines<T> extends MappedFileSpliterator<T> {
+        /** The number of bytes read at a time when looking for a split */
+        private static final int SCAN_SIZE = 1 << 12;
+
+        final Charset cs;
+
+        OfLines(FileChannel fc, long index, long fence, Charset cs) {
+            super(fc, index, fence);
+            this.cs = cs;
+        }
+
+        /**
+         * Returns whether lines of the given charset may be traversed by this
+         * spliterator.
+         */
+        static boolean isSupported(Charset cs) {
+            return cs.equals(StandardCharsets.UTF_8) ||
+                   cs.equals(StandardCharsets.ISO_8859_1) ||
+                   cs.equals(StandardCharsets.US_ASCII);
+        }
+
+        /** Returns the line held by the given portion of a window. */
+        abstract T line(ByteBuffer window, int off, int len);
+
+        /** Returns a spliterator over the given region of the file. */
+        abstract OfLines<T> split(long index, long fence);
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            long i = index;
+            if (i >= fence)
+                return false;
+            ByteBuffer w = window(i, Math.min(fence - i, WINDOW_SIZE));
+            for (;;) {
+                long ws = windowStart();
+                int off = (int) (i - ws);
+                int lim = (int) (Math.min(fence, ws + w.capacity()) - ws);
+                boolean atFence = ws + lim == fence;
+                int j = off;
+                byte b = 0;
+                while (j < lim && (b = w.get(j)) != '\n' && b != '\r')
+                    j++;
+                if (j < lim && (b == '\n' || j + 1 < lim || atFence)) {
+                    int next = (b == '\r' && j + 1 < lim && w.get(j + 1) == '\n') ? j + 2 : j + 1;
+                    index = ws + next;
+                    action.accept(line(w, off, j - off));
+                    return true;
+                }
+                if (j == lim && atFence) {
+                    index = fence;
+                    action.accept(line(w, off, lim - off));
+                    return true;
+                }
+                // The line, or a CR LF pair, straddles the end of the window
+                long size = Math.min(fence - i, Math.max(WINDOW_SIZE, 2L * (lim - off)));
+                size = Math.min(size, MAX_WINDOW_SIZE);
+                if (size <= lim - off)
+                    throw new UncheckedIOException(new IOException("Line too long"));
+                w = map(i, size);
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            long lo = index, hi = fence;
+            long mid = (lo + hi) >>> 1;
+            if (mid <= lo)
+                return null;
+            long b = boundary(mid, hi);
+            if (b < 0 || b >= hi)
+                return null;
+            index = b;
+            return split(lo, b);
+        }
+
+        /**
+         * Returns the position following the first line terminator at or
+         * after {@code from}, or -1 if there is none before {@code to}.
+         */
+        private long boundary(long from, long to) {
+            ByteBuffer buf = ByteBuffer.allocate(SCAN_SIZE);
+            boolean cr = false;
+            try {
+                for (long p = from; p < to; ) {
+                    buf.clear();
+                    buf.limit((int) Math.min(SCAN_SIZE, to - p));
+                    int n = fc.read(buf, p);
+                    if (n <= 0)
+                        return -1;
+                    for (int k = 0; k < n; k++, p++) {
+                        byte b = buf.get(k);
+                        if (cr)
+                            return (b == '\n') ? p + 1 : p;
+                        if (b == '\n')
+                            return p + 1;
+                        cr = (b == '\r');
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return cr ? to : -1;
+        }
+
+        @Override
+        public long estimateSize() {
+            // Use the number of bytes as the estimate
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.NONNULL;
+        }
+    }
+
+    /**
+     * A spliterator over the lines of a file as character sequences.  Lines
+     * whose every byte encodes a single character in the charset of the file,
+     * such as lines of ASCII characters, are views of the mapped bytes.
+     * Other lines are decoded.
+     */
+    static final class OfCharSequences extends OfLines<CharSequence> {
+        private final boolean singleByte;
+        private CharsetDecoder decoder; // created lazily
+
+        OfCharSequences(FileChannel fc, long index, long fence, Charset cs) {
+            super(fc, index, fence, cs);
+            this.singleByte = cs.equals(StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        CharSequence line(ByteBuffer window, int off, int len) {
+            ByteBuffer bytes = slice(window, off, len);
+            if (!singleByte) {
+                for (int k = 0; k < len; k++) {
+                    if (bytes.get(k) < 0)
+                        return decode(bytes);
+                }
+            }
+            return new ByteCharSequence(bytes);
+        }
+
+        private CharBuffer decode(ByteBuffer bytes) {
+            CharsetDecoder d = decoder;
+            if (d == null)
+                decoder = d = cs.newDecoder();
+            try {
+                return d.decode(bytes);
+            } catch (CharacterCodingException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        OfLines<CharSequence> split(long index, long fence) {
+            return new OfCharSequences(fc, index, fence, cs);
+        }
+    }
+
+    /**
+     * A character sequence viewing bytes each of which encodes the character
+     * of the same value.
+     */
+    static final class ByteCharSequence implements CharSequence {
+        private final ByteBuffer bytes;
+
+        ByteCharSequence(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int length() {
+            return bytes.capacity();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes.get(index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || start > end || end > length())
+                throw new IndexOutOfBoundsException();
+            return new ByteCharSequence(slice(bytes, start, end - start));
+        }
+
+        @Override
+        public String toString() {
+            byte[] a = new byte[bytes.capacity()];
+            bytes.duplicate().get(a);
+            return new String(a, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    /**
+     * A spliterator over the fixed-size records of a file as read-only
+     * buffers.  The last record is shorter if the size of the region is not
+     * a multiple of the record size.
+     */
+    static final class OfRecords extends MappedFileSpliterator<ByteBuffer> {
+        private final int recordSize;
+
+        OfRecords(FileChannel fc, long index, long fence, int recordSize) {
+            super(fc, index, fence);
+            this.recordSize = recordSize;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super ByteBuffer> action) {
+            Objects.requireNonNull(action);
+            long i = index;
+            if (i >= fence)
+                return false;
+            int len = (int) Math.min(recordSize, fence - i);
+            ByteBuffer w = window(i, Math.min(fence - i, Math.max(WINDOW_SIZE / recordSize, 1L) * recordSize));
+            int off = (int) (i - windowStart());
+            if (off + len > w.capacity()) {
+                w = map(i, Math.min(fence - i, Math.max(WINDOW_SIZE / recordSize, 1L) * recordSize));
+                off = 0;
+            }
+            index = i + len;
+            action.accept(slice(w, off, len));
+            return true;
+        }
+
+        @Override
+        public Spliterator<ByteBuffer> trySplit() {
+            long lo = index;
+            long n = estimateSize();
+            if (n < 2)
+                return null;
+            long mid = lo + (n >>> 1) * recordSize;
+            index = mid;
+            return new OfRecords(fc, lo, mid, recordSize);
+        }
+
+        @Override
+        public long estimateSize() {
+            return (fence - index + recordSize - 1) / recordSize;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.NONNULL |
+                   Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+}
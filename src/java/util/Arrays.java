@@ -121,6 +121,29 @@ public class Arrays {
         }
     }
 
+    /**
+     * Checks that the arrays of keys and values of a co-sort have the
+     * same length.
+     */
+    private static void lengthCheck(int keysLength, int valuesLength) {
+        if (keysLength != valuesLength) {
+            throw new IllegalArgumentException(
+                    "keys.length(" + keysLength + ") != values.length(" +
+                    valuesLength + ")");
+        }
+    }
+
+    /**
+     * Returns the number of chunks processed in parallel in each pass
+     * of a parallel radix sort of {@code n} elements.
+     */
+    private static int sortByChunks(int n) {
+        int p;
+        return (n <= MIN_ARRAY_SORT_GRAN ||
+                (p = ForkJoinPool.getCommonPoolParallelism()) == 1) ?
+            1 : Math.min(p << 2, n / MIN_ARRAY_SORT_GRAN);
+    }
+
     /*
      * Sorting methods. Note that all public "sort" methods take the
      * same form: Performing argument checks if necessary, and then
@@ -1571,6 +1594,508 @@ public class Arrays {
         }
     }
 
+    // Co-sorting
+
+    /*
+     * Co-sorting methods sort an array of primitive keys, applying the
+     * same permutation to a second array of values, typically payloads
+     * or a permutation of indices, without boxing keys and values into
+     * pair objects.  All are stable, so also usable to build multi-key
+     * sorts by sorting on the least significant key first.
+     */
+
+    /**
+     * Sorts the specified array of keys into ascending numerical order,
+     * reordering the specified array of values so that each value stays
+     * at the same index as its key. The sort is <i>stable</i>: values of
+     * equal keys retain their relative order.
+     *
+     * <p>Implementation note: The sorting algorithm is a least-significant
+     * digit radix sort that skips digits shared by all keys, and uses
+     * insertion sort for small arrays. It requires working space for a copy
+     * of both arrays.
+     *
+     * @param keys the array of keys to be sorted
+     * @param values the array of values to be reordered with the keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     *
+     * @since 1.8
+     */
+    public static void sortBy(int[] keys, int[] values) {
+        lengthCheck(keys.length, values.length);
+        RadixSort.sortBy(keys, values, 0, keys.length, 1);
+    }
+
+    /**
+     * Sorts the specified range of the array of keys into ascending
+     * numerical order, reordering the same range of the array of values
+     * so that each value stays at the same index as its key. The range
+     * to be sorted extends from the index {@code fromIndex}, inclusive,
+     * to the index {@code toIndex}, exclusive. If {@code fromIndex ==
+     * toIndex}, the range to be sorted is empty. The sort is <i>stable</i>:
+     * values of equal keys retain their relative order.
+     *
+     * <p>Implementation note: The sorting algorithm is a least-significant
+     * digit radix sort that skips digits shared by all keys, and uses
+     * insertion sort for small ranges. It requires working space for a copy
+     * of both ranges.
+     *
+     * @param keys the array of keys to be sorted
+     * @param values the array of values to be reordered with the keys
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0}, {@code toIndex > keys.length}
+     *     or {@code toIndex > values.length}
+     *
+     * @since 1.8
+     */
+    public static void sortBy(int[] keys, int[] values,
+                              int fromIndex, int toIndex) {
+        rangeCheck(keys.length, fromIndex, toIndex);
+        rangeCheck(values.length, fromIndex, toIndex);
+        RadixSort.sortBy(keys, values, fromIndex, toIndex, 1);
+    }
+
+    /**
+     * Sorts the specified array of keys into ascending numerical order,
+     * reordering the specified array of values so that each value stays
+     * at the same index as its key. The sort is <i>stable</i>: values of
+     * equal keys retain their relative order.
+     *
+     * <p>Implementation note: The sorting algorithm is a least-significant
+     * digit radix sort that skips digits shared by all keys, and uses
+     * insertion sort for small arrays. It requires working space for a copy
+     * of both arrays.
+     *
+     * @param keys the array of keys to be sorted
+     * @param values the array of values to be reordered with the keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     *
+     * @since 1.8
+     */
+    public static void sortBy(long[] keys, int[] values) {
+        lengthCheck(keys.length, values.length);
+        RadixSort.sortBy(keys, values, 0, keys.length, 1);
+    }
+
+    /**
+     * Sorts the specified range of the array of keys into ascending
+     * numerical order, reordering the same range of the array of values
+     * so that each value stays at the same index as its key. The range
+     * to be sorted extends from the index {@code fromIndex}, inclusive,
+     * to the index {@code toIndex}, exclusive. If {@code fromIndex ==
+     * toIndex}, the range to be sorted is empty. The sort is <i>stable</i>:
+     * values of equal keys retain their relative order.
+     *
+     * <p>Implementation note: The sorting algorithm is a least-significant
+     * digit radix sort that skips digits shared by all keys, and uses
+     * insertion sort for small ranges. It requires working space for a copy
+     * of both ranges.
+     *
+     * @param keys the array of keys to be sorted
+     * @param values the array of values to be reordered with the keys
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0}, {@code toIndex > keys.length}
+     *     or {@code toIndex > values.length}
+     *
+     * @since 1.8
+     */
+    public static void sortBy(long[] keys, int[] values,
+                              int fromIndex, int toIndex) {
+        rangeCheck(keys.length, fromIndex, toIndex);
+        rangeCheck(values.length, fromIndex, toIndex);
+        RadixSort.sortBy(keys, values, fromIndex, toIndex, 1);
+    }
+
+    /**
+     * Sorts the specified array of keys into ascending numerical order,
+     * reordering the specified array of values so that each value stays
+     * at the same index as its key. The sort is <i>stable</i>: values of
+     * equal keys retain their relative order.
+     *
+     * <p>Implementation note: The sorting algorithm is a least-significant
+     * digit radix sort that skips digits shared by all keys, and uses
+     * insertion sort for small arrays. It requires working space for a copy
+     * of both arrays.
+     *
+     * @param <T> the class of the values
+     * @param keys the array of keys to be sorted
+     * @param values the array of values to be reordered with the keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     *
+     * @since 1.8
+     */
+    public static <T> void sortBy(int[] keys, T[] values) {
+        lengthCheck(keys.length, values.length);
+        RadixSort.sortBy(keys, values, 0, keys.length, 1);
+    }
+
+    /**
+     * Sorts the specified range of the array of keys into ascending
+     * numerical order, reordering the same range of the array of values
+     * so that each value stays at the same index as its key. The range
+     * to be sorted extends from the index {@code fromIndex}, inclusive,
+     * to the index {@code toIndex}, exclusive. If {@code fromIndex ==
+     * toIndex}, the range to be sorted is empty. The sort is <i>stable</i>:
+     * values of equal keys retain their relative order.
+     *
+     * <p>Implementation note: The sorting algorithm is a least-significant
+     * digit radix sort that skips digits shared by all keys, and uses
+     * insertion sort for small ranges. It requires working space for a copy
+     * of both ranges.
+     *
+     * @param <T> the class of the values
+     * @param keys the array of keys to be sorted
+     * @param values the array of values to be reordered with the keys
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0}, {@code toIndex > keys.length}
+     *     or {@code toIndex > values.length}
+     *
+     * @since 1.8
+     */
+    public static <T> void sortBy(int[] keys, T[] values,
+                                  int fromIndex, int toIndex) {
+        rangeCheck(keys.length, fromIndex, toIndex);
+        rangeCheck(values.length, fromIndex, toIndex);
+        RadixSort.sortBy(keys, values, fromIndex, toIndex, 1);
+    }
+
+    /**
+     * Sorts the specified array of keys into ascending numerical order,
+     * reordering the specified array of values so that each value stays
+     * at the same index as its key. The sort is <i>stable</i>: values of
+     * equal keys retain their relative order.
+     *
+     * <p>Implementation note: The sorting algorithm is a least-significant
+     * digit radix sort that skips digits shared by all keys, and uses
+     * insertion sort for small arrays. It requires working space for a copy
+     * of both arrays.
+     *
+     * @param <T> the class of the values
+     * @param keys the array of keys to be sorted
+     * @param values the array of values to be reordered with the keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     *
+     * @since 1.8
+     */
+    public static <T> void sortBy(long[] keys, T[] values) {
+        lengthCheck(keys.length, values.length);
+        RadixSort.sortBy(keys, values, 0, keys.length, 1);
+    }
+
+    /**
+     * Sorts the specified range of the array of keys into ascending
+     * numerical order, reordering the same range of the array of values
+     * so that each value stays at the same index as its key. The range
+     * to be sorted extends from the index {@code fromIndex}, inclusive,
+     * to the index {@code toIndex}, exclusive. If {@code fromIndex ==
+     * toIndex}, the range to be sorted is empty. The sort is <i>stable</i>:
+     * values of equal keys retain their relative order.
+     *
+     * <p>Implementation note: The sorting algorithm is a least-significant
+     * digit radix sort that skips digits shared by all keys, and uses
+     * insertion sort for small ranges. It requires working space for a copy
+     * of both ranges.
+     *
+     * @param <T> the class of the values
+     * @param keys the array of keys to be sorted
+     * @param values the array of values to be reordered with the keys
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0}, {@code toIndex > keys.length}
+     *     or {@code toIndex > values.length}
+     *
+     * @since 1.8
+     */
+    public static <T> void sortBy(long[] keys, T[] values,
+                                  int fromIndex, int toIndex) {
+        rangeCheck(keys.length, fromIndex, toIndex);
+        rangeCheck(values.length, fromIndex, toIndex);
+        RadixSort.sortBy(keys, values, fromIndex, toIndex, 1);
+    }
+
+    /**
+     * Sorts the specified array of keys into ascending numerical order,
+     * reordering the specified array of values so that each value stays
+     * at the same index as its key. The sort is <i>stable</i>: values of
+     * equal keys retain their relative order.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort, as for {@link #sortBy(int[], int[]) sortBy}, in which each
+     * pass counts and then moves elements of consecutive sub-arrays in
+     * parallel. If the length of the specified array is less than the
+     * minimum granularity, then it is sorted using the appropriate {@link
+     * #sortBy(int[], int[]) sortBy} method. The algorithm requires working
+     * space for a copy of both arrays. The {@link ForkJoinPool#commonPool()
+     * ForkJoin common pool} is used to execute any parallel tasks.
+     *
+     * @param keys the array of keys to be sorted
+     * @param values the array of values to be reordered with the keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     *
+     * @since 1.8
+     */
+    public static void parallelSortBy(int[] keys, int[] values) {
+        lengthCheck(keys.length, values.length);
+        RadixSort.sortBy(keys, values, 0, keys.length,
+                         sortByChunks(keys.length));
+    }
+
+    /**
+     * Sorts the specified range of the array of keys into ascending
+     * numerical order, reordering the same range of the array of values
+     * so that each value stays at the same index as its key. The range
+     * to be sorted extends from the index {@code fromIndex}, inclusive,
+     * to the index {@code toIndex}, exclusive. If {@code fromIndex ==
+     * toIndex}, the range to be sorted is empty. The sort is <i>stable</i>:
+     * values of equal keys retain their relative order.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort, as for {@link #sortBy(int[], int[]) sortBy}, in which each
+     * pass counts and then moves elements of consecutive sub-arrays in
+     * parallel. If the length of the specified range is less than the
+     * minimum granularity, then it is sorted using the appropriate {@link
+     * #sortBy(int[], int[], int, int) sortBy} method. The algorithm
+     * requires working space for a copy of both ranges. The {@link
+     * ForkJoinPool#commonPool() ForkJoin common pool} is used to execute
+     * any parallel tasks.
+     *
+     * @param keys the array of keys to be sorted
+     * @param values the array of values to be reordered with the keys
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0}, {@code toIndex > keys.length}
+     *     or {@code toIndex > values.length}
+     *
+     * @since 1.8
+     */
+    public static void parallelSortBy(int[] keys, int[] values,
+                                      int fromIndex, int toIndex) {
+        rangeCheck(keys.length, fromIndex, toIndex);
+        rangeCheck(values.length, fromIndex, toIndex);
+        RadixSort.sortBy(keys, values, fromIndex, toIndex,
+                         sortByChunks(toIndex - fromIndex));
+    }
+
+    /**
+     * Sorts the specified array of keys into ascending numerical order,
+     * reordering the specified array of values so that each value stays
+     * at the same index as its key. The sort is <i>stable</i>: values of
+     * equal keys retain their relative order.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort, as for {@link #sortBy(long[], int[]) sortBy}, in which each
+     * pass counts and then moves elements of consecutive sub-arrays in
+     * parallel. If the length of the specified array is less than the
+     * minimum granularity, then it is sorted using the appropriate {@link
+     * #sortBy(long[], int[]) sortBy} method. The algorithm requires working
+     * space for a copy of both arrays. The {@link ForkJoinPool#commonPool()
+     * ForkJoin common pool} is used to execute any parallel tasks.
+     *
+     * @param keys the array of keys to be sorted
+     * @param values the array of values to be reordered with the keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     *
+     * @since 1.8
+     */
+    public static void parallelSortBy(long[] keys, int[] values) {
+        lengthCheck(keys.length, values.length);
+        RadixSort.sortBy(keys, values, 0, keys.length,
+                         sortByChunks(keys.length));
+    }
+
+    /**
+     * Sorts the specified range of the array of keys into ascending
+     * numerical order, reordering the same range of the array of values
+     * so that each value stays at the same index as its key. The range
+     * to be sorted extends from the index {@code fromIndex}, inclusive,
+     * to the index {@code toIndex}, exclusive. If {@code fromIndex ==
+     * toIndex}, the range to be sorted is empty. The sort is <i>stable</i>:
+     * values of equal keys retain their relative order.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort, as for {@link #sortBy(long[], int[]) sortBy}, in which each
+     * pass counts and then moves elements of consecutive sub-arrays in
+     * parallel. If the length of the specified range is less than the
+     * minimum granularity, then it is sorted using the appropriate {@link
+     * #sortBy(long[], int[], int, int) sortBy} method. The algorithm
+     * requires working space for a copy of both ranges. The {@link
+     * ForkJoinPool#commonPool() ForkJoin common pool} is used to execute
+     * any parallel tasks.
+     *
+     * @param keys the array of keys to be sorted
+     * @param values the array of values to be reordered with the keys
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0}, {@code toIndex > keys.length}
+     *     or {@code toIndex > values.length}
+     *
+     * @since 1.8
+     */
+    public static void parallelSortBy(long[] keys, int[] values,
+                                      int fromIndex, int toIndex) {
+        rangeCheck(keys.length, fromIndex, toIndex);
+        rangeCheck(values.length, fromIndex, toIndex);
+        RadixSort.sortBy(keys, values, fromIndex, toIndex,
+                         sortByChunks(toIndex - fromIndex));
+    }
+
+    /**
+     * Sorts the specified array of keys into ascending numerical order,
+     * reordering the specified array of values so that each value stays
+     * at the same index as its key. The sort is <i>stable</i>: values of
+     * equal keys retain their relative order.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort, as for {@link #sortBy(int[], Object[]) sortBy}, in which each
+     * pass counts and then moves elements of consecutive sub-arrays in
+     * parallel. If the length of the specified array is less than the
+     * minimum granularity, then it is sorted using the appropriate {@link
+     * #sortBy(int[], Object[]) sortBy} method. The algorithm requires working
+     * space for a copy of both arrays. The {@link ForkJoinPool#commonPool()
+     * ForkJoin common pool} is used to execute any parallel tasks.
+     *
+     * @param <T> the class of the values
+     * @param keys the array of keys to be sorted
+     * @param values the array of values to be reordered with the keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     *
+     * @since 1.8
+     */
+    public static <T> void parallelSortBy(int[] keys, T[] values) {
+        lengthCheck(keys.length, values.length);
+        RadixSort.sortBy(keys, values, 0, keys.length,
+                         sortByChunks(keys.length));
+    }
+
+    /**
+     * Sorts the specified range of the array of keys into ascending
+     * numerical order, reordering the same range of the array of values
+     * so that each value stays at the same index as its key. The range
+     * to be sorted extends from the index {@code fromIndex}, inclusive,
+     * to the index {@code toIndex}, exclusive. If {@code fromIndex ==
+     * toIndex}, the range to be sorted is empty. The sort is <i>stable</i>:
+     * values of equal keys retain their relative order.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort, as for {@link #sortBy(int[], Object[]) sortBy}, in which each
+     * pass counts and then moves elements of consecutive sub-arrays in
+     * parallel. If the length of the specified range is less than the
+     * minimum granularity, then it is sorted using the appropriate {@link
+     * #sortBy(int[], Object[], int, int) sortBy} method. The algorithm
+     * requires working space for a copy of both ranges. The {@link
+     * ForkJoinPool#commonPool() ForkJoin common pool} is used to execute
+     * any parallel tasks.
+     *
+     * @param <T> the class of the values
+     * @param keys the array of keys to be sorted
+     * @param values the array of values to be reordered with the keys
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0}, {@code toIndex > keys.length}
+     *     or {@code toIndex > values.length}
+     *
+     * @since 1.8
+     */
+    public static <T> void parallelSortBy(int[] keys, T[] values,
+                                          int fromIndex, int toIndex) {
+        rangeCheck(keys.length, fromIndex, toIndex);
+        rangeCheck(values.length, fromIndex, toIndex);
+        RadixSort.sortBy(keys, values, fromIndex, toIndex,
+                         sortByChunks(toIndex - fromIndex));
+    }
+
+    /**
+     * Sorts the specified array of keys into ascending numerical order,
+     * reordering the specified array of values so that each value stays
+     * at the same index as its key. The sort is <i>stable</i>: values of
+     * equal keys retain their relative order.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort, as for {@link #sortBy(long[], Object[]) sortBy}, in which each
+     * pass counts and then moves elements of consecutive sub-arrays in
+     * parallel. If the length of the specified array is less than the
+     * minimum granularity, then it is sorted using the appropriate {@link
+     * #sortBy(long[], Object[]) sortBy} method. The algorithm requires working
+     * space for a copy of both arrays. The {@link ForkJoinPool#commonPool()
+     * ForkJoin common pool} is used to execute any parallel tasks.
+     *
+     * @param <T> the class of the values
+     * @param keys the array of keys to be sorted
+     * @param values the array of values to be reordered with the keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     *
+     * @since 1.8
+     */
+    public static <T> void parallelSortBy(long[] keys, T[] values) {
+        lengthCheck(keys.length, values.length);
+        RadixSort.sortBy(keys, values, 0, keys.length,
+                         sortByChunks(keys.length));
+    }
+
+    /**
+     * Sorts the specified range of the array of keys into ascending
+     * numerical order, reordering the same range of the array of values
+     * so that each value stays at the same index as its key. The range
+     * to be sorted extends from the index {@code fromIndex}, inclusive,
+     * to the index {@code toIndex}, exclusive. If {@code fromIndex ==
+     * toIndex}, the range to be sorted is empty. The sort is <i>stable</i>:
+     * values of equal keys retain their relative order.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort, as for {@link #sortBy(long[], Object[]) sortBy}, in which each
+     * pass counts and then moves elements of consecutive sub-arrays in
+     * parallel. If the length of the specified range is less than the
+     * minimum granularity, then it is sorted using the appropriate {@link
+     * #sortBy(long[], Object[], int, int) sortBy} method. The algorithm
+     * requires working space for a copy of both ranges. The {@link
+     * ForkJoinPool#commonPool() ForkJoin common pool} is used to execute
+     * any parallel tasks.
+     *
+     * @param <T> the class of the values
+     * @param keys the array of keys to be sorted
+     * @param values the array of values to be reordered with the keys
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0}, {@code toIndex > keys.length}
+     *     or {@code toIndex > values.length}
+     *
+     * @since 1.8
+     */
+    public static <T> void parallelSortBy(long[] keys, T[] values,
+                                          int fromIndex, int toIndex) {
+        rangeCheck(keys.length, fromIndex, toIndex);
+        rangeCheck(values.length, fromIndex, toIndex);
+        RadixSort.sortBy(keys, values, fromIndex, toIndex,
+                         sortByChunks(toIndex - fromIndex));
+    }
+
     // Parallel prefix
 
     /**
@@ -0,0 +1,1657 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.lang.reflect.Array;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Resizable-array implementation of the <tt>List</tt> interface that
+ * stores its elements in a sequence of chunks rather than a single
+ * array.  Implements all optional list operations, and permits all
+ * elements, including <tt>null</tt>.
+ *
+ * <p>An {@link ArrayList} grows by allocating a new, larger array and
+ * copying every element into it.  For very large lists these copies
+ * (and the transient presence of both arrays) dominate the cost of
+ * appending, and the large arrays themselves may be expensive for the
+ * garbage collector to allocate and move.  A <tt>ChunkedArrayList</tt>
+ * instead grows by allocating an additional chunk, leaving existing
+ * elements in place.  The first two chunks each hold 16 elements, and
+ * each later chunk is twice as large as the one before it, so that
+ * the chunk containing a given index, and the position within that
+ * chunk, are computed in constant time from the index itself.  This
+ * mirrors the "spined buffers" used internally by streams.
+ *
+ * <p>The <tt>size</tt>, <tt>isEmpty</tt>, <tt>get</tt>, <tt>set</tt>,
+ * <tt>iterator</tt>, and <tt>listIterator</tt> operations run in
+ * constant time.  The <tt>add</tt> operation runs in constant time,
+ * without amortization over copies.  Adding or removing elements
+ * other than at the end requires moving all following elements, as
+ * for <tt>ArrayList</tt>.  Space overhead is at most one half of the
+ * capacity, and capacity once allocated is retained until {@link
+ * #trimToSize} is invoked.  The {@link #spliterator} splits along
+ * index ranges and traverses each chunk as an array, so is well
+ * suited to parallel streams.
+ *
+ * <p>Nested classes {@link OfInt}, {@link OfLong} and {@link OfDouble}
+ * provide the same layout for primitive elements, without boxing.
+ * They support appending, indexed access, and bulk traversal, but are
+ * not themselves <tt>List</tt>s.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a <tt>ChunkedArrayList</tt> instance
+ * concurrently, and at least one of the threads modifies the list
+ * structurally, it <i>must</i> be synchronized externally, for example
+ * by wrapping it with {@link Collections#synchronizedList}.
+ *
+ * <p>The iterators returned by this class's {@link #iterator() iterator}
+ * and {@link #listIterator(int) listIterator} methods are
+ * <em>fail-fast</em>, as described for {@link ArrayList}.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a>.
+ *
+ * @param <E> the type of elements in this list
+ *
+ * @see     ArrayList
+ * @since   1.8
+ */
+public class ChunkedArrayList<E> extends AbstractList<E>
+        implements List<E>, RandomAccess, Cloneable, java.io.Serializable
+{
+    private static final long serialVersionUID = -3325404467418853502L;
+
+    /*
+     * Chunk c (for c > 0) holds the elements with indices in
+     * [1 << (MIN_CHUNK_POWER + c - 1), 1 << (MIN_CHUNK_POWER + c)),
+     * and chunk 0 those in [0, MIN_CHUNK_SIZE).  Chunk c therefore
+     * starts at the index equal to the combined capacity of the
+     * chunks before it, which is also its own length (except for c ==
+     * 0).  The chunk holding index i > MIN_CHUNK_SIZE is found from
+     * the position of the highest one bit of i.  Indices up to
+     * Integer.MAX_VALUE - 1 fit in MAX_CHUNKS chunks, the last of
+     * which holds 1 << 30 elements.
+     *
+     * Chunks are never reallocated, so operations that move ranges
+     * of elements (insertion, removal) copy chunk-sized segments via
+     * System.arraycopy, and operations that visit all elements loop
+     * over chunks, not indices.
+     */
+
+    /** log2 of the size of the first chunk. */
+    static final int MIN_CHUNK_POWER = 4;
+
+    /** The size of the first chunk. */
+    static final int MIN_CHUNK_SIZE = 1 << MIN_CHUNK_POWER;
+
+    /** The maximum number of chunks. */
+    static final int MAX_CHUNKS = 31 - MIN_CHUNK_POWER + 1;
+
+    /** The initial length of the spine of chunks. */
+    static final int INITIAL_SPINE_SIZE = 8;
+
+    private static final Object[][] EMPTY_SPINE = {};
+
+    /**
+     * The chunks holding the elements of this list.  The first
+     * {@code chunks} elements are non-null.
+     */
+    transient Object[][] spine;
+
+    /** The number of chunks allocated. */
+    transient int chunks;
+
+    /**
+     * The size of the ChunkedArrayList (the number of elements it contains).
+     *
+     * @serial
+     */
+    private int size;
+
+    /**
+     * Returns the index of the chunk holding the given index.
+     */
+    static int chunkFor(int index) {
+        return (index < MIN_CHUNK_SIZE) ? 0 :
+            (31 - Integer.numberOfLeadingZeros(index)) - MIN_CHUNK_POWER + 1;
+    }
+
+    /**
+     * Returns the first index held by the given chunk, which is also
+     * the total capacity of all chunks before it.
+     */
+    static int chunkStart(int c) {
+        return (c == 0) ? 0 : 1 << (MIN_CHUNK_POWER + c - 1);
+    }
+
+    /**
+     * Returns the length of the given chunk.
+     */
+    static int chunkSize(int c) {
+        return (c == 0) ? MIN_CHUNK_SIZE : 1 << (MIN_CHUNK_POWER + c - 1);
+    }
+
+    /**
+     * Returns the number of chunks needed to hold the given number
+     * of elements.
+     */
+    static int chunksFor(int capacity) {
+        return (capacity == 0) ? 0 : chunkFor(capacity - 1) + 1;
+    }
+
+    /**
+     * Constructs an empty list.
+     */
+    public ChunkedArrayList() {
+        this.spine = EMPTY_SPINE;
+    }
+
+    /**
+     * Constructs an empty list with the specified initial capacity.
+     *
+     * @param  initialCapacity  the initial capacity of the list
+     * @throws IllegalArgumentException if the specified initial capacity
+     *         is negative
+     */
+    public ChunkedArrayList(int initialCapacity) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal Capacity: "+
+                                               initialCapacity);
+        this.spine = EMPTY_SPINE;
+        ensureCapacityInternal(initialCapacity);
+    }
+
+    /**
+     * Constructs a list containing the elements of the specified
+     * collection, in the order they are returned by the collection's
+     * iterator.
+     *
+     * @param c the collection whose elements are to be placed into this list
+     * @throws NullPointerException if the specified collection is null
+     */
+    public ChunkedArrayList(Collection<? extends E> c) {
+        this.spine = EMPTY_SPINE;
+        addAll(c);
+    }
+
+    /**
+     * Trims the capacity of this <tt>ChunkedArrayList</tt> instance by
+     * releasing chunks that hold no elements.  The last chunk holding
+     * elements is retained as is.
+     */
+    public void trimToSize() {
+        modCount++;
+        int n = chunksFor(size);
+        if (n < chunks) {
+            spine = (n == 0) ? EMPTY_SPINE : Arrays.copyOf(spine, n);
+            chunks = n;
+        }
+    }
+
+    /**
+     * Increases the capacity of this <tt>ChunkedArrayList</tt> instance,
+     * if necessary, to ensure that it can hold at least the number of
+     * elements specified by the minimum capacity argument.
+     *
+     * @param   minCapacity   the desired minimum capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > 0) {
+            modCount++;
+            ensureCapacityInternal(minCapacity);
+        }
+    }
+
+    private void ensureCapacityInternal(int minCapacity) {
+        int n = chunksFor(minCapacity);
+        while (chunks < n)
+            addChunk();
+    }
+
+    /**
+     * Allocates the next chunk, growing the spine if necessary.
+     */
+    private void addChunk() {
+        int c = chunks;
+        if (c == spine.length)
+            spine = Arrays.copyOf(spine, (c == 0) ? INITIAL_SPINE_SIZE :
+                                  Math.min(c << 1, MAX_CHUNKS));
+        spine[c] = new Object[chunkSize(c)];
+        chunks = c + 1;
+    }
+
+    /**
+     * Returns the number of elements in this list.
+     *
+     * @return the number of elements in this list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this list contains no elements.
+     *
+     * @return <tt>true</tt> if this list contains no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this list contains the specified element.
+     *
+     * @param o element whose presence in this list is to be tested
+     * @return <tt>true</tt> if this list contains the specified element
+     */
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     */
+    public int indexOf(Object o) {
+        Object[][] sp = spine;
+        int s = size;
+        for (int c = 0, base = 0; base < s; base += chunkSize(c++)) {
+            Object[] a = sp[c];
+            int n = Math.min(a.length, s - base);
+            for (int i = 0; i < n; i++) {
+                if (o == null ? a[i] == null : o.equals(a[i]))
+                    return base + i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the last occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     */
+    public int lastIndexOf(Object o) {
+        Object[][] sp = spine;
+        int s = size;
+        if (s == 0)
+            return -1;
+        for (int c = chunkFor(s - 1); c >= 0; --c) {
+            Object[] a = sp[c];
+            int base = chunkStart(c);
+            for (int i = Math.min(a.length, s - base) - 1; i >= 0; --i) {
+                if (o == null ? a[i] == null : o.equals(a[i]))
+                    return base + i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a shallow copy of this <tt>ChunkedArrayList</tt> instance.
+     * (The elements themselves are not copied.)
+     *
+     * @return a clone of this <tt>ChunkedArrayList</tt> instance
+     */
+    public Object clone() {
+        try {
+            @SuppressWarnings("unchecked")
+            ChunkedArrayList<E> v = (ChunkedArrayList<E>) super.clone();
+            Object[][] sp = new Object[spine.length][];
+            for (int c = 0; c < chunks; ++c)
+                sp[c] = spine[c].clone();
+            v.spine = sp;
+            v.modCount = 0;
+            return v;
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list
+     * in proper sequence (from first to last element).
+     *
+     * @return an array containing all of the elements in this list in
+     *         proper sequence
+     */
+    public Object[] toArray() {
+        Object[] a = new Object[size];
+        copyOut(0, a, 0, size);
+        return a;
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list in proper
+     * sequence (from first to last element); the runtime type of the returned
+     * array is that of the specified array.  If the list fits in the
+     * specified array, it is returned therein.  Otherwise, a new array is
+     * allocated with the runtime type of the specified array and the size of
+     * this list.
+     *
+     * @param a the array into which the elements of the list are to
+     *          be stored, if it is big enough; otherwise, a new array of the
+     *          same runtime type is allocated for this purpose.
+     * @return an array containing the elements of the list
+     * @throws ArrayStoreException if the runtime type of the specified array
+     *         is not a supertype of the runtime type of every element in
+     *         this list
+     * @throws NullPointerException if the specified array is null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        int s = size;
+        if (a.length < s)
+            a = (T[]) Array.newInstance(a.getClass().getComponentType(), s);
+        copyOut(0, a, 0, s);
+        if (a.length > s)
+            a[s] = null;
+        return a;
+    }
+
+    // Positional Access Operations
+
+    @SuppressWarnings("unchecked")
+    E elementData(int index) {
+        int c = chunkFor(index);
+        return (E) spine[c][index - chunkStart(c)];
+    }
+
+    /**
+     * Returns the element at the specified position in this list.
+     *
+     * @param  index index of the element to return
+     * @return the element at the specified position in this list
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E get(int index) {
+        rangeCheck(index);
+        return elementData(index);
+    }
+
+    /**
+     * Replaces the element at the specified position in this list with
+     * the specified element.
+     *
+     * @param index index of the element to replace
+     * @param element element to be stored at the specified position
+     * @return the element previously at the specified position
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E set(int index, E element) {
+        rangeCheck(index);
+        int c = chunkFor(index);
+        Object[] a = spine[c];
+        int i = index - chunkStart(c);
+        @SuppressWarnings("unchecked") E oldValue = (E) a[i];
+        a[i] = element;
+        return oldValue;
+    }
+
+    /**
+     * Appends the specified element to the end of this list.
+     *
+     * @param e element to be appended to this list
+     * @return <tt>true</tt> (as specified by {@link Collection#add})
+     */
+    public boolean add(E e) {
+        int s = size;
+        if (s == Integer.MAX_VALUE)
+            throw new OutOfMemoryError();
+        modCount++;
+        int c = chunkFor(s);
+        if (c == chunks)
+            addChunk();
+        spine[c][s - chunkStart(c)] = e;
+        size = s + 1;
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the specified position in this
+     * list. Shifts the element currently at that position (if any) and
+     * any subsequent elements to the right (adds one to their indices).
+     *
+     * @param index index at which the specified element is to be inserted
+     * @param element element to be inserted
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public void add(int index, E element) {
+        rangeCheckForAdd(index);
+        int s = size;
+        if (s == Integer.MAX_VALUE)
+            throw new OutOfMemoryError();
+        modCount++;
+        ensureCapacityInternal(s + 1);
+        move(index, index + 1, s - index);
+        int c = chunkFor(index);
+        spine[c][index - chunkStart(c)] = element;
+        size = s + 1;
+    }
+
+    /**
+     * Removes the element at the specified position in this list.
+     * Shifts any subsequent elements to the left (subtracts one from their
+     * indices).
+     *
+     * @param index the index of the element to be removed
+     * @return the element that was removed from the list
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E remove(int index) {
+        rangeCheck(index);
+        modCount++;
+        E oldValue = elementData(index);
+        int s = size - 1;
+        move(index + 1, index, s - index);
+        clear(s, s + 1); // clear to let GC do its work
+        size = s;
+        return oldValue;
+    }
+
+    /**
+     * Removes the first occurrence of the specified element from this list,
+     * if it is present.  If the list does not contain the element, it is
+     * unchanged.
+     *
+     * @param o element to be removed from this list, if present
+     * @return <tt>true</tt> if this list contained the specified element
+     */
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index < 0)
+            return false;
+        remove(index);
+        return true;
+    }
+
+    /**
+     * Removes all of the elements from this list.  The list will
+     * be empty after this call returns.
+     */
+    public void clear() {
+        modCount++;
+        clear(0, size);
+        size = 0;
+    }
+
+    /**
+     * Appends all of the elements in the specified collection to the end of
+     * this list, in the order that they are returned by the
+     * specified collection's Iterator.
+     *
+     * @param c collection containing elements to be added to this list
+     * @return <tt>true</tt> if this list changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        return addAll(size, c);
+    }
+
+    /**
+     * Inserts all of the elements in the specified collection into this
+     * list, starting at the specified position.  Shifts the element
+     * currently at that position (if any) and any subsequent elements to
+     * the right (increases their indices).
+     *
+     * @param index index at which to insert the first element from the
+     *              specified collection
+     * @param c collection containing elements to be added to this list
+     * @return <tt>true</tt> if this list changed as a result of the call
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean addAll(int index, Collection<? extends E> c) {
+        rangeCheckForAdd(index);
+        Object[] a = c.toArray();
+        int numNew = a.length, s = size;
+        if (numNew > Integer.MAX_VALUE - s)
+            throw new OutOfMemoryError();
+        modCount++;
+        ensureCapacityInternal(s + numNew);
+        move(index, index + numNew, s - index);
+        copyIn(a, 0, numNew, index);
+        size = s + numNew;
+        return numNew != 0;
+    }
+
+    /**
+     * Removes from this list all of the elements whose index is between
+     * {@code fromIndex}, inclusive, and {@code toIndex}, exclusive.
+     * Shifts any succeeding elements to the left (reduces their index).
+     *
+     * @throws IndexOutOfBoundsException if {@code fromIndex} or
+     *         {@code toIndex} is out of range
+     *         ({@code fromIndex < 0 ||
+     *          fromIndex >= size() ||
+     *          toIndex > size() ||
+     *          toIndex < fromIndex})
+     */
+    protected void removeRange(int fromIndex, int toIndex) {
+        modCount++;
+        int s = size, newSize = s - (toIndex - fromIndex);
+        move(toIndex, fromIndex, s - toIndex);
+        clear(newSize, s);
+        size = newSize;
+    }
+
+    /**
+     * Checks if the given index is in range.
+     */
+    private void rangeCheck(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    /**
+     * A version of rangeCheck used by add and addAll.
+     */
+    private void rangeCheckForAdd(int index) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    private String outOfBoundsMsg(int index) {
+        return "Index: "+index+", Size: "+size;
+    }
+
+    // Bulk chunk operations
+
+    /**
+     * Copies len elements starting at index src to index dst, where
+     * both ranges lie within the capacity, and may overlap.
+     */
+    private void move(int src, int dst, int len) {
+        Object[][] sp = spine;
+        if (len <= 0 || src == dst)
+            return;
+        if (src > dst) { // copy forward
+            while (len > 0) {
+                int sc = chunkFor(src), so = src - chunkStart(sc);
+                int dc = chunkFor(dst), d = dst - chunkStart(dc);
+                int n = Math.min(len, Math.min(sp[sc].length - so,
+                                               sp[dc].length - d));
+                System.arraycopy(sp[sc], so, sp[dc], d, n);
+                src += n; dst += n; len -= n;
+            }
+        }
+        else { // copy backward, from the ends of the ranges
+            src += len; dst += len;
+            while (len > 0) {
+                int sc = chunkFor(src - 1), so = src - chunkStart(sc);
+                int dc = chunkFor(dst - 1), d = dst - chunkStart(dc);
+                int n = Math.min(len, Math.min(so, d));
+                System.arraycopy(sp[sc], so - n, sp[dc], d - n, n);
+                src -= n; dst -= n; len -= n;
+            }
+        }
+    }
+
+    /**
+     * Copies len elements of this list starting at index into the
+     * given array.
+     */
+    private void copyOut(int index, Object[] dst, int off, int len) {
+        Object[][] sp = spine;
+        while (len > 0) {
+            int c = chunkFor(index), i = index - chunkStart(c);
+            int n = Math.min(len, sp[c].length - i);
+            System.arraycopy(sp[c], i, dst, off, n);
+            index += n; off += n; len -= n;
+        }
+    }
+
+    /**
+     * Copies len elements of the given array into this list starting
+     * at index, within its capacity.
+     */
+    private void copyIn(Object[] src, int off, int len, int index) {
+        Object[][] sp = spine;
+        while (len > 0) {
+            int c = chunkFor(index), i = index - chunkStart(c);
+            int n = Math.min(len, sp[c].length - i);
+            System.arraycopy(src, off, sp[c], i, n);
+            index += n; off += n; len -= n;
+        }
+    }
+
+    /**
+     * Nulls out the elements in [from, to).
+     */
+    private void clear(int from, int to) {
+        Object[][] sp = spine;
+        while (from < to) {
+            int c = chunkFor(from), i = from - chunkStart(c);
+            int n = Math.min(to - from, sp[c].length - i);
+            Arrays.fill(sp[c], i, i + n, null);
+            from += n;
+        }
+    }
+
+    /**
+     * Save the state of the <tt>ChunkedArrayList</tt> instance to a stream
+     * (that is, serialize it).
+     *
+     * @serialData The size of the list (the number of elements it
+     *             contains) is emitted (int), followed by all of its
+     *             elements (each an <tt>Object</tt>) in the proper order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException{
+        // Write out element count, and any hidden stuff
+        int expectedModCount = modCount;
+        s.defaultWriteObject();
+
+        // Write out all elements in the proper order.
+        Object[][] sp = spine;
+        int sz = size;
+        for (int c = 0, base = 0; base < sz; base += chunkSize(c++)) {
+            Object[] a = sp[c];
+            for (int i = 0, n = Math.min(a.length, sz - base); i < n; i++)
+                s.writeObject(a[i]);
+        }
+
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Reconstitute the <tt>ChunkedArrayList</tt> instance from a stream
+     * (that is, deserialize it).
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        spine = EMPTY_SPINE;
+
+        // Read in size, and any hidden stuff
+        s.defaultReadObject();
+        int sz = size;
+        if (sz < 0)
+            throw new java.io.InvalidObjectException("Illegal size: " + sz);
+        size = 0;
+
+        // Read in all elements in the proper order.
+        for (int i = 0; i < sz; i++) {
+            @SuppressWarnings("unchecked") E e = (E) s.readObject();
+            add(e);
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        final int expectedModCount = modCount;
+        final Object[][] sp = spine;
+        final int s = size;
+        for (int c = 0, base = 0; base < s && modCount == expectedModCount;
+             base += chunkSize(c++)) {
+            Object[] a = sp[c];
+            for (int i = 0, n = Math.min(a.length, s - base);
+                 i < n && modCount == expectedModCount; i++) {
+                @SuppressWarnings("unchecked") E e = (E) a[i];
+                action.accept(e);
+            }
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        Objects.requireNonNull(filter);
+        // figure out which elements are to be removed
+        // any exception thrown from the filter predicate at this stage
+        // will leave the collection unmodified
+        int removeCount = 0;
+        final BitSet removeSet = new BitSet(size);
+        final int expectedModCount = modCount;
+        final Object[][] sp = spine;
+        final int s = size;
+        for (int c = 0, base = 0; base < s && modCount == expectedModCount;
+             base += chunkSize(c++)) {
+            Object[] a = sp[c];
+            for (int i = 0, n = Math.min(a.length, s - base);
+                 i < n && modCount == expectedModCount; i++) {
+                @SuppressWarnings("unchecked") final E e = (E) a[i];
+                if (filter.test(e)) {
+                    removeSet.set(base + i);
+                    removeCount++;
+                }
+            }
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+
+        // shift surviving elements left over the spaces left by removed elements
+        final boolean anyToRemove = removeCount > 0;
+        if (anyToRemove) {
+            final int newSize = s - removeCount;
+            for (int i = 0, j = 0; i < s && j < newSize; i++, j++) {
+                i = removeSet.nextClearBit(i);
+                if (i != j) {
+                    int ic = chunkFor(i), jc = chunkFor(j);
+                    sp[jc][j - chunkStart(jc)] = sp[ic][i - chunkStart(ic)];
+                }
+            }
+            clear(newSize, s);  // Let gc do its work
+            this.size = newSize;
+            modCount++;
+        }
+
+        return anyToRemove;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replaceAll(UnaryOperator<E> operator) {
+        Objects.requireNonNull(operator);
+        final int expectedModCount = modCount;
+        final Object[][] sp = spine;
+        final int s = size;
+        for (int c = 0, base = 0; base < s && modCount == expectedModCount;
+             base += chunkSize(c++)) {
+            Object[] a = sp[c];
+            for (int i = 0, n = Math.min(a.length, s - base);
+                 i < n && modCount == expectedModCount; i++)
+                a[i] = operator.apply((E) a[i]);
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        modCount++;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This implementation copies the elements into a single array,
+     * sorts it, and copies the elements back.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<? super E> c) {
+        final int expectedModCount = modCount;
+        Object[] a = toArray();
+        Arrays.sort(a, (Comparator) c);
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        copyIn(a, 0, a.length, 0);
+        modCount++;
+    }
+
+    /**
+     * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+     * and <em>fail-fast</em> {@link Spliterator} over the elements in this
+     * list.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#SIZED},
+     * {@link Spliterator#SUBSIZED}, and {@link Spliterator#ORDERED}.
+     * Overriding implementations should document the reporting of additional
+     * characteristic values.
+     *
+     * @return a {@code Spliterator} over the elements in this list
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new ChunkedArrayListSpliterator<>(this, 0, -1, 0);
+    }
+
+    /** Index-based split-by-two, lazily initialized Spliterator */
+    static final class ChunkedArrayListSpliterator<E> implements Spliterator<E> {
+
+        /*
+         * As for ArrayListSpliterator, we initialize fence and
+         * expectedModCount lazily, and check for interference once at
+         * the end of forEachRemaining.  Splits are at the midpoint of
+         * the remaining index range; forEachRemaining traverses each
+         * chunk within the range as an array.
+         */
+
+        private final ChunkedArrayList<E> list;
+        private int index; // current index, modified on advance/split
+        private int fence; // -1 until used; then one past last index
+        private int expectedModCount; // initialized when fence set
+
+        /** Create new spliterator covering the given  range */
+        ChunkedArrayListSpliterator(ChunkedArrayList<E> list, int origin,
+                                    int fence, int expectedModCount) {
+            this.list = list;
+            this.index = origin;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int getFence() { // initialize fence to size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                expectedModCount = list.modCount;
+                hi = fence = list.size;
+            }
+            return hi;
+        }
+
+        public ChunkedArrayListSpliterator<E> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null : // divide range in half unless too small
+                new ChunkedArrayListSpliterator<E>(list, lo, index = mid,
+                                                   expectedModCount);
+        }
+
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence(), i = index;
+            if (i < hi) {
+                index = i + 1;
+                E e = list.elementData(i);
+                action.accept(e);
+                if (list.modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                return true;
+            }
+            return false;
+        }
+
+        public void forEachRemaining(Consumer<? super E> action) {
+            int i, hi, mc; // hoist accesses and checks from loop
+            ChunkedArrayList<E> lst = list;
+            if (action == null)
+                throw new NullPointerException();
+            if ((hi = fence) < 0) {
+                mc = lst.modCount;
+                hi = lst.size;
+            }
+            else
+                mc = expectedModCount;
+            Object[][] sp = lst.spine;
+            if ((i = index) >= 0 && (index = hi) <= lst.size) {
+                while (i < hi) {
+                    int c = chunkFor(i), base = chunkStart(c);
+                    Object[] a = sp[c];
+                    int end = Math.min(hi - base, a.length);
+                    for (int j = i - base; j < end; ++j) {
+                        @SuppressWarnings("unchecked") E e = (E) a[j];
+                        action.accept(e);
+                    }
+                    i = base + end;
+                }
+                if (lst.modCount == mc)
+                    return;
+            }
+            throw new ConcurrentModificationException();
+        }
+
+        public long estimateSize() {
+            return (long) (getFence() - index);
+        }
+
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+
+    // Primitive specializations
+
+    /**
+     * Base class for the primitive specializations, holding chunks of
+     * a primitive array type using the same layout as the enclosing
+     * class.
+     *
+     * @param <E> the wrapper type for this primitive type
+     * @param <T_ARR> the array type for this primitive type
+     * @param <T_CONS> the Consumer type for this primitive type
+     */
+    abstract static class OfPrimitive<E, T_ARR, T_CONS> implements Iterable<E> {
+        /** The chunks; the first {@code chunks} elements are non-null. */
+        T_ARR[] spine;
+
+        /** The number of chunks allocated. */
+        int chunks;
+
+        /** The number of elements. */
+        int size;
+
+        /** The number of structural modifications, as for AbstractList. */
+        int modCount;
+
+        OfPrimitive(int initialCapacity) {
+            if (initialCapacity < 0)
+                throw new IllegalArgumentException("Illegal Capacity: "+
+                                                   initialCapacity);
+            spine = newArrayArray(0);
+            ensureCapacityInternal(initialCapacity);
+        }
+
+        /** Create a new array-of-array of the proper type and size */
+        abstract T_ARR[] newArrayArray(int size);
+
+        /** Create a new array of the proper type and size */
+        abstract T_ARR newArray(int size);
+
+        /** Iterate an array with the provided consumer */
+        abstract void arrayForEach(T_ARR array, int from, int to,
+                                   T_CONS consumer);
+
+        /**
+         * Returns the number of elements.
+         *
+         * @return the number of elements
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Returns {@code true} if there are no elements.
+         *
+         * @return {@code true} if there are no elements
+         */
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Removes all of the elements, retaining the capacity.
+         */
+        public void clear() {
+            modCount++;
+            size = 0;
+        }
+
+        /**
+         * Increases the capacity, if necessary, to ensure that it can
+         * hold at least the number of elements specified by the
+         * minimum capacity argument.
+         *
+         * @param minCapacity the desired minimum capacity
+         */
+        public void ensureCapacity(int minCapacity) {
+            if (minCapacity > 0) {
+                modCount++;
+                ensureCapacityInternal(minCapacity);
+            }
+        }
+
+        /**
+         * Releases chunks that hold no elements.
+         */
+        public void trimToSize() {
+            modCount++;
+            int n = chunksFor(size);
+            if (n < chunks) {
+                spine = Arrays.copyOf(spine, n);
+                chunks = n;
+            }
+        }
+
+        private void ensureCapacityInternal(int minCapacity) {
+            int n = chunksFor(minCapacity);
+            while (chunks < n)
+                addChunk();
+        }
+
+        private void addChunk() {
+            int c = chunks;
+            if (c == spine.length)
+                spine = Arrays.copyOf(spine, (c == 0) ? INITIAL_SPINE_SIZE :
+                                      Math.min(c << 1, MAX_CHUNKS));
+            spine[c] = newArray(chunkSize(c));
+            chunks = c + 1;
+        }
+
+        /**
+         * Reserves the slot for a new last element, returning the
+         * index of its chunk.
+         */
+        final int addSlot() {
+            int s = size;
+            if (s == Integer.MAX_VALUE)
+                throw new OutOfMemoryError();
+            modCount++;
+            int c = chunkFor(s);
+            if (c == chunks)
+                addChunk();
+            size = s + 1;
+            return c;
+        }
+
+        final void rangeCheck(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+        }
+
+        /**
+         * Performs the given action for each element, in order.
+         *
+         * @param action the action to be performed for each element
+         * @throws NullPointerException if the specified action is null
+         */
+        public void forEach(T_CONS action) {
+            Objects.requireNonNull(action);
+            final int expectedModCount = modCount;
+            final T_ARR[] sp = spine;
+            final int s = size;
+            for (int c = 0, base = 0; base < s; base += chunkSize(c++)) {
+                int n = Math.min(chunkSize(c), s - base);
+                arrayForEach(sp[c], 0, n, action);
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+            }
+        }
+
+        /**
+         * Returns an array of the elements, in order.
+         */
+        final T_ARR asPrimitiveArray() {
+            final T_ARR[] sp = spine;
+            final int s = size;
+            T_ARR result = newArray(s);
+            for (int c = 0, base = 0; base < s; base += chunkSize(c++))
+                System.arraycopy(sp[c], 0, result, base,
+                                 Math.min(chunkSize(c), s - base));
+            return result;
+        }
+
+        /**
+         * An index-based, late-binding, fail-fast spliterator, as for
+         * the enclosing class.
+         */
+        abstract class BaseSpliterator<T_SPLITR extends Spliterator.OfPrimitive<E, T_CONS, T_SPLITR>>
+                implements Spliterator.OfPrimitive<E, T_CONS, T_SPLITR> {
+            int index; // current index, modified on advance/split
+            int fence; // -1 until used; then one past last index
+            int expectedModCount; // initialized when fence set
+
+            BaseSpliterator(int origin, int fence, int expectedModCount) {
+                this.index = origin;
+                this.fence = fence;
+                this.expectedModCount = expectedModCount;
+            }
+
+            abstract T_SPLITR newSpliterator(int origin, int fence,
+                                             int expectedModCount);
+
+            abstract void arrayForOne(T_ARR array, int index, T_CONS consumer);
+
+            final int getFence() {
+                int hi;
+                if ((hi = fence) < 0) {
+                    expectedModCount = modCount;
+                    hi = fence = size;
+                }
+                return hi;
+            }
+
+            @Override
+            public T_SPLITR trySplit() {
+                int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+                return (lo >= mid) ? null :
+                    newSpliterator(lo, index = mid, expectedModCount);
+            }
+
+            @Override
+            public boolean tryAdvance(T_CONS action) {
+                Objects.requireNonNull(action);
+                int hi = getFence(), i = index;
+                if (i < hi) {
+                    index = i + 1;
+                    int c = chunkFor(i);
+                    arrayForOne(spine[c], i - chunkStart(c), action);
+                    if (modCount != expectedModCount)
+                        throw new ConcurrentModificationException();
+                    return true;
+                }
+                return false;
+            }
+
+            @Override
+            public void forEachRemaining(T_CONS action) {
+                Objects.requireNonNull(action);
+                int hi = getFence(), i = index;
+                index = hi;
+                if (hi > size)
+                    throw new ConcurrentModificationException();
+                final T_ARR[] sp = spine;
+                while (i < hi) {
+                    int c = chunkFor(i), base = chunkStart(c);
+                    int end = Math.min(hi - base, chunkSize(c));
+                    arrayForEach(sp[c], i - base, end, action);
+                    i = base + end;
+                }
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+            }
+
+            @Override
+            public long estimateSize() {
+                return (long) (getFence() - index);
+            }
+
+            @Override
+            public int characteristics() {
+                return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+            }
+        }
+    }
+
+    /**
+     * A growable sequence of {@code int} values, stored in chunks as for
+     * {@link ChunkedArrayList}.
+     *
+     * @since 1.8
+     */
+    public static class OfInt extends OfPrimitive<Integer, int[], IntConsumer> {
+
+        /**
+         * Constructs an empty sequence.
+         */
+        public OfInt() {
+            super(0);
+        }
+
+        /**
+         * Constructs an empty sequence with the specified initial capacity.
+         *
+         * @param  initialCapacity  the initial capacity
+         * @throws IllegalArgumentException if the specified initial capacity
+         *         is negative
+         */
+        public OfInt(int initialCapacity) {
+            super(initialCapacity);
+        }
+
+        @Override
+        int[][] newArrayArray(int size) {
+            return new int[size][];
+        }
+
+        @Override
+        int[] newArray(int size) {
+            return new int[size];
+        }
+
+        @Override
+        void arrayForEach(int[] array, int from, int to, IntConsumer consumer) {
+            for (int i = from; i < to; i++)
+                consumer.accept(array[i]);
+        }
+
+        /**
+         * Appends the specified value.
+         *
+         * @param value the value to be appended
+         */
+        public void add(int value) {
+            int s = size, c = addSlot();
+            spine[c][s - chunkStart(c)] = value;
+        }
+
+        /**
+         * Returns the value at the specified position.
+         *
+         * @param index index of the value to return
+         * @return the value at the specified position
+         * @throws IndexOutOfBoundsException if the index is out of range
+         *         ({@code index < 0 || index >= size()})
+         */
+        public int get(int index) {
+            rangeCheck(index);
+            int c = chunkFor(index);
+            return spine[c][index - chunkStart(c)];
+        }
+
+        /**
+         * Replaces the value at the specified position.
+         *
+         * @param index index of the value to replace
+         * @param value value to be stored at the specified position
+         * @return the value previously at the specified position
+         * @throws IndexOutOfBoundsException if the index is out of range
+         *         ({@code index < 0 || index >= size()})
+         */
+        public int set(int index, int value) {
+            rangeCheck(index);
+            int c = chunkFor(index);
+            int[] a = spine[c];
+            int i = index - chunkStart(c);
+            int oldValue = a[i];
+            a[i] = value;
+            return oldValue;
+        }
+
+        /**
+         * Returns an array containing the values in order.
+         *
+         * @return an array containing the values
+         */
+        public int[] toArray() {
+            return asPrimitiveArray();
+        }
+
+        @Override
+        public void forEach(Consumer<? super Integer> action) {
+            if (action instanceof IntConsumer)
+                forEach((IntConsumer) action);
+            else
+                spliterator().forEachRemaining(action);
+        }
+
+        /**
+         * Returns a fail-fast iterator over the values in order.
+         *
+         * @return an iterator over the values
+         */
+        @Override
+        public PrimitiveIterator.OfInt iterator() {
+            return Spliterators.iterator(spliterator());
+        }
+
+        /**
+         * Returns a late-binding, fail-fast spliterator over the values,
+         * reporting {@link Spliterator#SIZED}, {@link Spliterator#SUBSIZED}
+         * and {@link Spliterator#ORDERED}.
+         *
+         * @return a spliterator over the values
+         */
+        @Override
+        public Spliterator.OfInt spliterator() {
+            class Splitr extends BaseSpliterator<Spliterator.OfInt>
+                    implements Spliterator.OfInt {
+                Splitr(int origin, int fence, int expectedModCount) {
+                    super(origin, fence, expectedModCount);
+                }
+
+                @Override
+                Splitr newSpliterator(int origin, int fence, int expectedModCount) {
+                    return new Splitr(origin, fence, expectedModCount);
+                }
+
+                @Override
+                void arrayForOne(int[] array, int index, IntConsumer consumer) {
+                    consumer.accept(array[index]);
+                }
+            }
+            return new Splitr(0, -1, 0);
+        }
+
+        /**
+         * Returns a sequential {@code IntStream} over the values.
+         *
+         * @return a stream over the values
+         */
+        public IntStream stream() {
+            return StreamSupport.intStream(spliterator(), false);
+        }
+
+        /**
+         * Returns a string representation of the values, as by
+         * {@link Arrays#toString(int[])}.
+         *
+         * @return a string representation of the values
+         */
+        @Override
+        public String toString() {
+            return Arrays.toString(asPrimitiveArray());
+        }
+    }
+
+    /**
+     * A growable sequence of {@code long} values, stored in chunks as for
+     * {@link ChunkedArrayList}.
+     *
+     * @since 1.8
+     */
+    public static class OfLong extends OfPrimitive<Long, long[], LongConsumer> {
+
+        /**
+         * Constructs an empty sequence.
+         */
+        public OfLong() {
+            super(0);
+        }
+
+        /**
+         * Constructs an empty sequence with the specified initial capacity.
+         *
+         * @param  initialCapacity  the initial capacity
+         * @throws IllegalArgumentException if the specified initial capacity
+         *         is negative
+         */
+        public OfLong(int initialCapacity) {
+            super(initialCapacity);
+        }
+
+        @Override
+        long[][] newArrayArray(int size) {
+            return new long[size][];
+        }
+
+        @Override
+        long[] newArray(int size) {
+            return new long[size];
+        }
+
+        @Override
+        void arrayForEach(long[] array, int from, int to, LongConsumer consumer) {
+            for (int i = from; i < to; i++)
+                consumer.accept(array[i]);
+        }
+
+        /**
+         * Appends the specified value.
+         *
+         * @param value the value to be appended
+         */
+        public void add(long value) {
+            int s = size, c = addSlot();
+            spine[c][s - chunkStart(c)] = value;
+        }
+
+        /**
+         * Returns the value at the specified position.
+         *
+         * @param index index of the value to return
+         * @return the value at the specified position
+         * @throws IndexOutOfBoundsException if the index is out of range
+         *         ({@code index < 0 || index >= size()})
+         */
+        public long get(int index) {
+            rangeCheck(index);
+            int c = chunkFor(index);
+            return spine[c][index - chunkStart(c)];
+        }
+
+        /**
+         * Replaces the value at the specified position.
+         *
+         * @param index index of the value to replace
+         * @param value value to be stored at the specified position
+         * @return the value previously at the specified position
+         * @throws IndexOutOfBoundsException if the index is out of range
+         *         ({@code index < 0 || index >= size()})
+         */
+        public long set(int index, long value) {
+            rangeCheck(index);
+            int c = chunkFor(index);
+            long[] a = spine[c];
+            int i = index - chunkStart(c);
+            long oldValue = a[i];
+            a[i] = value;
+            return oldValue;
+        }
+
+        /**
+         * Returns an array containing the values in order.
+         *
+         * @return an array containing the values
+         */
+        public long[] toArray() {
+            return asPrimitiveArray();
+        }
+
+        @Override
+        public void forEach(Consumer<? super Long> action) {
+            if (action instanceof LongConsumer)
+                forEach((LongConsumer) action);
+            else
+                spliterator().forEachRemaining(action);
+        }
+
+        /**
+         * Returns a fail-fast iterator over the values in order.
+         *
+         * @return an iterator over the values
+         */
+        @Override
+        public PrimitiveIterator.OfLong iterator() {
+            return Spliterators.iterator(spliterator());
+        }
+
+        /**
+         * Returns a late-binding, fail-fast spliterator over the values,
+         * reporting {@link Spliterator#SIZED}, {@link Spliterator#SUBSIZED}
+         * and {@link Spliterator#ORDERED}.
+         *
+         * @return a spliterator over the values
+         */
+        @Override
+        public Spliterator.OfLong spliterator() {
+            class Splitr extends BaseSpliterator<Spliterator.OfLong>
+                    implements Spliterator.OfLong {
+                Splitr(int origin, int fence, int expectedModCount) {
+                    super(origin, fence, expectedModCount);
+                }
+
+                @Override
+                Splitr newSpliterator(int origin, int fence, int expectedModCount) {
+                    return new Splitr(origin, fence, expectedModCount);
+                }
+
+                @Override
+                void arrayForOne(long[] array, int index, LongConsumer consumer) {
+                    consumer.accept(array[index]);
+                }
+            }
+            return new Splitr(0, -1, 0);
+        }
+
+        /**
+         * Returns a sequential {@code LongStream} over the values.
+         *
+         * @return a stream over the values
+         */
+        public LongStream stream() {
+            return StreamSupport.longStream(spliterator(), false);
+        }
+
+        /**
+         * Returns a string representation of the values, as by
+         * {@link Arrays#toString(long[])}.
+         *
+         * @return a string representation of the values
+         */
+        @Override
+        public String toString() {
+            return Arrays.toString(asPrimitiveArray());
+        }
+    }
+
+    /**
+     * A growable sequence of {@code double} values, stored in chunks as for
+     * {@link ChunkedArrayList}.
+     *
+     * @since 1.8
+     */
+    public static class OfDouble extends OfPrimitive<Double, double[], DoubleConsumer> {
+
+        /**
+         * Constructs an empty sequence.
+         */
+        public OfDouble() {
+            super(0);
+        }
+
+        /**
+         * Constructs an empty sequence with the specified initial capacity.
+         *
+         * @param  initialCapacity  the initial capacity
+         * @throws IllegalArgumentException if the specified initial capacity
+         *         is negative
+         */
+        public OfDouble(int initialCapacity) {
+            super(initialCapacity);
+        }
+
+        @Override
+        double[][] newArrayArray(int size) {
+            return new double[size][];
+        }
+
+        @Override
+        double[] newArray(int size) {
+            return new double[size];
+        }
+
+        @Override
+        void arrayForEach(double[] array, int from, int to, DoubleConsumer consumer) {
+            for (int i = from; i < to; i++)
+                consumer.accept(array[i]);
+        }
+
+        /**
+         * Appends the specified value.
+         *
+         * @param value the value to be appended
+         */
+        public void add(double value) {
+            int s = size, c = addSlot();
+            spine[c][s - chunkStart(c)] = value;
+        }
+
+        /**
+         * Returns the value at the specified position.
+         *
+         * @param index index of the value to return
+         * @return the value at the specified position
+         * @throws IndexOutOfBoundsException if the index is out of range
+         *         ({@code index < 0 || index >= size()})
+         */
+        public double get(int index) {
+            rangeCheck(index);
+            int c = chunkFor(index);
+            return spine[c][index - chunkStart(c)];
+        }
+
+        /**
+         * Replaces the value at the specified position.
+         *
+         * @param index index of the value to replace
+         * @param value value to be stored at the specified position
+         * @return the value previously at the specified position
+         * @throws IndexOutOfBoundsException if the index is out of range
+         *         ({@code index < 0 || index >= size()})
+         */
+        public double set(int index, double value) {
+            rangeCheck(index);
+            int c = chunkFor(index);
+            double[] a = spine[c];
+            int i = index - chunkStart(c);
+            double oldValue = a[i];
+            a[i] = value;
+            return oldValue;
+        }
+
+        /**
+         * Returns an array containing the values in order.
+         *
+         * @return an array containing the values
+         */
+        public double[] toArray() {
+            return asPrimitiveArray();
+        }
+
+        @Override
+        public void forEach(Consumer<? super Double> action) {
+            if (action instanceof DoubleConsumer)
+                forEach((DoubleConsumer) action);
+            else
+                spliterator().forEachRemaining(action);
+        }
+
+        /**
+         * Returns a fail-fast iterator over the values in order.
+         *
+         * @return an iterator over the values
+         */
+        @Override
+        public PrimitiveIterator.OfDouble iterator() {
+            return Spliterators.iterator(spliterator());
+        }
+
+        /**
+         * Returns a late-binding, fail-fast spliterator over the values,
+         * reporting {@link Spliterator#SIZED}, {@link Spliterator#SUBSIZED}
+         * and {@link Spliterator#ORDERED}.
+         *
+         * @return a spliterator over the values
+         */
+        @Override
+        public Spliterator.OfDouble spliterator() {
+            class Splitr extends BaseSpliterator<Spliterator.OfDouble>
+                    implements Spliterator.OfDouble {
+                Splitr(int origin, int fence, int expectedModCount) {
+                    super(origin, fence, expectedModCount);
+                }
+
+                @Override
+                Splitr newSpliterator(int origin, int fence, int expectedModCount) {
+                    return new Splitr(origin, fence, expectedModCount);
+                }
+
+                @Override
+                void arrayForOne(double[] array, int index, DoubleConsumer consumer) {
+                    consumer.accept(array[index]);
+                }
+            }
+            return new Splitr(0, -1, 0);
+        }
+
+        /**
+         * Returns a sequential {@code DoubleStream} over the values.
+         *
+         * @return a stream over the values
+         */
+        public DoubleStream stream() {
+            return StreamSupport.doubleStream(spliterator(), false);
+        }
+
+        /**
+         * Returns a string representation of the values, as by
+         * {@link Arrays#toString(double[])}.
+         *
+         * @return a string representation of the values
+         */
+        @Override
+        public String toString() {
+            return Arrays.toString(asPrimitiveArray());
+        }
+    }
+}
@@ -77,6 +77,13 @@ final class DualPivotQuicksort {
      */
     private static final int INSERTION_SORT_THRESHOLD = 47;
 
+    /**
+     * If the length of an int or long array to be sorted is not less
+     * than this constant, and the array is not highly structured,
+     * radix sort is used in preference to Quicksort.
+     */
+    private static final int RADIX_SORT_THRESHOLD = 1 << 12;
+
     /**
      * If the length of a byte array to be sorted is greater than this
      * constant, counting sort is used in preference to insertion sort.
@@ -138,11 +145,16 @@ final class DualPivotQuicksort {
             }
 
             /*
-             * The array is not highly structured,
-             * use Quicksort instead of merge sort.
+             * The array is not highly structured, use radix sort
+             * on large arrays and Quicksort instead of merge sort
+             * otherwise.
              */
             if (++count == MAX_RUN_COUNT) {
-                sort(a, left, right, true);
+                if (right - left >= RADIX_SORT_THRESHOLD) {
+                    RadixSort.sort(a, left, right + 1, work, workBase, workLen);
+                } else {
+                    sort(a, left, right, true);
+                }
                 return;
             }
         }
@@ -586,11 +598,16 @@ final class DualPivotQuicksort {
             }
 
             /*
-             * The array is not highly structured,
-             * use Quicksort instead of merge sort.
+             * The array is not highly structured, use radix sort
+             * on large arrays and Quicksort instead of merge sort
+             * otherwise.
              */
             if (++count == MAX_RUN_COUNT) {
-                sort(a, left, right, true);
+                if (right - left >= RADIX_SORT_THRESHOLD) {
+                    RadixSort.sort(a, left, right + 1, work, workBase, workLen);
+                } else {
+                    sort(a, left, right, true);
+                }
                 return;
             }
         }
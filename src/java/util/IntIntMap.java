@@ -0,0 +1,1192 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * An open-addressing hash table mapping primitive {@code int} keys to
+ * primitive {@code int} values.  This class stores keys and values in two
+ * parallel arrays and resolves collisions by linear probing, so that a
+ * mapping occupies two array slots rather than a {@code Integer} key, a
+ * {@code Integer} value and a {@link HashMap} node.  Removals use
+ * backward-shift deletion, so the table never accumulates tombstones.
+ *
+ * <p>This class implements the {@link Map} interface for interoperability
+ * with the Collections Framework, but the primitive methods
+ * ({@link #getIntOrDefault}, {@link #put(int, int)}, {@link #remove(int)},
+ * {@link #merge(int, int, IntBinaryOperator)} and friends) should be preferred on hot
+ * paths as they neither box nor allocate.  The {@code null} key and
+ * {@code null} values are not supported by the boxed methods.  Because
+ * every {@code int} is a legitimate value, methods that return the value
+ * previously associated with a key return {@code 0} when there was none;
+ * use {@link #containsKey(int)} to distinguish the two cases.
+ *
+ * <p>The key set and values views return {@link PrimitiveIterator.OfInt}
+ * and {@link Spliterator.OfInt} instances from their {@code iterator}
+ * and {@code spliterator} methods, so that they may be traversed and
+ * used as stream sources without boxing.
+ *
+ * <p>As with {@code HashMap}, the <i>load factor</i> bounds the fraction of
+ * table slots that may be in use before the table is doubled.  Linear
+ * probing degrades faster than chaining as the table fills, so the default
+ * load factor is {@code 0.5} and load factors must be strictly less than
+ * {@code 1}.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access the map concurrently, and at least one of
+ * the threads modifies the map structurally, it <i>must</i> be
+ * synchronized externally.  The iterators and spliterators returned by
+ * the collection views are <i>fail-fast</i> on a best-effort basis, as
+ * described for {@link HashMap}.
+ *
+ * @see     HashMap
+ * @since   1.8
+ */
+public class IntIntMap extends AbstractMap<Integer,Integer>
+    implements Map<Integer,Integer>, Cloneable, Serializable {
+
+    private static final long serialVersionUID = -2917513546214467981L;
+
+    /*
+     * Implementation notes.
+     *
+     * Slot i of the table is free iff keys[i] == 0; the key 0 itself is
+     * therefore kept out of the table, in the zeroValue field guarded by
+     * hasZeroKey.  Internally, the zero key is treated as living in the
+     * pseudo-slot keys.length, so that iterators and spliterators can
+     * traverse the index range [0, keys.length] uniformly.
+     *
+     * Iterators walk the table from high to low indices.  A removal at
+     * index i shifts entries from higher (already visited) indices down
+     * into i, which is harmless, except when the probe sequence wraps
+     * around the end of the table: then an entry at a low (not yet
+     * visited) index may move to a high (already visited) one.  Such
+     * entries are remembered by the iterator and returned after the
+     * table walk completes, as in other linear-probing tables.
+     */
+
+    /**
+     * The default initial capacity, in mappings.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    /**
+     * The maximum table length.  Must be a power of two <= 1<<30.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The load factor used when none is specified in the constructor.
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    /**
+     * The keys, or 0 for free slots.  Length is always a power of two.
+     */
+    transient int[] keys;
+
+    /**
+     * The values, parallel to keys.
+     */
+    transient int[] vals;
+
+    /**
+     * Whether the key 0 is present.
+     */
+    transient boolean hasZeroKey;
+
+    /**
+     * The value associated with the key 0, if present.
+     */
+    transient int zeroValue;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The number of times this map has been structurally modified.
+     */
+    transient int modCount;
+
+    /**
+     * The size at which the table is resized.
+     */
+    transient int threshold;
+
+    /**
+     * The load factor for the hash table.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    /**
+     * Holds cached entrySet().
+     */
+    transient Set<Map.Entry<Integer,Integer>> entrySet;
+
+    /* ---------------- Static utilities -------------- */
+
+    /**
+     * Spreads the bits of a key so that the low bits used as the table
+     * index depend on all bits of the key.
+     */
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the table length needed to hold the given number of
+     * mappings at the given load factor.
+     */
+    static int tableSizeFor(int expected, float loadFactor) {
+        double n = Math.ceil(expected / (double)loadFactor);
+        if (n >= MAXIMUM_CAPACITY)
+            return MAXIMUM_CAPACITY;
+        int c = Math.max(2, (int)n);
+        return Integer.highestOneBit(c - 1) << 1;
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Constructs an empty map that can hold the specified number of
+     * mappings before resizing, with the specified load factor.
+     *
+     * @param  initialCapacity the initial capacity, in mappings
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not in the range {@code (0, 1)}
+     */
+    public IntIntMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(tableSizeFor(initialCapacity, loadFactor));
+    }
+
+    /**
+     * Constructs an empty map that can hold the specified number of
+     * mappings before resizing, with the default load factor (0.5).
+     *
+     * @param  initialCapacity the initial capacity, in mappings
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public IntIntMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map with the default initial capacity (16)
+     * and the default load factor (0.5).
+     */
+    public IntIntMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs a new map with the same mappings as the specified
+     * {@code Map}.
+     *
+     * @param   m the map whose mappings are to be placed in this map
+     * @throws  NullPointerException if the specified map is null, or
+     *          contains null keys or values
+     */
+    public IntIntMap(Map<? extends Integer, ? extends Integer> m) {
+        this(Math.max(m.size(), DEFAULT_INITIAL_CAPACITY), DEFAULT_LOAD_FACTOR);
+        putAll(m);
+    }
+
+    /**
+     * Installs new empty tables of the given length.
+     */
+    final void allocate(int cap) {
+        keys = new int[cap];
+        vals = new int[cap];
+        threshold = (cap == MAXIMUM_CAPACITY) ? cap - 1 :
+            Math.min((int)(cap * loadFactor), cap - 1);
+    }
+
+    /**
+     * Returns the index of the given nonzero key, or if absent,
+     * {@code ~i} where i is the free slot at which it would be inserted.
+     */
+    final int find(int key) {
+        int[] ks = keys;
+        int mask = ks.length - 1;
+        for (int i = mix(key) & mask;; i = (i + 1) & mask) {
+            int k = ks[i];
+            if (k == key)
+                return i;
+            if (k == 0)
+                return ~i;
+        }
+    }
+
+    /**
+     * Inserts a nonzero key known to be absent at the given free slot,
+     * first resizing if necessary, and returns its final slot.
+     */
+    final int insert(int key, int slot, int value) {
+        if (size >= threshold) {
+            resize();
+            slot = ~find(key);
+        }
+        keys[slot] = key;
+        vals[slot] = value;
+        ++size;
+        ++modCount;
+        return slot;
+    }
+
+    /**
+     * Doubles the table length and reinserts all mappings.
+     */
+    final void resize() {
+        int[] oldKeys = keys;
+        int[] oldVals = vals;
+        int oldCap = oldKeys.length;
+        if (oldCap >= MAXIMUM_CAPACITY)
+            throw new IllegalStateException("Map capacity exceeded");
+        allocate(oldCap << 1);
+        int[] ks = keys;
+        int[] vs = vals;
+        int mask = ks.length - 1;
+        for (int j = 0; j < oldCap; ++j) {
+            int k;
+            if ((k = oldKeys[j]) != 0) {
+                int i = mix(k) & mask;
+                while (ks[i] != 0)
+                    i = (i + 1) & mask;
+                ks[i] = k;
+                vs[i] = oldVals[j];
+            }
+        }
+    }
+
+    /**
+     * Removes the mapping at the given table slot, shifting subsequent
+     * entries of the probe sequence back into the hole.  If an iterator
+     * is given, entries moved from a lower to a higher index (wrapping
+     * around the end of the table) are reported to it; see the
+     * implementation notes.
+     */
+    final void removeAt(int slot, HashIterator it) {
+        int[] ks = keys;
+        int[] vs = vals;
+        int mask = ks.length - 1;
+        int hole = slot;
+        for (int i = (slot + 1) & mask;; i = (i + 1) & mask) {
+            int k = ks[i];
+            if (k == 0)
+                break;
+            int h = mix(k) & mask;
+            if (hole <= i ? (h <= hole || h > i) : (h <= hole && h > i)) {
+                if (i < hole && it != null)
+                    it.addWrapped(k);
+                ks[hole] = k;
+                vs[hole] = vs[i];
+                hole = i;
+            }
+        }
+        ks[hole] = 0;
+        vs[hole] = 0;
+        --size;
+        ++modCount;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param   key the key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified
+     *         key
+     */
+    public boolean containsKey(int key) {
+        return (key == 0) ? hasZeroKey : find(key) >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsKey(Object key) {
+        return (key instanceof Integer) && containsKey(((Integer)key).intValue());
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation requires time linear in the
+     * table length.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(int value) {
+        if (hasZeroKey && zeroValue == value)
+            return true;
+        int[] ks = keys;
+        int[] vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            if (ks[i] != 0 && vs[i] == value)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsValue(Object value) {
+        return (value instanceof Integer) &&
+            containsValue(((Integer)value).intValue());
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the value to return if there is no mapping
+     * @return the value to which the specified key is mapped, or
+     *         {@code defaultValue} if this map contains no mapping for the key
+     */
+    public int getIntOrDefault(int key, int defaultValue) {
+        if (key == 0)
+            return hasZeroKey ? zeroValue : defaultValue;
+        int i = find(key);
+        return (i >= 0) ? vals[i] : defaultValue;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key.
+     */
+    public Integer get(Object key) {
+        if (key instanceof Integer) {
+            int k = ((Integer)key).intValue();
+            if (k == 0)
+                return hasZeroKey ? zeroValue : null;
+            int i = find(k);
+            if (i >= 0)
+                return vals[i];
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer getOrDefault(Object key, Integer defaultValue) {
+        Integer v = get(key);
+        return (v != null) ? v : defaultValue;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code 0} if there was no mapping for {@code key}
+     * @throws IllegalStateException if the map cannot grow any further
+     */
+    public int put(int key, int value) {
+        int old;
+        if (key == 0) {
+            if (hasZeroKey)
+                old = zeroValue;
+            else {
+                old = 0;
+                hasZeroKey = true;
+                ++size;
+                ++modCount;
+            }
+            zeroValue = value;
+            return old;
+        }
+        int i = find(key);
+        if (i < 0) {
+            insert(key, ~i, value);
+            return 0;
+        }
+        old = vals[i];
+        vals[i] = value;
+        return old;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the key or value is null
+     */
+    public Integer put(Integer key, Integer value) {
+        int k = key.intValue();
+        int v = value.intValue();
+        boolean present = containsKey(k);
+        int old = put(k, v);
+        return present ? old : null;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return {@code true} if the value was associated, {@code false}
+     *         if the key was already present
+     */
+    public boolean putIfAbsent(int key, int value) {
+        if (key == 0) {
+            if (hasZeroKey)
+                return false;
+            hasZeroKey = true;
+            zeroValue = value;
+            ++size;
+            ++modCount;
+            return true;
+        }
+        int i = find(key);
+        if (i >= 0)
+            return false;
+        insert(key, ~i, value);
+        return true;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with {@code value}; otherwise replaces the current
+     * value with the result of the given remapping function applied to
+     * the current value and {@code value}.  Unlike
+     * {@link Map#merge}, this method never removes the mapping.  A
+     * typical use is counting: {@code map.merge(key, 1, Integer::sum)}.
+     *
+     * @param key key with which the resulting value is to be associated
+     * @param value the value to associate if the key is absent, and the
+     *        second argument to the remapping function otherwise
+     * @param remappingFunction the function to recompute a value if present
+     * @return the new value associated with the specified key
+     * @throws NullPointerException if the remapping function is null
+     */
+    public int merge(int key, int value, IntBinaryOperator remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        if (key == 0) {
+            if (hasZeroKey)
+                value = remappingFunction.applyAsInt(zeroValue, value);
+            else {
+                hasZeroKey = true;
+                ++size;
+                ++modCount;
+            }
+            return zeroValue = value;
+        }
+        int i = find(key);
+        if (i < 0) {
+            insert(key, ~i, value);
+            return value;
+        }
+        return vals[i] = remappingFunction.applyAsInt(vals[i], value);
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * computes its value using the given mapping function and enters it
+     * into this map.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key
+     * @throws NullPointerException if the mapping function is null
+     */
+    public int computeIfAbsent(int key, IntUnaryOperator mappingFunction) {
+        if (mappingFunction == null)
+            throw new NullPointerException();
+        if (key == 0) {
+            if (!hasZeroKey) {
+                zeroValue = mappingFunction.applyAsInt(key);
+                hasZeroKey = true;
+                ++size;
+                ++modCount;
+            }
+            return zeroValue;
+        }
+        int i = find(key);
+        if (i >= 0)
+            return vals[i];
+        int mc = modCount;
+        int v = mappingFunction.applyAsInt(key);
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+        insert(key, ~i, v);
+        return v;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with {@code key}, or
+     *         {@code 0} if there was no mapping for {@code key}
+     */
+    public int remove(int key) {
+        int old;
+        if (key == 0) {
+            if (!hasZeroKey)
+                return 0;
+            old = zeroValue;
+            hasZeroKey = false;
+            zeroValue = 0;
+            --size;
+            ++modCount;
+            return old;
+        }
+        int i = find(key);
+        if (i < 0)
+            return 0;
+        old = vals[i];
+        removeAt(i, null);
+        return old;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Integer remove(Object key) {
+        if (key instanceof Integer) {
+            int k = ((Integer)key).intValue();
+            if (containsKey(k))
+                return remove(k);
+        }
+        return null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, 0);
+            Arrays.fill(vals, 0);
+            hasZeroKey = false;
+            zeroValue = 0;
+            size = 0;
+        }
+        ++modCount;
+    }
+
+    /**
+     * Performs the given action for each mapping in this map, boxing
+     * the keys and values.
+     */
+    public void forEach(BiConsumer<? super Integer, ? super Integer> action) {
+        if (action == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        if (hasZeroKey)
+            action.accept(0, zeroValue);
+        int[] ks = keys;
+        int[] vs = vals;
+        for (int i = 0; i < ks.length && mc == modCount; ++i) {
+            int k;
+            if ((k = ks[i]) != 0)
+                action.accept(k, vs[i]);
+        }
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns the hash code value for this map, as defined by
+     * {@link Map#hashCode}.
+     *
+     * @return the hash code value for this map
+     */
+    public int hashCode() {
+        int h = 0;
+        if (hasZeroKey)
+            h = Integer.hashCode(zeroValue);
+        int[] ks = keys;
+        int[] vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            int k;
+            if ((k = ks[i]) != 0)
+                h += Integer.hashCode(k) ^ Integer.hashCode(vs[i]);
+        }
+        return h;
+    }
+
+    /**
+     * Returns a shallow copy of this map.
+     *
+     * @return a clone of this map
+     */
+    public IntIntMap clone() {
+        IntIntMap result;
+        try {
+            result = (IntIntMap)super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        result.keys = keys.clone();
+        result.vals = vals.clone();
+        result.keySet = null;
+        result.values = null;
+        result.entrySet = null;
+        result.modCount = 0;
+        return result;
+    }
+
+    /**
+     * Saves this map to a stream (that is, serializes it).
+     *
+     * @serialData The load factor is emitted by the default serialization,
+     *             followed by the <i>size</i> (an int), followed by the
+     *             key ({@code int}) and value ({@code int}) of each mapping.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        if (hasZeroKey) {
+            s.writeInt(0);
+            s.writeInt(zeroValue);
+        }
+        int[] ks = keys;
+        int[] vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            int k;
+            if ((k = ks[i]) != 0) {
+                s.writeInt(k);
+                s.writeInt(vs[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitutes this map from a stream (that is, deserializes it).
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new InvalidObjectException("Illegal load factor: " +
+                                             loadFactor);
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new InvalidObjectException("Illegal mappings count: " +
+                                             mappings);
+        allocate(tableSizeFor(mappings, loadFactor));
+        for (int i = 0; i < mappings; i++)
+            put(s.readInt(), s.readInt());
+    }
+
+    /* ---------------- Views -------------- */
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map.
+     * The set is backed by the map, and supports element removal but not
+     * addition.  Its iterator is a {@link PrimitiveIterator.OfInt} and
+     * its spliterator a {@link Spliterator.OfInt}.
+     *
+     * @return a set view of the keys contained in this map
+     */
+    public Set<Integer> keySet() {
+        Set<Integer> ks;
+        return (ks = keySet) == null ? (keySet = new KeySet()) : ks;
+    }
+
+    final class KeySet extends AbstractSet<Integer> {
+        public final int size()                 { return size; }
+        public final void clear()               { IntIntMap.this.clear(); }
+        public final PrimitiveIterator.OfInt iterator() {
+            return new KeyIterator();
+        }
+        public final boolean contains(Object o) { return containsKey(o); }
+        public final boolean remove(Object key) {
+            return (key instanceof Integer) && IntIntMap.this.remove(key) != null;
+        }
+        public final Spliterator.OfInt spliterator() {
+            return new KeySpliterator(IntIntMap.this, 0, -1, 0, 0);
+        }
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this
+     * map.  The collection is backed by the map, and supports element
+     * removal but not addition.  Its iterator is a
+     * {@link PrimitiveIterator.OfInt} and its spliterator a
+     * {@link Spliterator.OfInt}.
+     *
+     * @return a view of the values contained in this map
+     */
+    public Collection<Integer> values() {
+        Collection<Integer> vs;
+        return (vs = values) == null ? (values = new Values()) : vs;
+    }
+
+    final class Values extends AbstractCollection<Integer> {
+        public final int size()                 { return size; }
+        public final void clear()               { IntIntMap.this.clear(); }
+        public final PrimitiveIterator.OfInt iterator() {
+            return new ValueIterator();
+        }
+        public final boolean contains(Object o) { return containsValue(o); }
+        public final Spliterator.OfInt spliterator() {
+            return new ValueSpliterator(IntIntMap.this, 0, -1, 0, 0);
+        }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, and supports element removal but not
+     * addition.  Entries obtained from it write through to the map with
+     * {@code setValue} for as long as their key remains present.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    public Set<Map.Entry<Integer,Integer>> entrySet() {
+        Set<Map.Entry<Integer,Integer>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<Integer,Integer>> {
+        public final int size()                 { return size; }
+        public final void clear()               { IntIntMap.this.clear(); }
+        public final Iterator<Map.Entry<Integer,Integer>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object v = e.getValue();
+            return (v instanceof Integer) && v.equals(get(e.getKey()));
+        }
+        public final boolean remove(Object o) {
+            if (contains(o)) {
+                IntIntMap.this.remove(((Map.Entry<?,?>) o).getKey());
+                return true;
+            }
+            return false;
+        }
+        public final Spliterator<Map.Entry<Integer,Integer>> spliterator() {
+            return new EntrySpliterator(IntIntMap.this, 0, -1, 0, 0);
+        }
+    }
+
+    /**
+     * A map entry that reads its value at creation and writes through
+     * on {@code setValue} while its key is still present.
+     */
+    final class Entry implements Map.Entry<Integer,Integer> {
+        final int key;
+        int value;
+
+        Entry(int key, int value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public final Integer getKey()        { return key; }
+        public final Integer getValue()      { return value; }
+        public final String toString() { return key + "=" + value; }
+
+        public final Integer setValue(Integer newValue) {
+            int v = newValue.intValue(), old = value;
+            value = v;
+            if (key == 0) {
+                if (hasZeroKey)
+                    zeroValue = v;
+            }
+            else {
+                int i = find(key);
+                if (i >= 0)
+                    vals[i] = v;
+            }
+            return old;
+        }
+
+        public final int hashCode() {
+            return Integer.hashCode(key) ^ Integer.hashCode(value);
+        }
+
+        public final boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+                Object k = e.getKey(), v = e.getValue();
+                return (k instanceof Integer) && ((Integer)k).intValue() == key &&
+                    (v instanceof Integer) && ((Integer)v).intValue() == value;
+            }
+            return false;
+        }
+    }
+
+    /* ---------------- Iterators -------------- */
+
+    abstract class HashIterator {
+        int index;             // next slot to examine, descending
+        int current = -1;      // slot of last returned entry, or -1
+        int lastKey;           // key of last returned entry
+        boolean lastWrapped;   // whether last returned came from wrapped
+        int remaining;         // entries not yet returned
+        int expectedModCount;  // for fast-fail
+        int[] wrapped;         // keys moved behind the cursor by removals
+        int wrappedCount;
+
+        HashIterator() {
+            expectedModCount = modCount;
+            index = keys.length;
+            remaining = size;
+        }
+
+        public final boolean hasNext() {
+            return remaining > 0;
+        }
+
+        /**
+         * Advances to the next entry, setting current and lastKey.
+         */
+        final void advance() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (remaining <= 0)
+                throw new NoSuchElementException();
+            --remaining;
+            int[] ks = keys;
+            int i = index;
+            if (i == ks.length) {
+                index = --i;
+                if (hasZeroKey) {
+                    current = ks.length;
+                    lastKey = 0;
+                    lastWrapped = false;
+                    return;
+                }
+            }
+            for (; i >= 0; --i) {
+                int k;
+                if ((k = ks[i]) != 0) {
+                    index = i - 1;
+                    current = i;
+                    lastKey = k;
+                    lastWrapped = false;
+                    return;
+                }
+            }
+            index = -1;
+            current = -1;
+            lastKey = wrapped[--wrappedCount];
+            lastWrapped = true;
+        }
+
+        final int currentValue() {
+            int k = lastKey;
+            return (k == 0) ? zeroValue :
+                lastWrapped ? vals[find(k)] : vals[current];
+        }
+
+        public final void remove() {
+            if (current < 0 && !lastWrapped)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (lastWrapped || lastKey == 0)
+                IntIntMap.this.remove(lastKey);
+            else
+                removeAt(current, this);
+            current = -1;
+            lastWrapped = false;
+            expectedModCount = modCount;
+        }
+
+        /**
+         * Records a key moved behind the cursor by a removal, so that it
+         * is still returned after the table walk completes.
+         */
+        final void addWrapped(int k) {
+            if (wrapped == null)
+                wrapped = new int[4];
+            else if (wrappedCount == wrapped.length)
+                wrapped = Arrays.copyOf(wrapped, wrappedCount << 1);
+            wrapped[wrappedCount++] = k;
+        }
+    }
+
+    final class KeyIterator extends HashIterator
+        implements PrimitiveIterator.OfInt {
+        public final int nextInt() {
+            advance();
+            return lastKey;
+        }
+    }
+
+    final class ValueIterator extends HashIterator
+        implements PrimitiveIterator.OfInt {
+        public final int nextInt() {
+            advance();
+            return currentValue();
+        }
+    }
+
+    final class EntryIterator extends HashIterator
+        implements Iterator<Map.Entry<Integer,Integer>> {
+        public final Map.Entry<Integer,Integer> next() {
+            advance();
+            return new Entry(lastKey, currentValue());
+        }
+    }
+
+    /* ---------------- Spliterators -------------- */
+
+    /**
+     * Base of spliterators over the slot range [0, keys.length], where
+     * index keys.length stands for the zero key.
+     */
+    static class TableSpliterator {
+        final IntIntMap map;
+        int index;                  // current index, modified on advance/split
+        int fence;                  // one past last index
+        int est;                    // size estimate
+        int expectedModCount;       // for comodification checks
+
+        TableSpliterator(IntIntMap m, int origin, int fence, int est,
+                         int expectedModCount) {
+            this.map = m;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getFence() { // initialize fence and size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                IntIntMap m = map;
+                est = m.size;
+                expectedModCount = m.modCount;
+                hi = fence = m.keys.length + 1;
+            }
+            return hi;
+        }
+
+        /**
+         * Returns the next occupied slot in [index, fence), advancing
+         * past it, or -1 if none.
+         */
+        final int nextSlot() {
+            IntIntMap m = map;
+            int[] ks = m.keys;
+            int hi = getFence(), i = index;
+            if (ks.length + 1 < hi)
+                throw new ConcurrentModificationException();
+            for (; i < hi; ++i) {
+                if (i == ks.length ? m.hasZeroKey : ks[i] != 0) {
+                    index = i + 1;
+                    return i;
+                }
+            }
+            index = hi;
+            return -1;
+        }
+
+        final void checkForComodification() {
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        public final long estimateSize() {
+            getFence(); // force init
+            return (long) est;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0) |
+                Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+    }
+
+    static final class KeySpliterator extends TableSpliterator
+        implements Spliterator.OfInt {
+        KeySpliterator(IntIntMap m, int origin, int fence, int est,
+                       int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public KeySpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new KeySpliterator(map, lo, index = mid, est >>>= 1,
+                                   expectedModCount);
+        }
+
+        public boolean tryAdvance(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = nextSlot();
+            if (i < 0)
+                return false;
+            int[] ks = map.keys;
+            action.accept(i == ks.length ? 0 : ks[i]);
+            checkForComodification();
+            return true;
+        }
+
+        public void forEachRemaining(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int[] ks = map.keys;
+            for (int i; (i = nextSlot()) >= 0; )
+                action.accept(i == ks.length ? 0 : ks[i]);
+            checkForComodification();
+        }
+    }
+
+    static final class ValueSpliterator extends TableSpliterator
+        implements Spliterator.OfInt {
+        ValueSpliterator(IntIntMap m, int origin, int fence, int est,
+                         int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public ValueSpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new ValueSpliterator(map, lo, index = mid, est >>>= 1,
+                                     expectedModCount);
+        }
+
+        public boolean tryAdvance(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = nextSlot();
+            if (i < 0)
+                return false;
+            action.accept(i == map.keys.length ? map.zeroValue : map.vals[i]);
+            checkForComodification();
+            return true;
+        }
+
+        public void forEachRemaining(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            IntIntMap m = map;
+            int[] ks = m.keys;
+            int[] vs = m.vals;
+            for (int i; (i = nextSlot()) >= 0; )
+                action.accept(i == ks.length ? m.zeroValue : vs[i]);
+            checkForComodification();
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0) |
+                Spliterator.NONNULL;
+        }
+    }
+
+    static final class EntrySpliterator extends TableSpliterator
+        implements Spliterator<Map.Entry<Integer,Integer>> {
+        EntrySpliterator(IntIntMap m, int origin, int fence, int est,
+                         int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public EntrySpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new EntrySpliterator(map, lo, index = mid, est >>>= 1,
+                                     expectedModCount);
+        }
+
+        public boolean tryAdvance(Consumer<? super Map.Entry<Integer,Integer>> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = nextSlot();
+            if (i < 0)
+                return false;
+            action.accept(entryAt(i));
+            checkForComodification();
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super Map.Entry<Integer,Integer>> action) {
+            if (action == null)
+                throw new NullPointerException();
+            for (int i; (i = nextSlot()) >= 0; )
+                action.accept(entryAt(i));
+            checkForComodification();
+        }
+
+        private Map.Entry<Integer,Integer> entryAt(int i) {
+            IntIntMap m = map;
+            return (i == m.keys.length) ?
+                m.new Entry(0, m.zeroValue) :
+                m.new Entry(m.keys[i], m.vals[i]);
+        }
+    }
+}
@@ -0,0 +1,1233 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * An open-addressing hash table mapping primitive {@code int} keys to
+ * object values.  This class stores keys and values in two parallel
+ * arrays and resolves collisions by linear probing, so that a mapping
+ * occupies two array slots rather than a {@code Integer} key and a
+ * {@link HashMap} node.  Removals use backward-shift deletion, so the
+ * table never accumulates tombstones.
+ *
+ * <p>This class implements the {@link Map} interface for interoperability
+ * with the Collections Framework, but the primitive-keyed methods
+ * ({@link #get(int)}, {@link #put(int, Object)}, {@link #remove(int)},
+ * {@link #computeIfAbsent(int, IntFunction)} and friends) should be preferred
+ * on hot paths as they do not box keys.  {@code null} values are
+ * permitted, as in {@code HashMap}; the {@code null} key is not.
+ *
+ * <p>The key set view returns {@link PrimitiveIterator.OfInt} and
+ * {@link Spliterator.OfInt} instances from its {@code iterator} and
+ * {@code spliterator} methods, so that keys may be traversed and used as
+ * a stream source without boxing.
+ *
+ * <p>As with {@code HashMap}, the <i>load factor</i> bounds the fraction of
+ * table slots that may be in use before the table is doubled.  Linear
+ * probing degrades faster than chaining as the table fills, so the default
+ * load factor is {@code 0.5} and load factors must be strictly less than
+ * {@code 1}.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access the map concurrently, and at least one of
+ * the threads modifies the map structurally, it <i>must</i> be
+ * synchronized externally.  The iterators and spliterators returned by
+ * the collection views are <i>fail-fast</i> on a best-effort basis, as
+ * described for {@link HashMap}.
+ *
+ * @param <V> the type of mapped values
+ *
+ * @see     HashMap
+ * @see     IntIntMap
+ * @since   1.8
+ */
+public class IntObjectMap<V> extends AbstractMap<Integer,V>
+    implements Map<Integer,V>, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 5436203410384426187L;
+
+    /*
+     * Implementation notes.
+     *
+     * See IntIntMap, which uses the same layout: slot i is free
+     * iff keys[i] == 0, the key 0 lives in zeroValue guarded by
+     * hasZeroKey and is addressed as pseudo-slot keys.length, and
+     * iterators walk the table downwards, remembering entries that
+     * removals move from wrapped-around low slots to visited high ones.
+     * Vacated value slots are nulled out so as not to retain garbage.
+     */
+
+    /**
+     * The default initial capacity, in mappings.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    /**
+     * The maximum table length.  Must be a power of two <= 1<<30.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The load factor used when none is specified in the constructor.
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    /**
+     * The keys, or 0 for free slots.  Length is always a power of two.
+     */
+    transient int[] keys;
+
+    /**
+     * The values, parallel to keys.
+     */
+    transient Object[] vals;
+
+    /**
+     * Whether the key 0 is present.
+     */
+    transient boolean hasZeroKey;
+
+    /**
+     * The value associated with the key 0, if present.
+     */
+    transient Object zeroValue;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The number of times this map has been structurally modified.
+     */
+    transient int modCount;
+
+    /**
+     * The size at which the table is resized.
+     */
+    transient int threshold;
+
+    /**
+     * The load factor for the hash table.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    /**
+     * Holds cached entrySet().
+     */
+    transient Set<Map.Entry<Integer,V>> entrySet;
+
+    /* ---------------- Static utilities -------------- */
+
+    /**
+     * Spreads the bits of a key so that the low bits used as the table
+     * index depend on all bits of the key.
+     */
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Constructs an empty map that can hold the specified number of
+     * mappings before resizing, with the specified load factor.
+     *
+     * @param  initialCapacity the initial capacity, in mappings
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not in the range {@code (0, 1)}
+     */
+    public IntObjectMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(IntIntMap.tableSizeFor(initialCapacity, loadFactor));
+    }
+
+    /**
+     * Constructs an empty map that can hold the specified number of
+     * mappings before resizing, with the default load factor (0.5).
+     *
+     * @param  initialCapacity the initial capacity, in mappings
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public IntObjectMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map with the default initial capacity (16)
+     * and the default load factor (0.5).
+     */
+    public IntObjectMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs a new map with the same mappings as the specified
+     * {@code Map}.
+     *
+     * @param   m the map whose mappings are to be placed in this map
+     * @throws  NullPointerException if the specified map is null, or
+     *          contains null keys
+     */
+    public IntObjectMap(Map<? extends Integer, ? extends V> m) {
+        this(Math.max(m.size(), DEFAULT_INITIAL_CAPACITY), DEFAULT_LOAD_FACTOR);
+        putAll(m);
+    }
+
+    /**
+     * Installs new empty tables of the given length.
+     */
+    final void allocate(int cap) {
+        keys = new int[cap];
+        vals = new Object[cap];
+        threshold = (cap == MAXIMUM_CAPACITY) ? cap - 1 :
+            Math.min((int)(cap * loadFactor), cap - 1);
+    }
+
+    /**
+     * Returns the index of the given nonzero key, or if absent,
+     * {@code ~i} where i is the free slot at which it would be inserted.
+     */
+    final int find(int key) {
+        int[] ks = keys;
+        int mask = ks.length - 1;
+        for (int i = mix(key) & mask;; i = (i + 1) & mask) {
+            int k = ks[i];
+            if (k == key)
+                return i;
+            if (k == 0)
+                return ~i;
+        }
+    }
+
+    /**
+     * Inserts a nonzero key known to be absent at the given free slot,
+     * first resizing if necessary, and returns its final slot.
+     */
+    final int insert(int key, int slot, Object value) {
+        if (size >= threshold) {
+            resize();
+            slot = ~find(key);
+        }
+        keys[slot] = key;
+        vals[slot] = value;
+        ++size;
+        ++modCount;
+        return slot;
+    }
+
+    /**
+     * Doubles the table length and reinserts all mappings.
+     */
+    final void resize() {
+        int[] oldKeys = keys;
+        Object[] oldVals = vals;
+        int oldCap = oldKeys.length;
+        if (oldCap >= MAXIMUM_CAPACITY)
+            throw new IllegalStateException("Map capacity exceeded");
+        allocate(oldCap << 1);
+        int[] ks = keys;
+        Object[] vs = vals;
+        int mask = ks.length - 1;
+        for (int j = 0; j < oldCap; ++j) {
+            int k;
+            if ((k = oldKeys[j]) != 0) {
+                int i = mix(k) & mask;
+                while (ks[i] != 0)
+                    i = (i + 1) & mask;
+                ks[i] = k;
+                vs[i] = oldVals[j];
+            }
+        }
+    }
+
+    /**
+     * Removes the mapping at the given table slot, shifting subsequent
+     * entries of the probe sequence back into the hole.  If an iterator
+     * is given, entries moved from a lower to a higher index (wrapping
+     * around the end of the table) are reported to it.
+     */
+    final void removeAt(int slot, HashIterator it) {
+        int[] ks = keys;
+        Object[] vs = vals;
+        int mask = ks.length - 1;
+        int hole = slot;
+        for (int i = (slot + 1) & mask;; i = (i + 1) & mask) {
+            int k = ks[i];
+            if (k == 0)
+                break;
+            int h = mix(k) & mask;
+            if (hole <= i ? (h <= hole || h > i) : (h <= hole && h > i)) {
+                if (i < hole && it != null)
+                    it.addWrapped(k);
+                ks[hole] = k;
+                vs[hole] = vs[i];
+                hole = i;
+            }
+        }
+        ks[hole] = 0;
+        vs[hole] = null;
+        --size;
+        ++modCount;
+    }
+
+    /**
+     * Removes the zero key, which must be present.
+     */
+    final void removeZeroKey() {
+        hasZeroKey = false;
+        zeroValue = null;
+        --size;
+        ++modCount;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param   key the key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified
+     *         key
+     */
+    public boolean containsKey(int key) {
+        return (key == 0) ? hasZeroKey : find(key) >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsKey(Object key) {
+        return (key instanceof Integer) && containsKey(((Integer)key).intValue());
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation requires time linear in the
+     * table length.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(Object value) {
+        if (hasZeroKey && Objects.equals(zeroValue, value))
+            return true;
+        int[] ks = keys;
+        Object[] vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            if (ks[i] != 0 && Objects.equals(vs[i], value))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key.  A
+     * return value of {@code null} does not <i>necessarily</i> indicate
+     * that the map contains no mapping for the key; use
+     * {@link #containsKey(int)} to distinguish these cases.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or
+     *         {@code null} if this map contains no mapping for the key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key == 0)
+            return (V)zeroValue;
+        int i = find(key);
+        return (i >= 0) ? (V)vals[i] : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public V get(Object key) {
+        return (key instanceof Integer) ? get(((Integer)key).intValue()) : null;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the default mapping of the key
+     * @return the value to which the specified key is mapped, or
+     *         {@code defaultValue} if this map contains no mapping for the key
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(int key, V defaultValue) {
+        if (key == 0)
+            return hasZeroKey ? (V)zeroValue : defaultValue;
+        int i = find(key);
+        return (i >= 0) ? (V)vals[i] : defaultValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public V getOrDefault(Object key, V defaultValue) {
+        return (key instanceof Integer) ?
+            getOrDefault(((Integer)key).intValue(), defaultValue) : defaultValue;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws IllegalStateException if the map cannot grow any further
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        Object old;
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                ++size;
+                ++modCount;
+            }
+            old = zeroValue;
+            zeroValue = value;
+            return (V)old;
+        }
+        int i = find(key);
+        if (i < 0) {
+            insert(key, ~i, value);
+            return null;
+        }
+        old = vals[i];
+        vals[i] = value;
+        return (V)old;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the key is null
+     */
+    public V put(Integer key, V value) {
+        return put(key.intValue(), value);
+    }
+
+    /**
+     * If the specified key is not already associated with a value (or
+     * is mapped to {@code null}), associates it with the given value
+     * and returns {@code null}, else returns the current value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key
+     */
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(int key, V value) {
+        Object old;
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                ++size;
+                ++modCount;
+            }
+            if ((old = zeroValue) == null)
+                zeroValue = value;
+            return (V)old;
+        }
+        int i = find(key);
+        if (i < 0) {
+            insert(key, ~i, value);
+            return null;
+        }
+        if ((old = vals[i]) == null)
+            vals[i] = value;
+        return (V)old;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public V putIfAbsent(Integer key, V value) {
+        return putIfAbsent(key.intValue(), value);
+    }
+
+    /**
+     * If the specified key is not already associated with a value (or
+     * is mapped to {@code null}), attempts to compute its value using the
+     * given mapping function and enters it into this map unless
+     * {@code null}.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key, or null if the computed value is null
+     * @throws NullPointerException if the mapping function is null
+     * @throws ConcurrentModificationException if it is detected that the
+     *         mapping function modified this map
+     */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(int key, IntFunction<? extends V> mappingFunction) {
+        if (mappingFunction == null)
+            throw new NullPointerException();
+        Object old;
+        int i = -1;
+        if (key == 0) {
+            if ((old = zeroValue) != null)
+                return (V)old;
+        }
+        else if ((i = find(key)) >= 0 && (old = vals[i]) != null)
+            return (V)old;
+        int mc = modCount;
+        V v = mappingFunction.apply(key);
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+        if (v != null) {
+            if (key == 0) {
+                if (!hasZeroKey) {
+                    hasZeroKey = true;
+                    ++size;
+                    ++modCount;
+                }
+                zeroValue = v;
+            }
+            else if (i >= 0)
+                vals[i] = v;
+            else
+                insert(key, ~i, v);
+        }
+        return v;
+    }
+
+    /**
+     * If the specified key is not already associated with a value or is
+     * associated with null, associates it with the given non-null value.
+     * Otherwise, replaces the associated value with the results of the
+     * given remapping function, or removes it if the result is
+     * {@code null}, as specified by {@link Map#merge}.
+     *
+     * @param key key with which the resulting value is to be associated
+     * @param value the non-null value to be merged with the existing value
+     * @param remappingFunction the function to recompute a value if present
+     * @return the new value associated with the specified key, or null if
+     *         no value is associated with the key
+     * @throws NullPointerException if the value or remapping function is
+     *         null
+     * @throws ConcurrentModificationException if it is detected that the
+     *         remapping function modified this map
+     */
+    @SuppressWarnings("unchecked")
+    public V merge(int key, V value,
+                   BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (value == null || remappingFunction == null)
+            throw new NullPointerException();
+        Object old;
+        int i = -1;
+        if (key == 0)
+            old = zeroValue;
+        else
+            old = ((i = find(key)) >= 0) ? vals[i] : null;
+        V v;
+        if (old == null)
+            v = value;
+        else {
+            int mc = modCount;
+            v = remappingFunction.apply((V)old, value);
+            if (mc != modCount)
+                throw new ConcurrentModificationException();
+        }
+        if (key == 0) {
+            if (v == null) {
+                if (hasZeroKey)
+                    removeZeroKey();
+            }
+            else {
+                if (!hasZeroKey) {
+                    hasZeroKey = true;
+                    ++size;
+                    ++modCount;
+                }
+                zeroValue = v;
+            }
+        }
+        else if (i >= 0) {
+            if (v == null)
+                removeAt(i, null);
+            else
+                vals[i] = v;
+        }
+        else if (v != null)
+            insert(key, ~i, v);
+        return v;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        Object old;
+        if (key == 0) {
+            if (!hasZeroKey)
+                return null;
+            old = zeroValue;
+            removeZeroKey();
+            return (V)old;
+        }
+        int i = find(key);
+        if (i < 0)
+            return null;
+        old = vals[i];
+        removeAt(i, null);
+        return (V)old;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public V remove(Object key) {
+        return (key instanceof Integer) ? remove(((Integer)key).intValue()) : null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, 0);
+            Arrays.fill(vals, null);
+            hasZeroKey = false;
+            zeroValue = null;
+            size = 0;
+        }
+        ++modCount;
+    }
+
+    /**
+     * Performs the given action for each mapping in this map, boxing
+     * the keys.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super Integer, ? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        if (hasZeroKey)
+            action.accept(0, (V)zeroValue);
+        int[] ks = keys;
+        Object[] vs = vals;
+        for (int i = 0; i < ks.length && mc == modCount; ++i) {
+            int k;
+            if ((k = ks[i]) != 0)
+                action.accept(k, (V)vs[i]);
+        }
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns the hash code value for this map, as defined by
+     * {@link Map#hashCode}.
+     *
+     * @return the hash code value for this map
+     */
+    public int hashCode() {
+        int h = 0;
+        if (hasZeroKey)
+            h = Objects.hashCode(zeroValue);
+        int[] ks = keys;
+        Object[] vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            int k;
+            if ((k = ks[i]) != 0)
+                h += Integer.hashCode(k) ^ Objects.hashCode(vs[i]);
+        }
+        return h;
+    }
+
+    /**
+     * Returns a shallow copy of this map: the keys and values
+     * themselves are not cloned.
+     *
+     * @return a shallow copy of this map
+     */
+    @SuppressWarnings("unchecked")
+    public IntObjectMap<V> clone() {
+        IntObjectMap<V> result;
+        try {
+            result = (IntObjectMap<V>)super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        result.keys = keys.clone();
+        result.vals = vals.clone();
+        result.keySet = null;
+        result.values = null;
+        result.entrySet = null;
+        result.modCount = 0;
+        return result;
+    }
+
+    /**
+     * Saves this map to a stream (that is, serializes it).
+     *
+     * @serialData The load factor is emitted by the default serialization,
+     *             followed by the <i>size</i> (an int), followed by the
+     *             key ({@code int}) and value (Object) of each mapping.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        if (hasZeroKey) {
+            s.writeInt(0);
+            s.writeObject(zeroValue);
+        }
+        int[] ks = keys;
+        Object[] vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            int k;
+            if ((k = ks[i]) != 0) {
+                s.writeInt(k);
+                s.writeObject(vs[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitutes this map from a stream (that is, deserializes it).
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new InvalidObjectException("Illegal load factor: " +
+                                             loadFactor);
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new InvalidObjectException("Illegal mappings count: " +
+                                             mappings);
+        allocate(IntIntMap.tableSizeFor(mappings, loadFactor));
+        for (int i = 0; i < mappings; i++) {
+            int key = s.readInt();
+            put(key, (V)s.readObject());
+        }
+    }
+
+    /* ---------------- Views -------------- */
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map.
+     * The set is backed by the map, and supports element removal but not
+     * addition.  Its iterator is a {@link PrimitiveIterator.OfInt} and
+     * its spliterator a {@link Spliterator.OfInt}.
+     *
+     * @return a set view of the keys contained in this map
+     */
+    public Set<Integer> keySet() {
+        Set<Integer> ks;
+        return (ks = keySet) == null ? (keySet = new KeySet()) : ks;
+    }
+
+    final class KeySet extends AbstractSet<Integer> {
+        public final int size()                 { return size; }
+        public final void clear()               { IntObjectMap.this.clear(); }
+        public final PrimitiveIterator.OfInt iterator() {
+            return new KeyIterator();
+        }
+        public final boolean contains(Object o) { return containsKey(o); }
+        public final boolean remove(Object key) {
+            if (containsKey(key)) {
+                IntObjectMap.this.remove(key);
+                return true;
+            }
+            return false;
+        }
+        public final Spliterator.OfInt spliterator() {
+            return new KeySpliterator<>(IntObjectMap.this, 0, -1, 0, 0);
+        }
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this
+     * map.  The collection is backed by the map, and supports element
+     * removal but not addition.
+     *
+     * @return a view of the values contained in this map
+     */
+    public Collection<V> values() {
+        Collection<V> vs;
+        return (vs = values) == null ? (values = new Values()) : vs;
+    }
+
+    final class Values extends AbstractCollection<V> {
+        public final int size()                 { return size; }
+        public final void clear()               { IntObjectMap.this.clear(); }
+        public final Iterator<V> iterator()     { return new ValueIterator(); }
+        public final boolean contains(Object o) { return containsValue(o); }
+        public final Spliterator<V> spliterator() {
+            return new ValueSpliterator<>(IntObjectMap.this, 0, -1, 0, 0);
+        }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, and supports element removal but not
+     * addition.  Entries obtained from it write through to the map with
+     * {@code setValue} for as long as their key remains present.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    public Set<Map.Entry<Integer,V>> entrySet() {
+        Set<Map.Entry<Integer,V>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<Integer,V>> {
+        public final int size()                 { return size; }
+        public final void clear()               { IntObjectMap.this.clear(); }
+        public final Iterator<Map.Entry<Integer,V>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey();
+            return containsKey(key) && Objects.equals(get(key), e.getValue());
+        }
+        public final boolean remove(Object o) {
+            if (contains(o)) {
+                IntObjectMap.this.remove(((Map.Entry<?,?>) o).getKey());
+                return true;
+            }
+            return false;
+        }
+        public final Spliterator<Map.Entry<Integer,V>> spliterator() {
+            return new EntrySpliterator<>(IntObjectMap.this, 0, -1, 0, 0);
+        }
+    }
+
+    /**
+     * A map entry that reads its value at creation and writes through
+     * on {@code setValue} while its key is still present.
+     */
+    final class Entry implements Map.Entry<Integer,V> {
+        final int key;
+        V value;
+
+        Entry(int key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public final Integer getKey()     { return key; }
+        public final V getValue()      { return value; }
+        public final String toString() { return key + "=" + value; }
+
+        public final V setValue(V newValue) {
+            V old = value;
+            value = newValue;
+            if (key == 0) {
+                if (hasZeroKey)
+                    zeroValue = newValue;
+            }
+            else {
+                int i = find(key);
+                if (i >= 0)
+                    vals[i] = newValue;
+            }
+            return old;
+        }
+
+        public final int hashCode() {
+            return Integer.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        public final boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+                Object k = e.getKey();
+                return (k instanceof Integer) && ((Integer)k).intValue() == key &&
+                    Objects.equals(value, e.getValue());
+            }
+            return false;
+        }
+    }
+
+    /* ---------------- Iterators -------------- */
+
+    abstract class HashIterator {
+        int index;             // next slot to examine, descending
+        int current = -1;      // slot of last returned entry, or -1
+        int lastKey;           // key of last returned entry
+        boolean lastWrapped;   // whether last returned came from wrapped
+        int remaining;         // entries not yet returned
+        int expectedModCount;  // for fast-fail
+        int[] wrapped;         // keys moved behind the cursor by removals
+        int wrappedCount;
+
+        HashIterator() {
+            expectedModCount = modCount;
+            index = keys.length;
+            remaining = size;
+        }
+
+        public final boolean hasNext() {
+            return remaining > 0;
+        }
+
+        /**
+         * Advances to the next entry, setting current and lastKey.
+         */
+        final void advance() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (remaining <= 0)
+                throw new NoSuchElementException();
+            --remaining;
+            int[] ks = keys;
+            int i = index;
+            if (i == ks.length) {
+                index = --i;
+                if (hasZeroKey) {
+                    current = ks.length;
+                    lastKey = 0;
+                    lastWrapped = false;
+                    return;
+                }
+            }
+            for (; i >= 0; --i) {
+                int k;
+                if ((k = ks[i]) != 0) {
+                    index = i - 1;
+                    current = i;
+                    lastKey = k;
+                    lastWrapped = false;
+                    return;
+                }
+            }
+            index = -1;
+            current = -1;
+            lastKey = wrapped[--wrappedCount];
+            lastWrapped = true;
+        }
+
+        @SuppressWarnings("unchecked")
+        final V currentValue() {
+            int k = lastKey;
+            return (V)((k == 0) ? zeroValue :
+                       lastWrapped ? vals[find(k)] : vals[current]);
+        }
+
+        public final void remove() {
+            if (current < 0 && !lastWrapped)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (lastWrapped || lastKey == 0)
+                IntObjectMap.this.remove(lastKey);
+            else
+                removeAt(current, this);
+            current = -1;
+            lastWrapped = false;
+            expectedModCount = modCount;
+        }
+
+        /**
+         * Records a key moved behind the cursor by a removal, so that it
+         * is still returned after the table walk completes.
+         */
+        final void addWrapped(int k) {
+            if (wrapped == null)
+                wrapped = new int[4];
+            else if (wrappedCount == wrapped.length)
+                wrapped = Arrays.copyOf(wrapped, wrappedCount << 1);
+            wrapped[wrappedCount++] = k;
+        }
+    }
+
+    final class KeyIterator extends HashIterator
+        implements PrimitiveIterator.OfInt {
+        public final int nextInt() {
+            advance();
+            return lastKey;
+        }
+    }
+
+    final class ValueIterator extends HashIterator implements Iterator<V> {
+        public final V next() {
+            advance();
+            return currentValue();
+        }
+    }
+
+    final class EntryIterator extends HashIterator
+        implements Iterator<Map.Entry<Integer,V>> {
+        public final Map.Entry<Integer,V> next() {
+            advance();
+            return new Entry(lastKey, currentValue());
+        }
+    }
+
+    /* ---------------- Spliterators -------------- */
+
+    /**
+     * Base of spliterators over the slot range [0, keys.length], where
+     * index keys.length stands for the zero key.
+     */
+    static class TableSpliterator<V> {
+        final IntObjectMap<V> map;
+        int index;                  // current index, modified on advance/split
+        int fence;                  // one past last index
+        int est;                    // size estimate
+        int expectedModCount;       // for comodification checks
+
+        TableSpliterator(IntObjectMap<V> m, int origin, int fence, int est,
+                         int expectedModCount) {
+            this.map = m;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getFence() { // initialize fence and size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                IntObjectMap<V> m = map;
+                est = m.size;
+                expectedModCount = m.modCount;
+                hi = fence = m.keys.length + 1;
+            }
+            return hi;
+        }
+
+        /**
+         * Returns the next occupied slot in [index, fence), advancing
+         * past it, or -1 if none.
+         */
+        final int nextSlot() {
+            IntObjectMap<V> m = map;
+            int[] ks = m.keys;
+            int hi = getFence(), i = index;
+            if (ks.length + 1 < hi)
+                throw new ConcurrentModificationException();
+            for (; i < hi; ++i) {
+                if (i == ks.length ? m.hasZeroKey : ks[i] != 0) {
+                    index = i + 1;
+                    return i;
+                }
+            }
+            index = hi;
+            return -1;
+        }
+
+        @SuppressWarnings("unchecked")
+        final V valueAt(int i) {
+            IntObjectMap<V> m = map;
+            return (V)((i == m.keys.length) ? m.zeroValue : m.vals[i]);
+        }
+
+        final void checkForComodification() {
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        public final long estimateSize() {
+            getFence(); // force init
+            return (long) est;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0) |
+                Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+    }
+
+    static final class KeySpliterator<V> extends TableSpliterator<V>
+        implements Spliterator.OfInt {
+        KeySpliterator(IntObjectMap<V> m, int origin, int fence, int est,
+                       int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public KeySpliterator<V> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new KeySpliterator<>(map, lo, index = mid, est >>>= 1,
+                                     expectedModCount);
+        }
+
+        public boolean tryAdvance(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = nextSlot();
+            if (i < 0)
+                return false;
+            int[] ks = map.keys;
+            action.accept(i == ks.length ? 0 : ks[i]);
+            checkForComodification();
+            return true;
+        }
+
+        public void forEachRemaining(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int[] ks = map.keys;
+            for (int i; (i = nextSlot()) >= 0; )
+                action.accept(i == ks.length ? 0 : ks[i]);
+            checkForComodification();
+        }
+    }
+
+    static final class ValueSpliterator<V> extends TableSpliterator<V>
+        implements Spliterator<V> {
+        ValueSpliterator(IntObjectMap<V> m, int origin, int fence, int est,
+                         int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public ValueSpliterator<V> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new ValueSpliterator<>(map, lo, index = mid, est >>>= 1,
+                                       expectedModCount);
+        }
+
+        public boolean tryAdvance(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = nextSlot();
+            if (i < 0)
+                return false;
+            action.accept(valueAt(i));
+            checkForComodification();
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            for (int i; (i = nextSlot()) >= 0; )
+                action.accept(valueAt(i));
+            checkForComodification();
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0);
+        }
+    }
+
+    static final class EntrySpliterator<V> extends TableSpliterator<V>
+        implements Spliterator<Map.Entry<Integer,V>> {
+        EntrySpliterator(IntObjectMap<V> m, int origin, int fence, int est,
+                         int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public EntrySpliterator<V> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new EntrySpliterator<>(map, lo, index = mid, est >>>= 1,
+                                       expectedModCount);
+        }
+
+        public boolean tryAdvance(Consumer<? super Map.Entry<Integer,V>> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = nextSlot();
+            if (i < 0)
+                return false;
+            action.accept(entryAt(i));
+            checkForComodification();
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super Map.Entry<Integer,V>> action) {
+            if (action == null)
+                throw new NullPointerException();
+            for (int i; (i = nextSlot()) >= 0; )
+                action.accept(entryAt(i));
+            checkForComodification();
+        }
+
+        private Map.Entry<Integer,V> entryAt(int i) {
+            IntObjectMap<V> m = map;
+            return m.new Entry((i == m.keys.length) ? 0 : m.keys[i],
+                               valueAt(i));
+        }
+    }
+}
@@ -0,0 +1,652 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.function.IntConsumer;
+
+/**
+ * An open-addressing hash set of primitive {@code int} values.  This class
+ * stores its elements in a single array and resolves collisions by linear
+ * probing, so that an element occupies one array slot rather than a
+ * {@code Integer} and a {@link HashMap} node as in {@link HashSet}.  Removals
+ * use backward-shift deletion, so the table never accumulates tombstones.
+ *
+ * <p>This class implements the {@link Set} interface for interoperability
+ * with the Collections Framework, but the primitive methods
+ * ({@link #add(int)}, {@link #contains(int)} and {@link #remove(int)})
+ * should be preferred on hot paths as they neither box nor allocate.
+ * The {@link #iterator} and {@link #spliterator} methods return
+ * {@link PrimitiveIterator.OfInt} and {@link Spliterator.OfInt}
+ * instances, so that the set may be traversed and used as a stream
+ * source without boxing.
+ *
+ * <p>The <i>load factor</i> is as described for {@link IntIntMap}.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access the set concurrently, and at least one of
+ * the threads modifies the set, it <i>must</i> be synchronized
+ * externally.  Iterators and spliterators are <i>fail-fast</i> on a
+ * best-effort basis, as described for {@link HashSet}.
+ *
+ * @see     HashSet
+ * @see     IntIntMap
+ * @since   1.8
+ */
+public class IntSet extends AbstractSet<Integer>
+    implements Set<Integer>, Cloneable, Serializable {
+
+    private static final long serialVersionUID = -6393417627016390254L;
+
+    /*
+     * Implementation notes: see IntIntMap, which uses the same
+     * table layout, probing, removal and iteration schemes.
+     */
+
+    /**
+     * The default initial capacity, in elements.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    /**
+     * The maximum table length.  Must be a power of two <= 1<<30.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The load factor used when none is specified in the constructor.
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    /**
+     * The elements, or 0 for free slots.  Length is always a power of two.
+     */
+    transient int[] keys;
+
+    /**
+     * Whether the element 0 is present.
+     */
+    transient boolean hasZeroKey;
+
+    /**
+     * The number of elements contained in this set.
+     */
+    transient int size;
+
+    /**
+     * The number of times this set has been structurally modified.
+     */
+    transient int modCount;
+
+    /**
+     * The size at which the table is resized.
+     */
+    transient int threshold;
+
+    /**
+     * The load factor for the hash table.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    /**
+     * Spreads the bits of an element so that the low bits used as the
+     * table index depend on all bits of the element.
+     */
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Constructs an empty set that can hold the specified number of
+     * elements before resizing, with the specified load factor.
+     *
+     * @param  initialCapacity the initial capacity, in elements
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not in the range {@code (0, 1)}
+     */
+    public IntSet(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(IntIntMap.tableSizeFor(initialCapacity, loadFactor));
+    }
+
+    /**
+     * Constructs an empty set that can hold the specified number of
+     * elements before resizing, with the default load factor (0.5).
+     *
+     * @param  initialCapacity the initial capacity, in elements
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public IntSet(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty set with the default initial capacity (16)
+     * and the default load factor (0.5).
+     */
+    public IntSet() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs a new set containing the elements in the specified
+     * collection.
+     *
+     * @param c the collection whose elements are to be placed into this set
+     * @throws NullPointerException if the specified collection is null,
+     *         or contains null elements
+     */
+    public IntSet(Collection<? extends Integer> c) {
+        this(Math.max(c.size(), DEFAULT_INITIAL_CAPACITY), DEFAULT_LOAD_FACTOR);
+        addAll(c);
+    }
+
+    /**
+     * Installs a new empty table of the given length.
+     */
+    final void allocate(int cap) {
+        keys = new int[cap];
+        threshold = (cap == MAXIMUM_CAPACITY) ? cap - 1 :
+            Math.min((int)(cap * loadFactor), cap - 1);
+    }
+
+    /**
+     * Returns the index of the given nonzero element, or if absent,
+     * {@code ~i} where i is the free slot at which it would be inserted.
+     */
+    final int find(int key) {
+        int[] ks = keys;
+        int mask = ks.length - 1;
+        for (int i = mix(key) & mask;; i = (i + 1) & mask) {
+            int k = ks[i];
+            if (k == key)
+                return i;
+            if (k == 0)
+                return ~i;
+        }
+    }
+
+    /**
+     * Doubles the table length and reinserts all elements.
+     */
+    final void resize() {
+        int[] oldKeys = keys;
+        int oldCap = oldKeys.length;
+        if (oldCap >= MAXIMUM_CAPACITY)
+            throw new IllegalStateException("Set capacity exceeded");
+        allocate(oldCap << 1);
+        int[] ks = keys;
+        int mask = ks.length - 1;
+        for (int j = 0; j < oldCap; ++j) {
+            int k;
+            if ((k = oldKeys[j]) != 0) {
+                int i = mix(k) & mask;
+                while (ks[i] != 0)
+                    i = (i + 1) & mask;
+                ks[i] = k;
+            }
+        }
+    }
+
+    /**
+     * Removes the element at the given table slot, shifting subsequent
+     * entries of the probe sequence back into the hole.  If an iterator
+     * is given, elements moved from a lower to a higher index (wrapping
+     * around the end of the table) are reported to it.
+     */
+    final void removeAt(int slot, SetIterator it) {
+        int[] ks = keys;
+        int mask = ks.length - 1;
+        int hole = slot;
+        for (int i = (slot + 1) & mask;; i = (i + 1) & mask) {
+            int k = ks[i];
+            if (k == 0)
+                break;
+            int h = mix(k) & mask;
+            if (hole <= i ? (h <= hole || h > i) : (h <= hole && h > i)) {
+                if (i < hole && it != null)
+                    it.addWrapped(k);
+                ks[hole] = k;
+                hole = i;
+            }
+        }
+        ks[hole] = 0;
+        --size;
+        ++modCount;
+    }
+
+    /**
+     * Returns the number of elements in this set.
+     *
+     * @return the number of elements in this set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this set contains no elements.
+     *
+     * @return {@code true} if this set contains no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns {@code true} if this set contains the specified element.
+     *
+     * @param key element whose presence in this set is to be tested
+     * @return {@code true} if this set contains the specified element
+     */
+    public boolean contains(int key) {
+        return (key == 0) ? hasZeroKey : find(key) >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean contains(Object o) {
+        return (o instanceof Integer) && contains(((Integer)o).intValue());
+    }
+
+    /**
+     * Adds the specified element to this set if it is not already present.
+     *
+     * @param key element to be added to this set
+     * @return {@code true} if this set did not already contain the
+     *         specified element
+     * @throws IllegalStateException if the set cannot grow any further
+     */
+    public boolean add(int key) {
+        if (key == 0) {
+            if (hasZeroKey)
+                return false;
+            hasZeroKey = true;
+        }
+        else {
+            int i = find(key);
+            if (i >= 0)
+                return false;
+            if (size >= threshold) {
+                resize();
+                i = find(key);
+            }
+            keys[~i] = key;
+        }
+        ++size;
+        ++modCount;
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean add(Integer key) {
+        return add(key.intValue());
+    }
+
+    /**
+     * Removes the specified element from this set if it is present.
+     *
+     * @param key element to be removed from this set, if present
+     * @return {@code true} if the set contained the specified element
+     */
+    public boolean remove(int key) {
+        if (key == 0) {
+            if (!hasZeroKey)
+                return false;
+            hasZeroKey = false;
+            --size;
+            ++modCount;
+            return true;
+        }
+        int i = find(key);
+        if (i < 0)
+            return false;
+        removeAt(i, null);
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean remove(Object o) {
+        return (o instanceof Integer) && remove(((Integer)o).intValue());
+    }
+
+    /**
+     * Removes all of the elements from this set.
+     * The set will be empty after this call returns.
+     */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, 0);
+            hasZeroKey = false;
+            size = 0;
+        }
+        ++modCount;
+    }
+
+    /**
+     * Returns an array containing all of the elements in this set, in
+     * no particular order.
+     *
+     * @return an array containing all the elements in this set
+     */
+    public int[] toIntArray() {
+        int[] a = new int[size];
+        int n = 0;
+        if (hasZeroKey)
+            a[n++] = 0;
+        int[] ks = keys;
+        for (int i = 0; i < ks.length; ++i) {
+            int k;
+            if ((k = ks[i]) != 0)
+                a[n++] = k;
+        }
+        return a;
+    }
+
+    /**
+     * Returns the hash code value for this set, as defined by
+     * {@link Set#hashCode}.
+     *
+     * @return the hash code value for this set
+     */
+    public int hashCode() {
+        int h = 0;
+        int[] ks = keys;
+        for (int i = 0; i < ks.length; ++i)
+            h += Integer.hashCode(ks[i]);
+        return h;
+    }
+
+    /**
+     * Returns a shallow copy of this set.
+     *
+     * @return a clone of this set
+     */
+    public IntSet clone() {
+        IntSet result;
+        try {
+            result = (IntSet)super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        result.keys = keys.clone();
+        result.modCount = 0;
+        return result;
+    }
+
+    /**
+     * Saves this set to a stream (that is, serializes it).
+     *
+     * @serialData The load factor is emitted by the default serialization,
+     *             followed by the <i>size</i> (an int), followed by all of
+     *             its elements (each a {@code int}) in no particular order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        if (hasZeroKey)
+            s.writeInt(0);
+        int[] ks = keys;
+        for (int i = 0; i < ks.length; ++i) {
+            int k;
+            if ((k = ks[i]) != 0)
+                s.writeInt(k);
+        }
+    }
+
+    /**
+     * Reconstitutes this set from a stream (that is, deserializes it).
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new InvalidObjectException("Illegal load factor: " +
+                                             loadFactor);
+        int n = s.readInt();
+        if (n < 0)
+            throw new InvalidObjectException("Illegal size: " + n);
+        allocate(IntIntMap.tableSizeFor(n, loadFactor));
+        for (int i = 0; i < n; i++)
+            add(s.readInt());
+    }
+
+    /**
+     * Returns an iterator over the elements in this set, in no
+     * particular order.
+     *
+     * @return a {@code PrimitiveIterator.OfInt} over the elements in
+     *         this set
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new SetIterator();
+    }
+
+    /**
+     * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+     * and <em>fail-fast</em> {@link Spliterator.OfInt} over the elements
+     * in this set.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#SIZED},
+     * {@link Spliterator#DISTINCT} and {@link Spliterator#NONNULL}.
+     *
+     * @return a {@code Spliterator.OfInt} over the elements in this set
+     */
+    public Spliterator.OfInt spliterator() {
+        return new SetSpliterator(this, 0, -1, 0, 0);
+    }
+
+    final class SetIterator implements PrimitiveIterator.OfInt {
+        int index;             // next slot to examine, descending
+        int current = -1;      // slot of last returned element, or -1
+        int lastKey;           // last returned element
+        boolean lastWrapped;   // whether last returned came from wrapped
+        int remaining;         // elements not yet returned
+        int expectedModCount;  // for fast-fail
+        int[] wrapped;         // elements moved behind the cursor by removals
+        int wrappedCount;
+
+        SetIterator() {
+            expectedModCount = modCount;
+            index = keys.length;
+            remaining = size;
+        }
+
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        public int nextInt() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (remaining <= 0)
+                throw new NoSuchElementException();
+            --remaining;
+            int[] ks = keys;
+            int i = index;
+            if (i == ks.length) {
+                index = --i;
+                if (hasZeroKey) {
+                    current = ks.length;
+                    lastWrapped = false;
+                    return lastKey = 0;
+                }
+            }
+            for (; i >= 0; --i) {
+                int k;
+                if ((k = ks[i]) != 0) {
+                    index = i - 1;
+                    current = i;
+                    lastWrapped = false;
+                    return lastKey = k;
+                }
+            }
+            index = -1;
+            current = -1;
+            lastWrapped = true;
+            return lastKey = wrapped[--wrappedCount];
+        }
+
+        public void remove() {
+            if (current < 0 && !lastWrapped)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (lastWrapped || lastKey == 0)
+                IntSet.this.remove(lastKey);
+            else
+                removeAt(current, this);
+            current = -1;
+            lastWrapped = false;
+            expectedModCount = modCount;
+        }
+
+        /**
+         * Records an element moved behind the cursor by a removal, so
+         * that it is still returned after the table walk completes.
+         */
+        void addWrapped(int k) {
+            if (wrapped == null)
+                wrapped = new int[4];
+            else if (wrappedCount == wrapped.length)
+                wrapped = Arrays.copyOf(wrapped, wrappedCount << 1);
+            wrapped[wrappedCount++] = k;
+        }
+    }
+
+    /**
+     * Spliterator over the slot range [0, keys.length], where index
+     * keys.length stands for the element 0.
+     */
+    static final class SetSpliterator implements Spliterator.OfInt {
+        final IntSet set;
+        int index;                  // current index, modified on advance/split
+        int fence;                  // one past last index
+        int est;                    // size estimate
+        int expectedModCount;       // for comodification checks
+
+        SetSpliterator(IntSet s, int origin, int fence, int est,
+                       int expectedModCount) {
+            this.set = s;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int getFence() { // initialize fence and size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                IntSet s = set;
+                est = s.size;
+                expectedModCount = s.modCount;
+                hi = fence = s.keys.length + 1;
+            }
+            return hi;
+        }
+
+        public SetSpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new SetSpliterator(set, lo, index = mid, est >>>= 1,
+                                   expectedModCount);
+        }
+
+        public boolean tryAdvance(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            IntSet s = set;
+            int[] ks = s.keys;
+            int hi = getFence();
+            if (ks.length + 1 < hi)
+                throw new ConcurrentModificationException();
+            for (int i = index; i < hi; ++i) {
+                if (i == ks.length ? s.hasZeroKey : ks[i] != 0) {
+                    index = i + 1;
+                    action.accept(i == ks.length ? 0 : ks[i]);
+                    if (s.modCount != expectedModCount)
+                        throw new ConcurrentModificationException();
+                    return true;
+                }
+            }
+            index = hi;
+            return false;
+        }
+
+        public void forEachRemaining(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            IntSet s = set;
+            int[] ks = s.keys;
+            int hi = getFence(), i = index;
+            if (ks.length + 1 < hi)
+                throw new ConcurrentModificationException();
+            index = hi;
+            for (; i < hi; ++i) {
+                int k;
+                if (i == ks.length) {
+                    if (s.hasZeroKey)
+                        action.accept(0);
+                }
+                else if ((k = ks[i]) != 0)
+                    action.accept(k);
+            }
+            if (s.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        public long estimateSize() {
+            getFence(); // force init
+            return (long) est;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == set.size ? Spliterator.SIZED : 0) |
+                Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+    }
+}
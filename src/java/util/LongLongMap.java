@@ -0,0 +1,1192 @@
+/*
+ * Copyright (c) 2026, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * An open-addressing hash table mapping primitive {@code long} keys to
+ * primitive {@code long} values.  This class stores keys and values in two
+ * parallel arrays and resolves collisions by linear probing, so that a
+ * mapping occupies two array slots rather than a {@code Long} key, a
+ * {@code Long} value and a {@link HashMap} node.  Removals use
+ * backward-shift deletion, so the table never accumulates tombstones.
+ *
+ * <p>This class implements the {@link Map} interface for interoperability
+ * with the Collections Framework, but the primitive methods
+ * ({@link #getLongOrDefault}, {@link #put(long, long)}, {@link #remove(long)},
+ * {@link #merge(long, long, LongBinaryOperator)} and friends) should be preferred on hot
+ * paths as they neither box nor allocate.  The {@code null} key and
+ * {@code null} values are not supported by the boxed methods.  Because
+ * every {@code long} is a legitimate value, methods that return the value
+ * previously associated with a key return {@code 0} when there was none;
+ * use {@link #containsKey(long)} to distinguish the two cases.
+ *
+ * <p>The key set and values views return {@link PrimitiveIterator.OfLong}
+ * and {@link Spliterator.OfLong} instances from their {@code iterator}
+ * and {@code spliterator} methods, so that they may be traversed and
+ * used as stream sources without boxing.
+ *
+ * <p>As with {@code HashMap}, the <i>load factor</i> bounds the fraction of
+ * table slots that may be in use before the table is doubled.  Linear
+ * probing degrades faster than chaining as the table fills, so the default
+ * load factor is {@code 0.5} and load factors must be strictly less than
+ * {@code 1}.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access the map concurrently, and at least one of
+ * the threads modifies the map structurally, it <i>must</i> be
+ * synchronized externally.  The iterators and spliterators returned by
+ * the collection views are <i>fail-fast</i> on a best-effort basis, as
+ * described for {@link HashMap}.
+ *
+ * @see     HashMap
+ * @since   1.8
+ */
+public class LongLongMap extends AbstractMap<Long,Long>
+    implements Map<Long,Long>, Cloneable, Serializable {
+
+    private static final long serialVersionUID = -6781223709386624190L;
+
+    /*
+     * Implementation notes.
+     *
+     * Slot i of the table is free iff keys[i] == 0; the key 0 itself is
+     * therefore kept out of the table, in the zeroValue field guarded by
+     * hasZeroKey.  Internally, the zero key is treated as living in the
+     * pseudo-slot keys.length, so that iterators and spliterators can
+     * traverse the index range [0, keys.length] uniformly.
+     *
+     * Iterators walk the table from high to low indices.  A removal at
+     * index i shifts entries from higher (already visited) indices down
+     * into i, which is harmless, except when the probe sequence wraps
+     * around the end of the table: then an entry at a low (not yet
+     * visited) index may move to a high (already visited) one.  Such
+     * entries are remembered by the iterator and returned after the
+     * table walk completes, as in other linear-probing tables.
+     */
+
+    /**
+     * The default initial capacity, in mappings.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    /**
+     * The maximum table length.  Must be a power of two <= 1<<30.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The load factor used when none is specified in the constructor.
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    /**
+     * The keys, or 0 for free slots.  Length is always a power of two.
+     */
+    transient long[] keys;
+
+    /**
+     * The values, parallel to keys.
+     */
+    transient long[] vals;
+
+    /**
+     * Whether the key 0 is present.
+     */
+    transient boolean hasZeroKey;
+
+    /**
+     * The value associated with the key 0, if present.
+     */
+    transient long zeroValue;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The number of times this map has been structurally modified.
+     */
+    transient int modCount;
+
+    /**
+     * The size at which the table is resized.
+     */
+    transient int threshold;
+
+    /**
+     * The load factor for the hash table.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    /**
+     * Holds cached entrySet().
+     */
+    transient Set<Map.Entry<Long,Long>> entrySet;
+
+    /* ---------------- Static utilities -------------- */
+
+    /**
+     * Spreads the bits of a key so that the low bits used as the table
+     * index depend on all bits of the key.
+     */
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+
+    /**
+     * Returns the table length needed to hold the given number of
+     * mappings at the given load factor.
+     */
+    static int tableSizeFor(int expected, float loadFactor) {
+        double n = Math.ceil(expected / (double)loadFactor);
+        if (n >= MAXIMUM_CAPACITY)
+            return MAXIMUM_CAPACITY;
+        int c = Math.max(2, (int)n);
+        return Integer.highestOneBit(c - 1) << 1;
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Constructs an empty map that can hold the specified number of
+     * mappings before resizing, with the specified load factor.
+     *
+     * @param  initialCapacity the initial capacity, in mappings
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not in the range {@code (0, 1)}
+     */
+    public LongLongMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(tableSizeFor(initialCapacity, loadFactor));
+    }
+
+    /**
+     * Constructs an empty map that can hold the specified number of
+     * mappings before resizing, with the default load factor (0.5).
+     *
+     * @param  initialCapacity the initial capacity, in mappings
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public LongLongMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map with the default initial capacity (16)
+     * and the default load factor (0.5).
+     */
+    public LongLongMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs a new map with the same mappings as the specified
+     * {@code Map}.
+     *
+     * @param   m the map whose mappings are to be placed in this map
+     * @throws  NullPointerException if the specified map is null, or
+     *          contains null keys or values
+     */
+    public LongLongMap(Map<? extends Long, ? extends Long> m) {
+        this(Math.max(m.size(), DEFAULT_INITIAL_CAPACITY), DEFAULT_LOAD_FACTOR);
+        putAll(m);
+    }
+
+    /**
+     * Installs new empty tables of the given length.
+     */
+    final void allocate(int cap) {
+        keys = new long[cap];
+        vals = new long[cap];
+        threshold = (cap == MAXIMUM_CAPACITY) ? cap - 1 :
+            Math.min((int)(cap * loadFactor), cap - 1);
+    }
+
+    /**
+     * Returns the index of the given nonzero key, or if absent,
+     * {@code ~i} where i is the free slot at which it would be inserted.
+     */
+    final int find(long key) {
+        long[] ks = keys;
+        int mask = ks.length - 1;
+        for (int i = mix(key) & mask;; i = (i + 1) & mask) {
+            long k = ks[i];
+            if (k == key)
+                return i;
+            if (k == 0)
+                return ~i;
+        }
+    }
+
+    /**
+     * Inserts a nonzero key known to be absent at the given free slot,
+     * first resizing if necessary, and returns its final slot.
+     */
+    final int insert(long key, int slot, long value) {
+        if (size >= threshold) {
+            resize();
+            slot = ~find(key);
+        }
+        keys[slot] = key;
+        vals[slot] = value;
+        ++size;
+        ++modCount;
+        return slot;
+    }
+
+    /**
+     * Doubles the table length and reinserts all mappings.
+     */
+    final void resize() {
+        long[] oldKeys = keys;
+        long[] oldVals = vals;
+        int oldCap = oldKeys.length;
+        if (oldCap >= MAXIMUM_CAPACITY)
+            throw new IllegalStateException("Map capacity exceeded");
+        allocate(oldCap << 1);
+        long[] ks = keys;
+        long[] vs = vals;
+        int mask = ks.length - 1;
+        for (int j = 0; j < oldCap; ++j) {
+            long k;
+            if ((k = oldKeys[j]) != 0) {
+                int i = mix(k) & mask;
+                while (ks[i] != 0)
+                    i = (i + 1) & mask;
+                ks[i] = k;
+                vs[i] = oldVals[j];
+            }
+        }
+    }
+
+    /**
+     * Removes the mapping at the given table slot, shifting subsequent
+     * entries of the probe sequence back into the hole.  If an iterator
+     * is given, entries moved from a lower to a higher index (wrapping
+     * around the end of the table) are reported to it; see the
+     * implementation notes.
+     */
+    final void removeAt(int slot, HashIterator it) {
+        long[] ks = keys;
+        long[] vs = vals;
+        int mask = ks.length - 1;
+        int hole = slot;
+        for (int i = (slot + 1) & mask;; i = (i + 1) & mask) {
+            long k = ks[i];
+            if (k == 0)
+                break;
+            int h = mix(k) & mask;
+            if (hole <= i ? (h <= hole || h > i) : (h <= hole && h > i)) {
+                if (i < hole && it != null)
+                    it.addWrapped(k);
+                ks[hole] = k;
+                vs[hole] = vs[i];
+                hole = i;
+            }
+        }
+        ks[hole] = 0;
+        vs[hole] = 0;
+        --size;
+        ++modCount;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param   key the key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified
+     *         key
+     */
+    public boolean containsKey(long key) {
+        return (key == 0) ? hasZeroKey : find(key) >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsKey(Object key) {
+        return (key instanceof Long) && containsKey(((Long)key).longValue());
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation requires time linear in the
+     * table length.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(long value) {
+        if (hasZeroKey && zeroValue == value)
+            return true;
+        long[] ks = keys;
+        long[] vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            if (ks[i] != 0 && vs[i] == value)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsValue(Object value) {
+        return (value instanceof Long) &&
+            containsValue(((Long)value).longValue());
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the value to return if there is no mapping
+     * @return the value to which the specified key is mapped, or
+     *         {@code defaultValue} if this map contains no mapping for the key
+     */
+    public long getLongOrDefault(long key, long defaultValue) {
+        if (key == 0)
+            return hasZeroKey ? zeroValue : defaultValue;
+        int i = find(key);
+        return (i >= 0) ? vals[i] : defaultValue;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key.
+     */
+    public Long get(Object key) {
+        if (key instanceof Long) {
+            long k = ((Long)key).longValue();
+            if (k == 0)
+                return hasZeroKey ? zeroValue : null;
+            int i = find(k);
+            if (i >= 0)
+                return vals[i];
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Long getOrDefault(Object key, Long defaultValue) {
+        Long v = get(key);
+        return (v != null) ? v : defaultValue;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code 0} if there was no mapping for {@code key}
+     * @throws IllegalStateException if the map cannot grow any further
+     */
+    public long put(long key, long value) {
+        long old;
+        if (key == 0) {
+            if (hasZeroKey)
+                old = zeroValue;
+            else {
+                old = 0;
+                hasZeroKey = true;
+                ++size;
+                ++modCount;
+            }
+            zeroValue = value;
+            return old;
+        }
+        int i = find(key);
+        if (i < 0) {
+            insert(key, ~i, value);
+            return 0;
+        }
+        old = vals[i];
+        vals[i] = value;
+        return old;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the key or value is null
+     */
+    public Long put(Long key, Long value) {
+        long k = key.longValue();
+        long v = value.longValue();
+        boolean present = containsKey(k);
+        long old = put(k, v);
+        return present ? old : null;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return {@code true} if the value was associated, {@code false}
+     *         if the key was already present
+     */
+    public boolean putIfAbsent(long key, long value) {
+        if (key == 0) {
+            if (hasZeroKey)
+                return false;
+            hasZeroKey = true;
+            zeroValue = value;
+            ++size;
+            ++modCount;
+            return true;
+        }
+        int i = find(key);
+        if (i >= 0)
+            return false;
+        insert(key, ~i, value);
+        return true;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with {@code value}; otherwise replaces the current
+     * value with the result of the given remapping function applied to
+     * the current value and {@code value}.  Unlike
+     * {@link Map#merge}, this method never removes the mapping.  A
+     * typical use is counting: {@code map.merge(key, 1, Long::sum)}.
+     *
+     * @param key key with which the resulting value is to be associated
+     * @param value the value to associate if the key is absent, and the
+     *        second argument to the remapping function otherwise
+     * @param remappingFunction the function to recompute a value if present
+     * @return the new value associated with the specified key
+     * @throws NullPointerException if the remapping function is null
+     */
+    public long merge(long key, long value, LongBinaryOperator remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        if (key == 0) {
+            if (hasZeroKey)
+                value = remappingFunction.applyAsLong(zeroValue, value);
+            else {
+                hasZeroKey = true;
+                ++size;
+                ++modCount;
+            }
+            return zeroValue = value;
+        }
+        int i = find(key);
+        if (i < 0) {
+            insert(key, ~i, value);
+            return value;
+        }
+        return vals[i] = remappingFunction.applyAsLong(vals[i], value);
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * computes its value using the given mapping function and enters it
+     * into this map.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key
+     * @throws NullPointerException if the mapping function is null
+     */
+    public long computeIfAbsent(long key, LongUnaryOperator mappingFunction) {
+        if (mappingFunction == null)
+            throw new NullPointerException();
+        if (key == 0) {
+            if (!hasZeroKey) {
+                zeroValue = mappingFunction.applyAsLong(key);
+                hasZeroKey = true;
+                ++size;
+                ++modCount;
+            }
+            return zeroValue;
+        }
+        int i = find(key);
+        if (i >= 0)
+            return vals[i];
+        int mc = modCount;
+        long v = mappingFunction.applyAsLong(key);
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+        insert(key, ~i, v);
+        return v;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with {@code key}, or
+     *         {@code 0} if there was no mapping for {@code key}
+     */
+    public long remove(long key) {
+        long old;
+        if (key == 0) {
+            if (!hasZeroKey)
+                return 0;
+            old = zeroValue;
+            hasZeroKey = false;
+            zeroValue = 0;
+            --size;
+            ++modCount;
+            return old;
+        }
+        int i = find(key);
+        if (i < 0)
+            return 0;
+        old = vals[i];
+        removeAt(i, null);
+        return old;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Long remove(Object key) {
+        if (key instanceof Long) {
+            long k = ((Long)key).longValue();
+            if (containsKey(k))
+                return remove(k);
+        }
+        return null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, (long)0);
+            Arrays.fill(vals, (long)0);
+            hasZeroKey = false;
+            zeroValue = 0;
+            size = 0;
+        }
+        ++modCount;
+    }
+
+    /**
+     * Performs the given action for each mapping in this map, boxing
+     * the keys and values.
+     */
+    public void forEach(BiConsumer<? super Long, ? super Long> action) {
+        if (action == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        if (hasZeroKey)
+            action.accept((long)0, zeroValue);
+        long[] ks = keys;
+        long[] vs = vals;
+        for (int i = 0; i < ks.length && mc == modCount; ++i) {
+            long k;
+            if ((k = ks[i]) != 0)
+                action.accept(k, vs[i]);
+        }
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns the hash code value for this map, as defined by
+     * {@link Map#hashCode}.
+     *
+     * @return the hash code value for this map
+     */
+    public int hashCode() {
+        int h = 0;
+        if (hasZeroKey)
+            h = Long.hashCode(zeroValue);
+        long[] ks = keys;
+        long[] vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            long k;
+            if ((k = ks[i]) != 0)
+                h += Long.hashCode(k) ^ Long.hashCode(vs[i]);
+        }
+        return h;
+    }
+
+    /**
+     * Returns a shallow copy of this map.
+     *
+     * @return a clone of this map
+     */
+    public LongLongMap clone() {
+        LongLongMap result;
+        try {
+            result = (LongLongMap)super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        result.keys = keys.clone();
+        result.vals = vals.clone();
+        result.keySet = null;
+        result.values = null;
+        result.entrySet = null;
+        result.modCount = 0;
+        return result;
+    }
+
+    /**
+     * Saves this map to a stream (that is, serializes it).
+     *
+     * @serialData The load factor is emitted by the default serialization,
+     *             followed by the <i>size</i> (an int), followed by the
+     *             key ({@code long}) and value ({@code long}) of each mapping.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        if (hasZeroKey) {
+            s.writeLong((long)0);
+            s.writeLong(zeroValue);
+        }
+        long[] ks = keys;
+        long[] vs = vals;
+        for (int i = 0; i < ks.length; ++i) {
+            long k;
+            if ((k = ks[i]) != 0) {
+                s.writeLong(k);
+                s.writeLong(vs[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitutes this map from a stream (that is, deserializes it).
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new InvalidObjectException("Illegal load factor: " +
+                                             loadFactor);
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new InvalidObjectException("Illegal mappings count: " +
+                                             mappings);
+        allocate(tableSizeFor(mappings, loadFactor));
+        for (int i = 0; i < mappings; i++)
+            put(s.readLong(), s.readLong());
+    }
+
+    /* ---------------- Views -------------- */
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map.
+     * The set is backed by the map, and supports element removal but not
+     * addition.  Its iterator is a {@link PrimitiveIterator.OfLong} and
+     * its spliterator a {@link Spliterator.OfLong}.
+     *
+     * @return a set view of the keys contained in this map
+     */
+    public Set<Long> keySet() {
+        Set<Long> ks;
+        return (ks = keySet) == null ? (keySet = new KeySet()) : ks;
+    }
+
+    final class KeySet extends AbstractSet<Long> {
+        public final int size()                 { return size; }
+        public final void clear()               { LongLongMap.this.clear(); }
+        public final PrimitiveIterator.OfLong iterator() {
+            return new KeyIterator();
+        }
+        public final boolean contains(Object o) { return containsKey(o); }
+        public final boolean remove(Object key) {
+            return (key instanceof Long) && LongLongMap.this.remove(key) != null;
+        }
+        public final Spliterator.OfLong spliterator() {
+            return new KeySpliterator(LongLongMap.this, 0, -1, 0, 0);
+        }
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this
+     * map.  The collection is backed by the map, and supports element
+     * removal but not addition.  Its iterator is a
+     * {@link PrimitiveIterator.OfLong} and its spliterator a
+     * {@link Spliterator.OfLong}.
+     *
+     * @return a view of the values contained in this map
+     */
+    public Collection<Long> values() {
+        Collection<Long> vs;
+        return (vs = values) == null ? (values = new Values()) : vs;
+    }
+
+    final class Values extends AbstractCollection<Long> {
+        public final int size()                 { return size; }
+        public final void clear()               { LongLongMap.this.clear(); }
+        public final PrimitiveIterator.OfLong iterator() {
+            return new ValueIterator();
+        }
+        public final boolean contains(Object o) { return containsValue(o); }
+        public final Spliterator.OfLong spliterator() {
+            return new ValueSpliterator(LongLongMap.this, 0, -1, 0, 0);
+        }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, and supports element removal but not
+     * addition.  Entries obtained from it write through to the map with
+     * {@code setValue} for as long as their key remains present.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    public Set<Map.Entry<Long,Long>> entrySet() {
+        Set<Map.Entry<Long,Long>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<Long,Long>> {
+        public final int size()                 { return size; }
+        public final void clear()               { LongLongMap.this.clear(); }
+        public final Iterator<Map.Entry<Long,Long>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object v = e.getValue();
+            return (v instanceof Long) && v.equals(get(e.getKey()));
+        }
+        public final boolean remove(Object o) {
+            if (contains(o)) {
+                LongLongMap.this.remove(((Map.Entry<?,?>) o).getKey());
+                return true;
+            }
+            return false;
+        }
+        public final Spliterator<Map.Entry<Long,Long>> spliterator() {
+            return new EntrySpliterator(LongLongMap.this, 0, -1, 0, 0);
+        }
+    }
+
+    /**
+     * A map entry that reads its value at creation and writes through
+     * on {@code setValue} while its key is still present.
+     */
+    final class Entry implements Map.Entry<Long,Long> {
+        final long key;
+        long value;
+
+        Entry(long key, long value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public final Long getKey()        { return key; }
+        public final Long getValue()      { return value; }
+        public final String toString() { return key + "=" + value; }
+
+        public final Long setValue(Long newValue) {
+            long v = newValue.longValue(), old = value;
+            value = v;
+            if (key == 0) {
+                if (hasZeroKey)
+                    zeroValue = v;
+            }
+            else {
+                int i = find(key);
+                if (i >= 0)
+                    vals[i] = v;
+            }
+            return old;
+        }
+
+        public final int hashCode() {
+            return Long.hashCode(key) ^ Long.hashCode(value);
+        }
+
+        public final boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+                Object k = e.getKey(), v = e.getValue();
+                return (k instanceof Long) && ((Long)k).longValue() == key &&
+                    (v instanceof Long) && ((Long)v).longValue() == value;
+            }
+            return false;
+        }
+    }
+
+    /* ---------------- Iterators -------------- */
+
+    abstract class HashIterator {
+        int index;             // next slot to examine, descending
+        int current = -1;      // slot of last returned entry, or -1
+        long lastKey;           // key of last returned entry
+        boolean lastWrapped;   // whether last returned came from wrapped
+        int remaining;         // entries not yet returned
+        int expectedModCount;  // for fast-fail
+        long[] wrapped;         // keys moved behind the cursor by removals
+        int wrappedCount;
+
+        HashIterator() {
+            expectedModCount = modCount;
+            index = keys.length;
+            remaining = size;
+        }
+
+        public final boolean hasNext() {
+            return remaining > 0;
+        }
+
+        /**
+         * Advances to the next entry, setting current and lastKey.
+         */
+        final void advance() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (remaining <= 0)
+                throw new NoSuchElementException();
+            --remaining;
+            long[] ks = keys;
+            int i = index;
+            if (i == ks.length) {
+                index = --i;
+                if (hasZeroKey) {
+                    current = ks.length;
+                    lastKey = 0;
+                    lastWrapped = false;
+                    return;
+                }
+            }
+            for (; i >= 0; --i) {
+                long k;
+                if ((k = ks[i]) != 0) {
+                    index = i - 1;
+                    current = i;
+                    lastKey = k;
+                    lastWrapped = false;
+                    return;
+                }
+            }
+            index = -1;
+            current = -1;
+            lastKey = wrapped[--wrappedCount];
+            lastWrapped = true;
+        }
+
+        final long currentValue() {
+            long k = lastKey;
+            return (k == 0) ? zeroValue :
+                lastWrapped ? vals[find(k)] : vals[current];
+        }
+
+        public final void remove() {
+            if (current < 0 && !lastWrapped)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (lastWrapped || lastKey == 0)
+                LongLongMap.this.remove(lastKey);
+            else
+                removeAt(current, this);
+            current = -1;
+            lastWrapped = false;
+            expectedModCount = modCount;
+        }
+
+        /**
+         * Records a key moved behind the cursor by a removal, so that it
+         * is still returned after the table walk completes.
+         */
+        final void addWrapped(long k) {
+            if (wrapped == null)
+                wrapped = new long[4];
+            else if (wrappedCount == wrapped.length)
+                wrapped = Arrays.copyOf(wrapped, wrappedCount << 1);
+            wrapped[wrappedCount++] = k;
+        }
+    }
+
+    final class KeyIterator extends HashIterator
+        implements PrimitiveIterator.OfLong {
+        public final long nextLong() {
+            advance();
+            return lastKey;
+        }
+    }
+
+    final class ValueIterator extends HashIterator
+        implements PrimitiveIterator.OfLong {
+        public final long nextLong() {
+            advance();
+            return currentValue();
+        }
+    }
+
+    final class EntryIterator extends HashIterator
+        implements Iterator<Map.Entry<Long,Long>> {
+        public final Map.Entry<Long,Long> next() {
+            advance();
+            return new Entry(lastKey, currentValue());
+        }
+    }
+
+    /* ---------------- Spliterators -------------- */
+
+    /**
+     * Base of spliterators over the slot range [0, keys.length], where
+     * index keys.length stands for the zero key.
+     */
+    static class TableSpliterator {
+        final LongLongMap map;
+        int index;                  // current index, modified on advance/split
+        int fence;                  // one past last index
+        int est;                    // size estimate
+        int expectedModCount;       // for comodification checks
+
+        TableSpliterator(LongLongMap m, int origin, int fence, int est,
+                         int expectedModCount) {
+            this.map = m;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getFence() { // initialize fence and size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                LongLongMap m = map;
+                est = m.size;
+                expectedModCount = m.modCount;
+                hi = fence = m.keys.length + 1;
+            }
+            return hi;
+        }
+
+        /**
+         * Returns the next occupied slot in [index, fence), advancing
+         * past it, or -1 if none.
+         */
+        final int nextSlot() {
+            LongLongMap m = map;
+            long[] ks = m.keys;
+            int hi = getFence(), i = index;
+            if (ks.length + 1 < hi)
+                throw new ConcurrentModificationException();
+            for (; i < hi; ++i) {
+                if (i == ks.length ? m.hasZeroKey : ks[i] != 0) {
+                    index = i + 1;
+                    return i;
+                }
+            }
+            index = hi;
+            return -1;
+        }
+
+        final void checkForComodification() {
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        public final long estimateSize() {
+            getFence(); // force init
+            return (long) est;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0) |
+                Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+    }
+
+    static final class KeySpliterator extends TableSpliterator
+        implements Spliterator.OfLong {
+        KeySpliterator(LongLongMap m, int origin, int fence, int est,
+                       int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public KeySpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new KeySpliterator(map, lo, index = mid, est >>>= 1,
+                                   expectedModCount);
+        }
+
+        public boolean tryAdvance(LongConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = nextSlot();
+            if (i < 0)
+                return false;
+            long[] ks = map.keys;
+            action.accept(i == ks.length ? 0 : ks[i]);
+            checkForComodification();
+            return true;
+        }
+
+        public void forEachRemaining(LongConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            long[] ks = map.keys;
+            for (int i; (i = nextSlot()) >= 0; )
+                action.accept(i == ks.length ? 0 : ks[i]);
+            checkForComodification();
+        }
+    }
+
+    static final class ValueSpliterator extends TableSpliterator
+        implements Spliterator.OfLong {
+        ValueSpliterator(LongLongMap m, int origin, int fence, int est,
+                         int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public ValueSpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new ValueSpliterator(map, lo, index = mid, est >>>= 1,
+                                     expectedModCount);
+        }
+
+        public boolean tryAdvance(LongConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = nextSlot();
+            if (i < 0)
+                return false;
+            action.accept(i == map.keys.length ? map.zeroValue : map.vals[i]);
+            checkForComodification();
+            return true;
+        }
+
+        public void forEachRemaining(LongConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            LongLongMap m = map;
+            long[] ks = m.keys;
+            long[] vs = m.vals;
+            for (int i; (i = nextSlot()) >= 0; )
+                action.accept(i == ks.length ? m.zeroValue : vs[i]);
+            checkForComodification();
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0) |
+                Spliterator.NONNULL;
+        }
+    }
+
+    static final class EntrySpliterator extends TableSpliterator
+        implements Spliterator<Map.Entry<Long,Long>> {
+        EntrySpliterator(LongLongMap m, int origin, int fence, int est,
+                         int expectedModCount) {
+            super(m, origin, fence, est, expectedModCount);
+        }
+
+        public EntrySpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new EntrySpliterator(map, lo, index = mid, est >>>= 1,
+                                     expectedModCount);
+        }
+
+        public boolean tryAdvance(Consumer<? super Map.Entry<Long,Long>> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i = nextSlot();
+            if (i < 0)
+                return false;
+            action.accept(entryAt(i));
+            checkForComodification();
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super Map.Entry<Long,Long>> action) {
+            if (action == null)
+                throw new NullPointerException();
+            for (int i; (i = nextSlot()) >= 0; )
+                action.accept(entryAt(i));
+            checkForComodification();
+        }
+
+        private Map.Entry<Long,Long> entryAt(int i) {
+            LongLongMap m = map;
+            return (i == m.keys.length) ?
+                m.new Entry((long)0, m.zeroValue) :
+                m.new Entry(m.keys[i], m.vals[i]);
+        }
+    }
+}
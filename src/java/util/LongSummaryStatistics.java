@@ -76,6 +76,51 @@ public class LongSummaryStatistics implements LongConsumer, IntConsumer {
      */
     public LongSummaryStatistics() { }
 
+    /**
+     * Constructs a non-empty instance with the specified {@code count},
+     * {@code min}, {@code max}, and {@code sum}.
+     *
+     * <p>If {@code count} is zero then the remaining arguments are ignored
+     * and an empty instance is constructed.
+     *
+     * <p>If the arguments are inconsistent then an
+     * {@code IllegalArgumentException} is thrown.  The necessary consistent
+     * argument conditions are:
+     * <ul>
+     *   <li>{@code count >= 0}</li>
+     *   <li>{@code min <= max}</li>
+     * </ul>
+     *
+     * @apiNote
+     * These conditions are not sufficient to prevent the creation of an
+     * internally inconsistent instance, such as one with {@code count} = 2,
+     * {@code min} = 1, {@code max} = 2, and {@code sum} = 0.  Conversely,
+     * the statistics retrieved from another instance may not be legal
+     * arguments if its count of values has overflowed.
+     *
+     * @param count the count of values
+     * @param min the minimum value
+     * @param max the maximum value
+     * @param sum the sum of all values
+     * @throws IllegalArgumentException if the arguments are inconsistent
+     * @since 1.8
+     */
+    public LongSummaryStatistics(long count, long min, long max, long sum)
+            throws IllegalArgumentException {
+        if (count < 0L) {
+            throw new IllegalArgumentException("Negative count value");
+        } else if (count > 0L) {
+            if (min > max)
+                throw new IllegalArgumentException("Minimum greater than maximum");
+
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+        // Use default field values if count == 0
+    }
+
     /**
      * Records a new {@code int} value into the summary information.
      *
@@ -0,0 +1,675 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.util.concurrent.CountedCompleter;
+
+/**
+ * Stable least-significant-digit radix sorts of {@code int} and
+ * {@code long} keys, optionally permuting a parallel array of
+ * {@code int} or object values along with the keys.  These back the
+ * {@code Arrays.sortBy} and {@code Arrays.parallelSortBy} methods, and
+ * are used by {@link DualPivotQuicksort} for large unstructured
+ * {@code int} and {@code long} arrays.
+ *
+ * Keys are processed eight bits at a time, with the sign bit flipped
+ * so that the unsigned digit order matches signed key order.  A first
+ * sweep counts the occurrences of every digit of every key; passes
+ * for which all keys share the same digit (as is common for the high
+ * digits of small or clustered keys) are then skipped.  Each remaining
+ * pass scatters the range between the array and a workspace of the
+ * same length, so the sort requires O(n) extra space, and copies back
+ * at the end if an odd number of passes were needed.  Ranges shorter
+ * than INSERTION_SORT_THRESHOLD use insertion sort instead.
+ *
+ * Each pass may be split into chunks of consecutive elements that are
+ * counted and then scattered in parallel, as ForkJoin tasks.  Chunks
+ * are assigned disjoint output positions within each bucket in chunk
+ * order, so the parallel sort is stable as well.
+ *
+ * @since 1.8
+ */
+final class RadixSort {
+
+    /**
+     * Prevents instantiation.
+     */
+    private RadixSort() {}
+
+    /**
+     * If the length of a range to be sorted is less than this
+     * constant, insertion sort is used in preference to radix sort.
+     */
+    static final int INSERTION_SORT_THRESHOLD = 64;
+
+    /** The number of bits per digit. */
+    static final int RADIX = 8;
+
+    /** The number of distinct digit values. */
+    static final int BUCKETS = 1 << RADIX;
+
+    /** Mask to extract a digit. */
+    static final int MASK = BUCKETS - 1;
+
+    /*
+     * Entry points.
+     */
+
+    /**
+     * Sorts the specified range of the array, using the given
+     * workspace array slice if it is large enough.
+     *
+     * @param a the array to be sorted
+     * @param from the index of the first element, inclusive, to be sorted
+     * @param to the index of the last element, exclusive, to be sorted
+     * @param work a workspace array (slice), or null
+     * @param workBase origin of usable space in work array
+     * @param workLen usable size of work array
+     */
+    static void sort(int[] a, int from, int to,
+                     int[] work, int workBase, int workLen) {
+        int n = to - from;
+        if (n < INSERTION_SORT_THRESHOLD) {
+            insertionSort(a, from, to);
+            return;
+        }
+        if (work == null || workLen < n || workBase + n > work.length) {
+            work = new int[n];
+            workBase = 0;
+        }
+        new OfInt(a, from, work, workBase, n, 1).sort();
+    }
+
+    /**
+     * Sorts the specified range of the array, using the given
+     * workspace array slice if it is large enough.
+     *
+     * @param a the array to be sorted
+     * @param from the index of the first element, inclusive, to be sorted
+     * @param to the index of the last element, exclusive, to be sorted
+     * @param work a workspace array (slice), or null
+     * @param workBase origin of usable space in work array
+     * @param workLen usable size of work array
+     */
+    static void sort(long[] a, int from, int to,
+                     long[] work, int workBase, int workLen) {
+        int n = to - from;
+        if (n < INSERTION_SORT_THRESHOLD) {
+            insertionSort(a, from, to);
+            return;
+        }
+        if (work == null || workLen < n || workBase + n > work.length) {
+            work = new long[n];
+            workBase = 0;
+        }
+        new OfLong(a, from, work, workBase, n, 1).sort();
+    }
+
+    /**
+     * Sorts the specified range of keys, permuting the corresponding
+     * range of values along with them, splitting each pass into the
+     * given number of chunks processed in parallel if greater than one.
+     */
+    static void sortBy(int[] keys, int[] values, int from, int to,
+                       int chunks) {
+        int n = to - from;
+        if (n < INSERTION_SORT_THRESHOLD) {
+            insertionSort(keys, values, from, to);
+            return;
+        }
+        new IntInt(keys, values, from, new int[n], new int[n], 0,
+                   n, chunks).sort();
+    }
+
+    /**
+     * Sorts the specified range of keys, permuting the corresponding
+     * range of values along with them, splitting each pass into the
+     * given number of chunks processed in parallel if greater than one.
+     */
+    static <T> void sortBy(int[] keys, T[] values, int from, int to,
+                           int chunks) {
+        int n = to - from;
+        if (n < INSERTION_SORT_THRESHOLD) {
+            insertionSort(keys, values, from, to);
+            return;
+        }
+        new IntObject(keys, values, from, new int[n], new Object[n], 0,
+                      n, chunks).sort();
+    }
+
+    /**
+     * Sorts the specified range of keys, permuting the corresponding
+     * range of values along with them, splitting each pass into the
+     * given number of chunks processed in parallel if greater than one.
+     */
+    static void sortBy(long[] keys, int[] values, int from, int to,
+                       int chunks) {
+        int n = to - from;
+        if (n < INSERTION_SORT_THRESHOLD) {
+            insertionSort(keys, values, from, to);
+            return;
+        }
+        new LongInt(keys, values, from, new long[n], new int[n], 0,
+                    n, chunks).sort();
+    }
+
+    /**
+     * Sorts the specified range of keys, permuting the corresponding
+     * range of values along with them, splitting each pass into the
+     * given number of chunks processed in parallel if greater than one.
+     */
+    static <T> void sortBy(long[] keys, T[] values, int from, int to,
+                           int chunks) {
+        int n = to - from;
+        if (n < INSERTION_SORT_THRESHOLD) {
+            insertionSort(keys, values, from, to);
+            return;
+        }
+        new LongObject(keys, values, from, new long[n], new Object[n], 0,
+                       n, chunks).sort();
+    }
+
+    /**
+     * Sorts the specified range by (stable) insertion sort.
+     */
+    static void insertionSort(int[] a, int from, int to) {
+        for (int i = from + 1; i < to; ++i) {
+            int x = a[i];
+            int j = i - 1;
+            for (; j >= from && a[j] > x; --j)
+                a[j + 1] = a[j];
+            a[j + 1] = x;
+        }
+    }
+
+    /**
+     * Sorts the specified range by (stable) insertion sort.
+     */
+    static void insertionSort(long[] a, int from, int to) {
+        for (int i = from + 1; i < to; ++i) {
+            long x = a[i];
+            int j = i - 1;
+            for (; j >= from && a[j] > x; --j)
+                a[j + 1] = a[j];
+            a[j + 1] = x;
+        }
+    }
+
+    /**
+     * Sorts the specified range of keys by (stable) insertion sort,
+     * permuting values along with them.
+     */
+    static void insertionSort(int[] k, int[] v, int from, int to) {
+        for (int i = from + 1; i < to; ++i) {
+            int x = k[i];
+            int y = v[i];
+            int j = i - 1;
+            for (; j >= from && k[j] > x; --j) {
+                k[j + 1] = k[j];
+                v[j + 1] = v[j];
+            }
+            k[j + 1] = x;
+            v[j + 1] = y;
+        }
+    }
+
+    /**
+     * Sorts the specified range of keys by (stable) insertion sort,
+     * permuting values along with them.
+     */
+    static void insertionSort(int[] k, Object[] v, int from, int to) {
+        for (int i = from + 1; i < to; ++i) {
+            int x = k[i];
+            Object y = v[i];
+            int j = i - 1;
+            for (; j >= from && k[j] > x; --j) {
+                k[j + 1] = k[j];
+                v[j + 1] = v[j];
+            }
+            k[j + 1] = x;
+            v[j + 1] = y;
+        }
+    }
+
+    /**
+     * Sorts the specified range of keys by (stable) insertion sort,
+     * permuting values along with them.
+     */
+    static void insertionSort(long[] k, int[] v, int from, int to) {
+        for (int i = from + 1; i < to; ++i) {
+            long x = k[i];
+            int y = v[i];
+            int j = i - 1;
+            for (; j >= from && k[j] > x; --j) {
+                k[j + 1] = k[j];
+                v[j + 1] = v[j];
+            }
+            k[j + 1] = x;
+            v[j + 1] = y;
+        }
+    }
+
+    /**
+     * Sorts the specified range of keys by (stable) insertion sort,
+     * permuting values along with them.
+     */
+    static void insertionSort(long[] k, Object[] v, int from, int to) {
+        for (int i = from + 1; i < to; ++i) {
+            long x = k[i];
+            Object y = v[i];
+            int j = i - 1;
+            for (; j >= from && k[j] > x; --j) {
+                k[j + 1] = k[j];
+                v[j + 1] = v[j];
+            }
+            k[j + 1] = x;
+            v[j + 1] = y;
+        }
+    }
+
+    /*
+     * Sorter classes.
+     */
+
+    /**
+     * Pass structure common to all sorters.  Subclasses hold the
+     * arrays and implement per-chunk counting and scattering over
+     * indices relative to the start of the sorted range.
+     */
+    abstract static class Radix {
+        static final int COUNT_ALL = 0, COUNT = 1, SCATTER = 2;
+
+        final int n, chunks, digits;
+        final int[][] counts;
+        int shift;
+
+        Radix(int n, int chunks, int digits) {
+            this.n = n;
+            this.chunks = chunks = Math.max(1, Math.min(chunks, n));
+            this.digits = digits;
+            this.counts = new int[chunks][];
+        }
+
+        /** Counts all digits of keys in [lo, hi) into digits * BUCKETS counts. */
+        abstract void histogramAll(int lo, int hi, int[] count);
+
+        /** Counts the digit at shift of keys in [lo, hi). */
+        abstract void histogram(int lo, int hi, int shift, int[] count);
+
+        /** Moves elements in [lo, hi) to the positions given by offset. */
+        abstract void scatter(int lo, int hi, int shift, int[] offset);
+
+        /** Exchanges source and destination after a pass. */
+        abstract void flip();
+
+        /** Copies the sorted source into the destination. */
+        abstract void copyBack();
+
+        final void sort() {
+            final int n = this.n, nc = chunks, digits = this.digits;
+            runPhase(COUNT_ALL);
+            int[] total = counts[0];
+            for (int c = 1; c < nc; ++c) {
+                int[] cc = counts[c];
+                for (int i = 0; i < total.length; ++i)
+                    total[i] += cc[i];
+            }
+            boolean flipped = false;
+            for (int d = 0, o = 0; d < digits; ++d, o += BUCKETS) {
+                int m = 0;
+                while (m < BUCKETS && total[o + m] == 0)
+                    ++m;
+                if (total[o + m] == n)
+                    continue; // all keys share this digit
+                shift = d * RADIX;
+                if (nc == 1)
+                    counts[0] = Arrays.copyOfRange(total, o, o + BUCKETS);
+                else
+                    runPhase(COUNT);
+                for (int b = 0, pos = 0; b < BUCKETS; ++b) {
+                    for (int c = 0; c < nc; ++c) {
+                        int[] cc = counts[c];
+                        int k = cc[b];
+                        cc[b] = pos;
+                        pos += k;
+                    }
+                }
+                runPhase(SCATTER);
+                flip();
+                flipped = !flipped;
+            }
+            if (flipped)
+                copyBack();
+        }
+
+        final void runPhase(int phase) {
+            if (chunks == 1)
+                runChunk(phase, 0);
+            else
+                new ChunkTask(null, this, phase, 0, chunks).invoke();
+        }
+
+        final void runChunk(int phase, int c) {
+            int lo = (int)((long)n * c / chunks);
+            int hi = (int)((long)n * (c + 1) / chunks);
+            switch (phase) {
+            case COUNT_ALL:
+                histogramAll(lo, hi, counts[c] = new int[digits << RADIX]);
+                break;
+            case COUNT:
+                histogram(lo, hi, shift, counts[c] = new int[BUCKETS]);
+                break;
+            default:
+                scatter(lo, hi, shift, counts[c]);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Runs one phase of a pass over a range of chunks, forking
+     * subtasks for the right halves until a single chunk remains.
+     */
+    static final class ChunkTask extends CountedCompleter<Void> {
+        static final long serialVersionUID = 2446542900576103244L;
+        final Radix radix;
+        final int phase, lo, hi;
+        ChunkTask(ChunkTask parent, Radix radix, int phase, int lo, int hi) {
+            super(parent);
+            this.radix = radix; this.phase = phase; this.lo = lo; this.hi = hi;
+        }
+        public final void compute() {
+            final Radix r = radix;
+            final int p = phase, l = lo;
+            for (int h = hi; h - l > 1; ) {
+                int m = (l + h) >>> 1;
+                addToPendingCount(1);
+                new ChunkTask(this, r, p, m, h).fork();
+                h = m;
+            }
+            r.runChunk(p, l);
+            propagateCompletion();
+        }
+    }
+
+    /** Radix sorter for int keys. */
+    static final class OfInt extends Radix {
+        int[] a, b;   // source and destination, swapped each pass
+        int ao, bo;     // offsets of the sorted range in a and b
+        OfInt(int[] a, int ao, int[] b, int bo,
+              int n, int chunks) {
+            super(n, chunks, 4);
+            this.a = a; this.b = b; this.ao = ao; this.bo = bo;
+        }
+        final void histogramAll(int lo, int hi, int[] count) {
+            int[] a = this.a; int ao = this.ao;
+            for (int i = lo; i < hi; ++i) {
+                int x = a[ao + i] ^ Integer.MIN_VALUE;
+                for (int s = 0, o = 0; o < count.length; s += RADIX, o += BUCKETS)
+                    ++count[o + ((x >>> s) & MASK)];
+            }
+        }
+        final void histogram(int lo, int hi, int shift, int[] count) {
+            int[] a = this.a; int ao = this.ao;
+            for (int i = lo; i < hi; ++i)
+                ++count[((a[ao + i] ^ Integer.MIN_VALUE) >>> shift) & MASK];
+        }
+        final void scatter(int lo, int hi, int shift, int[] offset) {
+            int[] a = this.a, b = this.b; int ao = this.ao, bo = this.bo;
+            for (int i = lo; i < hi; ++i) {
+                int x = a[ao + i];
+                int j = bo + offset[((x ^ Integer.MIN_VALUE) >>> shift) & MASK]++;
+                b[j] = x;
+            }
+        }
+        final void flip() {
+            int[] t = a; a = b; b = t;
+            int o = ao; ao = bo; bo = o;
+        }
+        final void copyBack() {
+            System.arraycopy(a, ao, b, bo, n);
+        }
+    }
+
+    /** Radix sorter for long keys. */
+    static final class OfLong extends Radix {
+        long[] a, b;   // source and destination, swapped each pass
+        int ao, bo;     // offsets of the sorted range in a and b
+        OfLong(long[] a, int ao, long[] b, int bo,
+               int n, int chunks) {
+            super(n, chunks, 8);
+            this.a = a; this.b = b; this.ao = ao; this.bo = bo;
+        }
+        final void histogramAll(int lo, int hi, int[] count) {
+            long[] a = this.a; int ao = this.ao;
+            for (int i = lo; i < hi; ++i) {
+                long x = a[ao + i] ^ Long.MIN_VALUE;
+                for (int s = 0, o = 0; o < count.length; s += RADIX, o += BUCKETS)
+                    ++count[o + (int)((x >>> s) & MASK)];
+            }
+        }
+        final void histogram(int lo, int hi, int shift, int[] count) {
+            long[] a = this.a; int ao = this.ao;
+            for (int i = lo; i < hi; ++i)
+                ++count[(int)(((a[ao + i] ^ Long.MIN_VALUE) >>> shift) & MASK)];
+        }
+        final void scatter(int lo, int hi, int shift, int[] offset) {
+            long[] a = this.a, b = this.b; int ao = this.ao, bo = this.bo;
+            for (int i = lo; i < hi; ++i) {
+                long x = a[ao + i];
+                int j = bo + offset[(int)(((x ^ Long.MIN_VALUE) >>> shift) & MASK)]++;
+                b[j] = x;
+            }
+        }
+        final void flip() {
+            long[] t = a; a = b; b = t;
+            int o = ao; ao = bo; bo = o;
+        }
+        final void copyBack() {
+            System.arraycopy(a, ao, b, bo, n);
+        }
+    }
+
+    /** Radix sorter for int keys with int values. */
+    static final class IntInt extends Radix {
+        int[] a, b;   // source and destination keys, swapped each pass
+        int[] va, vb; // source and destination values
+        int ao, bo;     // offsets of the sorted range in a and b
+        IntInt(int[] a, int[] va, int ao, int[] b, int[] vb, int bo,
+               int n, int chunks) {
+            super(n, chunks, 4);
+            this.a = a; this.va = va; this.ao = ao;
+            this.b = b; this.vb = vb; this.bo = bo;
+        }
+        final void histogramAll(int lo, int hi, int[] count) {
+            int[] a = this.a; int ao = this.ao;
+            for (int i = lo; i < hi; ++i) {
+                int x = a[ao + i] ^ Integer.MIN_VALUE;
+                for (int s = 0, o = 0; o < count.length; s += RADIX, o += BUCKETS)
+                    ++count[o + ((x >>> s) & MASK)];
+            }
+        }
+        final void histogram(int lo, int hi, int shift, int[] count) {
+            int[] a = this.a; int ao = this.ao;
+            for (int i = lo; i < hi; ++i)
+                ++count[((a[ao + i] ^ Integer.MIN_VALUE) >>> shift) & MASK];
+        }
+        final void scatter(int lo, int hi, int shift, int[] offset) {
+            int[] a = this.a, b = this.b; int[] va = this.va, vb = this.vb;
+            int ao = this.ao, bo = this.bo;
+            for (int i = lo; i < hi; ++i) {
+                int x = a[ao + i];
+                int j = bo + offset[((x ^ Integer.MIN_VALUE) >>> shift) & MASK]++;
+                b[j] = x;
+                vb[j] = va[ao + i];
+            }
+        }
+        final void flip() {
+            int[] t = a; a = b; b = t;
+            int[] vt = va; va = vb; vb = vt;
+            int o = ao; ao = bo; bo = o;
+        }
+        final void copyBack() {
+            System.arraycopy(a, ao, b, bo, n);
+            System.arraycopy(va, ao, vb, bo, n);
+        }
+    }
+
+    /** Radix sorter for int keys with Object values. */
+    static final class IntObject extends Radix {
+        int[] a, b;   // source and destination keys, swapped each pass
+        Object[] va, vb; // source and destination values
+        int ao, bo;     // offsets of the sorted range in a and b
+        IntObject(int[] a, Object[] va, int ao, int[] b, Object[] vb, int bo,
+                  int n, int chunks) {
+            super(n, chunks, 4);
+            this.a = a; this.va = va; this.ao = ao;
+            this.b = b; this.vb = vb; this.bo = bo;
+        }
+        final void histogramAll(int lo, int hi, int[] count) {
+            int[] a = this.a; int ao = this.ao;
+            for (int i = lo; i < hi; ++i) {
+                int x = a[ao + i] ^ Integer.MIN_VALUE;
+                for (int s = 0, o = 0; o < count.length; s += RADIX, o += BUCKETS)
+                    ++count[o + ((x >>> s) & MASK)];
+            }
+        }
+        final void histogram(int lo, int hi, int shift, int[] count) {
+            int[] a = this.a; int ao = this.ao;
+            for (int i = lo; i < hi; ++i)
+                ++count[((a[ao + i] ^ Integer.MIN_VALUE) >>> shift) & MASK];
+        }
+        final void scatter(int lo, int hi, int shift, int[] offset) {
+            int[] a = this.a, b = this.b; Object[] va = this.va, vb = this.vb;
+            int ao = this.ao, bo = this.bo;
+            for (int i = lo; i < hi; ++i) {
+                int x = a[ao + i];
+                int j = bo + offset[((x ^ Integer.MIN_VALUE) >>> shift) & MASK]++;
+                b[j] = x;
+                vb[j] = va[ao + i];
+            }
+        }
+        final void flip() {
+            int[] t = a; a = b; b = t;
+            Object[] vt = va; va = vb; vb = vt;
+            int o = ao; ao = bo; bo = o;
+        }
+        final void copyBack() {
+            System.arraycopy(a, ao, b, bo, n);
+            System.arraycopy(va, ao, vb, bo, n);
+        }
+    }
+
+    /** Radix sorter for long keys with int values. */
+    static final class LongInt extends Radix {
+        long[] a, b;   // source and destination keys, swapped each pass
+        int[] va, vb; // source and destination values
+        int ao, bo;     // offsets of the sorted range in a and b
+        LongInt(long[] a, int[] va, int ao, long[] b, int[] vb, int bo,
+                int n, int chunks) {
+            super(n, chunks, 8);
+            this.a = a; this.va = va; this.ao = ao;
+            this.b = b; this.vb = vb; this.bo = bo;
+        }
+        final void histogramAll(int lo, int hi, int[] count) {
+            long[] a = this.a; int ao = this.ao;
+            for (int i = lo; i < hi; ++i) {
+                long x = a[ao + i] ^ Long.MIN_VALUE;
+                for (int s = 0, o = 0; o < count.length; s += RADIX, o += BUCKETS)
+                    ++count[o + (int)((x >>> s) & MASK)];
+            }
+        }
+        final void histogram(int lo, int hi, int shift, int[] count) {
+            long[] a = this.a; int ao = this.ao;
+            for (int i = lo; i < hi; ++i)
+                ++count[(int)(((a[ao + i] ^ Long.MIN_VALUE) >>> shift) & MASK)];
+        }
+        final void scatter(int lo, int hi, int shift, int[] offset) {
+            long[] a = this.a, b = this.b; int[] va = this.va, vb = this.vb;
+            int ao = this.ao, bo = this.bo;
+            for (int i = lo; i < hi; ++i) {
+                long x = a[ao + i];
+                int j = bo + offset[(int)(((x ^ Long.MIN_VALUE) >>> shift) & MASK)]++;
+                b[j] = x;
+                vb[j] = va[ao + i];
+            }
+        }
+        final void flip() {
+            long[] t = a; a = b; b = t;
+            int[] vt = va; va = vb; vb = vt;
+            int o = ao; ao = bo; bo = o;
+        }
+        final void copyBack() {
+            System.arraycopy(a, ao, b, bo, n);
+            System.arraycopy(va, ao, vb, bo, n);
+        }
+    }
+
+    /** Radix sorter for long keys with Object values. */
+    static final class LongObject extends Radix {
+        long[] a, b;   // source and destination keys, swapped each pass
+        Object[] va, vb; // source and destination values
+        int ao, bo;     // offsets of the sorted range in a and b
+        LongObject(long[] a, Object[] va, int ao, long[] b, Object[] vb, int bo,
+                   int n, int chunks) {
+            super(n, chunks, 8);
+            this.a = a; this.va = va; this.ao = ao;
+            this.b = b; this.vb = vb; this.bo = bo;
+        }
+        final void histogramAll(int lo, int hi, int[] count) {
+            long[] a = this.a; int ao = this.ao;
+            for (int i = lo; i < hi; ++i) {
+                long x = a[ao + i] ^ Long.MIN_VALUE;
+                for (int s = 0, o = 0; o < count.length; s += RADIX, o += BUCKETS)
+                    ++count[o + (int)((x >>> s) & MASK)];
+            }
+        }
+        final void histogram(int lo, int hi, int shift, int[] count) {
+            long[] a = this.a; int ao = this.ao;
+            for (int i = lo; i < hi; ++i)
+                ++count[(int)(((a[ao + i] ^ Long.MIN_VALUE) >>> shift) & MASK)];
+        }
+        final void scatter(int lo, int hi, int shift, int[] offset) {
+            long[] a = this.a, b = this.b; Object[] va = this.va, vb = this.vb;
+            int ao = this.ao, bo = this.bo;
+            for (int i = lo; i < hi; ++i) {
+                long x = a[ao + i];
+                int j = bo + offset[(int)(((x ^ Long.MIN_VALUE) >>> shift) & MASK)]++;
+                b[j] = x;
+                vb[j] = va[ao + i];
+            }
+        }
+        final void flip() {
+            long[] t = a; a = b; b = t;
+            Object[] vt = va; va = vb; vb = vt;
+            int o = ao; ao = bo; bo = o;
+        }
+        final void copyBack() {
+            System.arraycopy(a, ao, b, bo, n);
+            System.arraycopy(va, ao, vb, bo, n);
+        }
+    }
+}
@@ -81,6 +81,14 @@ import java.util.concurrent.locks.LockSupport;
  * tasks are instances of the marker interface {@link
  * AsynchronousCompletionTask}. </li>
  *
+ * <li>Actions supplied to <em>async</em> methods with an Executor
+ * obtained from {@link #fusingExecutor} may instead be performed
+ * directly by the thread that completes the current CompletableFuture,
+ * or, if it is already complete, by the thread calling the method, if
+ * that thread is itself running a task of the same executor.  This
+ * avoids hand-offs across chains of short stages, at the price of
+ * less parallelism.</li>
+ *
  * <li>All CompletionStage methods are implemented independently of
  * other public methods, so the behavior of one method is not impacted
  * by overrides of others in subclasses.  </li> </ul>
@@ -182,7 +190,9 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
      *   second completion is a CoCompletion pointing to the first,
      *   shared so that at most one performs the action.  The
      *   multiple-arity methods allOf and anyOf do this pairwise to
-     *   form trees of completions.
+     *   form trees of completions, except for large arrays, for
+     *   which they instead push one relay to each source, all
+     *   sharing the same dependent (see andAll and orAll).
      *
      * Note that the generic type parameters of methods vary according
      * to whether "this" is a source, dependent, or completion.
@@ -196,6 +206,18 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
      * one exists) for further processing by its caller (see method
      * postFire).
      *
+     * Executors returned by fusingExecutor are recognized by method
+     * UniCompletion.claim: if the claiming thread is already running
+     * a task submitted through the same FusingExecutor, and that
+     * task's budget of fused stages is not exhausted, claim runs the
+     * action directly instead of handing it off.  This applies both
+     * when the thread triggers the completion (NESTED mode) and when
+     * it registers the completion on an already completed source
+     * (SYNC mode), as claim cannot tell them apart.  The budget is kept
+     * in a ThreadLocal FusionState established by each FusedTask.
+     * Besides limiting starvation of other tasks, it bounds the
+     * recursion that fused stages triggered in SYNC mode may entail.
+     *
      * Blocking methods get() and join() rely on Signaller Completions
      * that wake up waiting threads.  The mechanics are similar to
      * Treiber stack wait-nodes used in FutureTask, Phaser, and
@@ -416,6 +438,72 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         return e;
     }
 
+    /** Default maximum number of consecutively fused stages */
+    static final int DEFAULT_MAX_FUSED_STAGES = 32;
+
+    /**
+     * Executor returned by fusingExecutor, whose tasks may absorb
+     * async dependent stages (see UniCompletion.claim).
+     */
+    static final class FusingExecutor implements Executor {
+        final Executor executor;
+        final int maxFusedStages;
+        FusingExecutor(Executor executor, int maxFusedStages) {
+            this.executor = executor;
+            this.maxFusedStages = maxFusedStages;
+        }
+        public void execute(Runnable r) {
+            if (r == null) throw new NullPointerException();
+            executor.execute(new FusedTask(this, r));
+        }
+        /**
+         * Returns true if the current thread is running a task of
+         * this executor that may run another stage directly.
+         */
+        final boolean tryFuse() {
+            FusionState s = fusionState.get();
+            if (s.owner != this || s.remaining <= 0)
+                return false;
+            --s.remaining;
+            return true;
+        }
+    }
+
+    /** Per-thread record of the running FusedTask, if any */
+    static final class FusionState {
+        FusingExecutor owner;
+        int remaining;
+    }
+
+    static final ThreadLocal<FusionState> fusionState =
+        new ThreadLocal<FusionState>() {
+            protected FusionState initialValue() {
+                return new FusionState();
+            }
+        };
+
+    /** Wraps a task submitted to a FusingExecutor */
+    static final class FusedTask implements Runnable, AsynchronousCompletionTask {
+        final FusingExecutor owner;
+        final Runnable task;
+        FusedTask(FusingExecutor owner, Runnable task) {
+            this.owner = owner; this.task = task;
+        }
+        public void run() {
+            FusionState s = fusionState.get();
+            FusingExecutor prevOwner = s.owner;
+            int prevRemaining = s.remaining;
+            s.owner = owner;
+            s.remaining = owner.maxFusedStages;
+            try {
+                task.run();
+            } finally {
+                s.owner = prevOwner;
+                s.remaining = prevRemaining;
+            }
+        }
+    }
+
     // Modes for Completion.tryFire. Signedness matters.
     static final int SYNC   =  0;
     static final int ASYNC  =  1;
@@ -526,6 +614,9 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
                 if (e == null)
                     return true;
                 executor = null; // disable
+                if ((e instanceof FusingExecutor) &&
+                    ((FusingExecutor)e).tryFuse())
+                    return true;
                 e.execute(this);
             }
             return false;
@@ -1567,6 +1658,134 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         return d;
     }
 
+    /* ------------- Flat multiple-arity Completions -------------- */
+
+    /**
+     * Arity at or above which allOf and anyOf push one relay per
+     * source instead of building trees of intermediate futures.
+     */
+    static final int FLAT_ARITY = 8;
+
+    /** Shared state of the relays of a flat allOf */
+    static final class AndCounter {
+        final CompletableFuture<Void> dep;
+        CompletableFuture<?>[] srcs;
+        volatile int pending;
+        AndCounter(CompletableFuture<Void> dep, CompletableFuture<?>[] srcs) {
+            this.dep = dep; this.srcs = srcs; this.pending = srcs.length;
+        }
+
+        /**
+         * Records completion of a source, returning true if it was the
+         * last one, in which case dep is completed with the outcome of
+         * the first source that completed exceptionally, if any, as
+         * would be reported by andTree.
+         */
+        final boolean countDown() {
+            if (UNSAFE.getAndAddInt(this, PENDING, -1) != 1)
+                return false;
+            CompletableFuture<?>[] cs = srcs;
+            srcs = null;
+            for (CompletableFuture<?> a : cs) {
+                Object r = a.result; Throwable x;
+                if (r instanceof AltResult && (x = ((AltResult)r).ex) != null) {
+                    dep.completeThrowable(x, r);
+                    return true;
+                }
+            }
+            dep.completeNull();
+            return true;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static final class AndRelay extends Completion { // for flat allOf
+        AndCounter counter;
+        AndRelay(AndCounter counter) { this.counter = counter; }
+        final CompletableFuture<Void> tryFire(int mode) {
+            AndCounter g;
+            if ((g = counter) == null ||
+                !compareAndSetForkJoinTaskTag((short)0, (short)1))
+                return null;
+            counter = null;
+            if (!g.countDown())
+                return null;
+            return g.dep.postFire(null, mode);
+        }
+        final boolean isLive() { return counter != null; }
+    }
+
+    /** Constructs a flat allOf completion. */
+    static CompletableFuture<Void> andAll(CompletableFuture<?>[] cfs) {
+        int n = cfs.length;
+        CompletableFuture<?>[] srcs = new CompletableFuture<?>[n];
+        for (int i = 0; i < n; ++i) {
+            if ((srcs[i] = cfs[i]) == null)
+                throw new NullPointerException();
+        }
+        CompletableFuture<Void> d = new CompletableFuture<Void>();
+        AndCounter g = new AndCounter(d, srcs);
+        for (CompletableFuture<?> a : srcs) {
+            if (a.result != null)
+                g.countDown();
+            else {
+                AndRelay c = new AndRelay(g);
+                while (a.result == null && !a.tryPushStack(c))
+                    lazySetNext(c, null); // clear on failure
+                if (a.result != null)
+                    c.tryFire(SYNC);
+            }
+        }
+        return d;
+    }
+
+    @SuppressWarnings("serial")
+    static final class AnyRelay extends Completion { // for flat anyOf
+        CompletableFuture<Object> dep;
+        CompletableFuture<?> src;
+        AnyRelay(CompletableFuture<Object> dep, CompletableFuture<?> src) {
+            this.dep = dep; this.src = src;
+        }
+        final CompletableFuture<Object> tryFire(int mode) {
+            CompletableFuture<Object> d; CompletableFuture<?> a; Object r;
+            if ((d = dep) == null || (a = src) == null ||
+                (r = a.result) == null ||
+                !compareAndSetForkJoinTaskTag((short)0, (short)1))
+                return null;
+            dep = null; src = null;
+            if (!d.completeRelay(r))
+                return null;
+            return d.postFire(a, mode);
+        }
+        final boolean isLive() {
+            CompletableFuture<Object> d;
+            return (d = dep) != null && d.result == null;
+        }
+    }
+
+    /** Constructs a flat anyOf completion. */
+    static CompletableFuture<Object> orAll(CompletableFuture<?>[] cfs) {
+        int n = cfs.length;
+        CompletableFuture<?>[] srcs = new CompletableFuture<?>[n];
+        CompletableFuture<Object> d = new CompletableFuture<Object>();
+        for (int i = 0; i < n; ++i) {
+            CompletableFuture<?> a; Object r;
+            if ((a = srcs[i] = cfs[i]) == null)
+                throw new NullPointerException();
+            if (d.result == null && (r = a.result) != null)
+                d.result = encodeRelay(r); // first completed wins
+        }
+        for (int i = 0; i < n && d.result == null; ++i) {
+            CompletableFuture<?> a = srcs[i];
+            AnyRelay c = new AnyRelay(d, a);
+            while (a.result == null && !a.tryPushStack(c))
+                lazySetNext(c, null); // clear on failure
+            if (a.result != null)
+                c.tryFire(SYNC);
+        }
+        return d;
+    }
+
     /* ------------- Zero-input Async forms -------------- */
 
     @SuppressWarnings("serial")
@@ -1858,6 +2077,53 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         return asyncRunStage(screenExecutor(executor), runnable);
     }
 
+    /**
+     * Returns an Executor that runs tasks using the given executor,
+     * and that allows an action of an <em>async</em> method supplied
+     * with it to be performed directly by the thread completing the
+     * stage it depends on, if that thread is itself running a task of
+     * the returned executor.  Likewise, if a task of the returned
+     * executor supplies it to an <em>async</em> method of a stage
+     * that is already complete, the action may be performed directly
+     * by that method before it returns.  At most {@code
+     * maxFusedStages} actions are performed this way within each
+     * task, after which further actions are again handed off to the
+     * given executor.  This is
+     * intended for chains of short stages, for which hand-offs would
+     * otherwise dominate processing time; actions that may block or
+     * run for long periods should use an ordinary executor.
+     *
+     * @param executor the executor to use for asynchronous execution
+     * @param maxFusedStages the maximum number of actions performed
+     * directly within each task
+     * @return the fusing executor
+     * @throws NullPointerException if executor is null
+     * @throws IllegalArgumentException if maxFusedStages is negative
+     * @since 1.8
+     */
+    public static Executor fusingExecutor(Executor executor,
+                                          int maxFusedStages) {
+        if (maxFusedStages < 0) throw new IllegalArgumentException();
+        return new FusingExecutor(screenExecutor(executor), maxFusedStages);
+    }
+
+    /**
+     * Returns an Executor that runs tasks using the given executor,
+     * and that allows a bounded number of actions of <em>async</em>
+     * methods supplied with it to be performed directly by threads
+     * running its tasks.  This method is equivalent to {@link
+     * #fusingExecutor(Executor, int)} with a default maximum number
+     * of fused stages.
+     *
+     * @param executor the executor to use for asynchronous execution
+     * @return the fusing executor
+     * @throws NullPointerException if executor is null
+     * @since 1.8
+     */
+    public static Executor fusingExecutor(Executor executor) {
+        return fusingExecutor(executor, DEFAULT_MAX_FUSED_STAGES);
+    }
+
     /**
      * Returns a new CompletableFuture that is already completed with
      * the given value.
@@ -2222,6 +2488,8 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
      * {@code null}
      */
     public static CompletableFuture<Void> allOf(CompletableFuture<?>... cfs) {
+        if (cfs.length >= FLAT_ARITY)
+            return andAll(cfs);
         return andTree(cfs, 0, cfs.length - 1);
     }
 
@@ -2241,6 +2509,8 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
      * {@code null}
      */
     public static CompletableFuture<Object> anyOf(CompletableFuture<?>... cfs) {
+        if (cfs.length >= FLAT_ARITY)
+            return orAll(cfs);
         return orTree(cfs, 0, cfs.length - 1);
     }
 
@@ -2369,6 +2639,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     private static final long RESULT;
     private static final long STACK;
     private static final long NEXT;
+    private static final long PENDING;
     static {
         try {
             final sun.misc.Unsafe u;
@@ -2378,6 +2649,8 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
             STACK = u.objectFieldOffset(k.getDeclaredField("stack"));
             NEXT = u.objectFieldOffset
                 (Completion.class.getDeclaredField("next"));
+            PENDING = u.objectFieldOffset
+                (AndCounter.class.getDeclaredField("pending"));
         } catch (Exception x) {
             throw new Error(x);
         }
@@ -0,0 +1,1335 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/*
+ *
+ *
+ *
+ *
+ *
+ * Written by Doug Lea with assistance from members of JCP JSR-166
+ * Expert Group and released to the public domain, as explained at
+ * http://creativecommons.org/publicdomain/zero/1.0/
+ */
+
+package java.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A concurrent cache that retains a bounded number (or total weight)
+ * of entries, optionally expiring entries a fixed time after they
+ * were last written or accessed, and optionally loading and refreshing
+ * values through a user-supplied function.  Instances are created
+ * using a {@link Builder}:
+ *
+ * <pre> {@code
+ * ConcurrentBoundedCache<Key, Graph> graphs =
+ *     ConcurrentBoundedCache.<Key, Graph>newBuilder()
+ *         .maximumSize(10_000)
+ *         .expireAfterWrite(10, TimeUnit.MINUTES)
+ *         .refreshAfterWrite(1, TimeUnit.MINUTES)
+ *         .recordStats()
+ *         .build(key -> createExpensiveGraph(key));}</pre>
+ *
+ * <p>Entries are held in a {@link ConcurrentHashMap}, so retrievals
+ * and updates have the same concurrency properties as that class.
+ * The replacement policy is <em>W-TinyLFU</em>: new entries enter a
+ * small LRU "admission window" (1% of the capacity); entries leaving
+ * the window compete for a place in the main region, a segmented LRU
+ * of "probation" and "protected" segments, against the main region's
+ * own eviction victim, and are admitted only if they have been
+ * requested more often in the recent past.  Request frequencies are
+ * estimated by a compact count-min sketch that periodically ages its
+ * counters.  This policy retains frequently used entries in the face
+ * of scans and one-hit wonders that would flush a plain LRU cache,
+ * such as one built on {@link java.util.LinkedHashMap#removeEldestEntry}.
+ *
+ * <p>Policy bookkeeping is not performed under a lock on every access.
+ * Reads are recorded into striped, lossy ring buffers, and writes into
+ * a queue; both are replayed against the policy in batches by whichever
+ * thread next manages to acquire the policy lock without waiting.  A
+ * read therefore costs a hash table lookup plus, usually, a single CAS
+ * on a buffer slot private to a few threads.  A consequence is that
+ * the cache may temporarily exceed its maximum between maintenance
+ * cycles, and that {@link #estimatedSize} is only an estimate.
+ *
+ * <p>When a loader is supplied, {@link #get(Object)} computes missing
+ * values atomically, with at most one load per key in progress at a
+ * time, and {@link #refresh} reloads a value asynchronously, in the
+ * configured {@link Executor}, returning the new value as a {@link
+ * CompletableFuture} while the old value remains visible.
+ *
+ * <p>Neither keys nor values may be {@code null}.
+ *
+ * @since 1.8
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of cached values
+ */
+public class ConcurrentBoundedCache<K,V> {
+
+    /*
+     * Overview:
+     *
+     * Each mapping is a Node held in a ConcurrentHashMap.  Nodes are
+     * mutated in place by updates (inside CHM.compute, so per key
+     * updates are serialized) and are linked into the policy's
+     * intrusive deques, which are guarded by evictionLock:
+     *
+     * - the window, probation and protected deques, in access order
+     *   (the three form the W-TinyLFU policy);
+     * - the write-order deque, used only for expireAfterWrite.
+     *
+     * Structural changes are communicated to the policy as tasks on
+     * writeBuffer (AddTask, UpdateTask, RemovalTask).  Tasks may be
+     * replayed out of order with respect to the updates that queued
+     * them, so Node.policyWeight records the weight the policy
+     * currently accounts for the node, and each task reconciles it
+     * with the node's current weight; it is only accessed under
+     * evictionLock.  A node is "retired" when it is removed from
+     * the map; AddTasks for retired nodes are skipped, and the node's
+     * RemovalTask (or the eviction that retired it) unlinks it.
+     *
+     * Reads are recorded in a ReadBuffer selected by the thread's
+     * ThreadLocalRandom probe, as in Striped64.  Each is a small ring
+     * whose slots are claimed by CAS on a write counter; a read that
+     * finds its buffer full or contended is simply dropped, as the
+     * policy only needs a representative sample of accesses.  A full
+     * buffer triggers maintenance.
+     *
+     * Maintenance (drain read buffers, drain write buffer, expire,
+     * evict) runs in the calling thread whenever evictionLock can be
+     * acquired by tryLock.  After releasing the lock, a thread that
+     * performed maintenance rechecks writeBuffer so that tasks added
+     * while it held the lock are not stranded.
+     *
+     * The admission policy follows Einziger, Friedman and Manes,
+     * "TinyLFU: A Highly Efficient Cache Admission Policy".  The
+     * frequency sketch holds four 4-bit counters per key spread over
+     * a long[] whose length is the next power of two above the
+     * maximum size; after 10 * maximum increments, all counters are
+     * halved so that the sketch favors recent history.
+     */
+
+    /* ---------------- Constants -------------- */
+
+    /** Fraction of the maximum weight used for the admission window. */
+    static final double WINDOW_PERCENT = 0.01d;
+
+    /** Fraction of the main region reserved for the protected segment. */
+    static final double PROTECTED_PERCENT = 0.80d;
+
+    /** The number of slots of each read buffer; a power of two. */
+    static final int READ_BUFFER_SIZE = 16;
+
+    /** The maximum number of read buffers; a power of two. */
+    static final int MAX_READ_BUFFERS = 256;
+
+    /** Number of CPUS, to size the read buffer stripes. */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /** Queue types of nodes. */
+    static final byte UNLINKED = 0, WINDOW = 1, PROBATION = 2, PROTECTED = 3;
+
+    /* ---------------- Nodes and policy deques -------------- */
+
+    /**
+     * A cache entry.  Fields other than key are mutable: value,
+     * weight and the times under the CHM bin lock or by any reader
+     * (accessTime), and the links and policyWeight under evictionLock.
+     */
+    static final class Node<K,V> {
+        final K key;
+        volatile V value;
+        volatile int weight;
+        volatile long writeTime;
+        volatile long accessTime;
+        volatile boolean retired;
+
+        // guarded by evictionLock
+        byte queueType;
+        int policyWeight;
+        Node<K,V> prev, next;           // access order
+        Node<K,V> prevWrite, nextWrite; // write order
+        boolean inWriteOrder;
+
+        Node(K key, V value, int weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = now;
+            this.accessTime = now;
+        }
+    }
+
+    /**
+     * A doubly linked list of nodes in access order.
+     */
+    static final class AccessOrderDeque<K,V> {
+        Node<K,V> first, last;
+
+        void addLast(Node<K,V> e) {
+            Node<K,V> l = last;
+            e.prev = l;
+            e.next = null;
+            last = e;
+            if (l == null)
+                first = e;
+            else
+                l.next = e;
+        }
+
+        void remove(Node<K,V> e) {
+            Node<K,V> p = e.prev, n = e.next;
+            if (p == null)
+                first = n;
+            else
+                p.next = n;
+            if (n == null)
+                last = p;
+            else
+                n.prev = p;
+            e.prev = e.next = null;
+        }
+
+        void moveToBack(Node<K,V> e) {
+            if (e != last) {
+                remove(e);
+                addLast(e);
+            }
+        }
+    }
+
+    /**
+     * A doubly linked list of nodes in write order.
+     */
+    static final class WriteOrderDeque<K,V> {
+        Node<K,V> first, last;
+
+        void addLast(Node<K,V> e) {
+            Node<K,V> l = last;
+            e.prevWrite = l;
+            e.nextWrite = null;
+            e.inWriteOrder = true;
+            last = e;
+            if (l == null)
+                first = e;
+            else
+                l.nextWrite = e;
+        }
+
+        void remove(Node<K,V> e) {
+            if (!e.inWriteOrder)
+                return;
+            Node<K,V> p = e.prevWrite, n = e.nextWrite;
+            if (p == null)
+                first = n;
+            else
+                p.nextWrite = n;
+            if (n == null)
+                last = p;
+            else
+                n.prevWrite = p;
+            e.prevWrite = e.nextWrite = null;
+            e.inWriteOrder = false;
+        }
+
+        void moveToBack(Node<K,V> e) {
+            if (e != last) {
+                remove(e);
+                addLast(e);
+            }
+        }
+    }
+
+    /* ---------------- Read buffers -------------- */
+
+    /**
+     * A lossy bounded ring buffer of recently read nodes, with
+     * multiple producers and a single consumer holding evictionLock.
+     */
+    static final class ReadBuffer<K,V> {
+        static final int SUCCESS = 0, FULL = 1, FAILED = 2;
+        static final int MASK = READ_BUFFER_SIZE - 1;
+
+        volatile long readCounter;
+        volatile long writeCounter;
+        final AtomicReferenceArray<Node<K,V>> buffer =
+            new AtomicReferenceArray<Node<K,V>>(READ_BUFFER_SIZE);
+
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<ReadBuffer> READ =
+            AtomicLongFieldUpdater.newUpdater(ReadBuffer.class, "readCounter");
+        @SuppressWarnings("rawtypes")
+        static final AtomicLongFieldUpdater<ReadBuffer> WRITE =
+            AtomicLongFieldUpdater.newUpdater(ReadBuffer.class, "writeCounter");
+
+        int offer(Node<K,V> e) {
+            long head = readCounter, tail = writeCounter;
+            if (tail - head >= READ_BUFFER_SIZE)
+                return FULL;
+            if (WRITE.compareAndSet(this, tail, tail + 1)) {
+                buffer.lazySet((int)tail & MASK, e);
+                return SUCCESS;
+            }
+            return FAILED;
+        }
+
+        void drainTo(ConcurrentBoundedCache<K,V> cache) {
+            long head = readCounter, tail = writeCounter;
+            for (; head != tail; ++head) {
+                int i = (int)head & MASK;
+                Node<K,V> e = buffer.get(i);
+                if (e == null)
+                    break; // claimed but not yet published
+                buffer.lazySet(i, null);
+                cache.onAccess(e);
+            }
+            READ.lazySet(this, head);
+        }
+    }
+
+    /* ---------------- Frequency sketch -------------- */
+
+    /**
+     * A count-min sketch of 4-bit counters estimating the popularity
+     * of keys within a time window.  Accessed only under evictionLock.
+     */
+    static final class FrequencySketch {
+        static final long[] SEED = { // a mixture of seeds from FNV-1a, CityHash, and Murmur3
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+            0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+        static final long RESET_MASK = 0x7777777777777777L;
+        static final long ONE_MASK = 0x1111111111111111L;
+
+        final long[] table;
+        final int tableMask;
+        final int sampleSize;
+        int size;
+
+        FrequencySketch(long maximum) {
+            int n = (int)Math.min(Math.max(maximum, 16L), 1L << 30);
+            int cap = Integer.highestOneBit(n - 1) << 1;
+            table = new long[cap];
+            tableMask = cap - 1;
+            sampleSize = (int)Math.min(10L * n, Integer.MAX_VALUE);
+        }
+
+        static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+
+        int indexOf(int item, int i) {
+            long hash = (item + SEED[i]) * SEED[i];
+            hash += (hash >>> 32);
+            return ((int)hash) & tableMask;
+        }
+
+        int frequency(Object e) {
+            int hash = spread(e.hashCode());
+            int start = (hash & 3) << 2;
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int count = (int)((table[index] >>> ((start + i) << 2)) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        void increment(Object e) {
+            int hash = spread(e.hashCode());
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++)
+                added |= incrementAt(indexOf(hash, i), start + i);
+            if (added && ++size == sampleSize)
+                reset();
+        }
+
+        boolean incrementAt(int i, int j) {
+            int offset = j << 2;
+            long mask = (0xfL << offset);
+            if ((table[i] & mask) != mask) {
+                table[i] += (1L << offset);
+                return true;
+            }
+            return false;
+        }
+
+        void reset() {
+            int count = 0;
+            for (int i = 0; i < table.length; i++) {
+                count += Long.bitCount(table[i] & ONE_MASK);
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            size = (size >>> 1) - (count >>> 2);
+        }
+    }
+
+    /* ---------------- Fields -------------- */
+
+    final ConcurrentHashMap<K,Node<K,V>> data;
+    final ConcurrentHashMap<K,CompletableFuture<V>> refreshes;
+    final ReadBuffer<K,V>[] readBuffers;
+    final ConcurrentLinkedQueue<Runnable> writeBuffer;
+    final ReentrantLock evictionLock;
+
+    final ToIntBiFunction<? super K, ? super V> weigher;
+    final Function<? super K, ? extends V> loader;
+    final Executor executor;
+    final long expireAfterWriteNanos;   // or -1 if none
+    final long expireAfterAccessNanos;  // or -1 if none
+    final long refreshAfterWriteNanos;  // or -1 if none
+
+    // guarded by evictionLock
+    final long maximum;
+    final long windowMaximum;
+    final long protectedMaximum;
+    long weightedSize;
+    long windowWeightedSize;
+    long protectedWeightedSize;
+    final AccessOrderDeque<K,V> window = new AccessOrderDeque<K,V>();
+    final AccessOrderDeque<K,V> probation = new AccessOrderDeque<K,V>();
+    final AccessOrderDeque<K,V> protectedDeque = new AccessOrderDeque<K,V>();
+    final WriteOrderDeque<K,V> writeOrder = new WriteOrderDeque<K,V>();
+    final FrequencySketch sketch;
+
+    // statistics, or null if not recorded
+    final LongAdder hitCount, missCount, loadSuccessCount, loadFailureCount,
+        totalLoadTime, evictionCount, evictionWeight;
+
+    @SuppressWarnings("unchecked")
+    ConcurrentBoundedCache(Builder<K,V> b, Function<? super K, ? extends V> loader) {
+        this.maximum = b.maximum;
+        this.weigher = b.weigher;
+        this.loader = loader;
+        this.executor = (b.executor != null) ? b.executor :
+            ForkJoinPool.commonPool();
+        this.expireAfterWriteNanos = b.expireAfterWriteNanos;
+        this.expireAfterAccessNanos = b.expireAfterAccessNanos;
+        this.refreshAfterWriteNanos = b.refreshAfterWriteNanos;
+        this.data = new ConcurrentHashMap<K,Node<K,V>>(
+            (int)Math.min(Math.max(b.maximum, 16L), 1L << 16));
+        this.refreshes = new ConcurrentHashMap<K,CompletableFuture<V>>();
+        this.writeBuffer = new ConcurrentLinkedQueue<Runnable>();
+        this.evictionLock = new ReentrantLock();
+        long w = (long)(maximum * WINDOW_PERCENT);
+        this.windowMaximum = (w == 0L && maximum > 1L) ? 1L : w;
+        this.protectedMaximum =
+            (long)((maximum - windowMaximum) * PROTECTED_PERCENT);
+        this.sketch = new FrequencySketch( // unused if unbounded
+            (maximum == Long.MAX_VALUE) ? 0L : maximum);
+        int n = 1;
+        while (n < NCPU << 2 && n < MAX_READ_BUFFERS)
+            n <<= 1;
+        this.readBuffers = (ReadBuffer<K,V>[])new ReadBuffer<?,?>[n];
+        for (int i = 0; i < n; ++i)
+            readBuffers[i] = new ReadBuffer<K,V>();
+        if (b.recordStats) {
+            hitCount = new LongAdder();
+            missCount = new LongAdder();
+            loadSuccessCount = new LongAdder();
+            loadFailureCount = new LongAdder();
+            totalLoadTime = new LongAdder();
+            evictionCount = new LongAdder();
+            evictionWeight = new LongAdder();
+        }
+        else {
+            hitCount = missCount = loadSuccessCount = loadFailureCount =
+                totalLoadTime = evictionCount = evictionWeight = null;
+        }
+    }
+
+    /**
+     * Returns a new builder with default settings: no bound, no
+     * expiration, no refresh, statistics disabled.
+     *
+     * @param <K> the type of keys of caches built
+     * @param <V> the type of values of caches built
+     * @return a new builder
+     */
+    public static <K,V> Builder<K,V> newBuilder() {
+        return new Builder<K,V>();
+    }
+
+    /* ---------------- Helpers -------------- */
+
+    static long now() {
+        return System.nanoTime();
+    }
+
+    final int weigh(K key, V value) {
+        int w = weigher.applyAsInt(key, value);
+        if (w < 0)
+            throw new IllegalArgumentException("Negative weight: " + w);
+        return w;
+    }
+
+    /**
+     * Returns true if the node has expired at the given time.
+     */
+    final boolean hasExpired(Node<K,V> e, long now) {
+        return (expireAfterWriteNanos >= 0L &&
+                now - e.writeTime >= expireAfterWriteNanos) ||
+            (expireAfterAccessNanos >= 0L &&
+             now - e.accessTime >= expireAfterAccessNanos);
+    }
+
+    final void recordHit() {
+        LongAdder a;
+        if ((a = hitCount) != null) a.increment();
+    }
+
+    final void recordMiss() {
+        LongAdder a;
+        if ((a = missCount) != null) a.increment();
+    }
+
+    final void recordLoad(boolean success, long nanos) {
+        if (totalLoadTime != null) {
+            (success ? loadSuccessCount : loadFailureCount).increment();
+            totalLoadTime.add(nanos);
+        }
+    }
+
+    /**
+     * Records a read of the node in this thread's read buffer,
+     * performing maintenance if the buffer is full.
+     */
+    final void afterRead(Node<K,V> e, long now) {
+        if (expireAfterAccessNanos >= 0L)
+            e.accessTime = now;
+        int h;
+        if ((h = ThreadLocalRandom.getProbe()) == 0) {
+            ThreadLocalRandom.localInit();
+            h = ThreadLocalRandom.getProbe();
+        }
+        ReadBuffer<K,V>[] bs = readBuffers;
+        if (bs[h & (bs.length - 1)].offer(e) == ReadBuffer.FULL)
+            tryMaintenance();
+        if (refreshAfterWriteNanos >= 0L && loader != null &&
+            now - e.writeTime >= refreshAfterWriteNanos)
+            refresh(e.key);
+    }
+
+    /**
+     * Queues a policy task and performs maintenance if possible.
+     */
+    final void afterWrite(Runnable task) {
+        writeBuffer.add(task);
+        tryMaintenance();
+    }
+
+    /**
+     * Performs maintenance if the policy lock is free.
+     */
+    final void tryMaintenance() {
+        final ReentrantLock lock = evictionLock;
+        while (lock.tryLock()) {
+            try {
+                maintenance();
+            } finally {
+                lock.unlock();
+            }
+            if (writeBuffer.isEmpty())
+                break;
+        }
+    }
+
+    /**
+     * Replays buffered reads and writes, then expires and evicts.
+     * Call only while holding evictionLock.
+     */
+    final void maintenance() {
+        for (ReadBuffer<K,V> b : readBuffers)
+            b.drainTo(this);
+        for (Runnable task; (task = writeBuffer.poll()) != null; )
+            task.run();
+        expireEntries();
+        evictEntries();
+    }
+
+    /* ---------------- Policy, under evictionLock -------------- */
+
+    /**
+     * Updates the policy for a read of the given node.
+     */
+    final void onAccess(Node<K,V> e) {
+        sketch.increment(e.key);
+        switch (e.queueType) {
+        case WINDOW:
+            window.moveToBack(e);
+            break;
+        case PROBATION:
+            probation.remove(e);
+            protectedDeque.addLast(e);
+            e.queueType = PROTECTED;
+            protectedWeightedSize += e.policyWeight;
+            demoteFromProtected();
+            break;
+        case PROTECTED:
+            protectedDeque.moveToBack(e);
+            break;
+        default: // retired or not yet added
+            break;
+        }
+    }
+
+    /**
+     * Moves least recently used protected entries to probation while
+     * the protected segment is over its maximum.
+     */
+    final void demoteFromProtected() {
+        Node<K,V> e;
+        while (protectedWeightedSize > protectedMaximum &&
+               (e = protectedDeque.first) != null) {
+            protectedDeque.remove(e);
+            probation.addLast(e);
+            e.queueType = PROBATION;
+            protectedWeightedSize -= e.policyWeight;
+        }
+    }
+
+    final class AddTask implements Runnable {
+        final Node<K,V> node;
+        AddTask(Node<K,V> node) {
+            this.node = node;
+        }
+        public void run() {
+            Node<K,V> e = node;
+            if (e.retired || e.queueType != UNLINKED)
+                return;
+            int w = e.weight;
+            sketch.increment(e.key);
+            e.policyWeight = w;
+            e.queueType = WINDOW;
+            window.addLast(e);
+            windowWeightedSize += w;
+            weightedSize += w;
+            if (expireAfterWriteNanos >= 0L)
+                writeOrder.addLast(e);
+        }
+    }
+
+    final class UpdateTask implements Runnable {
+        final Node<K,V> node;
+        UpdateTask(Node<K,V> node) {
+            this.node = node;
+        }
+        public void run() {
+            Node<K,V> e = node;
+            byte q = e.queueType;
+            if (q == UNLINKED)
+                return; // AddTask pending, or already removed
+            int delta = e.weight - e.policyWeight;
+            e.policyWeight += delta;
+            weightedSize += delta;
+            if (q == WINDOW)
+                windowWeightedSize += delta;
+            else if (q == PROTECTED)
+                protectedWeightedSize += delta;
+            onAccess(e);
+            if (expireAfterWriteNanos >= 0L)
+                writeOrder.moveToBack(e);
+        }
+    }
+
+    final class RemovalTask implements Runnable {
+        final Node<K,V> node;
+        RemovalTask(Node<K,V> node) {
+            this.node = node;
+        }
+        public void run() {
+            unlink(node);
+        }
+    }
+
+    /**
+     * Removes a node from the policy structures, if linked.
+     */
+    final void unlink(Node<K,V> e) {
+        int w = e.policyWeight;
+        switch (e.queueType) {
+        case WINDOW:
+            window.remove(e);
+            windowWeightedSize -= w;
+            break;
+        case PROBATION:
+            probation.remove(e);
+            break;
+        case PROTECTED:
+            protectedDeque.remove(e);
+            protectedWeightedSize -= w;
+            break;
+        default:
+            return;
+        }
+        writeOrder.remove(e);
+        e.queueType = UNLINKED;
+        weightedSize -= w;
+    }
+
+    /**
+     * Removes the node from the map, if still present, and from the
+     * policy, counting it as an eviction if this call removed it.
+     */
+    final void evict(Node<K,V> e) {
+        final boolean[] removed = new boolean[1];
+        data.computeIfPresent(e.key, (k, n) -> {
+            if (n != e)
+                return n;
+            e.retired = true;
+            removed[0] = true;
+            return null;
+        });
+        if (removed[0] && evictionCount != null) {
+            evictionCount.increment();
+            evictionWeight.add(e.policyWeight);
+        }
+        unlink(e);
+    }
+
+    /**
+     * Removes the node from the map, if still present and expired as
+     * of now, and from the policy.  Returns false, leaving the node
+     * in place, if a concurrent write has renewed it, since writes
+     * update nodes in place.
+     */
+    final boolean expire(Node<K,V> e, long now) {
+        final boolean[] renewed = new boolean[1];
+        data.computeIfPresent(e.key, (k, n) -> {
+            if (n != e)
+                return n;
+            if (!hasExpired(n, now)) {
+                renewed[0] = true;
+                return n;
+            }
+            e.retired = true;
+            return null;
+        });
+        if (renewed[0])
+            return false;
+        unlink(e);
+        return true;
+    }
+
+    /**
+     * Evicts expired entries from the heads of the write-order and
+     * access-order deques.
+     */
+    final void expireEntries() {
+        long now = now();
+        Node<K,V> e;
+        if (expireAfterWriteNanos >= 0L) {
+            while ((e = writeOrder.first) != null &&
+                   now - e.writeTime >= expireAfterWriteNanos &&
+                   expire(e, now))
+                ;
+        }
+        if (expireAfterAccessNanos >= 0L) {
+            expireFrom(window, now);
+            expireFrom(probation, now);
+            expireFrom(protectedDeque, now);
+        }
+    }
+
+    final void expireFrom(AccessOrderDeque<K,V> q, long now) {
+        Node<K,V> e;
+        while ((e = q.first) != null &&
+               now - e.accessTime >= expireAfterAccessNanos &&
+               expire(e, now))
+            ;
+    }
+
+    /**
+     * Moves entries exceeding the window's share to probation, then
+     * evicts entries until within the maximum, admitting window
+     * candidates into the main region only if they are estimated to
+     * be more popular than the victims they would displace.
+     */
+    final void evictEntries() {
+        if (maximum == Long.MAX_VALUE)
+            return;
+        Node<K,V> e;
+        Node<K,V> candidate = null; // first entry moved from window
+        while (windowWeightedSize > windowMaximum &&
+               (e = window.first) != null) {
+            window.remove(e);
+            probation.addLast(e);
+            e.queueType = PROBATION;
+            windowWeightedSize -= e.policyWeight;
+            if (candidate == null)
+                candidate = e;
+        }
+        while (weightedSize > maximum) {
+            Node<K,V> victim = probation.first;
+            if (victim == null)
+                victim = protectedDeque.first;
+            if (victim == null)
+                victim = window.first;
+            if (victim == null)
+                break;
+            if (candidate == null || candidate == victim ||
+                candidate.queueType != PROBATION) {
+                candidate = null;
+                evict(victim);
+            }
+            else {
+                Node<K,V> next = candidate.next;
+                if (admit(candidate, victim))
+                    evict(victim);
+                else
+                    evict(candidate);
+                candidate = next;
+            }
+        }
+    }
+
+    /**
+     * Returns whether the candidate should replace the victim, based
+     * on estimated frequencies.
+     */
+    final boolean admit(Node<K,V> candidate, Node<K,V> victim) {
+        if (candidate.policyWeight > maximum)
+            return false;
+        return sketch.frequency(candidate.key) > sketch.frequency(victim.key);
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Returns the value associated with the key in this cache, or
+     * {@code null} if there is no unexpired cached value for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or
+     *         {@code null} if there is none
+     * @throws NullPointerException if the specified key is null
+     */
+    public V getIfPresent(Object key) {
+        Node<K,V> e = data.get(key);
+        long now;
+        if (e == null || hasExpired(e, now = now())) {
+            recordMiss();
+            if (e != null)
+                tryMaintenance();
+            return null;
+        }
+        V v = e.value;
+        afterRead(e, now);
+        recordHit();
+        return v;
+    }
+
+    /**
+     * Returns the value associated with the key in this cache,
+     * obtaining it from the cache's loader if necessary.  If a load
+     * is needed, other threads requesting the same key wait for it
+     * to complete.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the current (existing or loaded) value, or {@code null}
+     *         if the loader returns {@code null}
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if this cache was built without
+     *         a loader
+     * @throws RuntimeException or Error if the loader does so, in
+     *         which case the mapping is left unestablished
+     */
+    public V get(K key) {
+        Function<? super K, ? extends V> f;
+        if ((f = loader) == null)
+            throw new IllegalStateException("No loader");
+        return get(key, f);
+    }
+
+    /**
+     * Returns the value associated with the key in this cache,
+     * obtaining it from the given function if necessary.  If a
+     * computation is needed, other threads requesting the same key
+     * wait for it to complete.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value, or {@code null}
+     *         if the computed value is {@code null}
+     * @throws NullPointerException if the specified key or
+     *         mappingFunction is null
+     * @throws RuntimeException or Error if the mappingFunction does so,
+     *         in which case the mapping is left unestablished
+     */
+    public V get(K key, Function<? super K, ? extends V> mappingFunction) {
+        if (key == null || mappingFunction == null)
+            throw new NullPointerException();
+        long now = now();
+        Node<K,V> e = data.get(key);
+        if (e != null && !hasExpired(e, now)) {
+            V v = e.value;
+            afterRead(e, now);
+            recordHit();
+            return v;
+        }
+        recordMiss();
+        @SuppressWarnings("unchecked")
+        Node<K,V>[] result = (Node<K,V>[])new Node<?,?>[2]; // {added, replaced}
+        e = data.compute(key, (k, n) -> {
+            if (n != null && !hasExpired(n, now()))
+                return n;
+            long start = now();
+            V v;
+            try {
+                v = mappingFunction.apply(k);
+            } catch (RuntimeException | Error ex) {
+                recordLoad(false, now() - start);
+                throw ex;
+            }
+            long end = now();
+            recordLoad(v != null, end - start);
+            if (n != null) {
+                n.retired = true;
+                result[1] = n;
+            }
+            if (v == null)
+                return null;
+            return result[0] = new Node<K,V>(k, v, weigh(k, v), end);
+        });
+        if (result[1] != null)
+            afterWrite(new RemovalTask(result[1]));
+        if (result[0] != null)
+            afterWrite(new AddTask(result[0]));
+        else if (e != null)
+            afterRead(e, now);
+        return (e == null) ? null : e.value;
+    }
+
+    /**
+     * Associates the value with the key in this cache, replacing any
+     * previously cached value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous unexpired value, or {@code null} if none
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V put(K key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        final int weight = weigh(key, value);
+        final long now = now();
+        final Object[] prior = new Object[1];
+        final boolean[] created = new boolean[1];
+        Node<K,V> e = data.compute(key, (k, n) -> {
+            if (n == null) {
+                created[0] = true;
+                return new Node<K,V>(k, value, weight, now);
+            }
+            if (!hasExpired(n, now))
+                prior[0] = n.value;
+            n.value = value;
+            n.weight = weight;
+            n.writeTime = now;
+            n.accessTime = now;
+            return n;
+        });
+        afterWrite(created[0] ? new AddTask(e) : new UpdateTask(e));
+        @SuppressWarnings("unchecked") V p = (V)prior[0];
+        return p;
+    }
+
+    /**
+     * Discards any cached value for the key.
+     *
+     * @param key the key whose mapping is to be removed
+     * @throws NullPointerException if the specified key is null
+     */
+    public void invalidate(Object key) {
+        @SuppressWarnings("unchecked")
+        Node<K,V>[] removed = (Node<K,V>[])new Node<?,?>[1];
+        data.computeIfPresent(castKey(key), (k, n) -> {
+            n.retired = true;
+            removed[0] = n;
+            return null;
+        });
+        if (removed[0] != null)
+            afterWrite(new RemovalTask(removed[0]));
+    }
+
+    @SuppressWarnings("unchecked")
+    private K castKey(Object key) {
+        return (K)key;
+    }
+
+    /**
+     * Discards all entries in the cache.
+     */
+    public void invalidateAll() {
+        for (K key : data.keySet())
+            invalidate(key);
+    }
+
+    /**
+     * Loads a new value for the key asynchronously, using the cache's
+     * loader in its executor.  While the new value is loading, the
+     * previous value (if any) continues to be returned by lookups.
+     * When the load completes, the new value replaces the cached one
+     * unless the entry was modified in the meantime; if the loader
+     * returns {@code null}, the entry is removed.  At most one refresh
+     * per key is in progress at any time; concurrent requests return
+     * the same future.
+     *
+     * @param key the key whose value should be reloaded
+     * @return a future completed with the new value, or exceptionally
+     *         if the loader threw an exception
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if this cache was built without
+     *         a loader
+     */
+    public CompletableFuture<V> refresh(K key) {
+        final Function<? super K, ? extends V> f;
+        if (key == null)
+            throw new NullPointerException();
+        if ((f = loader) == null)
+            throw new IllegalStateException("No loader");
+        CompletableFuture<V> cf = refreshes.get(key);
+        if (cf != null)
+            return cf;
+        CompletableFuture<V> fresh = new CompletableFuture<V>();
+        if ((cf = refreshes.putIfAbsent(key, fresh)) != null)
+            return cf;
+        final Node<K,V> e = data.get(key);
+        final long writeTime = (e == null) ? 0L : e.writeTime;
+        try {
+            executor.execute(() -> {
+                long start = now();
+                V v;
+                int weight;
+                try {
+                    v = f.apply(key);
+                    weight = (v == null) ? 0 : weigh(key, v);
+                } catch (Throwable ex) {
+                    recordLoad(false, now() - start);
+                    refreshes.remove(key, fresh);
+                    fresh.completeExceptionally(ex);
+                    return;
+                }
+                long end = now();
+                recordLoad(v != null, end - start);
+                @SuppressWarnings("unchecked")
+                Node<K,V>[] result = (Node<K,V>[])new Node<?,?>[2]; // {written, removed}
+                final boolean[] created = new boolean[1];
+                data.compute(key, (k, n) -> {
+                    // apply only if unmodified since the refresh began
+                    if (n != e || (n != null && n.writeTime != writeTime))
+                        return n;
+                    if (v == null) {
+                        if (n != null) {
+                            n.retired = true;
+                            result[1] = n;
+                        }
+                        return null;
+                    }
+                    if (n == null) {
+                        created[0] = true;
+                        return result[0] = new Node<K,V>(k, v, weight, end);
+                    }
+                    n.value = v;
+                    n.weight = weight;
+                    n.writeTime = end;
+                    n.accessTime = end;
+                    return result[0] = n;
+                });
+                if (result[1] != null)
+                    afterWrite(new RemovalTask(result[1]));
+                else if (result[0] != null)
+                    afterWrite(created[0] ? new AddTask(result[0])
+                                          : new UpdateTask(result[0]));
+                refreshes.remove(key, fresh);
+                fresh.complete(v);
+            });
+        } catch (RejectedExecutionException ex) {
+            refreshes.remove(key, fresh);
+            fresh.completeExceptionally(ex);
+        }
+        return fresh;
+    }
+
+    /**
+     * Returns the approximate number of entries in this cache,
+     * possibly including expired entries not yet removed.
+     *
+     * @return the estimated number of mappings
+     */
+    public long estimatedSize() {
+        return data.mappingCount();
+    }
+
+    /**
+     * Performs any pending maintenance operations needed by the cache:
+     * replaying recorded reads and writes against the policy, and
+     * removing expired and excess entries.  Maintenance is otherwise
+     * performed opportunistically by other operations.
+     */
+    public void cleanUp() {
+        final ReentrantLock lock = evictionLock;
+        lock.lock();
+        try {
+            maintenance();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a snapshot of this cache's cumulative statistics, all
+     * zero if statistics are not being recorded.
+     *
+     * @return the current statistics
+     */
+    public Stats stats() {
+        if (hitCount == null)
+            return new Stats(0L, 0L, 0L, 0L, 0L, 0L, 0L);
+        return new Stats(hitCount.sum(), missCount.sum(),
+                         loadSuccessCount.sum(), loadFailureCount.sum(),
+                         totalLoadTime.sum(), evictionCount.sum(),
+                         evictionWeight.sum());
+    }
+
+    /**
+     * An immutable snapshot of cache statistics.
+     */
+    public static final class Stats {
+        private final long hitCount, missCount, loadSuccessCount,
+            loadFailureCount, totalLoadTime, evictionCount, evictionWeight;
+
+        Stats(long hitCount, long missCount, long loadSuccessCount,
+              long loadFailureCount, long totalLoadTime,
+              long evictionCount, long evictionWeight) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.loadSuccessCount = loadSuccessCount;
+            this.loadFailureCount = loadFailureCount;
+            this.totalLoadTime = totalLoadTime;
+            this.evictionCount = evictionCount;
+            this.evictionWeight = evictionWeight;
+        }
+
+        /** @return the number of lookups that found a cached value */
+        public long hitCount()         { return hitCount; }
+        /** @return the number of lookups that found no cached value */
+        public long missCount()        { return missCount; }
+        /** @return the number of loads that returned a value */
+        public long loadSuccessCount() { return loadSuccessCount; }
+        /** @return the number of loads that threw or returned null */
+        public long loadFailureCount() { return loadFailureCount; }
+        /** @return the total time spent loading, in nanoseconds */
+        public long totalLoadTime()    { return totalLoadTime; }
+        /** @return the number of entries evicted by size or weight */
+        public long evictionCount()    { return evictionCount; }
+        /** @return the total weight of evicted entries */
+        public long evictionWeight()   { return evictionWeight; }
+
+        /**
+         * Returns the ratio of hits to lookups, or {@code 1.0} if
+         * there have been no lookups.
+         *
+         * @return the hit rate
+         */
+        public double hitRate() {
+            long requests = hitCount + missCount;
+            return (requests == 0L) ? 1.0 : (double)hitCount / requests;
+        }
+
+        public String toString() {
+            return "Stats[hitCount=" + hitCount + ", missCount=" + missCount +
+                ", loadSuccessCount=" + loadSuccessCount +
+                ", loadFailureCount=" + loadFailureCount +
+                ", totalLoadTime=" + totalLoadTime +
+                ", evictionCount=" + evictionCount +
+                ", evictionWeight=" + evictionWeight + "]";
+        }
+    }
+
+    /**
+     * A builder of {@link ConcurrentBoundedCache} instances.  Each
+     * setting may be specified at most once.
+     *
+     * @param <K> the type of keys of caches built
+     * @param <V> the type of values of caches built
+     */
+    public static final class Builder<K,V> {
+        long maximum = Long.MAX_VALUE;
+        ToIntBiFunction<? super K, ? super V> weigher = (k, v) -> 1;
+        long expireAfterWriteNanos = -1L;
+        long expireAfterAccessNanos = -1L;
+        long refreshAfterWriteNanos = -1L;
+        Executor executor;
+        boolean recordStats;
+
+        Builder() {}
+
+        /**
+         * Bounds the number of entries in the cache.
+         *
+         * @param maximumSize the maximum number of entries
+         * @return this builder
+         * @throws IllegalArgumentException if negative
+         * @throws IllegalStateException if a bound was already set
+         */
+        public Builder<K,V> maximumSize(long maximumSize) {
+            if (maximumSize < 0L)
+                throw new IllegalArgumentException();
+            if (maximum != Long.MAX_VALUE)
+                throw new IllegalStateException("Maximum already set");
+            maximum = maximumSize;
+            return this;
+        }
+
+        /**
+         * Bounds the total weight of entries in the cache, as computed
+         * by the given weigher when an entry is written.
+         *
+         * @param maximumWeight the maximum total weight
+         * @param weigher returns the non-negative weight of an entry
+         * @return this builder
+         * @throws IllegalArgumentException if maximumWeight is negative
+         * @throws IllegalStateException if a bound was already set
+         * @throws NullPointerException if weigher is null
+         */
+        public Builder<K,V> maximumWeight(long maximumWeight,
+                                          ToIntBiFunction<? super K, ? super V> weigher) {
+            if (weigher == null)
+                throw new NullPointerException();
+            maximumSize(maximumWeight);
+            this.weigher = weigher;
+            return this;
+        }
+
+        /**
+         * Expires entries the given duration after they were created
+         * or their value was last replaced.
+         *
+         * @param duration the length of time
+         * @param unit the unit of the duration
+         * @return this builder
+         * @throws IllegalArgumentException if duration is negative
+         */
+        public Builder<K,V> expireAfterWrite(long duration, TimeUnit unit) {
+            expireAfterWriteNanos = toNanos(duration, unit);
+            return this;
+        }
+
+        /**
+         * Expires entries the given duration after they were last
+         * read or written.
+         *
+         * @param duration the length of time
+         * @param unit the unit of the duration
+         * @return this builder
+         * @throws IllegalArgumentException if duration is negative
+         */
+        public Builder<K,V> expireAfterAccess(long duration, TimeUnit unit) {
+            expireAfterAccessNanos = toNanos(duration, unit);
+            return this;
+        }
+
+        /**
+         * Asynchronously refreshes entries that are read at least the
+         * given duration after they were written, as by {@link
+         * ConcurrentBoundedCache#refresh}.  The stale value is returned
+         * to the reader that triggers the refresh.  Has no effect on
+         * caches built without a loader.
+         *
+         * @param duration the length of time
+         * @param unit the unit of the duration
+         * @return this builder
+         * @throws IllegalArgumentException if duration is negative
+         */
+        public Builder<K,V> refreshAfterWrite(long duration, TimeUnit unit) {
+            refreshAfterWriteNanos = toNanos(duration, unit);
+            return this;
+        }
+
+        /**
+         * Sets the executor used for asynchronous refreshes, by default
+         * the {@link ForkJoinPool#commonPool()}.
+         *
+         * @param executor the executor
+         * @return this builder
+         * @throws NullPointerException if executor is null
+         */
+        public Builder<K,V> executor(Executor executor) {
+            if (executor == null)
+                throw new NullPointerException();
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Enables the accumulation of {@link Stats}.
+         *
+         * @return this builder
+         */
+        public Builder<K,V> recordStats() {
+            recordStats = true;
+            return this;
+        }
+
+        /**
+         * Builds a cache without a loader.
+         *
+         * @return a new cache
+         */
+        public ConcurrentBoundedCache<K,V> build() {
+            return new ConcurrentBoundedCache<K,V>(this, null);
+        }
+
+        /**
+         * Builds a cache that obtains missing values from the given
+         * loader.
+         *
+         * @param loader the function computing values for keys
+         * @return a new cache
+         * @throws NullPointerException if loader is null
+         */
+        public ConcurrentBoundedCache<K,V> build(Function<? super K, ? extends V> loader) {
+            if (loader == null)
+                throw new NullPointerException();
+            return new ConcurrentBoundedCache<K,V>(this, loader);
+        }
+
+        static long toNanos(long duration, TimeUnit unit) {
+            if (duration < 0L)
+                throw new IllegalArgumentException();
+            return unit.toNanos(duration);
+        }
+    }
+}
@@ -1357,58 +1357,124 @@ public class ConcurrentSkipListMap<K,V> extends AbstractMap<K,V>
     private void buildFromSorted(SortedMap<K, ? extends V> map) {
         if (map == null)
             throw new NullPointerException();
-
+        SortedChain<K,V> c = new SortedChain<K,V>(map.entrySet().iterator());
         HeadIndex<K,V> h = head;
-        Node<K,V> basepred = h.node;
-
-        // Track the current rightmost node at each level. Uses an
-        // ArrayList to avoid committing to initial or maximum level.
-        ArrayList<Index<K,V>> preds = new ArrayList<Index<K,V>>();
-
-        // initialize
-        for (int i = 0; i <= h.level; ++i)
-            preds.add(null);
-        Index<K,V> q = h;
-        for (int i = h.level; i > 0; --i) {
-            preds.set(i, q);
-            q = q.down;
+        h.node.next = c.first;
+        for (int i = 0; i < c.firsts.size(); ++i) {
+            Index<K,V> row = c.firsts.get(i);
+            if (i == 0)
+                h.right = row;
+            else
+                h = new HeadIndex<K,V>(h.node, h, row, i + 1);
         }
+        head = h;
+    }
 
-        Iterator<? extends Map.Entry<? extends K, ? extends V>> it =
-            map.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<? extends K, ? extends V> e = it.next();
-            int rnd = ThreadLocalRandom.current().nextInt();
-            int j = 0;
-            if ((rnd & 0x80000001) == 0) {
-                do {
-                    ++j;
-                } while (((rnd >>>= 1) & 1) != 0);
-                if (j > h.level) j = h.level + 1;
+    /**
+     * A list of nodes holding the entries of a sorted map, not yet
+     * reachable from any map, together with rows of indexes built
+     * bottom-up in a single pass.  Rather than choosing levels at
+     * random as in doPut, every fourth node is indexed at level one,
+     * and every second node indexed at each level is also indexed at
+     * the next level, matching the expected proportions of random
+     * levels while keeping every row evenly spaced.
+     */
+    static final class SortedChain<K,V> {
+        Node<K,V> first;                   // null if empty
+        Node<K,V> last;
+        final ArrayList<Index<K,V>> firsts = new ArrayList<Index<K,V>>();
+        final ArrayList<Index<K,V>> lasts = new ArrayList<Index<K,V>>();
+
+        SortedChain(Iterator<? extends Map.Entry<? extends K, ? extends V>> it) {
+            for (int i = 1; it.hasNext(); ++i) {
+                Map.Entry<? extends K, ? extends V> e = it.next();
+                K k = e.getKey();
+                V v = e.getValue();
+                if (k == null || v == null)
+                    throw new NullPointerException();
+                Node<K,V> z = new Node<K,V>(k, v, null);
+                if (last == null)
+                    first = z;
+                else
+                    last.next = z;
+                last = z;
+                if ((i & 3) == 0) {
+                    int j = 1 + Integer.numberOfTrailingZeros(i >>> 2);
+                    Index<K,V> idx = null;
+                    for (int l = 0; l < j; ++l) {
+                        idx = new Index<K,V>(z, idx, null);
+                        if (l < lasts.size()) {
+                            lasts.get(l).right = idx;
+                            lasts.set(l, idx);
+                        } else {
+                            firsts.add(idx);
+                            lasts.add(idx);
+                        }
+                    }
+                }
             }
-            K k = e.getKey();
-            V v = e.getValue();
-            if (k == null || v == null)
-                throw new NullPointerException();
-            Node<K,V> z = new Node<K,V>(k, v, null);
-            basepred.next = z;
-            basepred = z;
-            if (j > 0) {
-                Index<K,V> idx = null;
-                for (int i = 1; i <= j; ++i) {
-                    idx = new Index<K,V>(z, idx, null);
-                    if (i > h.level)
-                        h = new HeadIndex<K,V>(h.node, h, idx, i);
+        }
+    }
 
-                    if (i < preds.size()) {
-                        preds.get(i).right = idx;
-                        preds.set(i, idx);
-                    } else
-                        preds.add(idx);
+    /**
+     * Links the given chain after the last node of this map, and
+     * then links each of its rows of indexes after the last index
+     * of the corresponding level, if all of its keys are greater
+     * than those of this map.  A row is left unlinked, reachable only
+     * from the row above it, if a concurrent insertion has
+     * meanwhile indexed a greater key at its level.
+     *
+     * @return true if the chain was linked
+     */
+    private boolean appendChain(SortedChain<K,V> c) {
+        Comparator<? super K> cmp = comparator;
+        K firstKey = c.first.key;
+        for (;;) {
+            Node<K,V> b = findPredecessorOfLast(), n;
+            while ((n = b.next) != null)
+                b = n;
+            Object v = b.value;
+            if (v == null || v == b) {         // b is deleted or a marker
+                findLast();                    // help out and retry
+                continue;
+            }
+            if (!b.isBaseHeader() && cpr(cmp, b.key, firstKey) >= 0)
+                return false;
+            if (b.casNext(null, c.first))
+                break;
+        }
+        outer: for (int i = 0; i < c.firsts.size(); ++i) {
+            Index<K,V> row = c.firsts.get(i);
+            int level = i + 1;
+            for (;;) {
+                HeadIndex<K,V> h = head;
+                if (h.level < level) {
+                    if (h.level < level - 1)
+                        break outer;           // levels were reduced
+                    if (casHead(h, new HeadIndex<K,V>(h.node, h, row, level)))
+                        break;
+                    continue;
+                }
+                Index<K,V> q = h, r;
+                for (int j = h.level;; --j) {
+                    while ((r = q.right) != null)
+                        q = r;
+                    if (j == level)
+                        break;
+                    q = q.down;
+                }
+                if (q.indexesDeletedNode()) {
+                    findLast();                // unlink and retry
+                    continue;
                 }
+                if (!q.node.isBaseHeader() &&
+                    cpr(cmp, q.node.key, row.node.key) >= 0)
+                    break;
+                if (q.casRight(null, row))
+                    break;
             }
         }
-        head = h;
+        return true;
     }
 
     /* ---------------- Serialization -------------- */
@@ -1651,6 +1717,42 @@ public class ConcurrentSkipListMap<K,V> extends AbstractMap<K,V>
         return findFirst() == null;
     }
 
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     * If the specified map is a {@link SortedMap} ordered by the same
+     * comparator as this map, and all of its keys are greater than
+     * those of this map, as when this map is empty or the specified
+     * map holds later entries of a time series, then its mappings
+     * are linked into this map in a single pass, with indexes built
+     * bottom-up, in time linear in the size of the specified map.
+     * Otherwise each mapping is put as by {@link #put}.  The
+     * mappings are not added atomically.
+     *
+     * @param m mappings to be stored in this map
+     * @throws ClassCastException if the class of a key or value in
+     *         the specified map prevents it from being stored in this map
+     * @throws NullPointerException if the specified map is null or
+     *         contains a null key or value
+     */
+    public void putAll(Map<? extends K, ? extends V> m) {
+        Comparator<?> c;
+        if (m instanceof SortedMap &&
+            ((c = ((SortedMap<?,?>)m).comparator()) == comparator ||
+             (c != null && c.equals(comparator)))) {
+            SortedChain<K,V> chain = new SortedChain<K,V>(m.entrySet().iterator());
+            if (chain.first != null && !appendChain(chain)) {
+                for (Node<K,V> n = chain.first; n != null; n = n.next) {
+                    @SuppressWarnings("unchecked") V v = (V)n.value;
+                    doPut(n.key, v, false);
+                }
+            }
+        }
+        else {
+            for (Map.Entry<? extends K, ? extends V> e : m.entrySet())
+                put(e.getKey(), e.getValue());
+        }
+    }
+
     /**
      * Removes all of the mappings from this map.
      */
@@ -2472,7 +2574,7 @@ public class ConcurrentSkipListMap<K,V> extends AbstractMap<K,V>
             if (m instanceof ConcurrentSkipListMap)
                 return ((ConcurrentSkipListMap<E,?>)m).keySpliterator();
             else
-                return (Spliterator<E>)((SubMap<E,?>)m).keyIterator();
+                return ((SubMap<E,?>)m).keySpliterator();
         }
     }
 
@@ -2507,7 +2609,7 @@ public class ConcurrentSkipListMap<K,V> extends AbstractMap<K,V>
             if (m instanceof ConcurrentSkipListMap)
                 return ((ConcurrentSkipListMap<?,E>)m).valueSpliterator();
             else
-                return (Spliterator<E>)((SubMap<?,E>)m).valueIterator();
+                return ((SubMap<?,E>)m).valueSpliterator();
         }
     }
 
@@ -2568,8 +2670,7 @@ public class ConcurrentSkipListMap<K,V> extends AbstractMap<K,V>
             if (m instanceof ConcurrentSkipListMap)
                 return ((ConcurrentSkipListMap<K1,V1>)m).entrySpliterator();
             else
-                return (Spliterator<Map.Entry<K1,V1>>)
-                    ((SubMap<K1,V1>)m).entryIterator();
+                return ((SubMap<K1,V1>)m).entrySpliterator();
         }
     }
 
@@ -2892,14 +2993,61 @@ public class ConcurrentSkipListMap<K,V> extends AbstractMap<K,V>
             return false;
         }
 
+        /**
+         * Removes the nodes in range in a single pass along the base
+         * level, following the same protocol as doRemove but without
+         * a search per key, and then unlinks the indexes of removed
+         * nodes in a single pass along each level.
+         */
         public void clear() {
             Comparator<? super K> cmp = m.comparator;
-            for (ConcurrentSkipListMap.Node<K,V> n = loNode(cmp);
-                 isBeforeEnd(n, cmp);
-                 n = n.next) {
-                if (n.getValidValue() != null)
-                    m.remove(n.key);
+            Node<K,V> b = (lo == null) ? m.head.node : m.findPredecessor(lo, cmp);
+            for (;;) {
+                Node<K,V> n = b.next;
+                if (n == null)
+                    break;
+                Node<K,V> f = n.next;
+                if (n != b.next)                // inconsistent read
+                    continue;
+                Object v = n.value;
+                if (v == null) {                // n is deleted
+                    n.helpDelete(b, f);
+                    continue;
+                }
+                if (b.value == null || v == n) { // b is deleted
+                    b = m.findPredecessor(b.key, cmp);
+                    continue;
+                }
+                K k = n.key;
+                if (tooLow(k, cmp))
+                    b = n;
+                else if (tooHigh(k, cmp))
+                    break;
+                else if (n.casValue(v, null) &&
+                         (!n.appendMarker(f) || !b.casNext(n, f)))
+                    m.findNode(k);              // retry via findNode
             }
+            for (Index<K,V> q = m.head, d;; q = d) {
+                Index<K,V> p = q;               // rightmost below range
+                for (Index<K,V> r; (r = q.right) != null; ) {
+                    Node<K,V> n = r.node;
+                    if (n.value == null) {
+                        if (!q.unlink(r))
+                            break;              // left to later traversals
+                    }
+                    else if (tooHigh(n.key, cmp))
+                        break;
+                    else {
+                        if (tooLow(n.key, cmp))
+                            p = r;
+                        q = r;
+                    }
+                }
+                if ((d = p.down) == null)
+                    break;
+            }
+            if (m.head.right == null)
+                m.tryReduceLevel();
         }
 
         /* ----------------  ConcurrentMap API methods -------------- */
@@ -3106,6 +3254,53 @@ public class ConcurrentSkipListMap<K,V> extends AbstractMap<K,V>
             return new SubMapEntryIterator();
         }
 
+        /**
+         * Returns true if spliterators of this submap may traverse the
+         * backing map, splitting by index level: it is ascending and
+         * its upper bound, if any, is exclusive.
+         */
+        boolean isSplittable() {
+            return !isDescending && (hi == null || !hiInclusive);
+        }
+
+        /**
+         * Returns the first node of this submap, or null if empty.
+         */
+        Node<K,V> spliteratorOrigin(Comparator<? super K> cmp) {
+            Node<K,V> n = loNode(cmp);
+            return isBeforeEnd(n, cmp) ? n : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        Spliterator<K> keySpliterator() {
+            if (!isSplittable())
+                return (Spliterator<K>)keyIterator();
+            Comparator<? super K> cmp = m.comparator;
+            Node<K,V> p = spliteratorOrigin(cmp);
+            return new KeySpliterator<K,V>(cmp, m.head, p, hi, (p == null) ?
+                                           0 : Integer.MAX_VALUE);
+        }
+
+        @SuppressWarnings("unchecked")
+        Spliterator<V> valueSpliterator() {
+            if (!isSplittable())
+                return (Spliterator<V>)valueIterator();
+            Comparator<? super K> cmp = m.comparator;
+            Node<K,V> p = spliteratorOrigin(cmp);
+            return new ValueSpliterator<K,V>(cmp, m.head, p, hi, (p == null) ?
+                                             0 : Integer.MAX_VALUE);
+        }
+
+        @SuppressWarnings("unchecked")
+        Spliterator<Map.Entry<K,V>> entrySpliterator() {
+            if (!isSplittable())
+                return (Spliterator<Map.Entry<K,V>>)entryIterator();
+            Comparator<? super K> cmp = m.comparator;
+            Node<K,V> p = spliteratorOrigin(cmp);
+            return new EntrySpliterator<K,V>(cmp, m.head, p, hi, (p == null) ?
+                                             0 : Integer.MAX_VALUE);
+        }
+
         /**
          * Variant of main Iter class to traverse through submaps.
          * Also serves as back-up Spliterator for views
@@ -3299,6 +3494,11 @@ public class ConcurrentSkipListMap<K,V> extends AbstractMap<K,V>
      * observation useful, we need to know initial size, which we
      * don't. But we can just use Integer.MAX_VALUE so that we
      * don't prematurely zero out while splitting.
+     *
+     * Spliterators of ascending submaps start from the head index
+     * with an origin anywhere in the map, so each row is first
+     * traversed past the indexes of nodes preceding the current
+     * node before looking for a split point.
      */
     abstract static class CSLMSpliterator<K,V> {
         final Comparator<? super K> comparator;
@@ -3328,7 +3528,10 @@ public class ConcurrentSkipListMap<K,V> extends AbstractMap<K,V>
             K f = fence;
             if ((e = current) != null && (ek = e.key) != null) {
                 for (Index<K,V> q = row; q != null; q = row = q.down) {
-                    Index<K,V> s; Node<K,V> b, n; K sk;
+                    Index<K,V> s; Node<K,V> b, n; K sk, bk;
+                    while ((s = q.right) != null && (bk = s.node.key) != null &&
+                           cpr(cmp, bk, ek) < 0)
+                        q = s;              // skip indexes behind origin
                     if ((s = q.right) != null && (b = s.node) != null &&
                         (n = b.next) != null && n.value != null &&
                         (sk = n.key) != null && cpr(cmp, sk, ek) > 0 &&
@@ -3416,7 +3619,10 @@ public class ConcurrentSkipListMap<K,V> extends AbstractMap<K,V>
             K f = fence;
             if ((e = current) != null && (ek = e.key) != null) {
                 for (Index<K,V> q = row; q != null; q = row = q.down) {
-                    Index<K,V> s; Node<K,V> b, n; K sk;
+                    Index<K,V> s; Node<K,V> b, n; K sk, bk;
+                    while ((s = q.right) != null && (bk = s.node.key) != null &&
+                           cpr(cmp, bk, ek) < 0)
+                        q = s;              // skip indexes behind origin
                     if ((s = q.right) != null && (b = s.node) != null &&
                         (n = b.next) != null && n.value != null &&
                         (sk = n.key) != null && cpr(cmp, sk, ek) > 0 &&
@@ -3503,7 +3709,10 @@ public class ConcurrentSkipListMap<K,V> extends AbstractMap<K,V>
             K f = fence;
             if ((e = current) != null && (ek = e.key) != null) {
                 for (Index<K,V> q = row; q != null; q = row = q.down) {
-                    Index<K,V> s; Node<K,V> b, n; K sk;
+                    Index<K,V> s; Node<K,V> b, n; K sk, bk;
+                    while ((s = q.right) != null && (bk = s.node.key) != null &&
+                           cpr(cmp, bk, ek) < 0)
+                        q = s;              // skip indexes behind origin
                     if ((s = q.right) != null && (b = s.node) != null &&
                         (n = b.next) != null && n.value != null &&
                         (sk = n.key) != null && cpr(cmp, sk, ek) > 0 &&
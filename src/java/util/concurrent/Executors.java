@@ -128,6 +128,95 @@ public class Executors {
              null, true);
     }
 
+    /**
+     * Creates an executor that runs tasks that may block, such as
+     * tasks each serving one request over a socket, on a small
+     * carrier pool of threads that maintains the given parallelism.
+     * Tasks do not each occupy a thread while queued, and are
+     * executed in submission order by each carrier thread. When a
+     * task blocks reading from a {@link java.net.Socket} or accepting
+     * from a {@link java.net.ServerSocket}, or in {@link
+     * ForkJoinPool#managedBlock}, or in the methods of {@link
+     * CompletableFuture} and {@link Phaser}, the pool may activate a
+     * spare thread to keep running other tasks; spare threads that
+     * remain idle are retired. A blocked task still occupies a thread,
+     * so the pool may grow to about one thread per blocked task in
+     * addition to the parallelism: tasks are lightweight only while
+     * queued, not while blocked. Tasks blocking by other means occupy
+     * their carrier thread until they resume, without a spare. Socket
+     * reads and accepts by the threads of other pools, including the
+     * {@linkplain ForkJoinPool#commonPool() common pool}, are not
+     * managed.
+     *
+     * @param parallelism the targeted number of running tasks
+     * @return the newly created executor
+     * @throws IllegalArgumentException if {@code parallelism <= 0}
+     * @see ForkJoinPool.ManagedBlocker
+     * @since 1.8
+     */
+    public static ExecutorService newLightweightThreadExecutor(int parallelism) {
+        return new ForkJoinPool
+            (parallelism,
+             sun.misc.LightweightWorkerThread.FACTORY,
+             null, true);
+    }
+
+    /**
+     * Creates an executor for tasks that may block, using all
+     * {@link Runtime#availableProcessors available processors}
+     * as its target parallelism level.
+     * @return the newly created executor
+     * @see #newLightweightThreadExecutor(int)
+     * @since 1.8
+     */
+    public static ExecutorService newLightweightThreadExecutor() {
+        return newLightweightThreadExecutor
+            (Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a thread pool that reuses a fixed number of threads
+     * operating off a {@link WorkStealingBlockingQueue}, in which
+     * tasks submitted by pool threads are queued locally to the
+     * submitting thread, and idle threads steal tasks queued by
+     * others.  Unlike {@link #newWorkStealingPool(int)}, the returned
+     * pool is a {@link ThreadPoolExecutor}, so it supports the same
+     * configuration and hooks as {@link #newFixedThreadPool(int)}.
+     * The pool makes no guarantees about the order in which
+     * submitted tasks are executed.
+     *
+     * @param nThreads the number of threads in the pool
+     * @return the newly created thread pool
+     * @throws IllegalArgumentException if {@code nThreads <= 0}
+     * @since 1.8
+     */
+    public static ExecutorService newWorkStealingThreadPool(int nThreads) {
+        return new ThreadPoolExecutor(nThreads, nThreads,
+                                      0L, TimeUnit.MILLISECONDS,
+                                      new WorkStealingBlockingQueue<Runnable>());
+    }
+
+    /**
+     * Creates a thread pool that reuses a fixed number of threads
+     * operating off a {@link WorkStealingBlockingQueue}, using the
+     * provided ThreadFactory to create new threads when needed.
+     *
+     * @param nThreads the number of threads in the pool
+     * @param threadFactory the factory to use when creating new threads
+     * @return the newly created thread pool
+     * @throws NullPointerException if threadFactory is null
+     * @throws IllegalArgumentException if {@code nThreads <= 0}
+     * @see #newWorkStealingThreadPool(int)
+     * @since 1.8
+     */
+    public static ExecutorService newWorkStealingThreadPool(int nThreads,
+                                                            ThreadFactory threadFactory) {
+        return new ThreadPoolExecutor(nThreads, nThreads,
+                                      0L, TimeUnit.MILLISECONDS,
+                                      new WorkStealingBlockingQueue<Runnable>(),
+                                      threadFactory);
+    }
+
     /**
      * Creates a thread pool that reuses a fixed number of threads
      * operating off a shared unbounded queue, using the provided
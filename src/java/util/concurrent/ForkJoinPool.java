@@ -154,6 +154,16 @@ import java.security.Permissions;
  * using a factory that may return {@code null}. However doing so may
  * cause unjoined tasks to never be executed.
  *
+ * <p>Setting the system property {@code
+ * java.util.concurrent.ForkJoinPool.metrics} to {@code true} causes
+ * the workers of all pools to record additional per-worker metrics,
+ * including the time tasks spend queued before being stolen, which
+ * are reported by {@link #getWorkerMetrics} and {@link #getMetrics}.
+ * For the common pool, these are also available through {@link
+ * java.lang.management.ForkJoinPoolMXBean}.  Recording adds some
+ * overhead to the submission and stealing of tasks, so is disabled
+ * by default.
+ *
  * <p><b>Implementation notes</b>: This implementation restricts the
  * maximum number of running threads to 32767. Attempts to create
  * pools with greater than the maximum number result in
@@ -645,6 +655,26 @@ public class ForkJoinPool extends AbstractExecutorService {
      * be JVM-dependent and must access particular Thread class fields
      * to achieve this effect.
      *
+     * Metrics
+     * =======
+     *
+     * When RECORD_METRICS is set (via a system property, so that the
+     * checks are constant-folded away otherwise), each worker keeps a
+     * WorkerCounters record of parks, park times, compensations and
+     * a log2 histogram of steal latencies.  Counters are written only
+     * by their owners, and read racily by monitoring methods.  To
+     * measure latencies, each queue keeps a stamps array parallel to
+     * its task array, holding the nanoTime at which the task in each
+     * slot was pushed.  The stamp for a slot is written before the
+     * task is published, and read by a stealer after reading the task
+     * but before advancing base, so cannot be overwritten in between.
+     * Latencies are recorded by workers at every steal site (scan,
+     * helpStealer, pollAndExecCC and pollAt), but not for tasks taken
+     * by external threads helping in awaitQuiescence or helpComplete.
+     * Resizing copies stamps before publishing the new task array.
+     * Counters of terminated workers are accumulated in the pool's
+     * retiredCounters.
+     *
      * Style notes
      * ===========
      *
@@ -812,6 +842,8 @@ public class ForkJoinPool extends AbstractExecutorService {
         volatile Thread parker;    // == owner during call to park; else null
         volatile ForkJoinTask<?> currentJoin;  // task being joined in awaitJoin
         volatile ForkJoinTask<?> currentSteal; // mainly used by helpStealer
+        long[] stamps;             // push times, if recording metrics
+        WorkerCounters counters;   // owner's metrics, or null
 
         WorkQueue(ForkJoinPool pool, ForkJoinWorkerThread owner) {
             this.pool = pool;
@@ -861,6 +893,8 @@ public class ForkJoinPool extends AbstractExecutorService {
             int b = base, s = top, n;
             if ((a = array) != null) {    // ignore if queue removed
                 int m = a.length - 1;     // fenced write for task visibility
+                if (RECORD_METRICS)
+                    stamp(s);
                 U.putOrderedObject(a, ((m & s) << ASHIFT) + ABASE, task);
                 U.putOrderedInt(this, QTOP, s + 1);
                 if ((n = s - b) <= 1) {
@@ -883,6 +917,14 @@ public class ForkJoinPool extends AbstractExecutorService {
             if (size > MAXIMUM_QUEUE_CAPACITY)
                 throw new RejectedExecutionException("Queue capacity exceeded");
             int oldMask, t, b;
+            if (RECORD_METRICS) {         // copy stamps before publishing
+                long[] oldS = stamps, st = new long[size];
+                if (oldS != null) {
+                    for (int k = base, e = top; k != e; ++k)
+                        st[k & (size - 1)] = oldS[k & (oldS.length - 1)];
+                }
+                stamps = st;
+            }
             ForkJoinTask<?>[] a = array = new ForkJoinTask<?>[size];
             if (oldA != null && (oldMask = oldA.length - 1) >= 0 &&
                 (t = top) - (b = base) > 0) {
@@ -900,6 +942,55 @@ public class ForkJoinPool extends AbstractExecutorService {
             return a;
         }
 
+        /**
+         * Records the push time of the task at index s. Call only
+         * when recording metrics, before publishing the task.
+         */
+        final void stamp(int s) {
+            long[] st;
+            if ((st = stamps) != null)
+                st[s & (st.length - 1)] = System.nanoTime();
+        }
+
+        /**
+         * Returns the push time of the task at index b, or zero if
+         * unknown. Call only after reading the task and before
+         * advancing base.
+         */
+        final long stampAt(int b) {
+            long[] st;
+            return ((st = stamps) == null) ? 0L : st[b & (st.length - 1)];
+        }
+
+        /**
+         * Records a steal of a task with the given push time.
+         */
+        final void recordSteal(long stamp) {
+            WorkerCounters wc;
+            if ((wc = counters) != null && stamp != 0L)
+                wc.recordLatency(System.nanoTime() - stamp);
+        }
+
+        /**
+         * Records a park beginning at the given time.
+         */
+        final void recordPark(long startTime) {
+            WorkerCounters wc;
+            if ((wc = counters) != null) {
+                ++wc.parks;
+                wc.parkNanos += System.nanoTime() - startTime;
+            }
+        }
+
+        /**
+         * Records release or creation of a compensating worker.
+         */
+        final void recordCompensation() {
+            WorkerCounters wc;
+            if ((wc = counters) != null)
+                ++wc.compensations;
+        }
+
         /**
          * Takes next task, if one exists, in LIFO order.  Call only
          * by owner in unshared queues.
@@ -924,15 +1015,22 @@ public class ForkJoinPool extends AbstractExecutorService {
          * Takes a task in FIFO order if b is base of queue and a task
          * can be claimed without contention. Specialized versions
          * appear in ForkJoinPool methods scan and helpStealer.
+         *
+         * @param w the stealer's queue, or null, for recording metrics
          */
-        final ForkJoinTask<?> pollAt(int b) {
+        final ForkJoinTask<?> pollAt(int b, WorkQueue w) {
             ForkJoinTask<?> t; ForkJoinTask<?>[] a;
             if ((a = array) != null) {
                 int j = (((a.length - 1) & b) << ASHIFT) + ABASE;
                 if ((t = (ForkJoinTask<?>)U.getObjectVolatile(a, j)) != null &&
-                    base == b && U.compareAndSwapObject(a, j, t, null)) {
-                    base = b + 1;
-                    return t;
+                    base == b) {
+                    long st = RECORD_METRICS ? stampAt(b) : 0L;
+                    if (U.compareAndSwapObject(a, j, t, null)) {
+                        base = b + 1;
+                        if (RECORD_METRICS && w != null)
+                            w.recordSteal(st);
+                        return t;
+                    }
                 }
             }
             return null;
@@ -1169,8 +1267,10 @@ public class ForkJoinPool extends AbstractExecutorService {
          * @return 1 if successful, 2 if retryable (lost to another
          * stealer), -1 if non-empty but no matching task found, else
          * the base index, forced negative.
+         *
+         * @param w the stealer's queue, for recording metrics
          */
-        final int pollAndExecCC(CountedCompleter<?> task) {
+        final int pollAndExecCC(CountedCompleter<?> task, WorkQueue w) {
             int b, h; ForkJoinTask<?>[] a; Object o;
             if ((b = base) - top >= 0 || (a = array) == null)
                 h = b | Integer.MIN_VALUE;  // to sense movement on re-poll
@@ -1184,9 +1284,12 @@ public class ForkJoinPool extends AbstractExecutorService {
                     CountedCompleter<?> t = (CountedCompleter<?>)o;
                     for (CountedCompleter<?> r = t;;) {
                         if (r == task) {
+                            long st = RECORD_METRICS ? stampAt(b) : 0L;
                             if (base == b &&
                                 U.compareAndSwapObject(a, j, t, null)) {
                                 base = b + 1;
+                                if (RECORD_METRICS)
+                                    w.recordSteal(st);
                                 t.doExec();
                                 h = 1;      // success
                             }
@@ -1245,6 +1348,40 @@ public class ForkJoinPool extends AbstractExecutorService {
         }
     }
 
+    /**
+     * Per-worker metrics, maintained only if RECORD_METRICS.
+     * Updated only by the owning worker (or, for a pool's
+     * retiredCounters, while holding its lock).
+     */
+    static final class WorkerCounters {
+        long parks;                // number of parks in awaitWork
+        long parkNanos;            // total time parked
+        long compensations;        // spares released or created
+        final long[] stealLatency = new long[LATENCY_BUCKETS];
+
+        /**
+         * Adds the given time to the steal latency histogram, in
+         * which bucket i holds times t with 2^(i-1) <= t < 2^i
+         * nanoseconds, and the last bucket holds all larger times.
+         */
+        final void recordLatency(long nanos) {
+            int i = (nanos <= 0L) ? 0 : 64 - Long.numberOfLeadingZeros(nanos);
+            ++stealLatency[(i < LATENCY_BUCKETS) ? i : LATENCY_BUCKETS - 1];
+        }
+
+        /**
+         * Adds the (racily read) counts of c to these counts.
+         */
+        final void add(WorkerCounters c) {
+            parks += c.parks;
+            parkNanos += c.parkNanos;
+            compensations += c.compensations;
+            long[] h = c.stealLatency;
+            for (int i = 0; i < LATENCY_BUCKETS; ++i)
+                stealLatency[i] += h[i];
+        }
+    }
+
     // static fields (initialized in static initializer below)
 
     /**
@@ -1281,6 +1418,12 @@ public class ForkJoinPool extends AbstractExecutorService {
      */
     private static int commonMaxSpares;
 
+    /**
+     * True if workers record WorkerCounters, as set by system
+     * property java.util.concurrent.ForkJoinPool.metrics.
+     */
+    static final boolean RECORD_METRICS;
+
     /**
      * Sequence number for creating workerNamePrefix.
      */
@@ -1311,6 +1454,13 @@ public class ForkJoinPool extends AbstractExecutorService {
      */
     private static final long TIMEOUT_SLOP = 20L * 1000L * 1000L;  // 20ms
 
+    /**
+     * Number of steal latency histogram buckets. The last bucket
+     * holds latencies of 2^(LATENCY_BUCKETS-2) nanoseconds (about 4
+     * minutes) or more.
+     */
+    static final int LATENCY_BUCKETS = 40;
+
     /**
      * The initial value for commonMaxSpares during static
      * initialization. The value is far in excess of normal
@@ -1396,6 +1546,8 @@ public class ForkJoinPool extends AbstractExecutorService {
     final UncaughtExceptionHandler ueh;  // per-worker UEH
     final String workerNamePrefix;       // to create worker name string
     volatile AtomicLong stealCounter;    // also used as sync monitor
+    final WorkerCounters retiredCounters = // if RECORD_METRICS; sync monitor
+        RECORD_METRICS ? new WorkerCounters() : null;
 
     /**
      * Acquires the runState lock; returns current (locked) runState.
@@ -1534,6 +1686,8 @@ public class ForkJoinPool extends AbstractExecutorService {
         if ((handler = ueh) != null)
             wt.setUncaughtExceptionHandler(handler);
         WorkQueue w = new WorkQueue(this, wt);
+        if (RECORD_METRICS)
+            w.counters = new WorkerCounters();
         int i = 0;                                    // assign a pool index
         int mode = config & MODE_MASK;
         int rs = lockRunState();
@@ -1593,6 +1747,12 @@ public class ForkJoinPool extends AbstractExecutorService {
         if (w != null) {
             w.qlock = -1;                             // ensure set
             w.transferStealCount(this);
+            WorkerCounters rc, wc;
+            if ((rc = retiredCounters) != null && (wc = w.counters) != null) {
+                synchronized (rc) {
+                    rc.add(wc);
+                }
+            }
             w.cancelAll();                            // cancel remaining tasks
         }
         for (;;) {                                    // possibly replace
@@ -1727,10 +1887,13 @@ public class ForkJoinPool extends AbstractExecutorService {
                                   U.getObjectVolatile(a, i))) != null &&
                             q.base == b) {
                             if (ss >= 0) {
+                                long st = RECORD_METRICS ? q.stampAt(b) : 0L;
                                 if (U.compareAndSwapObject(a, i, t, null)) {
                                     q.base = b + 1;
                                     if (n < -1)       // signal others
                                         signalWork(ws, q);
+                                    if (RECORD_METRICS)
+                                        w.recordSteal(st);
                                     return t;
                                 }
                             }
@@ -1820,8 +1983,12 @@ public class ForkJoinPool extends AbstractExecutorService {
                 Thread wt = Thread.currentThread();
                 U.putObject(wt, PARKBLOCKER, this);   // emulate LockSupport
                 w.parker = wt;
-                if (w.scanState < 0 && ctl == c)      // recheck before park
+                if (w.scanState < 0 && ctl == c) {    // recheck before park
+                    long pt = RECORD_METRICS ? System.nanoTime() : 0L;
                     U.park(false, parkTime);
+                    if (RECORD_METRICS)
+                        w.recordPark(pt);
+                }
                 U.putOrderedObject(w, QPARKER, null);
                 U.putObject(wt, PARKBLOCKER, null);
                 if (w.scanState >= 0)
@@ -1876,7 +2043,7 @@ public class ForkJoinPool extends AbstractExecutorService {
                 else {                           // poll other queues
                     if ((q = ws[k]) == null)
                         h = 0;
-                    else if ((h = q.pollAndExecCC(task)) < 0)
+                    else if ((h = q.pollAndExecCC(task, w)) < 0)
                         checkSum += h;
                     if (h > 0) {
                         if (h == 1 && maxTasks != 0 && --maxTasks == 0)
@@ -1949,8 +2116,11 @@ public class ForkJoinPool extends AbstractExecutorService {
                         if (v.base == b) {
                             if (t == null)             // stale
                                 break descent;
+                            long st = RECORD_METRICS ? v.stampAt(b) : 0L;
                             if (U.compareAndSwapObject(a, i, t, null)) {
                                 v.base = b + 1;
+                                if (RECORD_METRICS)
+                                    w.recordSteal(st);
                                 ForkJoinTask<?> ps = w.currentSteal;
                                 int top = w.top;
                                 do {
@@ -1985,8 +2155,10 @@ public class ForkJoinPool extends AbstractExecutorService {
             (ws = workQueues) == null || (m = ws.length - 1) <= 0 ||
             (pc = config & SMASK) == 0)           // parallelism disabled
             canBlock = false;
-        else if ((sp = (int)(c = ctl)) != 0)      // release idle worker
-            canBlock = tryRelease(c, ws[sp & m], 0L);
+        else if ((sp = (int)(c = ctl)) != 0) {    // release idle worker
+            if ((canBlock = tryRelease(c, ws[sp & m], 0L)) && RECORD_METRICS)
+                w.recordCompensation();
+        }
         else {
             int ac = (int)(c >> AC_SHIFT) + pc;
             int tc = (short)(c >> TC_SHIFT) + pc;
@@ -2018,6 +2190,8 @@ public class ForkJoinPool extends AbstractExecutorService {
                     add = U.compareAndSwapLong(this, CTL, c, nc);
                 unlockRunState(rs, rs & ~RSLOCK);
                 canBlock = add && createWorker(); // throws on exception
+                if (canBlock && RECORD_METRICS)
+                    w.recordCompensation();
             }
         }
         return canBlock;
@@ -2108,7 +2282,8 @@ public class ForkJoinPool extends AbstractExecutorService {
                     active = true;
                     U.getAndAddLong(this, CTL, AC_UNIT);
                 }
-                if ((b = q.base) - q.top < 0 && (t = q.pollAt(b)) != null) {
+                if ((b = q.base) - q.top < 0 &&
+                    (t = q.pollAt(b, w)) != null) {
                     U.putOrderedObject(w, QCURRENTSTEAL, t);
                     t.doExec();
                     if (++w.nsteals < 0)
@@ -2141,7 +2316,7 @@ public class ForkJoinPool extends AbstractExecutorService {
                 return t;
             if ((q = findNonEmptyStealQueue()) == null)
                 return null;
-            if ((b = q.base) - q.top < 0 && (t = q.pollAt(b)) != null)
+            if ((b = q.base) - q.top < 0 && (t = q.pollAt(b, w)) != null)
                 return t;
         }
     }
@@ -2356,6 +2531,8 @@ public class ForkJoinPool extends AbstractExecutorService {
                         if ((a != null && a.length > s + 1 - q.base) ||
                             (a = q.growArray()) != null) {
                             int j = (((a.length - 1) & s) << ASHIFT) + ABASE;
+                            if (RECORD_METRICS)
+                                q.stamp(s);
                             U.putOrderedObject(a, j, task);
                             U.putOrderedInt(q, QTOP, s + 1);
                             submitted = true;
@@ -2407,6 +2584,8 @@ public class ForkJoinPool extends AbstractExecutorService {
             if ((a = q.array) != null &&
                 (am = a.length - 1) > (n = (s = q.top) - q.base)) {
                 int j = ((am & s) << ASHIFT) + ABASE;
+                if (RECORD_METRICS)
+                    q.stamp(s);
                 U.putOrderedObject(a, j, task);
                 U.putOrderedInt(q, QTOP, s + 1);
                 U.putIntVolatile(q, QLOCK, 0);
@@ -2973,6 +3152,194 @@ public class ForkJoinPool extends AbstractExecutorService {
         return count;
     }
 
+    /**
+     * A snapshot of the metrics recorded by one or all of the worker
+     * threads of a pool.  Counts other than steal and queued task
+     * counts are recorded only if {@linkplain #isMetricsEnabled
+     * metrics are enabled}, and are otherwise zero.  Values are
+     * estimates, obtained without synchronizing with the workers.
+     *
+     * @since 1.8
+     */
+    public static final class WorkerMetrics {
+        private final String workerName;
+        private final long stealCount;
+        private final long queuedTaskCount;
+        private final long parkCount;
+        private final long parkTime;
+        private final long compensationCount;
+        private final long[] stealLatency;
+
+        WorkerMetrics(String workerName, long stealCount,
+                      long queuedTaskCount, WorkerCounters wc) {
+            this.workerName = workerName;
+            this.stealCount = stealCount;
+            this.queuedTaskCount = queuedTaskCount;
+            if (wc != null) {
+                this.parkCount = wc.parks;
+                this.parkTime = wc.parkNanos;
+                this.compensationCount = wc.compensations;
+                this.stealLatency = wc.stealLatency.clone();
+            }
+            else {
+                this.parkCount = this.parkTime = this.compensationCount = 0L;
+                this.stealLatency = new long[LATENCY_BUCKETS];
+            }
+        }
+
+        /**
+         * Returns the name of the worker thread, or {@code null} if
+         * these metrics are totals for a pool.
+         *
+         * @return the name of the worker thread, or {@code null}
+         */
+        public String getWorkerName() {
+            return workerName;
+        }
+
+        /**
+         * Returns the number of top-level tasks stolen (from other
+         * workers or from submission queues) and run.
+         *
+         * @return the number of steals
+         */
+        public long getStealCount() {
+            return stealCount;
+        }
+
+        /**
+         * Returns the number of tasks in the worker's queue (or, for
+         * a pool, in the queues of all workers) when this snapshot
+         * was taken.
+         *
+         * @return the number of queued tasks
+         */
+        public long getQueuedTaskCount() {
+            return queuedTaskCount;
+        }
+
+        /**
+         * Returns the number of times the worker blocked waiting for
+         * tasks to steal.
+         *
+         * @return the number of parks
+         */
+        public long getParkCount() {
+            return parkCount;
+        }
+
+        /**
+         * Returns the total time the worker spent blocked waiting
+         * for tasks to steal, in nanoseconds.
+         *
+         * @return the park time in nanoseconds
+         */
+        public long getParkTime() {
+            return parkTime;
+        }
+
+        /**
+         * Returns the number of times a spare worker was released
+         * or created to compensate for the worker blocking in a join
+         * or {@link ManagedBlocker}.
+         *
+         * @return the number of compensations
+         */
+        public long getCompensationCount() {
+            return compensationCount;
+        }
+
+        /**
+         * Returns a histogram of the times between the submission or
+         * forking of stolen tasks and their being stolen.  Element
+         * {@code i} of the returned array holds the number of tasks
+         * that waited at least 2<sup>i-1</sup> but less than
+         * 2<sup>i</sup> nanoseconds, except that element 0 holds
+         * those that waited less than one nanosecond, and the last
+         * element holds all that waited longer.
+         *
+         * @return the steal latency histogram
+         */
+        public long[] getStealLatencyHistogram() {
+            return stealLatency.clone();
+        }
+
+        /**
+         * Returns a string identifying these metrics.
+         *
+         * @return a string identifying these metrics
+         */
+        public String toString() {
+            return super.toString() +
+                "[" + ((workerName == null) ? "pool" : workerName) +
+                ", steals = " + stealCount +
+                ", queued tasks = " + queuedTaskCount +
+                ", parks = " + parkCount +
+                ", park time = " + parkTime +
+                "ns, compensations = " + compensationCount +
+                "]";
+        }
+    }
+
+    /**
+     * Returns {@code true} if the workers of this pool record
+     * metrics beyond steal and queued task counts.  This is the
+     * case only if system property {@code
+     * java.util.concurrent.ForkJoinPool.metrics} was {@code true}
+     * when this class was initialized.
+     *
+     * @return {@code true} if metrics are recorded
+     */
+    public boolean isMetricsEnabled() {
+        return RECORD_METRICS;
+    }
+
+    /**
+     * Returns a snapshot of the metrics of each current worker
+     * thread of this pool.  This method may be useful for finding
+     * starved or overloaded workers.
+     *
+     * @return the metrics of each worker
+     */
+    public List<WorkerMetrics> getWorkerMetrics() {
+        List<WorkerMetrics> list = new ArrayList<>();
+        WorkQueue[] ws; WorkQueue w; ForkJoinWorkerThread wt;
+        if ((ws = workQueues) != null) {
+            for (int i = 1; i < ws.length; i += 2) {
+                if ((w = ws[i]) != null && (wt = w.owner) != null)
+                    list.add(new WorkerMetrics(wt.getName(), w.nsteals,
+                                               w.queueSize(), w.counters));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Returns a snapshot of the metrics of this pool, totalled over
+     * all of its worker threads, including those that have
+     * terminated.
+     *
+     * @return the metrics of this pool
+     */
+    public WorkerMetrics getMetrics() {
+        WorkerCounters rc = retiredCounters, total = null;
+        if (rc != null) {
+            total = new WorkerCounters();
+            synchronized (rc) {
+                total.add(rc);
+            }
+            WorkQueue[] ws; WorkQueue w; WorkerCounters wc;
+            if ((ws = workQueues) != null) {
+                for (int i = 1; i < ws.length; i += 2) {
+                    if ((w = ws[i]) != null && (wc = w.counters) != null)
+                        total.add(wc);
+                }
+            }
+        }
+        return new WorkerMetrics(null, getStealCount(),
+                                 getQueuedTaskCount(), total);
+    }
+
     /**
      * Returns a string identifying this pool, as well as its state,
      * including indications of run state, parallelism level, and
@@ -3181,7 +3548,7 @@ public class ForkJoinPool extends AbstractExecutorService {
                 if ((k = r++ & m) <= m && k >= 0 && (q = ws[k]) != null &&
                     (b = q.base) - q.top < 0) {
                     found = true;
-                    if ((t = q.pollAt(b)) != null)
+                    if ((t = q.pollAt(b, null)) != null)
                         t.doExec();
                     break;
                 }
@@ -3389,6 +3756,12 @@ public class ForkJoinPool extends AbstractExecutorService {
         }
 
         commonMaxSpares = DEFAULT_COMMON_MAX_SPARES;
+        RECORD_METRICS = java.security.AccessController.doPrivileged
+            (new java.security.PrivilegedAction<Boolean>() {
+                public Boolean run() {
+                    return Boolean.getBoolean
+                        ("java.util.concurrent.ForkJoinPool.metrics");
+                }}).booleanValue();
         defaultForkJoinWorkerThreadFactory =
             new DefaultForkJoinWorkerThreadFactory();
         modifyThreadPermission = new RuntimePermission("modifyThread");
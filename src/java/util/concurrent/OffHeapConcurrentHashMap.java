@@ -0,0 +1,1193 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/*
+ *
+ *
+ *
+ *
+ *
+ * Written by Doug Lea with assistance from members of JCP JSR-166
+ * Expert Group and released to the public domain, as explained at
+ * http://creativecommons.org/publicdomain/zero/1.0/
+ */
+
+package java.util.concurrent;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * A hash table supporting full concurrency of retrievals and high
+ * expected concurrency for updates, whose mappings are stored outside
+ * of the Java heap.  Keys and values are serialized by user-supplied
+ * {@link Codec}s into direct {@link ByteBuffer}s, so that the mappings
+ * themselves contribute nothing to garbage collector marking or
+ * copying, however large the map becomes.  Only a small index of
+ * primitive arrays per segment remains on the heap.
+ *
+ * <p>This class obeys the same functional specification as {@link
+ * ConcurrentHashMap}, with the following differences:
+ *
+ * <ul>
+ *
+ * <li>Keys are compared by their encoded form: two keys are considered
+ * equal if and only if their codec encodes them to the same bytes.
+ * The key codec must therefore be deterministic, and consistent with
+ * {@code equals} and {@code hashCode} of the key class.
+ *
+ * <li>Every retrieval decodes, and so returns a new instance of, the
+ * stored value.  Mutating a returned value has no effect on the map.
+ *
+ * <li>Iterators and bulk operations traverse per-segment snapshots.
+ * They are weakly consistent: they reflect the state of each segment
+ * at some point since the traversal began, and never throw {@link
+ * java.util.ConcurrentModificationException}.
+ *
+ * </ul>
+ *
+ * <p>The table is partitioned into a power-of-two number of segments
+ * selected by the high bits of the (spread) key hash.  Each segment
+ * is guarded by a {@link StampedLock}: updates hold the write lock,
+ * while retrievals use optimistic reads and fall back to the read
+ * lock only when they race with an update of the same segment.
+ * Segments grow and compact their storage independently.
+ *
+ * <p>Like {@link java.util.Hashtable} but unlike {@link
+ * java.util.HashMap}, this class does <em>not</em> allow {@code null}
+ * to be used as a key or value.
+ *
+ * <p>The bulk operations {@link #forEach(long, BiConsumer)} and {@link
+ * #reduce(long, BiFunction, BiFunction)} accept a
+ * {@code parallelismThreshold} with the same meaning as for {@link
+ * ConcurrentHashMap}, processing segments in parallel in the {@link
+ * ForkJoinPool#commonPool()} when the map is estimated to contain at
+ * least that many mappings.
+ *
+ * @since 1.8
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class OffHeapConcurrentHashMap<K,V> extends AbstractMap<K,V>
+    implements ConcurrentMap<K,V> {
+
+    /*
+     * Overview:
+     *
+     * Each Segment owns one direct buffer holding variable-length
+     * records laid out as
+     *
+     *     [int keyLength][int valueLength][key bytes][value bytes]
+     *
+     * appended at "top".  Records are never modified once written:
+     * replacing a value appends a new record and removing a mapping
+     * merely drops it from the index, in both cases adding the old
+     * record's length to "garbage".  When a record does not fit, the
+     * live records are copied into a fresh buffer, doubled in size
+     * only if live data would otherwise occupy most of it.
+     *
+     * The index is an open-addressed table of (record offset + 1,
+     * spread hash) pairs held in two int arrays, using linear probing
+     * and backward-shift deletion, so that lookups compare stored
+     * hashes before touching off-heap memory.  Because chains are
+     * contiguous probe runs rather than linked bins, there is no
+     * analog of ConcurrentHashMap's TreeBins: a poor key hash
+     * degrades a lookup to a linear scan of one probe run, and the
+     * index is rehashed (from the stored hashes alone, without
+     * reading any records) when half full.
+     *
+     * Immutability of records is what makes optimistic reads safe.
+     * A reader that validates its stamp after locating a record
+     * knows that, at validation time, the buffer it read held that
+     * record at that offset; neither compaction (which fills a new
+     * buffer) nor later appends can change those bytes afterwards,
+     * so the value may be decoded outside the lock.  Reads that race
+     * with writers may observe torn index state; they bound their
+     * probes and treat any exception as a failed validation.
+     *
+     * Key bytes are produced into a per-thread scratch buffer so
+     * that lookups do not allocate beyond what the codecs do.
+     */
+
+    /**
+     * Encodes and decodes keys or values to and from their off-heap
+     * binary form.
+     *
+     * @param <T> the type of encoded objects
+     */
+    public interface Codec<T> {
+        /**
+         * Returns the exact number of bytes that {@link #write} will
+         * produce for the given object.
+         *
+         * @param value a non-null object
+         * @return the encoded length of the object, in bytes
+         */
+        int sizeOf(T value);
+
+        /**
+         * Writes the encoded form of the given object at the current
+         * position of the destination buffer, advancing its position
+         * by exactly {@code sizeOf(value)} bytes.
+         *
+         * @param value a non-null object
+         * @param dst the destination buffer
+         */
+        void write(T value, ByteBuffer dst);
+
+        /**
+         * Decodes an object from the source buffer, whose position
+         * and limit delimit exactly the bytes produced by
+         * {@link #write}.
+         *
+         * @param src the source buffer
+         * @return the decoded object
+         */
+        T read(ByteBuffer src);
+    }
+
+    /* ---------------- Constants -------------- */
+
+    /**
+     * The maximum number of segments.
+     */
+    static final int MAX_SEGMENTS = 1 << 16;
+
+    /**
+     * The default number of segments.
+     */
+    static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    /**
+     * The initial and minimum capacity of a segment buffer, in bytes.
+     */
+    static final int MIN_SEGMENT_BYTES = 1 << 12;
+
+    /**
+     * The maximum capacity of a segment buffer, in bytes.
+     */
+    static final int MAX_SEGMENT_BYTES = 1 << 30;
+
+    /**
+     * The initial number of index slots per segment.
+     */
+    static final int MIN_INDEX_SLOTS = 16;
+
+    /**
+     * The length of a record header: key and value lengths.
+     */
+    static final int HEADER_BYTES = 8;
+
+    /**
+     * The initial capacity of per-thread key scratch buffers.
+     */
+    static final int MIN_SCRATCH_BYTES = 64;
+
+    static final int HASH_BITS = 0x7fffffff; // usable bits of spread hash
+
+    /**
+     * Per-thread buffers into which keys are encoded for lookup.
+     */
+    static final ThreadLocal<ByteBuffer> scratch = new ThreadLocal<>();
+
+    /* ---------------- Fields -------------- */
+
+    final Codec<K> keyCodec;
+    final Codec<V> valueCodec;
+    final Segment[] segments;
+    final int segmentShift;
+
+    // views
+    private transient EntrySetView<K,V> entrySet;
+
+    /* ---------------- Segments -------------- */
+
+    /**
+     * A partition of the map: a record buffer and its index, guarded
+     * by the lock this class extends.
+     */
+    static final class Segment extends StampedLock {
+        private static final long serialVersionUID = 2249069246763182397L;
+
+        ByteBuffer data;        // records; only absolute accesses
+        int top;                // offset of first free byte in data
+        int garbage;            // bytes of records no longer indexed
+        int[] offsets;          // record offset + 1, or 0 if slot free
+        int[] hashes;           // spread hash of key at each used slot
+        volatile int count;     // number of mappings
+
+        Segment() {
+            data = ByteBuffer.allocateDirect(MIN_SEGMENT_BYTES);
+            offsets = new int[MIN_INDEX_SLOTS];
+            hashes = new int[MIN_INDEX_SLOTS];
+        }
+
+        /**
+         * Returns the slot of the record with the given hash and key,
+         * or if absent, {@code ~i} for the free slot i at which it
+         * would be inserted.  Call only while holding a lock.
+         */
+        int find(int h, ByteBuffer kb, int klen) {
+            ByteBuffer buf = data;
+            int[] offs = offsets, hs = hashes;
+            int mask = offs.length - 1;
+            for (int i = h & mask;; i = (i + 1) & mask) {
+                int o = offs[i];
+                if (o == 0)
+                    return ~i;
+                if (hs[i] == h && keyEquals(buf, o - 1, kb, klen))
+                    return i;
+            }
+        }
+
+        /**
+         * Returns the offset in buf of the record with the given hash
+         * and key, or -1 if absent.  May be called without locking, in
+         * which case the result is meaningful only if validated.
+         */
+        int locate(ByteBuffer buf, int h, ByteBuffer kb, int klen) {
+            int[] offs = offsets, hs = hashes;
+            int n = offs.length;
+            if (hs.length != n)
+                return -1;
+            int mask = n - 1;
+            for (int i = h & mask, probes = 0; probes < n;
+                 i = (i + 1) & mask, ++probes) {
+                int o = offs[i];
+                if (o == 0)
+                    break;
+                if (hs[i] == h && keyEquals(buf, o - 1, kb, klen))
+                    return o - 1;
+            }
+            return -1;
+        }
+
+        /**
+         * Appends a record, making room first if necessary, and returns
+         * its offset.  Call only while holding the write lock.
+         */
+        <V> int append(ByteBuffer kb, int klen,
+                       V value, int vlen, Codec<V> codec) {
+            long n = (long)HEADER_BYTES + klen + vlen;
+            if (vlen < 0 || n > MAX_SEGMENT_BYTES)
+                throw new IllegalArgumentException("Mapping too large");
+            int need = (int)n;
+            if (data.capacity() - top < need)
+                makeRoom(need);
+            ByteBuffer buf = data;
+            int off = top;
+            buf.putInt(off, klen);
+            buf.putInt(off + 4, vlen);
+            ByteBuffer src = kb.duplicate(), dst = buf.duplicate();
+            src.flip();
+            dst.position(off + HEADER_BYTES);
+            dst.put(src);
+            dst.limit(off + need);
+            codec.write(value, dst);
+            if (dst.position() != off + need)
+                throw new IllegalStateException("Codec wrote " +
+                                                (dst.position() - off -
+                                                 HEADER_BYTES - klen) +
+                                                " bytes, expected " + vlen);
+            top = off + need;
+            return off;
+        }
+
+        /**
+         * Copies live records into a new buffer with room for at least
+         * need more bytes.
+         */
+        void makeRoom(int need) {
+            ByteBuffer old = data;
+            long target = (long)(top - garbage) + need;
+            if (target > MAX_SEGMENT_BYTES)
+                throw new IllegalStateException("Segment capacity exceeded");
+            int cap = old.capacity();
+            while (cap < MAX_SEGMENT_BYTES && cap < target + (target >>> 1))
+                cap <<= 1;
+            ByteBuffer buf = ByteBuffer.allocateDirect(cap);
+            ByteBuffer src = old.duplicate();
+            int[] offs = offsets;
+            int t = 0;
+            for (int i = 0; i < offs.length; ++i) {
+                int o = offs[i] - 1;
+                if (o >= 0) {
+                    int len = recordLength(old, o);
+                    src.limit(o + len);
+                    src.position(o);
+                    buf.position(t);
+                    buf.put(src);
+                    offs[i] = t + 1;
+                    t += len;
+                }
+            }
+            top = t;
+            garbage = 0;
+            data = buf;
+        }
+
+        /**
+         * Records a new mapping at the given free slot.  Call only
+         * while holding the write lock.
+         */
+        void insert(int slot, int h, int off) {
+            int c = count;
+            if (c >= offsets.length >>> 1) {
+                rehash();
+                int[] offs = offsets;
+                int mask = offs.length - 1;
+                slot = h & mask;
+                while (offs[slot] != 0)
+                    slot = (slot + 1) & mask;
+            }
+            offsets[slot] = off + 1;
+            hashes[slot] = h;
+            count = c + 1;
+        }
+
+        /**
+         * Doubles the index, reinserting slots by their stored hashes.
+         */
+        void rehash() {
+            int[] oldOffs = offsets, oldHashes = hashes;
+            int n = oldOffs.length << 1, mask = n - 1;
+            if (n <= 0)
+                throw new IllegalStateException("Segment index capacity exceeded");
+            int[] offs = new int[n], hs = new int[n];
+            for (int j = 0; j < oldOffs.length; ++j) {
+                int o;
+                if ((o = oldOffs[j]) != 0) {
+                    int h = oldHashes[j], i = h & mask;
+                    while (offs[i] != 0)
+                        i = (i + 1) & mask;
+                    offs[i] = o;
+                    hs[i] = h;
+                }
+            }
+            hashes = hs;
+            offsets = offs;
+        }
+
+        /**
+         * Removes the mapping at the given slot, shifting subsequent
+         * slots of its probe run back into the hole.  Call only while
+         * holding the write lock.
+         */
+        void removeAt(int slot) {
+            int[] offs = offsets, hs = hashes;
+            int mask = offs.length - 1;
+            garbage += recordLength(data, offs[slot] - 1);
+            int hole = slot;
+            for (int i = (slot + 1) & mask;; i = (i + 1) & mask) {
+                int o = offs[i];
+                if (o == 0)
+                    break;
+                int h = hs[i] & mask;
+                if (hole <= i ? (h <= hole || h > i) : (h <= hole && h > i)) {
+                    offs[hole] = o;
+                    hs[hole] = hs[i];
+                    hole = i;
+                }
+            }
+            offs[hole] = 0;
+            hs[hole] = 0;
+            count = count - 1;
+        }
+
+        /**
+         * Resets to the initial empty state.  Call only while holding
+         * the write lock.
+         */
+        void clear() {
+            data = ByteBuffer.allocateDirect(MIN_SEGMENT_BYTES);
+            offsets = new int[MIN_INDEX_SLOTS];
+            hashes = new int[MIN_INDEX_SLOTS];
+            top = garbage = 0;
+            count = 0;
+        }
+
+        /**
+         * Returns a buffer holding the current records, and the offsets
+         * of the live ones, which remain valid in that buffer however
+         * the segment is later modified.
+         */
+        Snapshot snapshot() {
+            long stamp = readLock();
+            try {
+                int[] offs = offsets, recs = new int[count];
+                int n = 0;
+                for (int i = 0; i < offs.length && n < recs.length; ++i) {
+                    if (offs[i] != 0)
+                        recs[n++] = offs[i] - 1;
+                }
+                return new Snapshot(data, recs);
+            } finally {
+                unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * The records of a segment at some point in time.
+     */
+    static final class Snapshot {
+        final ByteBuffer data;
+        final int[] records;
+        Snapshot(ByteBuffer data, int[] records) {
+            this.data = data;
+            this.records = records;
+        }
+    }
+
+    /* ---------------- Record access -------------- */
+
+    static int recordLength(ByteBuffer buf, int off) {
+        return HEADER_BYTES + buf.getInt(off) + buf.getInt(off + 4);
+    }
+
+    /**
+     * Returns true if the record at off in buf has the key held in
+     * the first klen bytes of kb.
+     */
+    static boolean keyEquals(ByteBuffer buf, int off, ByteBuffer kb, int klen) {
+        if (buf.getInt(off) != klen)
+            return false;
+        int p = off + HEADER_BYTES, i = 0;
+        for (; i + 8 <= klen; i += 8) {
+            if (buf.getLong(p + i) != kb.getLong(i))
+                return false;
+        }
+        for (; i < klen; ++i) {
+            if (buf.get(p + i) != kb.get(i))
+                return false;
+        }
+        return true;
+    }
+
+    final K readKey(ByteBuffer buf, int off) {
+        ByteBuffer src = buf.duplicate();
+        int start = off + HEADER_BYTES;
+        src.limit(start + buf.getInt(off));
+        src.position(start);
+        return keyCodec.read(src);
+    }
+
+    final V readValue(ByteBuffer buf, int off) {
+        ByteBuffer src = buf.duplicate();
+        int start = off + HEADER_BYTES + buf.getInt(off);
+        src.limit(start + buf.getInt(off + 4));
+        src.position(start);
+        return valueCodec.read(src);
+    }
+
+    /**
+     * Encodes the given key into this thread's scratch buffer, whose
+     * position on return is the encoded length.
+     */
+    final ByteBuffer encodeKey(K key) {
+        int n = keyCodec.sizeOf(key);
+        if (n < 0)
+            throw new IllegalStateException("Negative key size: " + n);
+        ByteBuffer kb = scratch.get();
+        if (kb == null || kb.capacity() < n) {
+            int cap = Math.max(MIN_SCRATCH_BYTES, n);
+            if (cap < (Integer.MAX_VALUE >>> 1))
+                cap = Integer.highestOneBit(cap - 1) << 1;
+            scratch.set(kb = ByteBuffer.allocate(cap));
+        }
+        kb.clear();
+        kb.limit(n);
+        keyCodec.write(key, kb);
+        if (kb.position() != n)
+            throw new IllegalStateException("Codec wrote " + kb.position() +
+                                            " bytes, expected " + n);
+        return kb;
+    }
+
+    /**
+     * Spreads higher bits of the hash lower, as in ConcurrentHashMap.
+     */
+    static final int spread(int h) {
+        return (h ^ (h >>> 16)) & HASH_BITS;
+    }
+
+    final Segment segmentFor(int h) {
+        Segment[] segs = segments;
+        return segs[(h >>> segmentShift) & (segs.length - 1)];
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Creates a new, empty map with the default number of segments
+     * (16).
+     *
+     * @param keyCodec the codec for keys
+     * @param valueCodec the codec for values
+     * @throws NullPointerException if either codec is null
+     */
+    public OffHeapConcurrentHashMap(Codec<K> keyCodec, Codec<V> valueCodec) {
+        this(keyCodec, valueCodec, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Creates a new, empty map with the given estimated number of
+     * concurrently updating threads, used as the number of segments.
+     *
+     * @param keyCodec the codec for keys
+     * @param valueCodec the codec for values
+     * @param concurrencyLevel the estimated number of concurrently
+     * updating threads
+     * @throws IllegalArgumentException if the concurrency level is
+     * not positive
+     * @throws NullPointerException if either codec is null
+     */
+    public OffHeapConcurrentHashMap(Codec<K> keyCodec, Codec<V> valueCodec,
+                                    int concurrencyLevel) {
+        if (keyCodec == null || valueCodec == null)
+            throw new NullPointerException();
+        if (concurrencyLevel <= 0)
+            throw new IllegalArgumentException();
+        int n = 1, bits = 0;
+        while (n < concurrencyLevel && n < MAX_SEGMENTS) {
+            n <<= 1;
+            ++bits;
+        }
+        Segment[] segs = new Segment[n];
+        for (int i = 0; i < n; ++i)
+            segs[i] = new Segment();
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.segments = segs;
+        this.segmentShift = 31 - bits;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int size() {
+        long n = mappingCount();
+        return ((n < 0L) ? 0 :
+                (n > (long)Integer.MAX_VALUE) ? Integer.MAX_VALUE :
+                (int)n);
+    }
+
+    /**
+     * Returns the number of mappings.  This method should be used
+     * instead of {@link #size} because a map of this class may contain
+     * more mappings than can be represented as an int.  The value
+     * returned is an estimate; the actual count may differ if there
+     * are concurrent insertions or removals.
+     *
+     * @return the number of mappings
+     */
+    public long mappingCount() {
+        long n = 0L;
+        for (Segment s : segments)
+            n += s.count;
+        return n;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isEmpty() {
+        for (Segment s : segments) {
+            if (s.count != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the total capacity, in bytes, of the off-heap buffers
+     * currently held by this map.  The value is an estimate in the
+     * presence of concurrent updates.
+     *
+     * @return the off-heap memory used by this map, in bytes
+     */
+    public long offHeapCapacity() {
+        long n = 0L;
+        for (Segment s : segments)
+            n += s.data.capacity();
+        return n;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @throws NullPointerException if the specified key is null
+     * @throws ClassCastException if the key cannot be encoded by the
+     *         key codec
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        return (V)lookup(key, true);
+    }
+
+    /**
+     * Locates the record for the key, returning its decoded value if
+     * decode is true, else Boolean.TRUE, or null if absent.
+     */
+    @SuppressWarnings("unchecked")
+    private Object lookup(Object key, boolean decode) {
+        if (key == null)
+            throw new NullPointerException();
+        ByteBuffer kb = encodeKey((K)key);
+        int klen = kb.position(), h = spread(key.hashCode()), off = -1;
+        Segment s = segmentFor(h);
+        ByteBuffer buf = null;
+        long stamp = s.tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                off = s.locate(buf = s.data, h, kb, klen);
+            } catch (RuntimeException ex) {
+                stamp = 0L; // torn read
+            }
+        }
+        if (stamp == 0L || !s.validate(stamp)) {
+            stamp = s.readLock();
+            try {
+                off = s.locate(buf = s.data, h, kb, klen);
+            } finally {
+                s.unlockRead(stamp);
+            }
+        }
+        if (off < 0)
+            return null;
+        return decode ? readValue(buf, off) : Boolean.TRUE;
+    }
+
+    /**
+     * Tests if the specified object is a key in this table.
+     *
+     * @param  key possible key
+     * @return {@code true} if and only if the specified object
+     *         is a key in this table
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        return lookup(key, false) != null;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This method requires decoding every value.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if this map maps one or more keys to the
+     *         specified value
+     * @throws NullPointerException if the specified value is null
+     */
+    public boolean containsValue(Object value) {
+        if (value == null)
+            throw new NullPointerException();
+        for (Segment s : segments) {
+            Snapshot snap = s.snapshot();
+            for (int off : snap.records) {
+                if (value.equals(readValue(snap.data, off)))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Maps the specified key to the specified value in this table.
+     * Neither the key nor the value can be null.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the encoded mapping is too
+     *         large to be stored
+     * @throws IllegalStateException if a segment cannot grow any further
+     */
+    public V put(K key, V value) {
+        return putVal(key, value, false, true);
+    }
+
+    /**
+     * Maps the specified key to the specified value in this table,
+     * without decoding any previous value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the encoded mapping is too
+     *         large to be stored
+     * @throws IllegalStateException if a segment cannot grow any further
+     */
+    public void set(K key, V value) {
+        putVal(key, value, false, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V putIfAbsent(K key, V value) {
+        return putVal(key, value, true, true);
+    }
+
+    /** Implementation for put, set and putIfAbsent */
+    final V putVal(K key, V value, boolean onlyIfAbsent, boolean wantOld) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        ByteBuffer kb = encodeKey(key);
+        int klen = kb.position(), h = spread(key.hashCode());
+        int vlen = onlyIfAbsent ? 0 : valueCodec.sizeOf(value);
+        Segment s = segmentFor(h);
+        V old = null;
+        long stamp = s.writeLock();
+        try {
+            int i = s.find(h, kb, klen);
+            if (i >= 0) {
+                int o = s.offsets[i] - 1;
+                if (wantOld)
+                    old = readValue(s.data, o);
+                if (onlyIfAbsent)
+                    return old;
+                int len = recordLength(s.data, o);
+                int off = s.append(kb, klen, value, vlen, valueCodec);
+                s.offsets[i] = off + 1;
+                s.garbage += len;
+            }
+            else {
+                if (onlyIfAbsent)
+                    vlen = valueCodec.sizeOf(value);
+                s.insert(~i, h, s.append(kb, klen, value, vlen, valueCodec));
+            }
+        } finally {
+            s.unlockWrite(stamp);
+        }
+        return old;
+    }
+
+    /**
+     * Removes the key (and its corresponding value) from this map.
+     * This method does nothing if the key is not in the map.
+     *
+     * @param  key the key that needs to be removed
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        return replaceNode(key, null, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean remove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        return value != null && replaceNode(key, null, value) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if any of the arguments are null
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || oldValue == null || newValue == null)
+            throw new NullPointerException();
+        return replaceNode(key, newValue, oldValue) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V replace(K key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        return replaceNode(key, value, null);
+    }
+
+    /**
+     * Implementation for the four public remove/replace methods:
+     * Replaces value with v, conditional upon match of cv if
+     * non-null.  If resulting value is null, delete.
+     */
+    @SuppressWarnings("unchecked")
+    final V replaceNode(Object key, V value, Object cv) {
+        if (key == null)
+            throw new NullPointerException();
+        ByteBuffer kb = encodeKey((K)key);
+        int klen = kb.position(), h = spread(key.hashCode());
+        int vlen = (value == null) ? 0 : valueCodec.sizeOf(value);
+        Segment s = segmentFor(h);
+        long stamp = s.writeLock();
+        try {
+            int i = s.find(h, kb, klen);
+            if (i < 0)
+                return null;
+            int o = s.offsets[i] - 1;
+            V old = readValue(s.data, o);
+            if (cv != null && !cv.equals(old))
+                return null;
+            if (value == null)
+                s.removeAt(i);
+            else {
+                int len = recordLength(s.data, o);
+                int off = s.append(kb, klen, value, vlen, valueCodec);
+                s.offsets[i] = off + 1;
+                s.garbage += len;
+            }
+            return old;
+        } finally {
+            s.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes all of the mappings from this map.  Off-heap storage is
+     * released once no traversal in progress still refers to it.
+     */
+    public void clear() {
+        for (Segment s : segments) {
+            long stamp = s.writeLock();
+            try {
+                s.clear();
+            } finally {
+                s.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, and supports element removal, but
+     * not addition.  Its iterator is weakly consistent, and entries'
+     * {@code setValue} writes through to the map.
+     *
+     * @return the set view
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySetView<K,V> es;
+        return (es = entrySet) != null ? es : (entrySet = new EntrySetView<K,V>(this));
+    }
+
+    /* ---------------- Bulk operations -------------- */
+
+    /**
+     * Computes initial batch value for bulk tasks, as in
+     * ConcurrentHashMap, but in units of segments.
+     */
+    final int batchFor(long b) {
+        long n;
+        if (b == Long.MAX_VALUE || (n = mappingCount()) <= 1L || n < b)
+            return 0;
+        int sp = ForkJoinPool.getCommonPoolParallelism() << 2; // slack of 4
+        return (b <= 0L || (n /= b) >= sp) ? sp : (int)n;
+    }
+
+    /**
+     * Performs the given action for each (key, value).
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param action the action
+     */
+    public void forEach(long parallelismThreshold,
+                        BiConsumer<? super K,? super V> action) {
+        if (action == null) throw new NullPointerException();
+        new ForEachMappingTask<K,V>
+            (null, batchFor(parallelismThreshold), 0, segments.length,
+             this, action).invoke();
+    }
+
+    /**
+     * Returns the result of accumulating the given transformation
+     * of all (key, value) pairs using the given reducer to
+     * combine values, or null if none.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param transformer a function returning the transformation
+     * for an element, or null if there is no transformation (in
+     * which case it is not combined)
+     * @param reducer a commutative associative combining function
+     * @param <U> the return type of the transformer
+     * @return the result of accumulating the given transformation
+     * of all (key, value) pairs
+     */
+    public <U> U reduce(long parallelismThreshold,
+                        BiFunction<? super K, ? super V, ? extends U> transformer,
+                        BiFunction<? super U, ? super U, ? extends U> reducer) {
+        if (transformer == null || reducer == null)
+            throw new NullPointerException();
+        return new MapReduceMappingsTask<K,V,U>
+            (null, batchFor(parallelismThreshold), 0, segments.length,
+             this, null, transformer, reducer).invoke();
+    }
+
+    /**
+     * Base class for bulk tasks, each covering a range of segments.
+     */
+    @SuppressWarnings("serial")
+    abstract static class BulkTask<K,V,R> extends CountedCompleter<R> {
+        final OffHeapConcurrentHashMap<K,V> map;
+        int batch;                // split control
+        int baseIndex, baseLimit; // segment range
+
+        BulkTask(BulkTask<K,V,?> par, int b, int i, int f,
+                 OffHeapConcurrentHashMap<K,V> map) {
+            super(par);
+            this.batch = b;
+            this.baseIndex = i;
+            this.baseLimit = f;
+            this.map = map;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static final class ForEachMappingTask<K,V>
+        extends BulkTask<K,V,Void> {
+        final BiConsumer<? super K, ? super V> action;
+        ForEachMappingTask
+            (BulkTask<K,V,?> p, int b, int i, int f,
+             OffHeapConcurrentHashMap<K,V> m,
+             BiConsumer<? super K,? super V> action) {
+            super(p, b, i, f, m);
+            this.action = action;
+        }
+        public final void compute() {
+            final BiConsumer<? super K, ? super V> action;
+            if ((action = this.action) != null) {
+                for (int i = baseIndex, f, h; batch > 0 &&
+                         (h = ((f = baseLimit) + i) >>> 1) > i;) {
+                    addToPendingCount(1);
+                    new ForEachMappingTask<K,V>
+                        (this, batch >>>= 1, baseLimit = h, f, map,
+                         action).fork();
+                }
+                OffHeapConcurrentHashMap<K,V> m = map;
+                for (int i = baseIndex; i < baseLimit; ++i) {
+                    Snapshot snap = m.segments[i].snapshot();
+                    for (int off : snap.records)
+                        action.accept(m.readKey(snap.data, off),
+                                      m.readValue(snap.data, off));
+                }
+                propagateCompletion();
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static final class MapReduceMappingsTask<K,V,U>
+        extends BulkTask<K,V,U> {
+        final BiFunction<? super K, ? super V, ? extends U> transformer;
+        final BiFunction<? super U, ? super U, ? extends U> reducer;
+        U result;
+        MapReduceMappingsTask<K,V,U> rights, nextRight;
+        MapReduceMappingsTask
+            (BulkTask<K,V,?> p, int b, int i, int f,
+             OffHeapConcurrentHashMap<K,V> m,
+             MapReduceMappingsTask<K,V,U> nextRight,
+             BiFunction<? super K, ? super V, ? extends U> transformer,
+             BiFunction<? super U, ? super U, ? extends U> reducer) {
+            super(p, b, i, f, m); this.nextRight = nextRight;
+            this.transformer = transformer;
+            this.reducer = reducer;
+        }
+        public final U getRawResult() { return result; }
+        public final void compute() {
+            final BiFunction<? super K, ? super V, ? extends U> transformer;
+            final BiFunction<? super U, ? super U, ? extends U> reducer;
+            if ((transformer = this.transformer) != null &&
+                (reducer = this.reducer) != null) {
+                for (int i = baseIndex, f, h; batch > 0 &&
+                         (h = ((f = baseLimit) + i) >>> 1) > i;) {
+                    addToPendingCount(1);
+                    (rights = new MapReduceMappingsTask<K,V,U>
+                     (this, batch >>>= 1, baseLimit = h, f, map,
+                      rights, transformer, reducer)).fork();
+                }
+                OffHeapConcurrentHashMap<K,V> m = map;
+                U r = null;
+                for (int i = baseIndex; i < baseLimit; ++i) {
+                    Snapshot snap = m.segments[i].snapshot();
+                    for (int off : snap.records) {
+                        U u;
+                        if ((u = transformer.apply(m.readKey(snap.data, off),
+                                                   m.readValue(snap.data, off))) != null)
+                            r = (r == null) ? u : reducer.apply(r, u);
+                    }
+                }
+                result = r;
+                CountedCompleter<?> c;
+                for (c = firstComplete(); c != null; c = c.nextComplete()) {
+                    @SuppressWarnings("unchecked")
+                    MapReduceMappingsTask<K,V,U>
+                        t = (MapReduceMappingsTask<K,V,U>)c,
+                        s = t.rights;
+                    while (s != null) {
+                        U tr, sr;
+                        if ((sr = s.result) != null)
+                            t.result = (((tr = t.result) == null) ? sr :
+                                        reducer.apply(tr, sr));
+                        s = t.rights = s.nextRight;
+                    }
+                }
+            }
+        }
+    }
+
+    /* ---------------- Views -------------- */
+
+    /**
+     * Exported Entry for EntryIterator: a decoded copy of a mapping,
+     * writing through to the map on setValue.
+     */
+    static final class MapEntry<K,V> implements Map.Entry<K,V> {
+        final K key;
+        V val;
+        final OffHeapConcurrentHashMap<K,V> map;
+        MapEntry(K key, V val, OffHeapConcurrentHashMap<K,V> map) {
+            this.key = key;
+            this.val = val;
+            this.map = map;
+        }
+        public K getKey()        { return key; }
+        public V getValue()      { return val; }
+        public int hashCode()    { return key.hashCode() ^ val.hashCode(); }
+        public String toString() { return key + "=" + val; }
+
+        public boolean equals(Object o) {
+            Object k, v; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    (k == key || k.equals(key)) &&
+                    (v == val || v.equals(val)));
+        }
+
+        /**
+         * Sets our entry's value and writes through to the map. The
+         * value to return is somewhat arbitrary here, as in
+         * ConcurrentHashMap.MapEntry.
+         */
+        public V setValue(V value) {
+            if (value == null) throw new NullPointerException();
+            V v = val;
+            val = value;
+            map.set(key, value);
+            return v;
+        }
+    }
+
+    /**
+     * Weakly consistent iterator over segment snapshots.
+     */
+    static final class EntryIterator<K,V> implements Iterator<Map.Entry<K,V>> {
+        final OffHeapConcurrentHashMap<K,V> map;
+        int segmentIndex;
+        Snapshot snap;
+        int recordIndex;
+        MapEntry<K,V> lastReturned;
+
+        EntryIterator(OffHeapConcurrentHashMap<K,V> map) {
+            this.map = map;
+        }
+
+        public boolean hasNext() {
+            Segment[] segs = map.segments;
+            while (snap == null || recordIndex >= snap.records.length) {
+                if (segmentIndex >= segs.length)
+                    return false;
+                snap = segs[segmentIndex++].snapshot();
+                recordIndex = 0;
+            }
+            return true;
+        }
+
+        public Map.Entry<K,V> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            int off = snap.records[recordIndex++];
+            return lastReturned = new MapEntry<K,V>
+                (map.readKey(snap.data, off), map.readValue(snap.data, off), map);
+        }
+
+        public void remove() {
+            MapEntry<K,V> p;
+            if ((p = lastReturned) == null)
+                throw new IllegalStateException();
+            lastReturned = null;
+            map.remove(p.key);
+        }
+    }
+
+    static final class EntrySetView<K,V> extends AbstractSet<Map.Entry<K,V>> {
+        final OffHeapConcurrentHashMap<K,V> map;
+        EntrySetView(OffHeapConcurrentHashMap<K,V> map) { this.map = map; }
+
+        public int size()                          { return map.size(); }
+        public boolean isEmpty()                   { return map.isEmpty(); }
+        public void clear()                        { map.clear(); }
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator<K,V>(map);
+        }
+
+        public boolean contains(Object o) {
+            Object k, v, r; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (r = map.get(k)) != null &&
+                    (v = e.getValue()) != null &&
+                    (v == r || v.equals(r)));
+        }
+
+        public boolean remove(Object o) {
+            Object k, v; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    map.remove(k, v));
+        }
+    }
+}
@@ -0,0 +1,1113 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/*
+ *
+ *
+ *
+ *
+ *
+ * Written by Doug Lea with assistance from members of JCP JSR-166
+ * Expert Group and released to the public domain, as explained at
+ * http://creativecommons.org/publicdomain/zero/1.0/
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded {@linkplain BlockingQueue blocking queue} backed by a
+ * circular array, in which insertion and removal are non-blocking
+ * (lock-free) when the queue is neither full nor empty.  This queue
+ * orders elements FIFO (first-in-first-out).  The capacity is fixed
+ * at construction, rounded up to a power of two.
+ *
+ * <p>Unlike {@link ArrayBlockingQueue}, producers and consumers do not
+ * contend for a common lock, and unlike {@link LinkedBlockingQueue},
+ * no nodes are allocated per element.  Each array slot carries a
+ * sequence number that tells producers when the slot is free and
+ * consumers when it holds a published element, so a producer or
+ * consumer needs only a single atomic update of a shared position
+ * per operation, or per batch for {@link #offerAll} and {@link
+ * #drainTo(Collection, int) drainTo}.  Queues created by {@link
+ * #newSingleProducerQueue} or {@link #newSingleProducerSingleConsumerQueue}
+ * avoid even these atomic updates on the sides that are known to be
+ * used by only one thread at a time.
+ *
+ * <p>Threads that must wait for space or elements in {@code put},
+ * {@code take} and their timed forms do so according to a {@link
+ * WaitStrategy}: busy-spinning, yielding, or (by default) spinning
+ * briefly and then blocking.  Only the blocking strategy requires
+ * producers and consumers to check for waiting threads, so spinning
+ * strategies minimize latency at the expense of CPU time.
+ *
+ * <p>This queue may be used as the work queue of a {@link
+ * ThreadPoolExecutor}.  Removal of interior elements, by {@link
+ * #remove(Object)} or an iterator, is supported but marks the element
+ * as removed rather than compacting the array; its slot is reclaimed
+ * when it reaches the head of the queue.  Until then, it is excluded
+ * from {@link #size} but still occupies capacity, as reported by
+ * {@link #remainingCapacity}.
+ *
+ * <p>Iterators and spliterators are <a
+ * href="package-summary.html#Weakly"><i>weakly consistent</i></a>,
+ * traversing a snapshot of the elements present at some point at or
+ * since their creation.
+ *
+ * <p>This class and its iterator implement all of the
+ * <em>optional</em> methods of the {@link Collection} and {@link
+ * Iterator} interfaces.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a>.
+ *
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ */
+public class RingBufferBlockingQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E>, java.io.Serializable {
+    private static final long serialVersionUID = -1183617251962418734L;
+
+    /*
+     * Implementation overview:
+     *
+     * This is Dmitry Vyukov's bounded MPMC queue.  Positions head and
+     * tail increase monotonically; position p maps to slot p & mask.
+     * Slot sequence numbers are initially their indices.  A producer
+     * at tail position t may claim the slot when its sequence equals
+     * t, and publishes the element by setting the sequence to t + 1.
+     * A consumer at head position h may claim the slot when its
+     * sequence equals h + 1, and frees it for the producer at h +
+     * capacity by setting the sequence to that value.  A sequence
+     * less than expected means the queue is full (for producers) or
+     * empty (for consumers); greater means another thread claimed the
+     * position first, so the position is reread.  Positions are
+     * claimed by CAS, or by an ordered write if the side has a single
+     * thread.  Batch operations claim several consecutive positions
+     * whose slots are all ready in one step.
+     *
+     * Consumers take elements by atomically swapping the slot with
+     * null, so that remove(Object) can concurrently replace a
+     * published element with the REMOVED marker by CAS; exactly one
+     * of them obtains the element.  Consumers discard REMOVED markers,
+     * which are counted in removedCount so that size() excludes them;
+     * the count may briefly lag, as the remover increments it only
+     * after its CAS.
+     *
+     * For the PARK wait strategy, waiting threads register in a
+     * waiter count and block on a Condition of a lock used only for
+     * this purpose.  A thread that publishes or frees a slot issues a
+     * full fence (ordering the sequence write before the count read)
+     * and signals only if the count is nonzero.  A waiter increments
+     * the count (a volatile write) before rechecking the slot, so at
+     * least one of them sees the other.
+     *
+     * The positions are padded to reduce false sharing between
+     * producers and consumers.
+     */
+
+    /**
+     * Strategies for threads waiting to insert into a full queue or
+     * remove from an empty one.
+     */
+    public enum WaitStrategy {
+        /** Retry continuously.  Lowest latency; occupies a CPU while waiting. */
+        SPIN,
+        /** Retry after {@link Thread#yield} */
+        YIELD,
+        /** Retry briefly, then block until signalled by another thread. */
+        PARK
+    }
+
+    /** Marker for elements removed by remove(Object). */
+    static final Object REMOVED = new Object();
+
+    /** The largest possible capacity. */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /** The maximum number of slots claimed by a batch operation at once. */
+    static final int MAX_BATCH = 1 << 10;
+
+    /** Number of CPUS, to place bounds on some sizings */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /** The number of retries before blocking, for the PARK strategy. */
+    static final int SPINS = (NCPU > 1) ? 1 << 6 : 0;
+
+    /** The capacity; a power of two. */
+    final int capacity;
+
+    /** Whether at most one thread inserts at a time. */
+    final boolean singleProducer;
+
+    /** Whether at most one thread removes at a time. */
+    final boolean singleConsumer;
+
+    /** The wait strategy. */
+    final WaitStrategy waitStrategy;
+
+    /** Lock used only by blocked threads and threads signalling them. */
+    final ReentrantLock lock;
+
+    /** Condition for waiting takes */
+    private final Condition notEmpty;
+
+    /** Condition for waiting puts */
+    private final Condition notFull;
+
+    /** The queued items */
+    transient Object[] items;
+
+    /** Slot sequence numbers */
+    transient long[] sequences;
+
+    /** Position of the next element to remove. */
+    @sun.misc.Contended("head") transient volatile long head;
+
+    /** Position of the next element to insert. */
+    @sun.misc.Contended("tail") transient volatile long tail;
+
+    /** Number of threads blocked in take; updated while holding lock. */
+    transient volatile int takeWaiters;
+
+    /** Number of threads blocked in put; updated while holding lock. */
+    transient volatile int putWaiters;
+
+    /** Number of REMOVED markers not yet discarded by consumers. */
+    transient volatile int removedCount;
+
+    /**
+     * Returns a power of two size for the given target capacity.
+     */
+    private static int tableSizeFor(int c) {
+        int n = c - 1;
+        n |= n >>> 1;
+        n |= n >>> 2;
+        n |= n >>> 4;
+        n |= n >>> 8;
+        n |= n >>> 16;
+        return (n < 0) ? 1 : (n >= MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY : n + 1;
+    }
+
+    /**
+     * Creates a {@code RingBufferBlockingQueue} with the given
+     * (minimum) capacity and the {@link WaitStrategy#PARK PARK} wait
+     * strategy.
+     *
+     * @param capacity the minimum capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity < 1}
+     */
+    public RingBufferBlockingQueue(int capacity) {
+        this(capacity, WaitStrategy.PARK, false, false);
+    }
+
+    /**
+     * Creates a {@code RingBufferBlockingQueue} with the given
+     * (minimum) capacity and wait strategy.
+     *
+     * @param capacity the minimum capacity of this queue
+     * @param waitStrategy the wait strategy
+     * @throws IllegalArgumentException if {@code capacity < 1}
+     * @throws NullPointerException if waitStrategy is null
+     */
+    public RingBufferBlockingQueue(int capacity, WaitStrategy waitStrategy) {
+        this(capacity, waitStrategy, false, false);
+    }
+
+    RingBufferBlockingQueue(int capacity, WaitStrategy waitStrategy,
+                            boolean singleProducer, boolean singleConsumer) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException();
+        if (waitStrategy == null)
+            throw new NullPointerException();
+        this.capacity = tableSizeFor(capacity);
+        this.waitStrategy = waitStrategy;
+        this.singleProducer = singleProducer;
+        this.singleConsumer = singleConsumer;
+        this.lock = new ReentrantLock();
+        this.notEmpty = lock.newCondition();
+        this.notFull = lock.newCondition();
+        initSlots();
+    }
+
+    /**
+     * Creates a queue for use by any number of consumers but at most
+     * one producer thread at a time.  The effects of concurrent
+     * insertions into such a queue are undefined.
+     *
+     * @param capacity the minimum capacity of the queue
+     * @param waitStrategy the wait strategy
+     * @param <E> the type of elements held in the queue
+     * @return the new queue
+     * @throws IllegalArgumentException if {@code capacity < 1}
+     * @throws NullPointerException if waitStrategy is null
+     */
+    public static <E> RingBufferBlockingQueue<E> newSingleProducerQueue(
+        int capacity, WaitStrategy waitStrategy) {
+        return new RingBufferBlockingQueue<E>(capacity, waitStrategy,
+                                              true, false);
+    }
+
+    /**
+     * Creates a queue for use by any number of producers but at most
+     * one consumer thread at a time.  The effects of concurrent
+     * removals from such a queue, including by {@code drainTo}, are
+     * undefined.  {@link #remove(Object)} may be used concurrently.
+     *
+     * @param capacity the minimum capacity of the queue
+     * @param waitStrategy the wait strategy
+     * @param <E> the type of elements held in the queue
+     * @return the new queue
+     * @throws IllegalArgumentException if {@code capacity < 1}
+     * @throws NullPointerException if waitStrategy is null
+     */
+    public static <E> RingBufferBlockingQueue<E> newSingleConsumerQueue(
+        int capacity, WaitStrategy waitStrategy) {
+        return new RingBufferBlockingQueue<E>(capacity, waitStrategy,
+                                              false, true);
+    }
+
+    /**
+     * Creates a queue for use by at most one producer and one
+     * consumer thread at a time.  The effects of concurrent
+     * insertions, or of concurrent removals, are undefined.
+     *
+     * @param capacity the minimum capacity of the queue
+     * @param waitStrategy the wait strategy
+     * @param <E> the type of elements held in the queue
+     * @return the new queue
+     * @throws IllegalArgumentException if {@code capacity < 1}
+     * @throws NullPointerException if waitStrategy is null
+     */
+    public static <E> RingBufferBlockingQueue<E> newSingleProducerSingleConsumerQueue(
+        int capacity, WaitStrategy waitStrategy) {
+        return new RingBufferBlockingQueue<E>(capacity, waitStrategy,
+                                              true, true);
+    }
+
+    private void initSlots() {
+        int n = capacity;
+        items = new Object[n];
+        long[] seqs = new long[n];
+        for (int i = 0; i < n; ++i)
+            seqs[i] = i;
+        sequences = seqs;
+    }
+
+    // Slot access
+
+    private static long seqAt(long[] seqs, int i) {
+        return U.getLongVolatile(seqs, ((long)i << LSHIFT) + LBASE);
+    }
+
+    private static void setSeqAt(long[] seqs, int i, long v) {
+        U.putOrderedLong(seqs, ((long)i << LSHIFT) + LBASE, v);
+    }
+
+    private static Object itemAt(Object[] items, int i) {
+        return U.getObjectVolatile(items, ((long)i << ASHIFT) + ABASE);
+    }
+
+    private static Object takeItemAt(Object[] items, int i) {
+        return U.getAndSetObject(items, ((long)i << ASHIFT) + ABASE, null);
+    }
+
+    private static boolean casItemAt(Object[] items, int i, Object c, Object v) {
+        return U.compareAndSwapObject(items, ((long)i << ASHIFT) + ABASE, c, v);
+    }
+
+    // Core non-blocking operations
+
+    /**
+     * Inserts x at the tail if a slot is free.
+     *
+     * @return true if inserted
+     */
+    private boolean enqueue(Object x) {
+        final Object[] items = this.items;
+        final long[] seqs = this.sequences;
+        final int mask = items.length - 1;
+        for (;;) {
+            long t = tail;
+            int i = (int)t & mask;
+            long d = seqAt(seqs, i) - t;
+            if (d == 0L) {
+                if (singleProducer)
+                    U.putOrderedLong(this, TAIL, t + 1L);
+                else if (!U.compareAndSwapLong(this, TAIL, t, t + 1L))
+                    continue;
+                items[i] = x;
+                setSeqAt(seqs, i, t + 1L);
+                return true;
+            }
+            else if (d < 0L)
+                return false; // full
+        }
+    }
+
+    /**
+     * Inserts up to n elements of a starting at offset off, as a
+     * batch of consecutive positions, if any slots are free.
+     *
+     * @return the number inserted
+     */
+    private int enqueueBatch(Object[] a, int off, int n) {
+        final Object[] items = this.items;
+        final long[] seqs = this.sequences;
+        final int mask = items.length - 1;
+        n = Math.min(n, Math.min(MAX_BATCH, items.length));
+        for (;;) {
+            long t = tail;
+            int k = 0;
+            long d;
+            while (k < n && seqAt(seqs, (int)(t + k) & mask) == t + k)
+                ++k;
+            if (k == 0) {
+                if ((d = seqAt(seqs, (int)t & mask) - t) < 0L)
+                    return 0; // full
+                else if (d > 0L)
+                    continue;
+            }
+            if (singleProducer)
+                U.putOrderedLong(this, TAIL, t + k);
+            else if (!U.compareAndSwapLong(this, TAIL, t, t + k))
+                continue;
+            for (int j = 0; j < k; ++j) {
+                int i = (int)(t + j) & mask;
+                items[i] = a[off + j];
+                setSeqAt(seqs, i, t + j + 1L);
+            }
+            return k;
+        }
+    }
+
+    /**
+     * Removes the element at the head, if one is published.
+     *
+     * @return the element, REMOVED if a removed element was
+     * discarded, or null if empty
+     */
+    private Object dequeue() {
+        final Object[] items = this.items;
+        final long[] seqs = this.sequences;
+        final int n = items.length, mask = n - 1;
+        for (;;) {
+            long h = head;
+            int i = (int)h & mask;
+            long d = seqAt(seqs, i) - (h + 1L);
+            if (d == 0L) {
+                if (singleConsumer)
+                    U.putOrderedLong(this, HEAD, h + 1L);
+                else if (!U.compareAndSwapLong(this, HEAD, h, h + 1L))
+                    continue;
+                Object x = takeItemAt(items, i);
+                setSeqAt(seqs, i, h + n);
+                if (x == REMOVED)
+                    U.getAndAddInt(this, REMOVED_COUNT, -1);
+                return x;
+            }
+            else if (d < 0L)
+                return null; // empty
+        }
+    }
+
+    /**
+     * Removes up to max published elements from the head as a batch,
+     * storing those not removed by remove(Object) into buf.
+     *
+     * @return the number of slots freed (possibly more than the
+     * number of elements stored), or 0 if empty
+     */
+    private int dequeueBatch(Object[] buf, int max, int[] stored) {
+        final Object[] items = this.items;
+        final long[] seqs = this.sequences;
+        final int n = items.length, mask = n - 1;
+        max = Math.min(max, Math.min(MAX_BATCH, n));
+        for (;;) {
+            long h = head;
+            int k = 0;
+            long d;
+            while (k < max && seqAt(seqs, (int)(h + k) & mask) == h + k + 1L)
+                ++k;
+            if (k == 0) {
+                if ((d = seqAt(seqs, (int)h & mask) - (h + 1L)) < 0L)
+                    return 0; // empty
+                else if (d > 0L)
+                    continue;
+            }
+            if (singleConsumer)
+                U.putOrderedLong(this, HEAD, h + k);
+            else if (!U.compareAndSwapLong(this, HEAD, h, h + k))
+                continue;
+            int s = 0;
+            for (int j = 0; j < k; ++j) {
+                int i = (int)(h + j) & mask;
+                Object x = takeItemAt(items, i);
+                setSeqAt(seqs, i, h + j + n);
+                if (x != REMOVED)
+                    buf[s++] = x;
+            }
+            if (s < k)
+                U.getAndAddInt(this, REMOVED_COUNT, s - k);
+            stored[0] = s;
+            return k;
+        }
+    }
+
+    /**
+     * Returns true if the slot at the head holds a published element.
+     */
+    private boolean canTake() {
+        long h = head;
+        return seqAt(sequences, (int)h & (capacity - 1)) == h + 1L;
+    }
+
+    /**
+     * Returns true if the slot at the tail is free.
+     */
+    private boolean canPut() {
+        long t = tail;
+        return seqAt(sequences, (int)t & (capacity - 1)) == t;
+    }
+
+    // Signalling
+
+    /**
+     * Wakes up threads blocked in take, if any.
+     */
+    private void signalNotEmpty(boolean all) {
+        if (waitStrategy == WaitStrategy.PARK) {
+            U.fullFence();
+            if (takeWaiters != 0) {
+                final ReentrantLock lock = this.lock;
+                lock.lock();
+                try {
+                    if (all)
+                        notEmpty.signalAll();
+                    else
+                        notEmpty.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Wakes up threads blocked in put, if any.
+     */
+    private void signalNotFull(boolean all) {
+        if (waitStrategy == WaitStrategy.PARK) {
+            U.fullFence();
+            if (putWaiters != 0) {
+                final ReentrantLock lock = this.lock;
+                lock.lock();
+                try {
+                    if (all)
+                        notFull.signalAll();
+                    else
+                        notFull.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Blocks until possibly signalled that the queue is not empty,
+     * unless it is already not empty.
+     */
+    private void awaitNotEmpty(boolean timed, long nanos)
+        throws InterruptedException {
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            ++takeWaiters;
+            try {
+                if (!canTake()) {
+                    if (timed)
+                        notEmpty.awaitNanos(nanos);
+                    else
+                        notEmpty.await();
+                }
+            } finally {
+                --takeWaiters;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until possibly signalled that the queue is not full,
+     * unless it is already not full.
+     */
+    private void awaitNotFull(boolean timed, long nanos)
+        throws InterruptedException {
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            ++putWaiters;
+            try {
+                if (!canPut()) {
+                    if (timed)
+                        notFull.awaitNanos(nanos);
+                    else
+                        notFull.await();
+                }
+            } finally {
+                --putWaiters;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Implements put and timed offer.
+     */
+    private boolean awaitPut(E e, boolean timed, long nanos)
+        throws InterruptedException {
+        if (e == null) throw new NullPointerException();
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        for (int spins = SPINS;;) {
+            if (enqueue(e)) {
+                signalNotEmpty(false);
+                return true;
+            }
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (timed && (nanos = deadline - System.nanoTime()) <= 0L)
+                return false;
+            if (waitStrategy == WaitStrategy.YIELD)
+                Thread.yield();
+            else if (waitStrategy == WaitStrategy.PARK) {
+                if (spins > 0)
+                    --spins;
+                else
+                    awaitNotFull(timed, nanos);
+            }
+        }
+    }
+
+    /**
+     * Implements take and timed poll.
+     */
+    @SuppressWarnings("unchecked")
+    private E awaitTake(boolean timed, long nanos)
+        throws InterruptedException {
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        for (int spins = SPINS;;) {
+            Object x = dequeue();
+            if (x != null) {
+                signalNotFull(false);
+                if (x != REMOVED)
+                    return (E) x;
+                continue;
+            }
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (timed && (nanos = deadline - System.nanoTime()) <= 0L)
+                return null;
+            if (waitStrategy == WaitStrategy.YIELD)
+                Thread.yield();
+            else if (waitStrategy == WaitStrategy.PARK) {
+                if (spins > 0)
+                    --spins;
+                else
+                    awaitNotEmpty(timed, nanos);
+            }
+        }
+    }
+
+    // Public operations
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's capacity,
+     * returning {@code true} upon success and throwing an
+     * {@code IllegalStateException} if this queue is full.
+     *
+     * @param e the element to add
+     * @return {@code true} (as specified by {@link Collection#add})
+     * @throws IllegalStateException if this queue is full
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean add(E e) {
+        return super.add(e);
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's capacity,
+     * returning {@code true} upon success and {@code false} if this queue
+     * is full.  This method is generally preferable to method {@link #add},
+     * which can fail to insert an element only by throwing an exception.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null) throw new NullPointerException();
+        if (!enqueue(e))
+            return false;
+        signalNotEmpty(false);
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * for space to become available if the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) throws InterruptedException {
+        awaitPut(e, false, 0L);
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * up to the specified wait time for space to become available if
+     * the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        return awaitPut(e, true, unit.toNanos(timeout));
+    }
+
+    /**
+     * Inserts as many elements of the given collection as possible at
+     * the tail of this queue without waiting, in the order returned
+     * by its iterator, stopping when this queue is full.  Elements
+     * are inserted in batches of consecutive positions, so other
+     * producers' elements are not interleaved within a batch.
+     *
+     * @param c the collection of elements to insert
+     * @return the number of elements inserted, which are the first
+     *         elements returned by the collection's iterator
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null, in which case no elements are
+     *         inserted
+     * @throws IllegalArgumentException if the collection is this queue
+     */
+    public int offerAll(Collection<? extends E> c) {
+        if (c == this)
+            throw new IllegalArgumentException();
+        Object[] a = c.toArray();
+        for (Object x : a)
+            if (x == null) throw new NullPointerException();
+        int n = 0, len = a.length;
+        for (int k; n < len && (k = enqueueBatch(a, n, len - n)) > 0; n += k)
+            ;
+        if (n > 0)
+            signalNotEmpty(n > 1);
+        return n;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        for (Object x; (x = dequeue()) != null; ) {
+            signalNotFull(false);
+            if (x != REMOVED)
+                return (E) x;
+        }
+        return null;
+    }
+
+    public E take() throws InterruptedException {
+        return awaitTake(false, 0L);
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return awaitTake(true, unit.toNanos(timeout));
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        final Object[] items = this.items;
+        final long[] seqs = this.sequences;
+        final int mask = items.length - 1;
+        restart: for (;;) {
+            for (long h = head, p = h; ; ++p) {
+                int i = (int)p & mask;
+                if (seqAt(seqs, i) != p + 1L)
+                    return null;
+                Object x = itemAt(items, i);
+                if (head != h)
+                    continue restart;
+                if (x != null && x != REMOVED)
+                    return (E) x;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of elements in this queue.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        long n = slotsInUse() - removedCount;
+        return (n <= 0L) ? 0 : (int)n;
+    }
+
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    /**
+     * Returns the number of slots holding elements, including
+     * removed interior elements not yet reclaimed.
+     */
+    private long slotsInUse() {
+        long h = head, t = tail;
+        long n = t - h;
+        return (n <= 0L) ? 0L : (n >= capacity) ? capacity : n;
+    }
+
+    /**
+     * Returns the number of additional elements that this queue can ideally
+     * (in the absence of memory or resource constraints) accept without
+     * blocking. This is always equal to the capacity of this queue
+     * less the current {@code size} of this queue and the number of
+     * slots still held by interior elements removed by {@link
+     * #remove(Object)}, which are reclaimed when they reach the head.
+     *
+     * <p>Note that you <em>cannot</em> always tell if an attempt to insert
+     * an element will succeed by inspecting {@code remainingCapacity}
+     * because it may be the case that another thread is about to
+     * insert or remove an element.
+     */
+    public int remainingCapacity() {
+        return capacity - (int)slotsInUse();
+    }
+
+    /**
+     * Removes a single instance of the specified element from this queue,
+     * if it is present.  More formally, removes an element {@code e} such
+     * that {@code o.equals(e)}, if this queue contains one or more such
+     * elements.
+     * Returns {@code true} if this queue contained the specified element
+     * (or equivalently, if this queue changed as a result of the call).
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Object o) {
+        return o != null && removeMatch(o, false);
+    }
+
+    /**
+     * Marks as removed the first element present that equals (or is,
+     * if identity is true) o.
+     */
+    private boolean removeMatch(Object o, boolean identity) {
+        final Object[] items = this.items;
+        final long[] seqs = this.sequences;
+        final int mask = items.length - 1;
+        for (long p = head, t = tail; p < t; ++p) {
+            int i = (int)p & mask;
+            if (seqAt(seqs, i) == p + 1L) {
+                Object x = itemAt(items, i);
+                if (x != null && x != REMOVED &&
+                    (x == o || (!identity && o.equals(x))) &&
+                    casItemAt(items, i, x, REMOVED)) {
+                    U.getAndAddInt(this, REMOVED_COUNT, 1);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if this queue contains the specified element.
+     * More formally, returns {@code true} if and only if this queue contains
+     * at least one element {@code e} such that {@code o.equals(e)}.
+     *
+     * @param o object to be checked for containment in this queue
+     * @return {@code true} if this queue contains the specified element
+     */
+    public boolean contains(Object o) {
+        if (o != null) {
+            for (Object x : toArray())
+                if (o.equals(x))
+                    return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns an array containing the elements present in this queue
+     * at some point during the call, in proper sequence.
+     *
+     * @return an array containing the elements in this queue
+     */
+    public Object[] toArray() {
+        final Object[] items = this.items;
+        final long[] seqs = this.sequences;
+        final int mask = items.length - 1;
+        long h = head, t = tail;
+        Object[] a = new Object[(int)Math.max(0L, Math.min(t - h, capacity))];
+        int n = 0;
+        for (long p = h; p < t && n < a.length; ++p) {
+            int i = (int)p & mask;
+            if (seqAt(seqs, i) == p + 1L) {
+                Object x = itemAt(items, i);
+                if (x != null && x != REMOVED)
+                    a[n++] = x;
+            }
+        }
+        return (n == a.length) ? a : Arrays.copyOf(a, n);
+    }
+
+    /**
+     * Returns an array containing the elements present in this queue
+     * at some point during the call, in proper sequence; the runtime
+     * type of the returned array is that of the specified array, as
+     * described for {@link Collection#toArray(Object[])}.
+     *
+     * @param a the array into which the elements of the queue are to
+     *          be stored, if it is big enough; otherwise, a new array of the
+     *          same runtime type is allocated for this purpose
+     * @return an array containing all of the elements in this queue
+     * @throws ArrayStoreException if the runtime type of the specified array
+     *         is not a supertype of the runtime type of every element in
+     *         this queue
+     * @throws NullPointerException if the specified array is null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        Object[] x = toArray();
+        int n = x.length;
+        if (a.length < n)
+            return (T[]) Arrays.copyOf(x, n, a.getClass());
+        System.arraycopy(x, 0, a, 0, n);
+        if (a.length > n)
+            a[n] = null;
+        return a;
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Removes at most the given number of available elements from
+     * this queue and adds them to the given collection.  Elements are
+     * removed in batches of consecutive positions.  If adding an
+     * element to the collection fails, the remaining elements of the
+     * batch are lost, as permitted by {@link BlockingQueue#drainTo}.
+     *
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        Object[] buf = new Object[Math.min(maxElements, Math.min(MAX_BATCH, capacity))];
+        int[] stored = new int[1];
+        int n = 0;
+        for (int k; n < maxElements &&
+                 (k = dequeueBatch(buf, maxElements - n, stored)) > 0; ) {
+            signalNotFull(k > 1);
+            int s = stored[0];
+            try {
+                for (int j = 0; j < s; ++j)
+                    c.add((E) buf[j]);
+            } finally {
+                Arrays.fill(buf, 0, s, null);
+            }
+            n += s;
+        }
+        return n;
+    }
+
+    /**
+     * Returns an iterator over the elements in this queue in proper
+     * sequence, traversing a snapshot of the elements present when
+     * the iterator was created.  Its {@code remove} method removes
+     * the last element returned from this queue if still present.
+     *
+     * @return an iterator over the elements in this queue in proper sequence
+     */
+    public Iterator<E> iterator() {
+        return new Itr(toArray());
+    }
+
+    /**
+     * Iterator over a snapshot of the queue.
+     */
+    final class Itr implements Iterator<E> {
+        final Object[] array;
+        int cursor;
+        int lastRet = -1;
+
+        Itr(Object[] array) {
+            this.array = array;
+        }
+
+        public boolean hasNext() {
+            return cursor < array.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            int i = cursor;
+            if (i >= array.length)
+                throw new NoSuchElementException();
+            cursor = i + 1;
+            return (E) array[lastRet = i];
+        }
+
+        public void remove() {
+            int i = lastRet;
+            if (i < 0)
+                throw new IllegalStateException();
+            lastRet = -1;
+            removeMatch(array[i], true);
+        }
+    }
+
+    /**
+     * Returns a {@link Spliterator} over the elements in this queue.
+     *
+     * <p>The returned spliterator is
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#CONCURRENT},
+     * {@link Spliterator#ORDERED}, and {@link Spliterator#NONNULL}.
+     *
+     * @implNote
+     * The {@code Spliterator} implements {@code trySplit} to permit limited
+     * parallelism.
+     *
+     * @return a {@code Spliterator} over the elements in this queue
+     * @since 1.8
+     */
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator
+            (this, Spliterator.ORDERED | Spliterator.NONNULL |
+             Spliterator.CONCURRENT);
+    }
+
+    /**
+     * Saves this queue to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The capacity and settings are emitted, followed by
+     * the elements in proper order, followed by a null
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        for (Object x : toArray())
+            s.writeObject(x);
+        s.writeObject(null);
+    }
+
+    /**
+     * Reconstitutes this queue from a stream (that is, deserializes it).
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (capacity <= 0 || (capacity & (capacity - 1)) != 0 ||
+            waitStrategy == null)
+            throw new java.io.InvalidObjectException("Bad settings");
+        initSlots();
+        for (;;) {
+            @SuppressWarnings("unchecked")
+            E item = (E)s.readObject();
+            if (item == null)
+                break;
+            if (!enqueue(item))
+                throw new java.io.InvalidObjectException("Too many elements");
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long HEAD;
+    private static final long TAIL;
+    private static final long REMOVED_COUNT;
+    private static final long ABASE;
+    private static final int ASHIFT;
+    private static final long LBASE;
+    private static final int LSHIFT;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = RingBufferBlockingQueue.class;
+            HEAD = U.objectFieldOffset(k.getDeclaredField("head"));
+            TAIL = U.objectFieldOffset(k.getDeclaredField("tail"));
+            REMOVED_COUNT = U.objectFieldOffset
+                (k.getDeclaredField("removedCount"));
+            ABASE = U.arrayBaseOffset(Object[].class);
+            int scale = U.arrayIndexScale(Object[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+            LBASE = U.arrayBaseOffset(long[].class);
+            int lscale = U.arrayIndexScale(long[].class);
+            if ((lscale & (lscale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            LSHIFT = 31 - Integer.numberOfLeadingZeros(lscale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,1121 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/*
+ *
+ *
+ *
+ *
+ *
+ * Written by Doug Lea with assistance from members of JCP JSR-166
+ * Expert Group and released to the public domain, as explained at
+ * http://creativecommons.org/publicdomain/zero/1.0/
+ */
+
+package java.util.concurrent;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link ScheduledExecutorService} that keeps its delayed tasks in a
+ * hierarchical timing wheel rather than a priority queue, making it
+ * suitable for applications that schedule (and mostly cancel) very
+ * large numbers of timeouts.  Scheduling and cancelling a task are
+ * both O(1) operations that never block, and each clock tick expires
+ * all tasks due in it at once, independently of how many tasks are
+ * pending.
+ *
+ * <p>Time is divided into <em>ticks</em> of a configurable duration.
+ * A delayed task is enabled at the first tick boundary at or after
+ * its trigger time, so it never runs early but may run up to one tick
+ * late, in addition to the usual scheduling latencies.  Coarser ticks
+ * make bookkeeping cheaper; finer ticks give more precise timing.
+ * Tasks enabled in the same tick are not ordered with respect to
+ * each other.
+ *
+ * <p>The wheel is maintained by a single <em>ticker</em> thread,
+ * created on first use with the {@link ThreadFactory} supplied at
+ * construction.  The ticker never runs tasks itself (except as noted
+ * below); instead, expired tasks are handed in batches of up to a
+ * configurable size to a separate <em>dispatcher</em> {@link
+ * Executor}, by default the {@link ForkJoinPool#commonPool()}.  The
+ * tasks of one batch run one after the other in a single dispatcher
+ * task, which amortizes hand-off costs across the many short actions
+ * typical of timeout handling; a maximum batch size of one dispatches
+ * every task separately.  If the dispatcher rejects a batch, the
+ * batch is run by the thread that tried to dispatch it.
+ *
+ * <p>Cancelled tasks are removed from the wheel promptly, so they do
+ * not retain memory until their trigger time.  Tasks submitted using
+ * {@code execute} or {@code submit}, or scheduled with a
+ * non-positive delay, bypass the wheel and are dispatched
+ * immediately.
+ *
+ * <p>As with {@link ScheduledThreadPoolExecutor} under its default
+ * policies, delayed tasks still pending upon {@link #shutdown} are
+ * executed when they become due, while periodic tasks are cancelled.
+ * The executor terminates once no delayed tasks remain and all
+ * dispatched batches have completed.  {@link #shutdownNow} returns the
+ * delayed tasks that have not yet been dispatched; tasks already
+ * dispatched but not yet started are cancelled instead of run.
+ *
+ * @since 1.8
+ */
+public class TimingWheelScheduledExecutor extends AbstractExecutorService
+    implements ScheduledExecutorService {
+
+    /*
+     * Overview:
+     *
+     * The wheel consists of a number of levels, each an array of
+     * 2^wheelBits slots holding doubly-linked lists of tasks.  Level k
+     * holds tasks expiring between 2^(k*wheelBits) and
+     * 2^((k+1)*wheelBits) ticks after the current tick, in the slot
+     * indexed by the corresponding bits of their (absolute) expiry
+     * tick, as in the classic hashed hierarchical wheels of Varghese
+     * and Lauck.  On each tick, the ticker expires the level-0 slot
+     * of the new tick; whenever the low k*wheelBits bits of the tick
+     * are all zero, the current slot of level k is first "cascaded":
+     * its tasks are reinserted relative to the new tick, landing in
+     * lower levels or expiring.  Because slots are indexed by
+     * absolute expiry ticks, a slot is always cascaded exactly when
+     * its tasks come within range of the level below.  With levels
+     * covering 63 bits of ticks, any delay fits without clamping.
+     *
+     * Only the ticker thread touches the wheel, so none of its
+     * structures need synchronization.  Other threads communicate
+     * with it through the "submissions" queue: schedule (and periodic
+     * rescheduling) enqueues a task to be linked in, and cancel
+     * enqueues it again so that the ticker unlinks it (in O(1) via
+     * its prev/next links and recorded slot).  The ticker
+     * distinguishes the cases by the task's state: a cancelled task
+     * is unlinked if linked and otherwise dropped, and an
+     * uncancelled unlinked task is inserted.  Since CLQ allocates its
+     * own nodes, a task may safely appear in the queue more than once.
+     *
+     * To avoid spinning through idle ticks, the ticker parks until
+     * the next tick only when level 0 holds tasks; otherwise it skips
+     * ahead to the next level-0 wraparound (where a cascade may
+     * repopulate level 0), or parks indefinitely when no tasks are
+     * pending at all, in which case it fast-forwards its clock upon
+     * waking.  It publishes the tick it is sleeping until in
+     * "sleepUntil" (zero while awake), and submitters unpark it only
+     * when their task expires before then.  This is a Dekker-style
+     * protocol: the ticker writes sleepUntil and then rechecks the
+     * queue before parking, while submitters enqueue (a CAS) and then
+     * read sleepUntil, so at least one of them sees the other.  In
+     * the common case of timeouts much longer than a tick, schedule
+     * thus costs a single CAS and never wakes the ticker.  Cancel
+     * instead wakes a sleeping ticker unconditionally, so that
+     * cancelled tasks are released promptly rather than held in the
+     * queue and wheel until the next tick, which may be far off when
+     * the ticker is skipping ahead.  Since the ticker clears
+     * sleepUntil while awake, a burst of cancellations wakes it at
+     * most once per sleep.
+     *
+     * Expired tasks are collected into an array and dispatched as
+     * Batch objects.  The activeBatches count tracks batches that
+     * have been dispatched but not completed, which is needed to
+     * detect termination.  Submitters that race with shutdown
+     * recheck the run state after enqueuing, and reject their task if
+     * they can still remove it from the queue; otherwise the ticker
+     * has taken responsibility for it.
+     */
+
+    /** Run state: accepting new tasks */
+    private static final int RUNNING    = 0;
+    /** Run state: not accepting new tasks, but running pending delayed ones */
+    private static final int SHUTDOWN   = 1;
+    /** Run state: not running pending tasks */
+    private static final int STOP       = 2;
+    /** Run state: terminated */
+    private static final int TERMINATED = 3;
+
+    /** The maximum number of ticks per wheel level */
+    private static final int MAXIMUM_TICKS_PER_WHEEL = 1 << 16;
+
+    /** Default maximum number of tasks per dispatched batch */
+    private static final int DEFAULT_MAX_BATCH_SIZE = 64;
+
+    /** The tick duration, in nanoseconds */
+    private final long tickNanos;
+
+    /** The log2 of the number of slots per wheel level */
+    private final int wheelBits;
+
+    /** The number of slots per wheel level, minus one */
+    private final int wheelMask;
+
+    /** The number of wheel levels */
+    private final int levels;
+
+    /** The executor that runs expired tasks */
+    private final Executor dispatcher;
+
+    /** The maximum number of tasks per dispatched batch */
+    private final int maxBatchSize;
+
+    /** The factory for the ticker thread */
+    private final ThreadFactory threadFactory;
+
+    /** The nanoTime origin of tick zero */
+    private final long origin;
+
+    /** Tasks to be linked into or unlinked from the wheel */
+    private final ConcurrentLinkedQueue<TimedTask<?>> submissions =
+        new ConcurrentLinkedQueue<TimedTask<?>>();
+
+    /** Number of dispatched batches that have not yet completed */
+    private final AtomicInteger activeBatches = new AtomicInteger();
+
+    /** Sequence number to break scheduling ties */
+    private final AtomicLong sequencer = new AtomicLong();
+
+    /** Lock held on run state transitions and ticker startup */
+    private final ReentrantLock mainLock = new ReentrantLock();
+
+    /** Wait condition to support awaitTermination and shutdownNow */
+    private final Condition termination = mainLock.newCondition();
+
+    /** The run state; transitions only under mainLock */
+    private volatile int runState;
+
+    /** The ticker thread, or null if not yet started */
+    private volatile Thread ticker;
+
+    /** True once the ticker thread has exited */
+    private volatile boolean tickerExited;
+
+    /**
+     * The tick up to which the ticker is sleeping: zero if awake, or
+     * Long.MAX_VALUE if waiting for submissions.
+     */
+    private volatile long sleepUntil;
+
+    /** Approximate number of pending delayed tasks, published by ticker */
+    private volatile int pendingCount;
+
+    /** Tasks removed from the wheel by shutdownNow; guarded by mainLock */
+    private List<Runnable> stoppedTasks;
+
+    /** True once stoppedTasks has been set; guarded by mainLock */
+    private boolean tickerDone;
+
+    // Fields below are accessed only by the ticker thread
+
+    /** The wheel levels, each allocated on first use */
+    private final TimedTask<?>[][] wheels;
+
+    /** The current tick */
+    private long currentTick;
+
+    /** Number of tasks linked into the wheel */
+    private int pending;
+
+    /** Number of tasks linked into level 0 */
+    private int level0Count;
+
+    /** Expired tasks awaiting dispatch */
+    private TimedTask<?>[] batch;
+
+    /** Number of tasks in batch */
+    private int batchSize;
+
+    private class TimedTask<V>
+            extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+        /** Sequence number to break ties FIFO */
+        private final long sequenceNumber;
+
+        /** The time the task is enabled to execute in nanoTime units */
+        private long time;
+
+        /**
+         * Period in nanoseconds for repeating tasks.  A positive
+         * value indicates fixed-rate execution.  A negative value
+         * indicates fixed-delay execution.  A value of 0 indicates a
+         * non-repeating task.
+         */
+        private final long period;
+
+        /** The tick in which the task expires; set before submission */
+        long expiryTick;
+
+        /** Bucket links, accessed only by the ticker */
+        TimedTask<?> prev, next;
+
+        /**
+         * The level (in the upper bits) and index (in the lower 16
+         * bits) of the slot holding this task, or -1 if not linked.
+         * Accessed only by the ticker.
+         */
+        int slot = -1;
+
+        /**
+         * Creates a one-shot action with given nanoTime-based trigger time.
+         */
+        TimedTask(Runnable r, V result, long ns) {
+            super(r, result);
+            this.time = ns;
+            this.period = 0;
+            this.sequenceNumber = sequencer.getAndIncrement();
+        }
+
+        /**
+         * Creates a periodic action with given nano time and period.
+         */
+        TimedTask(Runnable r, V result, long ns, long period) {
+            super(r, result);
+            this.time = ns;
+            this.period = period;
+            this.sequenceNumber = sequencer.getAndIncrement();
+        }
+
+        /**
+         * Creates a one-shot action with given nanoTime-based trigger time.
+         */
+        TimedTask(Callable<V> callable, long ns) {
+            super(callable);
+            this.time = ns;
+            this.period = 0;
+            this.sequenceNumber = sequencer.getAndIncrement();
+        }
+
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(time - System.nanoTime(), NANOSECONDS);
+        }
+
+        public int compareTo(Delayed other) {
+            if (other == this) // compare zero if same object
+                return 0;
+            if (other instanceof TimedTask) {
+                TimedTask<?> x = (TimedTask<?>)other;
+                long diff = time - x.time;
+                if (diff < 0)
+                    return -1;
+                else if (diff > 0)
+                    return 1;
+                else if (sequenceNumber < x.sequenceNumber)
+                    return -1;
+                else
+                    return 1;
+            }
+            long diff = getDelay(NANOSECONDS) - other.getDelay(NANOSECONDS);
+            return (diff < 0) ? -1 : (diff > 0) ? 1 : 0;
+        }
+
+        /**
+         * Returns {@code true} if this is a periodic (not a one-shot) action.
+         *
+         * @return {@code true} if periodic
+         */
+        public boolean isPeriodic() {
+            return period != 0;
+        }
+
+        /**
+         * Sets the next time to run for a periodic task.
+         */
+        private void setNextRunTime() {
+            long p = period;
+            if (p > 0)
+                time += p;
+            else
+                time = triggerTime(-p);
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            Thread t;
+            if (cancelled && !tickerExited && (t = ticker) != null) {
+                submissions.offer(this); // ask ticker to unlink
+                if (sleepUntil != 0L)    // don't retain until next tick
+                    LockSupport.unpark(t);
+            }
+            return cancelled;
+        }
+
+        /**
+         * Overrides FutureTask version so as to reset/requeue if periodic.
+         */
+        public void run() {
+            boolean periodic = isPeriodic();
+            int rs = runState;
+            if (rs >= STOP || (periodic && rs != RUNNING))
+                cancel(false);
+            else if (!periodic)
+                TimedTask.super.run();
+            else if (TimedTask.super.runAndReset()) {
+                setNextRunTime();
+                reExecutePeriodic(this);
+            }
+        }
+    }
+
+    /**
+     * A group of expired tasks run by a single dispatcher task.
+     */
+    private final class Batch implements Runnable {
+        private final TimedTask<?>[] tasks;
+        Batch(TimedTask<?>[] tasks) { this.tasks = tasks; }
+        public void run() {
+            try {
+                for (TimedTask<?> t : tasks)
+                    t.run(); // FutureTask.run does not throw
+            } finally {
+                if (activeBatches.decrementAndGet() == 0 &&
+                    runState != RUNNING)
+                    tryTerminate();
+            }
+        }
+    }
+
+    /**
+     * Creates a new executor with a tick duration of one millisecond,
+     * 512 ticks per wheel level, dispatching expired tasks to the
+     * {@link ForkJoinPool#commonPool()} and creating its ticker thread
+     * with {@link Executors#defaultThreadFactory}.
+     */
+    public TimingWheelScheduledExecutor() {
+        this(1L, TimeUnit.MILLISECONDS, 512, ForkJoinPool.commonPool(),
+             DEFAULT_MAX_BATCH_SIZE, Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates a new executor with the given tick duration, 512 ticks
+     * per wheel level, dispatching expired tasks to the {@link
+     * ForkJoinPool#commonPool()} and creating its ticker thread with
+     * {@link Executors#defaultThreadFactory}.
+     *
+     * @param tickDuration the duration of a tick
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @throws IllegalArgumentException if {@code tickDuration} is not
+     *         positive
+     * @throws NullPointerException if {@code unit} is null
+     */
+    public TimingWheelScheduledExecutor(long tickDuration, TimeUnit unit) {
+        this(tickDuration, unit, 512, ForkJoinPool.commonPool(),
+             DEFAULT_MAX_BATCH_SIZE, Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates a new executor with the given tick duration and
+     * dispatcher, 512 ticks per wheel level, creating its ticker
+     * thread with {@link Executors#defaultThreadFactory}.
+     *
+     * @param tickDuration the duration of a tick
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @param dispatcher the executor to run expired tasks
+     * @throws IllegalArgumentException if {@code tickDuration} is not
+     *         positive
+     * @throws NullPointerException if {@code unit} or
+     *         {@code dispatcher} is null
+     */
+    public TimingWheelScheduledExecutor(long tickDuration, TimeUnit unit,
+                                        Executor dispatcher) {
+        this(tickDuration, unit, 512, dispatcher,
+             DEFAULT_MAX_BATCH_SIZE, Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates a new executor with the given parameters.
+     *
+     * @param tickDuration the duration of a tick
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @param ticksPerWheel the number of ticks per wheel level, rounded
+     *        up to a power of two
+     * @param dispatcher the executor to run expired tasks
+     * @param maxBatchSize the maximum number of expired tasks handed
+     *        to the dispatcher as a single task
+     * @param threadFactory the factory to use to create the ticker thread
+     * @throws IllegalArgumentException if {@code tickDuration} or
+     *         {@code maxBatchSize} is not positive, or
+     *         {@code ticksPerWheel} is less than 2 or greater than 65536
+     * @throws NullPointerException if {@code unit}, {@code dispatcher}
+     *         or {@code threadFactory} is null
+     */
+    public TimingWheelScheduledExecutor(long tickDuration, TimeUnit unit,
+                                        int ticksPerWheel,
+                                        Executor dispatcher,
+                                        int maxBatchSize,
+                                        ThreadFactory threadFactory) {
+        if (unit == null || dispatcher == null || threadFactory == null)
+            throw new NullPointerException();
+        long tick = unit.toNanos(tickDuration);
+        if (tickDuration <= 0L || tick <= 0L || maxBatchSize <= 0 ||
+            ticksPerWheel < 2 || ticksPerWheel > MAXIMUM_TICKS_PER_WHEEL)
+            throw new IllegalArgumentException();
+        int bits = 32 - Integer.numberOfLeadingZeros(ticksPerWheel - 1);
+        this.tickNanos = tick;
+        this.wheelBits = bits;
+        this.wheelMask = (1 << bits) - 1;
+        this.levels = 62 / bits + 1;
+        this.dispatcher = dispatcher;
+        this.maxBatchSize = maxBatchSize;
+        this.threadFactory = threadFactory;
+        this.wheels = new TimedTask<?>[levels][];
+        this.origin = System.nanoTime();
+    }
+
+    /**
+     * Returns the nanoTime-based trigger time of a delayed action.
+     */
+    private long triggerTime(long delay) {
+        if (delay < 0L)
+            delay = 0L;
+        return System.nanoTime() +
+            ((delay < (Long.MAX_VALUE >> 1)) ? delay : (Long.MAX_VALUE >> 1));
+    }
+
+    /**
+     * Returns the first tick starting at or after the given time.
+     */
+    private long tickFor(long time) {
+        long d = time - origin;
+        return (d <= 0L) ? 0L : (d - 1L) / tickNanos + 1L;
+    }
+
+    /**
+     * Main execution method for delayed or periodic tasks.  Tasks
+     * that are already due are dispatched directly; others are
+     * handed to the ticker.
+     *
+     * @param task the task
+     * @throws RejectedExecutionException if shut down
+     */
+    private void delayedExecute(TimedTask<?> task) {
+        if (runState != RUNNING)
+            throw new RejectedExecutionException();
+        long tick = tickFor(task.time);
+        if (tick <= 0L || task.time - System.nanoTime() <= 0L)
+            dispatchNow(task);
+        else {
+            task.expiryTick = tick;
+            submissions.offer(task);
+            Thread t = ticker;
+            if (t == null && (t = startTicker()) == null) {
+                if (submissions.remove(task))
+                    throw new RejectedExecutionException();
+            }
+            else if (runState != RUNNING && submissions.remove(task))
+                throw new RejectedExecutionException();
+            else if (tick < sleepUntil)
+                LockSupport.unpark(t);
+        }
+    }
+
+    /**
+     * Requeues a periodic task unless the run state has changed.
+     */
+    final void reExecutePeriodic(TimedTask<?> task) {
+        task.expiryTick = tickFor(task.time);
+        submissions.offer(task);
+        if (runState != RUNNING && submissions.remove(task))
+            task.cancel(false);
+        else {
+            Thread t = ticker;
+            if (t != null && task.expiryTick < sleepUntil)
+                LockSupport.unpark(t);
+        }
+    }
+
+    /**
+     * Dispatches a task that is already due from the calling thread.
+     */
+    private void dispatchNow(TimedTask<?> task) {
+        activeBatches.incrementAndGet();
+        if (runState != RUNNING) {
+            activeBatches.decrementAndGet();
+            tryTerminate();
+            throw new RejectedExecutionException();
+        }
+        Batch b = new Batch(new TimedTask<?>[] { task });
+        try {
+            dispatcher.execute(b);
+        } catch (RejectedExecutionException ex) {
+            b.run();
+        }
+    }
+
+    /**
+     * Starts the ticker thread if not already started and the
+     * executor is running.
+     *
+     * @return the ticker thread, or null if it could not be started
+     */
+    private Thread startTicker() {
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            Thread t = ticker;
+            if (t == null && runState == RUNNING) {
+                t = threadFactory.newThread(new Runnable() {
+                        public void run() { runTicker(); }});
+                if (t != null) {
+                    t.start();
+                    ticker = t;
+                }
+            }
+            return t;
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+    // Ticker-side methods
+
+    /**
+     * Main loop of the ticker thread.
+     */
+    final void runTicker() {
+        boolean swept = false;
+        try {
+            for (;;) {
+                long nowTick = (System.nanoTime() - origin) / tickNanos;
+                if (pending == 0 && currentTick < nowTick)
+                    currentTick = nowTick; // nothing to expire in between
+                drainSubmissions();
+                int rs = runState;
+                if (rs >= STOP)
+                    break;
+                if (rs != RUNNING && !swept) {
+                    swept = true;
+                    cancelPeriodicTasks();
+                }
+                while (pending > 0 && currentTick < nowTick) {
+                    if (level0Count == 0) { // skip to next wraparound
+                        long next = (currentTick | wheelMask) + 1L;
+                        if (next > nowTick) {
+                            currentTick = nowTick;
+                            break;
+                        }
+                        currentTick = next - 1L;
+                    }
+                    advance();
+                }
+                flushBatch();
+                pendingCount = pending;
+                if (pending == 0 && rs != RUNNING && submissions.isEmpty())
+                    break;
+                if (pending == 0) {
+                    sleepUntil = Long.MAX_VALUE;
+                    if (submissions.isEmpty() && runState == RUNNING)
+                        LockSupport.park(this);
+                }
+                else {
+                    long next = (level0Count > 0) ? currentTick + 1L :
+                        (currentTick | wheelMask) + 1L;
+                    sleepUntil = next;
+                    long delay = origin + next * tickNanos - System.nanoTime();
+                    if (delay > 0L && submissions.isEmpty() &&
+                        runState == rs)
+                        LockSupport.parkNanos(this, delay);
+                }
+                sleepUntil = 0L;
+            }
+        } finally {
+            tickerExit();
+        }
+    }
+
+    /**
+     * Links in or unlinks all tasks in the submission queue.
+     */
+    private void drainSubmissions() {
+        TimedTask<?> t;
+        while ((t = submissions.poll()) != null) {
+            if (t.isCancelled()) {
+                if (t.slot >= 0)
+                    unlink(t);
+            }
+            else if (t.slot < 0) {
+                if (t.isPeriodic() && runState == SHUTDOWN)
+                    t.cancel(false);
+                else
+                    insert(t);
+            }
+        }
+    }
+
+    /**
+     * Links a task into the slot for its expiry tick, or adds it to
+     * the batch if it has expired.
+     */
+    private void insert(TimedTask<?> t) {
+        long e = t.expiryTick;
+        long delta = e - currentTick;
+        if (delta <= 0L)
+            expire(t);
+        else {
+            int bits = wheelBits;
+            int level = (63 - Long.numberOfLeadingZeros(delta)) / bits;
+            int index = (int)(e >>> (level * bits)) & wheelMask;
+            TimedTask<?>[] wheel = wheels[level];
+            if (wheel == null)
+                wheels[level] = wheel = new TimedTask<?>[wheelMask + 1];
+            TimedTask<?> h = wheel[index];
+            t.prev = null;
+            if ((t.next = h) != null)
+                h.prev = t;
+            wheel[index] = t;
+            t.slot = (level << 16) | index;
+            ++pending;
+            if (level == 0)
+                ++level0Count;
+        }
+    }
+
+    /**
+     * Unlinks a task from its slot.
+     */
+    private void unlink(TimedTask<?> t) {
+        int s = t.slot, level = s >>> 16;
+        TimedTask<?> p = t.prev, n = t.next;
+        if (p == null)
+            wheels[level][s & 0xffff] = n;
+        else
+            p.next = n;
+        if (n != null)
+            n.prev = p;
+        t.prev = t.next = null;
+        t.slot = -1;
+        --pending;
+        if (level == 0)
+            --level0Count;
+    }
+
+    /**
+     * Advances the wheel by one tick, cascading higher levels whose
+     * current slot has come within range, then expiring the level-0
+     * slot of the new tick.
+     */
+    private void advance() {
+        long tick = ++currentTick;
+        int bits = wheelBits, shift = 0;
+        for (int level = 1; level < levels; ++level) {
+            shift += bits;
+            if ((tick & ((1L << shift) - 1L)) != 0L)
+                break;
+            reinsertSlot(level, (int)(tick >>> shift) & wheelMask);
+        }
+        reinsertSlot(0, (int)tick & wheelMask);
+    }
+
+    /**
+     * Detaches all tasks of a slot and reinserts them relative to the
+     * current tick, expiring those that are due.
+     */
+    private void reinsertSlot(int level, int index) {
+        TimedTask<?>[] wheel = wheels[level];
+        TimedTask<?> t;
+        if (wheel != null && (t = wheel[index]) != null) {
+            wheel[index] = null;
+            do {
+                TimedTask<?> n = t.next;
+                t.prev = t.next = null;
+                t.slot = -1;
+                --pending;
+                if (level == 0)
+                    --level0Count;
+                insert(t);
+                t = n;
+            } while (t != null);
+        }
+    }
+
+    /**
+     * Adds an expired task to the current batch, dispatching the
+     * batch if full.
+     */
+    private void expire(TimedTask<?> t) {
+        if (!t.isCancelled()) {
+            TimedTask<?>[] b = batch;
+            if (b == null)
+                batch = b = new TimedTask<?>[maxBatchSize];
+            b[batchSize++] = t;
+            if (batchSize == b.length)
+                flushBatch();
+        }
+    }
+
+    /**
+     * Dispatches the current batch, if nonempty.
+     */
+    private void flushBatch() {
+        int n = batchSize;
+        if (n > 0) {
+            TimedTask<?>[] b = batch;
+            Batch task = new Batch(Arrays.copyOf(b, n));
+            Arrays.fill(b, 0, n, null);
+            batchSize = 0;
+            activeBatches.incrementAndGet();
+            try {
+                dispatcher.execute(task);
+            } catch (RejectedExecutionException ex) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * Removes and cancels all periodic tasks upon shutdown.
+     */
+    private void cancelPeriodicTasks() {
+        for (TimedTask<?>[] wheel : wheels) {
+            if (wheel != null) {
+                for (TimedTask<?> t : wheel) {
+                    while (t != null) {
+                        TimedTask<?> n = t.next;
+                        if (t.isPeriodic()) {
+                            unlink(t);
+                            t.cancel(false);
+                        }
+                        t = n;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Handles ticker thread exit.  Upon shutdownNow, collects all
+     * undispatched tasks for return; otherwise cancels any tasks that
+     * were submitted too late to be linked in.
+     */
+    private void tickerExit() {
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        for (int i = 0; i < batchSize; ++i)
+            tasks.add(batch[i]);
+        batchSize = 0;
+        batch = null;
+        for (int level = 0; level < levels; ++level) {
+            TimedTask<?>[] wheel = wheels[level];
+            if (wheel != null) {
+                for (TimedTask<?> t : wheel) {
+                    for (; t != null; t = t.next) {
+                        if (!t.isCancelled())
+                            tasks.add(t);
+                    }
+                }
+                wheels[level] = null;
+            }
+        }
+        pending = level0Count = pendingCount = 0;
+        tickerExited = true;
+        TimedTask<?> t;
+        while ((t = submissions.poll()) != null) {
+            if (!t.isCancelled() && t.slot < 0)
+                tasks.add(t);
+        }
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            if (runState < STOP) { // exited normally or abruptly
+                for (Runnable r : tasks)
+                    ((Future<?>)r).cancel(false);
+                tasks.clear();
+            }
+            stoppedTasks = tasks;
+            tickerDone = true;
+            termination.signalAll();
+        } finally {
+            mainLock.unlock();
+        }
+        tryTerminate();
+    }
+
+    /**
+     * Transitions to TERMINATED state if shut down, the ticker has
+     * exited or was never started, and no dispatched batches remain.
+     */
+    final void tryTerminate() {
+        if (runState == RUNNING || runState == TERMINATED ||
+            activeBatches.get() != 0 || (ticker != null && !tickerExited))
+            return;
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            int rs = runState;
+            if (rs != RUNNING && rs != TERMINATED &&
+                activeBatches.get() == 0 &&
+                (ticker == null || tickerExited)) {
+                runState = TERMINATED;
+                termination.signalAll();
+            }
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+    // Public methods
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public ScheduledFuture<?> schedule(Runnable command,
+                                       long delay,
+                                       TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        TimedTask<Void> t = new TimedTask<Void>(command, null,
+                                                triggerTime(unit.toNanos(delay)));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable,
+                                           long delay,
+                                           TimeUnit unit) {
+        if (callable == null || unit == null)
+            throw new NullPointerException();
+        TimedTask<V> t = new TimedTask<V>(callable,
+                                          triggerTime(unit.toNanos(delay)));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     * @throws IllegalArgumentException   {@inheritDoc}
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command,
+                                                  long initialDelay,
+                                                  long period,
+                                                  TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        if (period <= 0)
+            throw new IllegalArgumentException();
+        TimedTask<Void> t =
+            new TimedTask<Void>(command, null,
+                                triggerTime(unit.toNanos(initialDelay)),
+                                unit.toNanos(period));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     * @throws IllegalArgumentException   {@inheritDoc}
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command,
+                                                     long initialDelay,
+                                                     long delay,
+                                                     TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        if (delay <= 0)
+            throw new IllegalArgumentException();
+        TimedTask<Void> t =
+            new TimedTask<Void>(command, null,
+                                triggerTime(unit.toNanos(initialDelay)),
+                                unit.toNanos(-delay));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * Executes {@code command} with zero required delay.
+     * This has effect equivalent to
+     * {@link #schedule(Runnable,long,TimeUnit) schedule(command, 0, anyUnit)}.
+     *
+     * @throws RejectedExecutionException if shut down
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void execute(Runnable command) {
+        schedule(command, 0, NANOSECONDS);
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public Future<?> submit(Runnable task) {
+        return schedule(task, 0, NANOSECONDS);
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <T> Future<T> submit(Runnable task, T result) {
+        if (task == null)
+            throw new NullPointerException();
+        TimedTask<T> t = new TimedTask<T>(task, result, triggerTime(0L));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return schedule(task, 0, NANOSECONDS);
+    }
+
+    /**
+     * Initiates an orderly shutdown in which pending delayed tasks
+     * are executed when due, but periodic tasks are cancelled and no
+     * new tasks are accepted.  Invocation has no additional effect if
+     * already shut down.
+     *
+     * <p>This method does not wait for previously submitted tasks to
+     * complete execution.  Use {@link #awaitTermination awaitTermination}
+     * to do that.
+     */
+    public void shutdown() {
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            if (runState == RUNNING)
+                runState = SHUTDOWN;
+        } finally {
+            mainLock.unlock();
+        }
+        LockSupport.unpark(ticker);
+        tryTerminate();
+    }
+
+    /**
+     * Attempts to stop all actively executing tasks, halts the
+     * processing of waiting tasks, and returns a list of the tasks
+     * that were awaiting execution.  Tasks that have already been
+     * dispatched but not yet started are cancelled rather than
+     * returned.
+     *
+     * <p>This method does not wait for actively executing tasks to
+     * terminate.  Use {@link #awaitTermination awaitTermination} to
+     * do that.
+     *
+     * <p>There are no guarantees beyond best-effort attempts to stop
+     * processing actively executing tasks; in particular, running
+     * tasks are not interrupted, as the threads running them belong
+     * to the dispatcher.
+     *
+     * @return list of tasks that never commenced execution.
+     *         Each element of this list is a {@link ScheduledFuture}.
+     */
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = null;
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            if (runState < STOP)
+                runState = STOP;
+            Thread t = ticker;
+            if (t != null) {
+                LockSupport.unpark(t);
+                if (t != Thread.currentThread()) {
+                    boolean interrupted = false;
+                    while (!tickerDone) {
+                        try {
+                            termination.await();
+                        } catch (InterruptedException ie) {
+                            interrupted = true;
+                        }
+                    }
+                    if (interrupted)
+                        Thread.currentThread().interrupt();
+                }
+            }
+            tasks = stoppedTasks;
+            stoppedTasks = null;
+        } finally {
+            mainLock.unlock();
+        }
+        tryTerminate();
+        return (tasks == null) ? new ArrayList<Runnable>() : tasks;
+    }
+
+    public boolean isShutdown() {
+        return runState != RUNNING;
+    }
+
+    public boolean isTerminated() {
+        return runState == TERMINATED;
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            for (;;) {
+                if (runState == TERMINATED)
+                    return true;
+                if (nanos <= 0)
+                    return false;
+                nanos = termination.awaitNanos(nanos);
+            }
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the duration of a tick in the given unit.
+     *
+     * @param unit the time unit of the result
+     * @return the tick duration
+     */
+    public long getTickDuration(TimeUnit unit) {
+        return unit.convert(tickNanos, NANOSECONDS);
+    }
+
+    /**
+     * Returns the number of ticks per wheel level.
+     *
+     * @return the number of ticks per wheel level
+     */
+    public int getTicksPerWheel() {
+        return wheelMask + 1;
+    }
+
+    /**
+     * Returns the approximate number of delayed tasks held in the
+     * wheel, not including those submitted or cancelled since the
+     * last tick.
+     *
+     * @return the approximate number of pending delayed tasks
+     */
+    public int getPendingTaskCount() {
+        return pendingCount;
+    }
+}
@@ -0,0 +1,1075 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/*
+ *
+ *
+ *
+ *
+ *
+ * Written by Doug Lea with assistance from members of JCP JSR-166
+ * Expert Group and released to the public domain, as explained at
+ * http://creativecommons.org/publicdomain/zero/1.0/
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An optionally-bounded {@linkplain BlockingQueue blocking queue}
+ * that distributes elements across multiple internal queues to
+ * reduce contention, in the manner of {@link ForkJoinPool}.  Each
+ * thread that waits for elements using {@link #take} or {@link
+ * #poll(long, TimeUnit) timed poll} acquires a local queue.  Elements
+ * inserted by such a thread are placed in its own local queue; those
+ * inserted by other threads are placed in one of several shared
+ * submission queues selected by thread.  A thread taking an element
+ * first examines its own local queue, then the submission queues,
+ * and then <em>steals</em> from the local queues of other threads.
+ * Insertions and removals are non-blocking except when a thread must
+ * wait for an element or, in a bounded queue, for space.
+ *
+ * <p>This class is designed for use as the work queue of a {@link
+ * ThreadPoolExecutor}, whose worker threads then behave like the
+ * workers of a {@code ForkJoinPool}: tasks submitted from within a
+ * running task are queued locally to the submitting worker, and idle
+ * workers steal from busy ones.  The executor's core and maximum
+ * pool sizes, {@link RejectedExecutionHandler rejection policy}, and
+ * {@link ThreadPoolExecutor#beforeExecute beforeExecute} and {@link
+ * ThreadPoolExecutor#afterExecute afterExecute} hooks all apply as
+ * with any other queue.  For example:
+ *
+ * <pre> {@code
+ * ThreadPoolExecutor pool = new ThreadPoolExecutor(
+ *     8, 32, 30L, TimeUnit.SECONDS,
+ *     new WorkStealingBlockingQueue<Runnable>(10000));}</pre>
+ *
+ * <p>Elements inserted into the same internal queue are removed in
+ * FIFO (first-in-first-out) order relative to each other, but this
+ * queue as a whole makes no guarantees about the order in which
+ * elements are removed.  Accordingly, {@link #peek} returns some
+ * element of the queue, not necessarily the next one to be removed.
+ *
+ * <p>Removal of interior elements, by {@link #remove(Object)} or an
+ * iterator, marks the element as removed rather than compacting the
+ * internal queue.  In an unbounded queue such elements are included
+ * in {@link #size} until their position is reclaimed by a removing
+ * thread.
+ *
+ * <p>Iterators and spliterators are <a
+ * href="package-summary.html#Weakly"><i>weakly consistent</i></a>,
+ * traversing a snapshot of the elements present at some point at or
+ * since their creation.
+ *
+ * <p>This class and its iterator implement all of the
+ * <em>optional</em> methods of the {@link Collection} and {@link
+ * Iterator} interfaces.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a>.
+ *
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ */
+public class WorkStealingBlockingQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E>, java.io.Serializable {
+    private static final long serialVersionUID = 5294151720397836342L;
+
+    /*
+     * Implementation overview:
+     *
+     * Elements are held in WorkQueues, which are simplified versions
+     * of ForkJoinPool.WorkQueue: circular arrays indexed by base
+     * (removal) and top (insertion) positions, where insertion is
+     * performed by a single thread at a time and removal by any
+     * thread, by CASing the slot at base to null and then advancing
+     * base.  See ForkJoinPool for discussion of the (subtle) reasons
+     * this is correct, including during array resizing.  Local
+     * queues are inserted into only by their owner.  Submission
+     * queues are guarded by a spinlock (qlock); a thread failing to
+     * acquire one moves to another, selected by rehashing its
+     * ThreadLocalRandom probe.  There are a fixed number of
+     * submission queues, proportional to the number of CPUs.
+     *
+     * Local queues are recorded in a copy-on-write array, and are
+     * associated with their owners via a ThreadLocal.  When a new
+     * thread needs a local queue, a queue whose owner has terminated
+     * is reassigned if one exists, so that pools that replace worker
+     * threads (for example upon keepAlive timeouts) do not accumulate
+     * queues.  Any elements remaining in such a queue are stolen as
+     * usual in the meantime.
+     *
+     * As in RingBufferBlockingQueue, remove(Object) CASes a matching
+     * element to the REMOVED marker, which removing threads discard.
+     * Blocking uses waiter counts and Conditions of a lock used only
+     * for this purpose: a thread that makes an element or slot
+     * available issues a full fence and signals only if the
+     * corresponding count is nonzero.  A waiter increments the count
+     * (a volatile write) before rechecking the queues.
+     *
+     * Bounded queues maintain an exact count, reserved by CAS before
+     * insertion.  This count is a single point of contention, so
+     * unbounded queues (the default) do not maintain it.
+     */
+
+    /** Marker for elements removed by remove(Object). */
+    static final Object REMOVED = new Object();
+
+    /** Initial capacity of each internal queue array; a power of two. */
+    static final int INITIAL_QUEUE_CAPACITY = 1 << 6;
+
+    /**
+     * Maximum capacity of each internal queue array, as in
+     * ForkJoinPool.WorkQueue.  Insertions fail when reached.
+     */
+    static final int MAXIMUM_QUEUE_CAPACITY = 1 << 26; // 64M
+
+    /** Number of CPUS, to place bounds on some sizings */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /** The maximum number of submission queues; a power of two. */
+    static final int MAX_SUBMISSION_QUEUES = 1 << 6;
+
+    /** The number of rescans before blocking. */
+    static final int SPINS = (NCPU > 1) ? 1 << 4 : 0;
+
+    /**
+     * An internal queue.  Padded to reduce contention between
+     * queues.
+     */
+    @sun.misc.Contended
+    static final class WorkQueue {
+        volatile int qlock;        // 1: locked, else 0
+        volatile int base;         // index of next slot for poll
+        volatile int top;          // index of next slot for push
+        volatile Object[] array;   // the elements
+        volatile Thread owner;     // owning thread or null if submission queue
+
+        WorkQueue(Thread owner) {
+            this.owner = owner;
+            this.array = new Object[INITIAL_QUEUE_CAPACITY];
+        }
+
+        final boolean tryLock() {
+            return qlock == 0 && U.compareAndSwapInt(this, QLOCK, 0, 1);
+        }
+
+        final void unlock() {
+            qlock = 0;
+        }
+
+        /**
+         * Returns the approximate number of occupied slots.
+         */
+        final int queueSize() {
+            int n = top - base;
+            return (n > 0) ? n : 0;
+        }
+
+        /**
+         * Inserts x.  Call only by owner or while locked.
+         *
+         * @return false if the queue is at maximum capacity
+         */
+        final boolean push(Object x) {
+            Object[] a = array;
+            int s = top;
+            if (s - base >= a.length - 1) {
+                if (a.length >= MAXIMUM_QUEUE_CAPACITY)
+                    return false;
+                a = growArray(a, s);
+            }
+            long j = ((long)((a.length - 1) & s) << ASHIFT) + ABASE;
+            U.putOrderedObject(a, j, x);
+            top = s + 1;
+            return true;
+        }
+
+        /**
+         * Doubles the capacity of the array, transferring elements
+         * that are not concurrently taken.
+         */
+        final Object[] growArray(Object[] oldA, int t) {
+            int oldMask = oldA.length - 1;
+            Object[] a = new Object[oldA.length << 1];
+            int mask = a.length - 1;
+            array = a;
+            for (int b = base; b != t; ++b) {
+                long oldj = ((long)(b & oldMask) << ASHIFT) + ABASE;
+                Object x = U.getObjectVolatile(oldA, oldj);
+                if (x != null && U.compareAndSwapObject(oldA, oldj, x, null))
+                    U.putObjectVolatile(a, ((long)(b & mask) << ASHIFT) +
+                                        ABASE, x);
+            }
+            return a;
+        }
+
+        /**
+         * Takes the element at base, discarding removed elements.
+         *
+         * @return the element, or null if empty
+         */
+        final Object poll() {
+            Object[] a; int b;
+            while ((b = base) - top < 0 && (a = array) != null) {
+                long j = ((long)((a.length - 1) & b) << ASHIFT) + ABASE;
+                Object x = U.getObjectVolatile(a, j);
+                if (base == b) {
+                    if (x != null) {
+                        if (U.compareAndSwapObject(a, j, x, null)) {
+                            base = b + 1;
+                            if (x != REMOVED)
+                                return x;
+                        }
+                    }
+                    else if (b + 1 == top) // now empty
+                        break;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns some element present, or null if none.
+         */
+        final Object peek() {
+            Object[] a = array;
+            int mask = a.length - 1;
+            for (int b = base, t = top; b - t < 0; ++b) {
+                Object x = U.getObjectVolatile
+                    (a, ((long)(mask & b) << ASHIFT) + ABASE);
+                if (x != null && x != REMOVED)
+                    return x;
+            }
+            return null;
+        }
+
+        /**
+         * Marks as removed the first element present that equals
+         * (or is, if identity is true) o.
+         */
+        final boolean removeMatch(Object o, boolean identity) {
+            for (Object[] a = array;;) {
+                int mask = a.length - 1;
+                for (int b = base, t = top; b - t < 0; ++b) {
+                    long j = ((long)(mask & b) << ASHIFT) + ABASE;
+                    Object x = U.getObjectVolatile(a, j);
+                    if (x != null && x != REMOVED &&
+                        (x == o || (!identity && o.equals(x))) &&
+                        U.compareAndSwapObject(a, j, x, REMOVED))
+                        return true;
+                }
+                if (a == (a = array)) // retry if resized
+                    return false;
+            }
+        }
+
+        /**
+         * Adds the elements present to c.
+         */
+        final void collect(Collection<Object> c) {
+            Object[] a = array;
+            int mask = a.length - 1;
+            for (int b = base, t = top; b - t < 0; ++b) {
+                Object x = U.getObjectVolatile
+                    (a, ((long)(mask & b) << ASHIFT) + ABASE);
+                if (x != null && x != REMOVED)
+                    c.add(x);
+            }
+        }
+
+        // Unsafe mechanics
+        private static final sun.misc.Unsafe U;
+        private static final long QLOCK;
+        private static final long ABASE;
+        private static final int ASHIFT;
+        static {
+            try {
+                U = sun.misc.Unsafe.getUnsafe();
+                Class<?> wk = WorkQueue.class;
+                QLOCK = U.objectFieldOffset
+                    (wk.getDeclaredField("qlock"));
+                ABASE = U.arrayBaseOffset(Object[].class);
+                int scale = U.arrayIndexScale(Object[].class);
+                if ((scale & (scale - 1)) != 0)
+                    throw new Error("data type scale not a power of two");
+                ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /** The capacity bound, or Integer.MAX_VALUE if none */
+    private final int capacity;
+
+    /** Lock used only by blocked threads and threads signalling them. */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Condition for waiting takes */
+    private final Condition notEmpty = lock.newCondition();
+
+    /** Condition for waiting puts */
+    private final Condition notFull = lock.newCondition();
+
+    /** Current number of elements; maintained only if bounded. */
+    private transient volatile int count;
+
+    /** Number of threads blocked in take; updated while holding lock. */
+    private transient volatile int takeWaiters;
+
+    /** Number of threads blocked in put; updated while holding lock. */
+    private transient volatile int putWaiters;
+
+    /** Shared submission queues; length is a power of two. */
+    private transient WorkQueue[] submissionQueues;
+
+    /** Local queues; replaced on each addition, under lock. */
+    private transient volatile WorkQueue[] localQueues;
+
+    /** The local queue, if any, of each thread. */
+    private transient ThreadLocal<WorkQueue> localQueue;
+
+    /**
+     * Creates a {@code WorkStealingBlockingQueue} with a capacity of
+     * {@link Integer#MAX_VALUE}.
+     */
+    public WorkStealingBlockingQueue() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a {@code WorkStealingBlockingQueue} with the given
+     * (fixed) capacity.
+     *
+     * @param capacity the capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity} is not greater
+     *         than zero
+     */
+    public WorkStealingBlockingQueue(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException();
+        this.capacity = capacity;
+        initQueues();
+    }
+
+    /**
+     * Creates a {@code WorkStealingBlockingQueue} with a capacity of
+     * {@link Integer#MAX_VALUE}, initially containing the elements of
+     * the given collection.
+     *
+     * @param c the collection of elements to initially contain
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     */
+    public WorkStealingBlockingQueue(Collection<? extends E> c) {
+        this(Integer.MAX_VALUE);
+        for (E e : c)
+            add(e);
+    }
+
+    private void initQueues() {
+        int n = 1;
+        while (n < NCPU && n < MAX_SUBMISSION_QUEUES)
+            n <<= 1;
+        WorkQueue[] qs = new WorkQueue[n];
+        for (int i = 0; i < n; ++i)
+            qs[i] = new WorkQueue(null);
+        submissionQueues = qs;
+        localQueues = new WorkQueue[0];
+        localQueue = new ThreadLocal<WorkQueue>();
+    }
+
+    private final boolean bounded() {
+        return capacity != Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the local queue of the current thread, creating or
+     * reassigning one if necessary.
+     */
+    private WorkQueue registerLocal() {
+        WorkQueue w = localQueue.get();
+        if (w == null) {
+            Thread wt = Thread.currentThread();
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                WorkQueue[] ws = localQueues;
+                for (WorkQueue q : ws) {
+                    if (!q.owner.isAlive()) {
+                        q.owner = wt;
+                        w = q;
+                        break;
+                    }
+                }
+                if (w == null) {
+                    int n = ws.length;
+                    WorkQueue[] nws = java.util.Arrays.copyOf(ws, n + 1);
+                    nws[n] = w = new WorkQueue(wt);
+                    localQueues = nws;
+                }
+            } finally {
+                lock.unlock();
+            }
+            localQueue.set(w);
+        }
+        return w;
+    }
+
+    /**
+     * Inserts x into the current thread's local queue if it has one,
+     * else into a submission queue.
+     *
+     * @return false if the internal queue is at maximum capacity
+     */
+    private boolean push(Object x) {
+        Thread wt = Thread.currentThread();
+        WorkQueue w = localQueue.get();
+        if (w != null && w.owner == wt)
+            return w.push(x);
+        WorkQueue[] qs = submissionQueues;
+        int m = qs.length - 1;
+        int r = ThreadLocalRandom.getProbe();
+        if (r == 0) {
+            ThreadLocalRandom.localInit();
+            r = ThreadLocalRandom.getProbe();
+        }
+        for (;;) {
+            WorkQueue q = qs[r & m];
+            if (q.tryLock()) {
+                try {
+                    return q.push(x);
+                } finally {
+                    q.unlock();
+                }
+            }
+            r = ThreadLocalRandom.advanceProbe(r);
+        }
+    }
+
+    /**
+     * Takes an element from the given local queue if non-null, else
+     * from a submission queue, else from some other local queue.
+     *
+     * @return the element, or null if none found
+     */
+    private Object scan(WorkQueue w) {
+        Object x;
+        if (w != null && (x = w.poll()) != null)
+            return x;
+        int r = ThreadLocalRandom.getProbe();
+        WorkQueue[] qs = submissionQueues;
+        int n = qs.length;
+        for (int i = 0; i < n; ++i) {
+            if ((x = qs[(r + i) & (n - 1)].poll()) != null)
+                return x;
+        }
+        WorkQueue[] ws = localQueues;
+        if ((n = ws.length) > 0) {
+            int k = (r & Integer.MAX_VALUE) % n;
+            for (int i = 0; i < n; ++i) {
+                WorkQueue q = ws[k];
+                if (q != w && (x = q.poll()) != null)
+                    return x;
+                if (++k == n)
+                    k = 0;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if any internal queue has occupied slots.
+     */
+    private boolean hasQueued() {
+        for (WorkQueue q : submissionQueues)
+            if (q.top - q.base > 0)
+                return true;
+        for (WorkQueue q : localQueues)
+            if (q.top - q.base > 0)
+                return true;
+        return false;
+    }
+
+    /**
+     * Reserves space for an element if bounded.
+     */
+    private boolean tryReserve() {
+        if (bounded()) {
+            for (int c;;) {
+                if ((c = count) >= capacity)
+                    return false;
+                if (U.compareAndSwapInt(this, COUNT, c, c + 1))
+                    break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Releases space for an element if bounded.
+     */
+    private void release() {
+        if (bounded()) {
+            U.getAndAddInt(this, COUNT, -1);
+            signalNotFull();
+        }
+    }
+
+    // Signalling
+
+    /**
+     * Wakes up a thread blocked in take, if any.
+     */
+    private void signalNotEmpty() {
+        U.fullFence();
+        if (takeWaiters != 0) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Wakes up a thread blocked in put, if any.
+     */
+    private void signalNotFull() {
+        U.fullFence();
+        if (putWaiters != 0) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Inserts e, returning false if full.
+     */
+    private boolean insert(E e) {
+        if (e == null) throw new NullPointerException();
+        if (!tryReserve())
+            return false;
+        if (!push(e)) {
+            release();
+            return false;
+        }
+        signalNotEmpty();
+        return true;
+    }
+
+    /**
+     * Implements put and timed offer.
+     */
+    private boolean awaitPut(E e, boolean timed, long nanos)
+        throws InterruptedException {
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        while (!insert(e)) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (timed && (nanos = deadline - System.nanoTime()) <= 0L)
+                return false;
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                ++putWaiters;
+                try {
+                    if (bounded() && count >= capacity) {
+                        if (timed)
+                            notFull.awaitNanos(nanos);
+                        else
+                            notFull.await();
+                    }
+                } finally {
+                    --putWaiters;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Implements take and timed poll.
+     */
+    @SuppressWarnings("unchecked")
+    private E awaitTake(boolean timed, long nanos)
+        throws InterruptedException {
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        final WorkQueue w = registerLocal();
+        for (int spins = SPINS;;) {
+            Object x = scan(w);
+            if (x != null) {
+                release();
+                return (E) x;
+            }
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (timed && (nanos = deadline - System.nanoTime()) <= 0L)
+                return null;
+            if (spins > 0)
+                --spins;
+            else {
+                final ReentrantLock lock = this.lock;
+                lock.lockInterruptibly();
+                try {
+                    ++takeWaiters;
+                    try {
+                        if (!hasQueued()) {
+                            if (timed)
+                                notEmpty.awaitNanos(nanos);
+                            else
+                                notEmpty.await();
+                        }
+                    } finally {
+                        --takeWaiters;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    // Public operations
+
+    /**
+     * Inserts the specified element into this queue if it is possible
+     * to do so immediately without exceeding the queue's capacity,
+     * returning {@code true} upon success and throwing an
+     * {@code IllegalStateException} if this queue is full.
+     *
+     * @param e the element to add
+     * @return {@code true} (as specified by {@link Collection#add})
+     * @throws IllegalStateException if this queue is full
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean add(E e) {
+        return super.add(e);
+    }
+
+    /**
+     * Inserts the specified element into this queue if it is possible
+     * to do so immediately without exceeding the queue's capacity,
+     * returning {@code true} upon success and {@code false} if this
+     * queue is full.  When using a capacity-restricted queue, this
+     * method is generally preferable to method {@link #add}, which
+     * can fail to insert an element only by throwing an exception.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        return insert(e);
+    }
+
+    /**
+     * Inserts the specified element into this queue, waiting if
+     * necessary for space to become available.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) throws InterruptedException {
+        awaitPut(e, false, 0L);
+    }
+
+    /**
+     * Inserts the specified element into this queue, waiting if
+     * necessary up to the specified wait time for space to become
+     * available.
+     *
+     * @return {@code true} if successful, or {@code false} if
+     *         the specified waiting time elapses before space is available
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        return awaitPut(e, true, unit.toNanos(timeout));
+    }
+
+    /**
+     * Retrieves and removes an element of this queue, waiting if
+     * necessary until an element becomes available.  The current
+     * thread acquires a local queue if it does not already have one.
+     *
+     * @return an element of this queue
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public E take() throws InterruptedException {
+        return awaitTake(false, 0L);
+    }
+
+    /**
+     * Retrieves and removes an element of this queue, waiting up to
+     * the specified wait time if necessary for an element to become
+     * available.  The current thread acquires a local queue if it
+     * does not already have one.
+     *
+     * @param timeout how long to wait before giving up, in units of
+     *        {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return an element of this queue, or {@code null} if the
+     *         specified waiting time elapses before an element is available
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return awaitTake(true, unit.toNanos(timeout));
+    }
+
+    /**
+     * Retrieves and removes an element of this queue, or returns
+     * {@code null} if this queue is empty.
+     *
+     * @return an element of this queue, or {@code null} if this
+     *         queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        Object x = scan(localQueue.get());
+        if (x == null)
+            return null;
+        release();
+        return (E) x;
+    }
+
+    /**
+     * Retrieves, but does not remove, an element of this queue, or
+     * returns {@code null} if this queue is empty.
+     *
+     * @return an element of this queue, or {@code null} if this
+     *         queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        Object x;
+        for (WorkQueue q : submissionQueues)
+            if ((x = q.peek()) != null)
+                return (E) x;
+        for (WorkQueue q : localQueues)
+            if ((x = q.peek()) != null)
+                return (E) x;
+        return null;
+    }
+
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    /**
+     * Returns the number of elements in this queue.  In an unbounded
+     * queue, this is an estimate that includes removed elements not
+     * yet reclaimed.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        if (bounded())
+            return count;
+        long n = 0L;
+        for (WorkQueue q : submissionQueues)
+            n += q.queueSize();
+        for (WorkQueue q : localQueues)
+            n += q.queueSize();
+        return (n >= Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)n;
+    }
+
+    /**
+     * Returns the number of additional elements that this queue can ideally
+     * (in the absence of memory or resource constraints) accept without
+     * blocking, or {@code Integer.MAX_VALUE} if unbounded.
+     *
+     * <p>Note that you <em>cannot</em> always tell if an attempt to insert
+     * an element will succeed by inspecting {@code remainingCapacity}
+     * because it may be the case that another thread is about to
+     * insert or remove an element.
+     */
+    public int remainingCapacity() {
+        return bounded() ? capacity - count : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Removes a single instance of the specified element from this queue,
+     * if it is present.  More formally, removes an element {@code e} such
+     * that {@code o.equals(e)}, if this queue contains one or more such
+     * elements.
+     * Returns {@code true} if this queue contained the specified element
+     * (or equivalently, if this queue changed as a result of the call).
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Object o) {
+        return o != null && removeMatch(o, false);
+    }
+
+    private boolean removeMatch(Object o, boolean identity) {
+        boolean removed = false;
+        for (WorkQueue q : submissionQueues) {
+            if (q.removeMatch(o, identity)) {
+                removed = true;
+                break;
+            }
+        }
+        if (!removed) {
+            for (WorkQueue q : localQueues) {
+                if (q.removeMatch(o, identity)) {
+                    removed = true;
+                    break;
+                }
+            }
+        }
+        if (removed)
+            release();
+        return removed;
+    }
+
+    /**
+     * Returns {@code true} if this queue contains the specified element.
+     * More formally, returns {@code true} if and only if this queue contains
+     * at least one element {@code e} such that {@code o.equals(e)}.
+     *
+     * @param o object to be checked for containment in this queue
+     * @return {@code true} if this queue contains the specified element
+     */
+    public boolean contains(Object o) {
+        if (o != null) {
+            for (Object x : toArray())
+                if (o.equals(x))
+                    return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns an array containing the elements present in this queue
+     * at some point during the call.  The returned array elements are
+     * in no particular order.
+     *
+     * @return an array containing the elements in this queue
+     */
+    public Object[] toArray() {
+        ArrayList<Object> al = new ArrayList<Object>();
+        for (WorkQueue q : submissionQueues)
+            q.collect(al);
+        for (WorkQueue q : localQueues)
+            q.collect(al);
+        return al.toArray();
+    }
+
+    /**
+     * Returns an array containing the elements present in this queue
+     * at some point during the call; the runtime type of the returned
+     * array is that of the specified array, as described for {@link
+     * Collection#toArray(Object[])}.  The returned array elements are
+     * in no particular order.
+     *
+     * @param a the array into which the elements of the queue are to
+     *          be stored, if it is big enough; otherwise, a new array of the
+     *          same runtime type is allocated for this purpose
+     * @return an array containing all of the elements in this queue
+     * @throws ArrayStoreException if the runtime type of the specified array
+     *         is not a supertype of the runtime type of every element in
+     *         this queue
+     * @throws NullPointerException if the specified array is null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        Object[] x = toArray();
+        int n = x.length;
+        if (a.length < n)
+            return (T[]) java.util.Arrays.copyOf(x, n, a.getClass());
+        System.arraycopy(x, 0, a, 0, n);
+        if (a.length > n)
+            a[n] = null;
+        return a;
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        int n = 0;
+        for (E e; n < maxElements && (e = poll()) != null; ++n)
+            c.add(e);
+        return n;
+    }
+
+    /**
+     * Returns an iterator over the elements in this queue, traversing
+     * a snapshot of the elements present when the iterator was
+     * created, in no particular order.  Its {@code remove} method
+     * removes the last element returned from this queue if still
+     * present.
+     *
+     * @return an iterator over the elements in this queue
+     */
+    public Iterator<E> iterator() {
+        return new Itr(toArray());
+    }
+
+    /**
+     * Iterator over a snapshot of the queue.
+     */
+    final class Itr implements Iterator<E> {
+        final Object[] array;
+        int cursor;
+        int lastRet = -1;
+
+        Itr(Object[] array) {
+            this.array = array;
+        }
+
+        public boolean hasNext() {
+            return cursor < array.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            int i = cursor;
+            if (i >= array.length)
+                throw new NoSuchElementException();
+            cursor = i + 1;
+            return (E) array[lastRet = i];
+        }
+
+        public void remove() {
+            int i = lastRet;
+            if (i < 0)
+                throw new IllegalStateException();
+            lastRet = -1;
+            removeMatch(array[i], true);
+        }
+    }
+
+    /**
+     * Returns a {@link Spliterator} over the elements in this queue.
+     *
+     * <p>The returned spliterator is
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#CONCURRENT}
+     * and {@link Spliterator#NONNULL}.
+     *
+     * @implNote
+     * The {@code Spliterator} implements {@code trySplit} to permit limited
+     * parallelism.
+     *
+     * @return a {@code Spliterator} over the elements in this queue
+     * @since 1.8
+     */
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator
+            (this, Spliterator.NONNULL | Spliterator.CONCURRENT);
+    }
+
+    /**
+     * Saves this queue to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The capacity is emitted (int), followed by all of
+     * its elements (each an {@code Object}) in no particular order,
+     * followed by a null
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        for (Object x : toArray())
+            s.writeObject(x);
+        s.writeObject(null);
+    }
+
+    /**
+     * Reconstitutes this queue from a stream (that is, deserializes it).
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (capacity <= 0)
+            throw new java.io.InvalidObjectException("Bad capacity");
+        initQueues();
+        for (;;) {
+            @SuppressWarnings("unchecked")
+            E item = (E)s.readObject();
+            if (item == null)
+                break;
+            if (!offer(item))
+                throw new java.io.InvalidObjectException("Too many elements");
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long COUNT;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = WorkStealingBlockingQueue.class;
+            COUNT = U.objectFieldOffset(k.getDeclaredField("count"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
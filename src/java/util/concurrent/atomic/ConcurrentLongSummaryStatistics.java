@@ -0,0 +1,226 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/*
+ *
+ *
+ *
+ *
+ *
+ * Written by Doug Lea with assistance from members of JCP JSR-166
+ * Expert Group and released to the public domain, as explained at
+ * http://creativecommons.org/publicdomain/zero/1.0/
+ */
+
+package java.util.concurrent.atomic;
+import java.util.LongSummaryStatistics;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * A thread-safe counterpart of {@link LongSummaryStatistics},
+ * maintaining the count, sum, minimum, maximum and average of
+ * recorded {@code long} values.  As with {@link LongAdder}, when
+ * updates (method {@link #accept(long)}) are contended across
+ * threads, the set of variables holding the statistics may grow
+ * dynamically to reduce contention, so that recording a value
+ * involves no locking and, once contention has been accommodated,
+ * no allocation.
+ *
+ * <p>This class is usually preferable to synchronizing on a
+ * {@code LongSummaryStatistics} or to separate atomic variables when
+ * many threads record values into common statistics, such as timing
+ * samples, that are read relatively rarely.  Under high contention,
+ * expected throughput of this class is significantly higher, at the
+ * expense of higher space consumption.
+ *
+ * <p>Method {@link #snapshot} returns the statistics as a {@code
+ * LongSummaryStatistics}.  A snapshot is not atomic with respect to
+ * concurrent updates, but it is internally consistent: every value
+ * included in its count is also reflected in its sum, minimum and
+ * maximum.  Individual accessor methods such as {@link #getMin} each
+ * read the current statistics independently, so should not be
+ * combined when concurrent updates may occur.
+ *
+ * <p>This implementation does not check for overflow of the sum.
+ *
+ * @since 1.8
+ */
+public class ConcurrentLongSummaryStatistics extends StripedStatistics
+    implements LongConsumer, IntConsumer {
+
+    /**
+     * Creates a new instance with zero count, zero sum, {@code
+     * Long.MAX_VALUE} min, {@code Long.MIN_VALUE} max and zero
+     * average.
+     */
+    public ConcurrentLongSummaryStatistics() {
+        super(0);
+    }
+
+    /**
+     * Records a new {@code int} value into the summary information.
+     *
+     * @param value the input value
+     */
+    public void accept(int value) {
+        long x = value;
+        record(x, x, x, 0, 1L);
+    }
+
+    /**
+     * Records a new {@code long} value into the summary information.
+     *
+     * @param value the input value
+     */
+    public void accept(long value) {
+        record(value, value, value, 0, 1L);
+    }
+
+    /**
+     * Combines the state of a {@code LongSummaryStatistics} into this
+     * one.
+     *
+     * @param other a {@code LongSummaryStatistics}
+     * @throws NullPointerException if {@code other} is null
+     */
+    public void combine(LongSummaryStatistics other) {
+        long n = other.getCount();
+        if (n > 0L)
+            record(other.getSum(), other.getMin(), other.getMax(), 0, n);
+    }
+
+    /**
+     * Returns the count of values recorded.
+     *
+     * @return the count of values
+     */
+    public long getCount() {
+        return collect(null, false)[0];
+    }
+
+    /**
+     * Returns the sum of values recorded, or zero if no values have been
+     * recorded.
+     *
+     * @return the sum of values, or zero if none
+     */
+    public long getSum() {
+        return collect(null, false)[1];
+    }
+
+    /**
+     * Returns the minimum value recorded, or {@code Long.MAX_VALUE} if no
+     * values have been recorded.
+     *
+     * @return the minimum value, or {@code Long.MAX_VALUE} if none
+     */
+    public long getMin() {
+        return collect(null, false)[2];
+    }
+
+    /**
+     * Returns the maximum value recorded, or {@code Long.MIN_VALUE} if no
+     * values have been recorded.
+     *
+     * @return the maximum value, or {@code Long.MIN_VALUE} if none
+     */
+    public long getMax() {
+        return collect(null, false)[3];
+    }
+
+    /**
+     * Returns the arithmetic mean of values recorded, or zero if no
+     * values have been recorded.
+     *
+     * @return the arithmetic mean of values, or zero if none
+     */
+    public double getAverage() {
+        long[] stats = collect(null, false);
+        return stats[0] > 0L ? (double) stats[1] / stats[0] : 0.0d;
+    }
+
+    /**
+     * Returns the current statistics as a new {@code
+     * LongSummaryStatistics}.  The result is <em>NOT</em> an atomic
+     * snapshot, but every value included in its count is also
+     * reflected in its other statistics.
+     *
+     * @return the current statistics
+     */
+    public LongSummaryStatistics snapshot() {
+        return toStatistics(collect(null, false));
+    }
+
+    /**
+     * Equivalent in effect to {@link #snapshot} followed by {@link
+     * #reset}, except that each variable is read and reset atomically,
+     * so that no recorded value is lost, although values recorded
+     * concurrently may be partly reflected in the result and partly
+     * retained.  This method may be used, for example, to report
+     * statistics per interval.
+     *
+     * @return the statistics prior to reset
+     */
+    public LongSummaryStatistics snapshotThenReset() {
+        return toStatistics(collect(null, true));
+    }
+
+    /**
+     * Resets the statistics to their initial state.  This method may
+     * be a useful alternative to creating a new instance, but is only
+     * effective if there are no concurrent updates.  Because this
+     * method is intrinsically racy, it should only be used when it is
+     * known that no threads are concurrently updating.
+     */
+    public void reset() {
+        collect(null, true);
+    }
+
+    private static LongSummaryStatistics toStatistics(long[] stats) {
+        long n = stats[0], s = stats[1], lo = stats[2], hi = stats[3];
+        if (n > 0L && lo > hi) // only counts survived a concurrent reset
+            lo = hi = s / n;
+        return new LongSummaryStatistics(n, lo, hi, s);
+    }
+
+    /**
+     * Returns a non-empty string representation of this object
+     * suitable for debugging, in the same format as {@link
+     * LongSummaryStatistics#toString}.
+     *
+     * @return a string representation of this object
+     */
+    public String toString() {
+        long[] stats = collect(null, false);
+        return String.format(
+            "%s{count=%d, sum=%d, min=%d, average=%f, max=%d}",
+            this.getClass().getSimpleName(),
+            stats[0],
+            stats[1],
+            stats[2],
+            stats[0] > 0L ? (double) stats[1] / stats[0] : 0.0d,
+            stats[3]);
+    }
+}
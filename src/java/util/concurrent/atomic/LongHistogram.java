@@ -0,0 +1,497 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/*
+ *
+ *
+ *
+ *
+ *
+ * Written by Doug Lea with assistance from members of JCP JSR-166
+ * Expert Group and released to the public domain, as explained at
+ * http://creativecommons.org/publicdomain/zero/1.0/
+ */
+
+package java.util.concurrent.atomic;
+import java.util.LongSummaryStatistics;
+import java.util.function.LongConsumer;
+
+/**
+ * A concurrent histogram of non-negative {@code long} values, such as
+ * latencies, with buckets of logarithmically increasing width.  As
+ * with {@link LongAdder}, when updates (method {@link #record(long)})
+ * are contended across threads, the set of variables holding the
+ * counts may grow dynamically to reduce contention, so that recording
+ * a value involves no locking and, once contention has been
+ * accommodated, no allocation.
+ *
+ * <p>Values are counted in buckets whose width is proportional to the
+ * magnitude of the values they hold: each power-of-two range of values
+ * is divided into 2<sup><em>precision</em></sup> buckets of equal
+ * width, except that values less than 2<sup><em>precision</em></sup>
+ * are counted exactly.  So the relative error of values reported by
+ * bucket bounds or percentiles is at most
+ * 2<sup>-<em>precision</em></sup>.  Values greater than the
+ * <em>highest trackable value</em> given on construction are counted
+ * in the highest bucket.  Each stripe requires one {@code long} per
+ * bucket, so the precision and highest trackable value should be no
+ * larger than needed.  The exact count, sum, minimum and maximum of
+ * recorded values are maintained in addition to the buckets.
+ *
+ * <p>Histograms are read by taking a {@link Snapshot}, which merges
+ * the contents of all stripes.  A snapshot is not atomic with respect
+ * to concurrent updates, but it is internally consistent: its count
+ * is the total of its bucket counts, and every value included in its
+ * buckets is also reflected in its sum, minimum and maximum.  Method
+ * {@link #snapshotThenReset} may be used to report successive
+ * intervals without losing values recorded concurrently.
+ *
+ * <p>This class does not define methods such as {@code equals},
+ * {@code hashCode} and {@code compareTo} because instances are
+ * expected to be mutated, and so are not useful as collection keys.
+ *
+ * <p>This implementation does not check for overflow of the sum.
+ *
+ * @since 1.8
+ */
+public class LongHistogram extends StripedStatistics implements LongConsumer {
+
+    /** The default precision, giving a relative error of about 3% */
+    private static final int DEFAULT_PRECISION = 5;
+
+    /** The maximum supported precision */
+    private static final int MAXIMUM_PRECISION = 10;
+
+    /** log2 of the number of buckets per power of two */
+    private final int precision;
+
+    /** The highest value counted in its own bucket */
+    private final long highestTrackableValue;
+
+    /**
+     * Creates a new, empty histogram with a precision of five bits
+     * (a relative error of at most 1/32) and no bound on trackable
+     * values.
+     */
+    public LongHistogram() {
+        this(Long.MAX_VALUE, DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates a new, empty histogram with the given precision and no
+     * bound on trackable values.
+     *
+     * @param precision the number of significant binary digits of
+     * bucket bounds, between zero and ten
+     * @throws IllegalArgumentException if precision is out of range
+     */
+    public LongHistogram(int precision) {
+        this(Long.MAX_VALUE, precision);
+    }
+
+    /**
+     * Creates a new, empty histogram with the given highest trackable
+     * value and precision.
+     *
+     * @param highestTrackableValue the highest value counted in its
+     * own bucket; greater values are counted in the highest bucket
+     * @param precision the number of significant binary digits of
+     * bucket bounds, between zero and ten
+     * @throws IllegalArgumentException if highestTrackableValue is
+     * negative or precision is out of range
+     */
+    public LongHistogram(long highestTrackableValue, int precision) {
+        super(bucketCount(highestTrackableValue, precision));
+        this.precision = precision;
+        this.highestTrackableValue = highestTrackableValue;
+    }
+
+    private static int bucketCount(long highestTrackableValue, int precision) {
+        if (highestTrackableValue < 0L || precision < 0 ||
+            precision > MAXIMUM_PRECISION)
+            throw new IllegalArgumentException();
+        return bucketIndex(highestTrackableValue, precision) + 1;
+    }
+
+    /**
+     * Returns the index of the bucket holding the given non-negative
+     * value: values below 2^p are their own index; otherwise the
+     * index combines the exponent with the p bits following the
+     * leading one bit.
+     */
+    static int bucketIndex(long v, int p) {
+        if (v < (1L << p))
+            return (int)v;
+        int e = 63 - Long.numberOfLeadingZeros(v) - p;
+        return (int)(((long)e << p) + (v >>> e));
+    }
+
+    /**
+     * Returns the least value held by the bucket with the given index.
+     */
+    static long bucketLowerBound(int i, int p) {
+        int q = i >>> p;
+        if (q == 0)
+            return i;
+        return ((1L << p) | (i & ((1 << p) - 1))) << (q - 1);
+    }
+
+    /**
+     * Returns the greatest value held by the bucket with the given index.
+     */
+    static long bucketUpperBound(int i, int p) {
+        int q = i >>> p;
+        return bucketLowerBound(i, p) + ((q == 0) ? 0L : (1L << (q - 1)) - 1L);
+    }
+
+    /**
+     * Records the given value.
+     *
+     * @param value the value
+     * @throws IllegalArgumentException if value is negative
+     */
+    public void record(long value) {
+        if (value < 0L)
+            throw new IllegalArgumentException();
+        long v = (value < highestTrackableValue) ? value : highestTrackableValue;
+        record(value, value, value, bucketIndex(v, precision), 1L);
+    }
+
+    /**
+     * Records the given number of occurrences of the given value.
+     *
+     * @param value the value
+     * @param count the number of occurrences
+     * @throws IllegalArgumentException if value or count is negative
+     */
+    public void record(long value, long count) {
+        if (value < 0L || count < 0L)
+            throw new IllegalArgumentException();
+        if (count > 0L) {
+            long v = (value < highestTrackableValue) ? value : highestTrackableValue;
+            record(value * count, value, value, bucketIndex(v, precision), count);
+        }
+    }
+
+    /**
+     * Equivalent to {@link #record(long)}.
+     *
+     * @param value the value
+     * @throws IllegalArgumentException if value is negative
+     */
+    public void accept(long value) {
+        record(value);
+    }
+
+    /**
+     * Returns the number of values recorded.  The returned value is
+     * <em>NOT</em> an atomic snapshot; invocation in the absence of
+     * concurrent updates returns an accurate result, but concurrent
+     * updates that occur while the count is being calculated might
+     * not be incorporated.
+     *
+     * @return the number of values recorded
+     */
+    public long getCount() {
+        return collect(null, false)[0];
+    }
+
+    /**
+     * Returns the precision of this histogram.
+     *
+     * @return the number of significant binary digits of bucket bounds
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Returns the highest trackable value of this histogram.
+     *
+     * @return the highest value counted in its own bucket
+     */
+    public long getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    /**
+     * Returns a snapshot of the current contents of this histogram.
+     * The result is <em>NOT</em> an atomic snapshot, but its count is
+     * the total of its bucket counts, and every value included in its
+     * buckets is also reflected in its other statistics.
+     *
+     * @return a snapshot of the current contents
+     */
+    public Snapshot snapshot() {
+        long[] buckets = new long[bucketCount];
+        return new Snapshot(precision, buckets, collect(buckets, false));
+    }
+
+    /**
+     * Equivalent in effect to {@link #snapshot} followed by {@link
+     * #reset}, except that each variable is read and reset atomically,
+     * so that no recorded value is lost, although values recorded
+     * concurrently may be partly reflected in the result and partly
+     * retained.
+     *
+     * @return a snapshot of the contents prior to reset
+     */
+    public Snapshot snapshotThenReset() {
+        long[] buckets = new long[bucketCount];
+        return new Snapshot(precision, buckets, collect(buckets, true));
+    }
+
+    /**
+     * Resets this histogram to empty.  This method may be a useful
+     * alternative to creating a new histogram, but is only effective
+     * if there are no concurrent updates.  Because this method is
+     * intrinsically racy, it should only be used when it is known
+     * that no threads are concurrently updating.
+     */
+    public void reset() {
+        collect(null, true);
+    }
+
+    /**
+     * Returns a string identifying this histogram and the count, sum,
+     * minimum, average and maximum of its values.
+     *
+     * @return a string representation of this histogram
+     */
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    /**
+     * An immutable snapshot of the contents of a {@link LongHistogram}.
+     *
+     * @since 1.8
+     */
+    public static final class Snapshot {
+        private final int precision;
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+        private final long min;
+        private final long max;
+
+        Snapshot(int precision, long[] buckets, long[] stats) {
+            long n = stats[0], s = stats[1], lo = stats[2], hi = stats[3];
+            if (n > 0L && lo > hi) { // only counts survived a concurrent reset
+                for (int i = 0; i < buckets.length; ++i) {
+                    if (buckets[i] != 0L) {
+                        lo = bucketLowerBound(i, precision);
+                        break;
+                    }
+                }
+                for (int i = buckets.length - 1; i >= 0; --i) {
+                    if (buckets[i] != 0L) {
+                        hi = bucketUpperBound(i, precision);
+                        break;
+                    }
+                }
+            }
+            this.precision = precision;
+            this.buckets = buckets;
+            this.count = n;
+            this.sum = s;
+            this.min = lo;
+            this.max = hi;
+        }
+
+        /**
+         * Returns the number of values recorded.
+         *
+         * @return the number of values
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the sum of values recorded, or zero if none.
+         *
+         * @return the sum of values, or zero if none
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * Returns the minimum value recorded, or {@code Long.MAX_VALUE}
+         * if none.
+         *
+         * @return the minimum value, or {@code Long.MAX_VALUE} if none
+         */
+        public long getMin() {
+            return min;
+        }
+
+        /**
+         * Returns the maximum value recorded, or {@code Long.MIN_VALUE}
+         * if none.
+         *
+         * @return the maximum value, or {@code Long.MIN_VALUE} if none
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the arithmetic mean of values recorded, or zero if
+         * none.
+         *
+         * @return the arithmetic mean of values, or zero if none
+         */
+        public double getAverage() {
+            return count > 0L ? (double) sum / count : 0.0d;
+        }
+
+        /**
+         * Returns a value such that the given percentage of recorded
+         * values are less than or equal to it, within the precision
+         * of the histogram: the greatest value of the bucket holding
+         * the value of that rank, bounded by the minimum and maximum
+         * recorded values.
+         *
+         * @param percentile the percentage, between 0 and 100
+         * @return the value at the given percentile, or zero if no
+         * values were recorded
+         * @throws IllegalArgumentException if percentile is out of range
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (!(percentile >= 0.0d && percentile <= 100.0d))
+                throw new IllegalArgumentException();
+            if (count == 0L)
+                return 0L;
+            long rank = (long)Math.ceil(percentile / 100.0d * count);
+            if (rank < 1L)
+                rank = 1L;
+            long seen = 0L;
+            int last = buckets.length - 1;
+            for (int i = 0; i < last; ++i) {
+                if ((seen += buckets[i]) >= rank) {
+                    last = i;
+                    break;
+                }
+            }
+            long v = (last == buckets.length - 1) ? max : // may overflow
+                bucketUpperBound(last, precision);
+            return (v > max) ? max : (v < min) ? min : v;
+        }
+
+        /**
+         * Returns the number of recorded values that are less than or
+         * equal to the given value, within the precision of the
+         * histogram: the total count of all buckets holding values
+         * less than or equal to it.
+         *
+         * @param value the value
+         * @return the number of values at or below the given value
+         */
+        public long getCountAtOrBelow(long value) {
+            if (value < 0L)
+                return 0L;
+            int last = (value >= bucketLowerBound(buckets.length - 1, precision)) ?
+                buckets.length - 1 : bucketIndex(value, precision);
+            long n = 0L;
+            for (int i = 0; i <= last; ++i)
+                n += buckets[i];
+            return n;
+        }
+
+        /**
+         * Returns the number of buckets.
+         *
+         * @return the number of buckets
+         */
+        public int getNumberOfBuckets() {
+            return buckets.length;
+        }
+
+        /**
+         * Returns the number of values counted in the bucket with the
+         * given index.
+         *
+         * @param index the bucket index
+         * @return the count of the bucket
+         * @throws IndexOutOfBoundsException if index is out of range
+         */
+        public long getCountInBucket(int index) {
+            return buckets[index];
+        }
+
+        /**
+         * Returns the least value counted in the bucket with the given
+         * index.
+         *
+         * @param index the bucket index
+         * @return the lower bound of the bucket
+         * @throws IndexOutOfBoundsException if index is out of range
+         */
+        public long getBucketLowerBound(int index) {
+            if (index < 0 || index >= buckets.length)
+                throw new IndexOutOfBoundsException();
+            return bucketLowerBound(index, precision);
+        }
+
+        /**
+         * Returns the greatest value counted in the bucket with the
+         * given index, except that values beyond the highest
+         * trackable value are also counted in the highest bucket.
+         *
+         * @param index the bucket index
+         * @return the upper bound of the bucket
+         * @throws IndexOutOfBoundsException if index is out of range
+         */
+        public long getBucketUpperBound(int index) {
+            if (index < 0 || index >= buckets.length)
+                throw new IndexOutOfBoundsException();
+            return bucketUpperBound(index, precision);
+        }
+
+        /**
+         * Returns the count, sum, minimum and maximum of the recorded
+         * values as a {@code LongSummaryStatistics}.
+         *
+         * @return the summary statistics of this snapshot
+         */
+        public LongSummaryStatistics toLongSummaryStatistics() {
+            return new LongSummaryStatistics(count, min, max, sum);
+        }
+
+        /**
+         * Returns a string identifying this snapshot and the count,
+         * sum, minimum, average and maximum of its values.
+         *
+         * @return a string representation of this snapshot
+         */
+        public String toString() {
+            return String.format(
+                "%s{count=%d, sum=%d, min=%d, average=%f, max=%d}",
+                "LongHistogram",
+                count, sum, min, getAverage(), max);
+        }
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/*
+ *
+ *
+ *
+ *
+ *
+ * Written by Doug Lea with assistance from members of JCP JSR-166
+ * Expert Group and released to the public domain, as explained at
+ * http://creativecommons.org/publicdomain/zero/1.0/
+ */
+
+package java.util.concurrent.atomic;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A package-local class holding common representation and mechanics
+ * for classes maintaining striped summary statistics (count, sum,
+ * minimum and maximum) of {@code long} values, optionally along with
+ * a striped array of per-bucket counts.
+ */
+abstract class StripedStatistics {
+    /*
+     * This class follows the same design as Striped64 (see its
+     * internal documentation), except that each Cell holds a count
+     * (or an array of per-bucket counts), a sum, a minimum and a
+     * maximum, and that the "base" is itself a Cell, created eagerly
+     * so that uncontended recording never allocates.
+     *
+     * Recording a value first folds it into the sum, minimum and
+     * maximum of the chosen cell (using unconditional atomic add and
+     * monotonic CAS loops, neither of which can fail), and only then
+     * CASes the count, whose failure is taken as the sign of
+     * contention that triggers rehashing and table growth.  If the
+     * count CAS fails, the count is added unconditionally to the same
+     * cell, so that every value is recorded in a single cell, and only
+     * later values move to another cell.  Readers collect each cell's
+     * count(s) before its other fields.  Because writers update a
+     * cell's count last, every value included in a collected count is
+     * also reflected in the collected sum, minimum and maximum, so
+     * that snapshots are internally consistent (in
+     * particular, the minimum never exceeds the maximum of a nonempty
+     * snapshot), although they may also reflect a few values whose
+     * counts are not yet visible.  Collection with reset instead
+     * swaps out each field atomically, so that no value is lost, but
+     * a value recorded concurrently may then be split across two
+     * consecutive results; in particular a result may contain counts
+     * without corresponding bounds, which callers must tolerate.
+     */
+
+    /**
+     * Padded holder of the statistics of one stripe.
+     */
+    @sun.misc.Contended static final class Cell {
+        volatile long count;
+        volatile long sum;
+        volatile long min;
+        volatile long max;
+        final long[] counts; // per-bucket counts, or null if none
+
+        Cell(int buckets) {
+            min = Long.MAX_VALUE;
+            max = Long.MIN_VALUE;
+            counts = (buckets == 0) ? null : new long[buckets];
+        }
+
+        /**
+         * Folds the given sum and bounds into this cell.
+         */
+        final void addValues(long s, long lo, long hi) {
+            long m;
+            while (lo < (m = min) && !UNSAFE.compareAndSwapLong(this, MIN, m, lo))
+                ;
+            while (hi > (m = max) && !UNSAFE.compareAndSwapLong(this, MAX, m, hi))
+                ;
+            UNSAFE.getAndAddLong(this, SUM, s);
+        }
+
+        /**
+         * Tries once to add n to the count, or to the count of the
+         * given bucket if this cell holds bucket counts.
+         */
+        final boolean tryCount(int bucket, long n) {
+            long[] cs; long c;
+            if ((cs = counts) == null)
+                return UNSAFE.compareAndSwapLong(this, COUNT, c = count, c + n);
+            long offset = ((long)bucket << ASHIFT) + ABASE;
+            return UNSAFE.compareAndSwapLong
+                (cs, offset, c = UNSAFE.getLongVolatile(cs, offset), c + n);
+        }
+
+        /**
+         * Adds n to the count, or to the count of the given bucket if
+         * this cell holds bucket counts.
+         */
+        final void addCount(int bucket, long n) {
+            long[] cs;
+            if ((cs = counts) == null)
+                UNSAFE.getAndAddLong(this, COUNT, n);
+            else
+                UNSAFE.getAndAddLong(cs, ((long)bucket << ASHIFT) + ABASE, n);
+        }
+
+        /**
+         * Adds this cell's count(s) into the given accumulators, then
+         * its other statistics, optionally resetting each field.
+         */
+        final void collect(long[] stats, long[] buckets, boolean reset) {
+            long[] cs; long c = 0L;
+            if ((cs = counts) == null)
+                c = reset ? UNSAFE.getAndSetLong(this, COUNT, 0L) : count;
+            else {
+                for (int i = 0; i < cs.length; ++i) {
+                    long offset = ((long)i << ASHIFT) + ABASE, k;
+                    if (reset)
+                        k = UNSAFE.getAndSetLong(cs, offset, 0L);
+                    else
+                        k = UNSAFE.getLongVolatile(cs, offset);
+                    if (k != 0L) {
+                        c += k;
+                        if (buckets != null)
+                            buckets[i] += k;
+                    }
+                }
+            }
+            long s, lo, hi;
+            if (reset) {
+                s = UNSAFE.getAndSetLong(this, SUM, 0L);
+                lo = UNSAFE.getAndSetLong(this, MIN, Long.MAX_VALUE);
+                hi = UNSAFE.getAndSetLong(this, MAX, Long.MIN_VALUE);
+            }
+            else {
+                s = sum;
+                lo = min;
+                hi = max;
+            }
+            stats[0] += c;
+            stats[1] += s;
+            if (lo < stats[2])
+                stats[2] = lo;
+            if (hi > stats[3])
+                stats[3] = hi;
+        }
+
+        // Unsafe mechanics
+        private static final sun.misc.Unsafe UNSAFE;
+        private static final long COUNT;
+        private static final long SUM;
+        private static final long MIN;
+        private static final long MAX;
+        private static final long ABASE;
+        private static final int ASHIFT;
+        static {
+            try {
+                UNSAFE = sun.misc.Unsafe.getUnsafe();
+                Class<?> ak = Cell.class;
+                COUNT = UNSAFE.objectFieldOffset
+                    (ak.getDeclaredField("count"));
+                SUM = UNSAFE.objectFieldOffset
+                    (ak.getDeclaredField("sum"));
+                MIN = UNSAFE.objectFieldOffset
+                    (ak.getDeclaredField("min"));
+                MAX = UNSAFE.objectFieldOffset
+                    (ak.getDeclaredField("max"));
+                ABASE = UNSAFE.arrayBaseOffset(long[].class);
+                int scale = UNSAFE.arrayIndexScale(long[].class);
+                if ((scale & (scale - 1)) != 0)
+                    throw new Error("data type scale not a power of two");
+                ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /** Number of CPUS, to place bound on table size */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /** The number of buckets per cell, or zero if none */
+    final int bucketCount;
+
+    /**
+     * Base cell, used mainly when there is no contention, but also as
+     * a fallback during table initialization races.
+     */
+    final Cell base;
+
+    /**
+     * Table of cells. When non-null, size is a power of 2.
+     */
+    volatile Cell[] cells;
+
+    /**
+     * Spinlock (locked via CAS) used when resizing and/or creating Cells.
+     */
+    volatile int cellsBusy;
+
+    /**
+     * Creates an instance with the given number of buckets per cell,
+     * or none if zero.
+     */
+    StripedStatistics(int bucketCount) {
+        this.bucketCount = bucketCount;
+        this.base = new Cell(bucketCount);
+    }
+
+    /**
+     * CASes the cellsBusy field from 0 to 1 to acquire lock.
+     */
+    final boolean casCellsBusy() {
+        return UNSAFE.compareAndSwapInt(this, CELLSBUSY, 0, 1);
+    }
+
+    /**
+     * Records n (positive) occurrences of a value, in the given
+     * bucket if buckets are maintained.
+     *
+     * @param s the sum of the occurrences
+     * @param lo the least occurring value
+     * @param hi the greatest occurring value
+     * @param bucket the bucket index, ignored if none
+     * @param n the number of occurrences
+     */
+    final void record(long s, long lo, long hi, int bucket, long n) {
+        Cell[] as; Cell a; int m;
+        if ((as = cells) == null || (m = as.length - 1) < 0 ||
+            (a = as[Striped64.getProbe() & m]) == null)
+            a = base;
+        a.addValues(s, lo, hi);
+        if (!a.tryCount(bucket, n)) {
+            a.addCount(bucket, n);
+            contended();
+        }
+    }
+
+    /**
+     * Handles a contended count update by moving the current thread
+     * to another cell, creating and growing the table as in
+     * Striped64.longAccumulate, except that the table is expanded
+     * when the cell moved to is already in use, rather than after a
+     * second failure there.
+     */
+    private void contended() {
+        int h;
+        if ((h = Striped64.getProbe()) == 0) {
+            ThreadLocalRandom.current(); // force initialization
+            h = Striped64.getProbe();
+        }
+        Cell[] as; int k;
+        if ((as = cells) == null || (k = as.length) == 0) {
+            if (cellsBusy == 0 && cells == as && casCellsBusy()) {
+                try {                           // Initialize table
+                    if (cells == as)
+                        cells = new Cell[2];
+                } finally {
+                    cellsBusy = 0;
+                }
+            }
+            return;
+        }
+        if (as[(k - 1) & h] == null ||          // Contended on base
+            as[(k - 1) & (h = Striped64.advanceProbe(h))] == null) {
+            if (cellsBusy == 0) {               // Try to attach new Cell
+                Cell r = new Cell(bucketCount);
+                if (cellsBusy == 0 && casCellsBusy()) {
+                    try {                       // Recheck under lock
+                        Cell[] rs; int j;
+                        if ((rs = cells) != null &&
+                            rs[j = (rs.length - 1) & h] == null)
+                            rs[j] = r;
+                    } finally {
+                        cellsBusy = 0;
+                    }
+                }
+            }
+        }
+        else if (k < NCPU && cellsBusy == 0 && cells == as &&
+                 casCellsBusy()) {
+            try {
+                if (cells == as) {              // Expand table unless stale
+                    Cell[] rs = new Cell[k << 1];
+                    for (int i = 0; i < k; ++i)
+                        rs[i] = as[i];
+                    cells = rs;
+                }
+            } finally {
+                cellsBusy = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns the combined count, sum, minimum and maximum of all
+     * cells, adding per-bucket counts into the given array if
+     * non-null, and resetting each cell after reading it if
+     * requested.
+     */
+    final long[] collect(long[] buckets, boolean reset) {
+        long[] stats = { 0L, 0L, Long.MAX_VALUE, Long.MIN_VALUE };
+        base.collect(stats, buckets, reset);
+        Cell[] as = cells; Cell a;
+        if (as != null) {
+            for (int i = 0; i < as.length; ++i) {
+                if ((a = as[i]) != null)
+                    a.collect(stats, buckets, reset);
+            }
+        }
+        return stats;
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe UNSAFE;
+    private static final long CELLSBUSY;
+    static {
+        try {
+            UNSAFE = sun.misc.Unsafe.getUnsafe();
+            Class<?> sk = StripedStatistics.class;
+            CELLSBUSY = UNSAFE.objectFieldOffset
+                (sk.getDeclaredField("cellsBusy"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+
+}
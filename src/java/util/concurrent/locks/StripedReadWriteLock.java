@@ -0,0 +1,850 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/*
+ *
+ *
+ *
+ *
+ *
+ * Written by Doug Lea with assistance from members of JCP JSR-166
+ * Expert Group and released to the public domain, as explained at
+ * http://creativecommons.org/publicdomain/zero/1.0/
+ */
+
+package java.util.concurrent.locks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ReadWriteLock} designed for read-mostly data accessed by
+ * many threads, in which acquiring and releasing the read lock does
+ * not ordinarily update any memory location shared with other
+ * readers.  Instead, readers are recorded in an array of padded
+ * reader counts (<em>stripes</em>), each updated by the threads
+ * hashing to it, so that uncontended readers on different cores do
+ * not contend for cache lines.  A reader that encounters contention
+ * on its stripe moves to another.  The write lock is correspondingly
+ * more expensive to acquire, since a writer must wait until the
+ * counts of all stripes sum to zero.
+ *
+ * <p>This lock also supports optimistic reading in the manner of
+ * {@link StampedLock}: method {@link #tryOptimisticRead} returns a
+ * non-zero stamp only if the lock is not write-locked, and method
+ * {@link #validate} returns true if the write lock has not been
+ * acquired since the stamp was obtained.  See {@code StampedLock} for
+ * discussion of the care needed when using this mode.
+ *
+ * <p><b>Writer preference.</b> When constructed with writer
+ * preference (the default), a thread waiting to acquire the write
+ * lock prevents other threads from acquiring the read lock, so a
+ * continuous stream of readers cannot starve writers.  Without
+ * writer preference, a waiting writer repeatedly yields to readers,
+ * which minimizes read latency at the expense of possibly unbounded
+ * write latency.  In either case, writers acquire the lock in
+ * approximately FIFO order relative to each other.
+ *
+ * <p><b>Reentrancy.</b> The write lock is reentrant, and a thread
+ * holding the write lock may acquire the read lock, so the write lock
+ * may be downgraded by acquiring the read lock and then releasing
+ * the write lock.  Upgrading from a read lock to the write lock is
+ * not possible.  Because this lock does not track which threads hold
+ * the read lock, a thread that already holds the read lock and
+ * attempts to reacquire it may block (and deadlock) if a writer is
+ * waiting.  Similarly, releasing a read lock that is not held
+ * corrupts the lock rather than throwing an exception.
+ *
+ * <p>The read lock does not support {@link Condition}s.  The write
+ * lock does not support them either, since waiting on a condition
+ * would require releasing the write lock while possibly holding read
+ * locks; use a {@link ReentrantReadWriteLock} if conditions are
+ * needed.
+ *
+ * <p>Each instance occupies about 128 bytes per stripe, and uses a
+ * number of stripes that is the number of available processors
+ * rounded up to a power of two (at most 64) unless specified at
+ * construction.  This lock is therefore not suitable for fine-grained
+ * locking of large numbers of objects.
+ *
+ * <p>Serialization of this class behaves in the same way as built-in
+ * locks: a deserialized lock is in the unlocked state, regardless of
+ * its state when serialized.
+ *
+ * <p><b>Sample usage.</b> Here is a read-mostly routing table:
+ *
+ * <pre> {@code
+ * class RoutingTable {
+ *   private final StripedReadWriteLock lock = new StripedReadWriteLock();
+ *   private final Map<String, Route> routes = new HashMap<>();
+ *
+ *   Route route(String key) {
+ *     lock.readLock().lock();
+ *     try {
+ *       return routes.get(key);
+ *     } finally {
+ *       lock.readLock().unlock();
+ *     }
+ *   }
+ *
+ *   void update(String key, Route r) {
+ *     lock.writeLock().lock();
+ *     try {
+ *       routes.put(key, r);
+ *     } finally {
+ *       lock.writeLock().unlock();
+ *     }
+ *   }
+ * }}</pre>
+ *
+ * @since 1.8
+ */
+public class StripedReadWriteLock implements ReadWriteLock, java.io.Serializable {
+    private static final long serialVersionUID = -3487321538862341279L;
+
+    /*
+     * Algorithmic overview:
+     *
+     * Reader counts are longs spaced STRIDE slots apart in a single
+     * array, so that each occupies its own (pair of) cache lines
+     * without relying on @Contended.  A reader increments the count
+     * of the stripe selected by its ThreadLocalRandom probe (by CAS,
+     * moving to another stripe on failure, as in Striped64), and then
+     * checks the writer flag.  If it is clear, the read lock is held.
+     * Otherwise, the reader undoes its increment and acquires the
+     * read lock on a slow path: it increments a stripe count while
+     * holding the mutex that writers hold throughout their critical
+     * sections, so cannot overlap any writer.
+     *
+     * A writer acquires the mutex (a fair ReentrantLock, providing
+     * FIFO ordering among writers and slow-path readers), sets the
+     * writer flag, and waits until the sum of all stripe counts is
+     * zero.  Because readers increment before checking the flag,
+     * and the writer sets the flag before summing counts, any reader
+     * that sees a clear flag has its increment included in the sum
+     * (this is a Dekker-style protocol relying on the full fences of
+     * CAS and volatile writes).  Without writer preference, a writer
+     * finding a nonzero sum clears the flag before waiting and
+     * retries afterwards, so readers do not take the slow path.
+     *
+     * A releasing reader decrements the count of its current stripe,
+     * which need not be the one it incremented, since only the sum
+     * matters, and (among the stripes read by a writer) no decrement
+     * can be seen without its earlier increment.  However, a reader
+     * undoing an increment after seeing the writer flag must use the
+     * same stripe, since the writer may have read a different stripe
+     * before the increment.  A writer waiting for the sum to reach
+     * zero first spins, then records itself in drainWaiter and
+     * parks; readers decrementing a count unpark any drainWaiter.
+     *
+     * Optimistic reads use the version field, which is incremented
+     * (with a full fence) when the write lock is acquired, becoming
+     * odd, and again when released, becoming even.
+     */
+
+    /** Number of processors, for spin control and stripe sizing */
+    private static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /** Maximum default number of stripes; a power of two. */
+    private static final int MAX_STRIPES = 1 << 6;
+
+    /** Spacing of counts in the counts array: 128 bytes. */
+    private static final int STRIDE = 16;
+
+    /** Number of times a writer rescans reader counts before parking. */
+    private static final int SPINS = (NCPU > 1) ? 1 << 6 : 0;
+
+    /** The initial version; even and nonzero. */
+    private static final long ORIGIN = 2L;
+
+    /** Inner class providing readlock */
+    private final StripedReadWriteLock.ReadLock readerLock;
+    /** Inner class providing writelock */
+    private final StripedReadWriteLock.WriteLock writerLock;
+
+    /** Whether waiting writers exclude new readers. */
+    private final boolean writerPreference;
+
+    /** Held by writers, and by readers acquiring on the slow path. */
+    private final ReentrantLock mutex;
+
+    /** Number of stripes; a power of two. */
+    private final int stripes;
+
+    /** Reader counts, STRIDE apart, with padding at both ends. */
+    private transient long[] counts;
+
+    /** Nonzero while a writer holds or is acquiring the write lock. */
+    private transient volatile int writer;
+
+    /** Version for optimistic reads; odd while write-locked. */
+    private transient volatile long version;
+
+    /** Writer waiting for readers to drain, or null. */
+    private transient volatile Thread drainWaiter;
+
+    /**
+     * Creates a new {@code StripedReadWriteLock} with writer
+     * preference and the default number of stripes.
+     */
+    public StripedReadWriteLock() {
+        this(true);
+    }
+
+    /**
+     * Creates a new {@code StripedReadWriteLock} with the given
+     * writer preference policy and the default number of stripes.
+     *
+     * @param writerPreference {@code true} if threads waiting to
+     *        acquire the write lock should block new readers
+     */
+    public StripedReadWriteLock(boolean writerPreference) {
+        this(writerPreference, defaultStripes());
+    }
+
+    /**
+     * Creates a new {@code StripedReadWriteLock} with the given
+     * writer preference policy and (minimum) number of stripes.
+     *
+     * @param writerPreference {@code true} if threads waiting to
+     *        acquire the write lock should block new readers
+     * @param stripes the minimum number of reader count stripes
+     * @throws IllegalArgumentException if {@code stripes} is not
+     *         between 1 and 65536
+     */
+    public StripedReadWriteLock(boolean writerPreference, int stripes) {
+        if (stripes <= 0 || stripes > 1 << 16)
+            throw new IllegalArgumentException();
+        int n = 1;
+        while (n < stripes)
+            n <<= 1;
+        this.stripes = n;
+        this.writerPreference = writerPreference;
+        this.mutex = new ReentrantLock(true);
+        this.readerLock = new ReadLock(this);
+        this.writerLock = new WriteLock(this);
+        initState();
+    }
+
+    private static int defaultStripes() {
+        int n = 1;
+        while (n < NCPU && n < MAX_STRIPES)
+            n <<= 1;
+        return n;
+    }
+
+    private void initState() {
+        counts = new long[(stripes + 1) * STRIDE];
+        version = ORIGIN;
+    }
+
+    public StripedReadWriteLock.WriteLock writeLock() { return writerLock; }
+    public StripedReadWriteLock.ReadLock  readLock()  { return readerLock; }
+
+    // Reader counts
+
+    /**
+     * Returns the array offset of the count for the given probe.
+     */
+    private long countOffset(int h) {
+        return ((long)(((h & (stripes - 1)) + 1) * STRIDE) << LSHIFT) + LBASE;
+    }
+
+    /**
+     * Returns the probe for the current thread, initializing if
+     * necessary.
+     */
+    private static int probe() {
+        int h;
+        if ((h = U.getInt(Thread.currentThread(), PROBE)) == 0) {
+            ThreadLocalRandom.current(); // force initialization
+            h = U.getInt(Thread.currentThread(), PROBE);
+        }
+        return h;
+    }
+
+    /**
+     * Adds x to the count of the current thread's stripe, moving the
+     * thread to another stripe upon contention.
+     *
+     * @return the offset of the count updated
+     */
+    private long addCount(long x) {
+        final long[] cs = counts;
+        int h = probe();
+        for (;;) {
+            long off = countOffset(h), c = U.getLongVolatile(cs, off);
+            if (U.compareAndSwapLong(cs, off, c, c + x))
+                return off;
+            h ^= h << 13;   // xorshift
+            h ^= h >>> 17;
+            h ^= h << 5;
+            U.putInt(Thread.currentThread(), PROBE, h);
+        }
+    }
+
+    /**
+     * Wakes up a writer waiting for readers, if any.
+     */
+    private void signalDrain() {
+        Thread w;
+        if ((w = drainWaiter) != null)
+            LockSupport.unpark(w);
+    }
+
+    /**
+     * Returns the sum of reader counts.
+     */
+    private long readerCount() {
+        final long[] cs = counts;
+        long sum = 0L;
+        for (int i = 1; i <= stripes; ++i)
+            sum += U.getLongVolatile(cs, ((long)(i * STRIDE) << LSHIFT) + LBASE);
+        return sum;
+    }
+
+    // Read lock
+
+    /**
+     * Tries to acquire the read lock without the mutex.
+     */
+    private boolean tryFastRead() {
+        if (writer == 0) {
+            long off = addCount(1L);
+            if (writer == 0)
+                return true;
+            U.getAndAddLong(counts, off, -1L); // back out on same stripe
+            signalDrain();
+        }
+        return false;
+    }
+
+    /**
+     * Acquires the read lock after acquiring the mutex.
+     */
+    private void slowRead() {
+        try {
+            addCount(1L);
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    final void acquireRead() {
+        if (!tryFastRead()) {
+            mutex.lock();
+            slowRead();
+        }
+    }
+
+    final void acquireReadInterruptibly() throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        if (!tryFastRead()) {
+            mutex.lockInterruptibly();
+            slowRead();
+        }
+    }
+
+    final boolean tryAcquireRead() {
+        if (tryFastRead())
+            return true;
+        if (!mutex.tryLock())
+            return false;
+        slowRead();
+        return true;
+    }
+
+    final boolean tryAcquireRead(long nanos) throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        if (tryFastRead())
+            return true;
+        if (!mutex.tryLock(nanos, TimeUnit.NANOSECONDS))
+            return false;
+        slowRead();
+        return true;
+    }
+
+    final void releaseRead() {
+        addCount(-1L);
+        signalDrain();
+    }
+
+    // Write lock
+
+    /**
+     * Waits until there are no readers, having acquired the mutex.
+     * On interrupt or timeout, releases the mutex.
+     *
+     * @return false on timeout
+     */
+    private boolean acquireWrite(boolean interruptible, boolean timed,
+                                 long nanos) throws InterruptedException {
+        if (mutex.getHoldCount() > 1)
+            return true;                      // reentrant
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        boolean interrupted = false;
+        U.putIntVolatile(this, WRITER, 1);
+        for (int spins = SPINS;;) {
+            if (readerCount() == 0L)
+                break;
+            if (!writerPreference)
+                writer = 0;                   // let readers proceed
+            if (spins > 0)
+                --spins;
+            else {
+                Thread wt = Thread.currentThread();
+                drainWaiter = wt;
+                if (readerCount() != 0L) {
+                    if (!timed)
+                        LockSupport.park(this);
+                    else if ((nanos = deadline - System.nanoTime()) > 0L)
+                        LockSupport.parkNanos(this, nanos);
+                }
+                drainWaiter = null;
+                if (Thread.interrupted()) {
+                    if (interruptible) {
+                        cancelWrite();
+                        throw new InterruptedException();
+                    }
+                    interrupted = true;
+                }
+                if (timed && deadline - System.nanoTime() <= 0L &&
+                    readerCount() != 0L) {
+                    cancelWrite();
+                    return false;
+                }
+            }
+            if (writer == 0)
+                U.putIntVolatile(this, WRITER, 1);
+        }
+        U.getAndAddLong(this, VERSION, 1L);  // odd; fenced
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        return true;
+    }
+
+    private void cancelWrite() {
+        writer = 0;
+        mutex.unlock();
+    }
+
+    final void releaseWrite() {
+        if (!mutex.isHeldByCurrentThread())
+            throw new IllegalMonitorStateException();
+        if (mutex.getHoldCount() == 1) {
+            U.putLongVolatile(this, VERSION, version + 1L); // even
+            writer = 0;
+        }
+        mutex.unlock();
+    }
+
+    final void acquireWrite() {
+        mutex.lock();
+        try {
+            acquireWrite(false, false, 0L);
+        } catch (InterruptedException cannotHappen) {
+            throw new Error(cannotHappen);
+        }
+    }
+
+    final void acquireWriteInterruptibly() throws InterruptedException {
+        mutex.lockInterruptibly();
+        acquireWrite(true, false, 0L);
+    }
+
+    final boolean tryAcquireWrite() {
+        if (!mutex.tryLock())
+            return false;
+        if (mutex.getHoldCount() > 1)
+            return true;
+        U.putIntVolatile(this, WRITER, 1);
+        if (readerCount() != 0L) {
+            cancelWrite();
+            return false;
+        }
+        U.getAndAddLong(this, VERSION, 1L);
+        return true;
+    }
+
+    final boolean tryAcquireWrite(long nanos) throws InterruptedException {
+        final long deadline = System.nanoTime() + nanos;
+        if (!mutex.tryLock(nanos, TimeUnit.NANOSECONDS))
+            return false;
+        return acquireWrite(true, true, deadline - System.nanoTime());
+    }
+
+    // Optimistic reads
+
+    /**
+     * Returns a stamp that can later be validated, or zero if
+     * write-locked.
+     *
+     * @return a stamp, or zero if write-locked
+     */
+    public long tryOptimisticRead() {
+        long v;
+        return (((v = version) & 1L) == 0L) ? v : 0L;
+    }
+
+    /**
+     * Returns true if the write lock has not been acquired since
+     * issuance of the given stamp.  Always returns false if the stamp
+     * is zero.
+     *
+     * @param stamp a stamp obtained from {@link #tryOptimisticRead}
+     * @return {@code true} if the write lock has not been acquired
+     * since issuance of the given stamp; else false
+     */
+    public boolean validate(long stamp) {
+        U.loadFence();
+        return stamp != 0L && stamp == version;
+    }
+
+    // Instrumentation methods
+
+    /**
+     * Returns {@code true} if this lock has writer preference.
+     *
+     * @return {@code true} if this lock has writer preference
+     */
+    public final boolean hasWriterPreference() {
+        return writerPreference;
+    }
+
+    /**
+     * Queries the number of read locks held for this lock. This
+     * method is designed for use in monitoring system state, not for
+     * synchronization control.
+     *
+     * @return the number of read locks held
+     */
+    public int getReadLockCount() {
+        long n = readerCount();
+        return (n <= 0L) ? 0 : (n >= Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)n;
+    }
+
+    /**
+     * Queries if the write lock is held by any thread. This method is
+     * designed for use in monitoring system state, not for
+     * synchronization control.
+     *
+     * @return {@code true} if any thread holds the write lock and
+     *         {@code false} otherwise
+     */
+    public boolean isWriteLocked() {
+        return (version & 1L) != 0L;
+    }
+
+    /**
+     * Queries if the write lock is held by the current thread.
+     *
+     * @return {@code true} if the current thread holds the write lock and
+     *         {@code false} otherwise
+     */
+    public boolean isWriteLockedByCurrentThread() {
+        return mutex.isHeldByCurrentThread() && isWriteLocked();
+    }
+
+    /**
+     * Queries whether any threads are waiting to acquire the write
+     * lock, or are waiting for a writer to release it on the slow
+     * path of read lock acquisition.  This method is designed for use
+     * in monitoring system state, not for synchronization control.
+     *
+     * @return {@code true} if there may be other threads waiting to
+     *         acquire the lock
+     */
+    public final boolean hasQueuedThreads() {
+        return mutex.hasQueuedThreads();
+    }
+
+    /**
+     * Returns a string identifying this lock, as well as its lock state.
+     * The state, in brackets, includes the String {@code "Write locks ="}
+     * followed by 1 if write-locked, else 0, and the String
+     * {@code "Read locks ="} followed by the number of held read locks.
+     *
+     * @return a string identifying this lock, as well as its lock state
+     */
+    public String toString() {
+        return super.toString() +
+            "[Write locks = " + (isWriteLocked() ? 1 : 0) +
+            ", Read locks = " + getReadLockCount() + "]";
+    }
+
+    /**
+     * The lock returned by method {@link StripedReadWriteLock#readLock}.
+     */
+    public static final class ReadLock implements Lock, java.io.Serializable {
+        private static final long serialVersionUID = 1823071539468710411L;
+        private final StripedReadWriteLock lock;
+
+        ReadLock(StripedReadWriteLock lock) {
+            this.lock = lock;
+        }
+
+        /**
+         * Acquires the read lock.
+         *
+         * <p>Acquires the read lock if the write lock is not held by
+         * another thread (and, with writer preference, no other
+         * thread is waiting for it) and returns immediately.
+         *
+         * <p>Otherwise the current thread becomes disabled for
+         * thread scheduling purposes and lies dormant until the read
+         * lock has been acquired.
+         */
+        public void lock() {
+            lock.acquireRead();
+        }
+
+        /**
+         * Acquires the read lock unless the current thread is
+         * {@linkplain Thread#interrupt interrupted}.
+         *
+         * @throws InterruptedException if the current thread is interrupted
+         */
+        public void lockInterruptibly() throws InterruptedException {
+            lock.acquireReadInterruptibly();
+        }
+
+        /**
+         * Acquires the read lock only if the write lock is not held
+         * by another thread at the time of invocation.
+         *
+         * @return {@code true} if the read lock was acquired
+         */
+        public boolean tryLock() {
+            return lock.tryAcquireRead();
+        }
+
+        /**
+         * Acquires the read lock if the write lock is not held by
+         * another thread within the given waiting time and the
+         * current thread has not been {@linkplain Thread#interrupt
+         * interrupted}.
+         *
+         * @param timeout the time to wait for the read lock
+         * @param unit the time unit of the timeout argument
+         * @return {@code true} if the read lock was acquired
+         * @throws InterruptedException if the current thread is interrupted
+         * @throws NullPointerException if the time unit is null
+         */
+        public boolean tryLock(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            return lock.tryAcquireRead(unit.toNanos(timeout));
+        }
+
+        /**
+         * Releases the read lock held by the current thread.  The
+         * effect of releasing a read lock that is not held is
+         * undefined.
+         */
+        public void unlock() {
+            lock.releaseRead();
+        }
+
+        /**
+         * Throws {@code UnsupportedOperationException} because
+         * {@code ReadLocks} do not support conditions.
+         *
+         * @throws UnsupportedOperationException always
+         */
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Returns a string identifying this lock, as well as its lock state.
+         * The state, in brackets, includes the String {@code "Read locks ="}
+         * followed by the number of held read locks.
+         *
+         * @return a string identifying this lock, as well as its lock state
+         */
+        public String toString() {
+            return super.toString() +
+                "[Read locks = " + lock.getReadLockCount() + "]";
+        }
+    }
+
+    /**
+     * The lock returned by method {@link StripedReadWriteLock#writeLock}.
+     */
+    public static final class WriteLock implements Lock, java.io.Serializable {
+        private static final long serialVersionUID = -3196214281613287147L;
+        private final StripedReadWriteLock lock;
+
+        WriteLock(StripedReadWriteLock lock) {
+            this.lock = lock;
+        }
+
+        /**
+         * Acquires the write lock.
+         *
+         * <p>Acquires the write lock if no other thread holds the
+         * read or write lock and returns immediately.  If the
+         * current thread already holds the write lock then the hold
+         * count is incremented by one and the method returns
+         * immediately.
+         *
+         * <p>Otherwise the current thread becomes disabled for
+         * thread scheduling purposes and lies dormant until the
+         * write lock has been acquired.
+         */
+        public void lock() {
+            lock.acquireWrite();
+        }
+
+        /**
+         * Acquires the write lock unless the current thread is
+         * {@linkplain Thread#interrupt interrupted}.
+         *
+         * @throws InterruptedException if the current thread is interrupted
+         */
+        public void lockInterruptibly() throws InterruptedException {
+            lock.acquireWriteInterruptibly();
+        }
+
+        /**
+         * Acquires the write lock only if it is not held by another
+         * thread, and the read lock is not held, at the time of
+         * invocation.
+         *
+         * @return {@code true} if the lock was free and was acquired
+         * by the current thread, or the write lock was already held
+         * by the current thread; and {@code false} otherwise.
+         */
+        public boolean tryLock() {
+            return lock.tryAcquireWrite();
+        }
+
+        /**
+         * Acquires the write lock if it is not held by another
+         * thread, and the read lock is released, within the given
+         * waiting time and the current thread has not been
+         * {@linkplain Thread#interrupt interrupted}.
+         *
+         * @param timeout the time to wait for the write lock
+         * @param unit the time unit of the timeout argument
+         * @return {@code true} if the lock was acquired
+         * @throws InterruptedException if the current thread is interrupted
+         * @throws NullPointerException if the time unit is null
+         */
+        public boolean tryLock(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            return lock.tryAcquireWrite(unit.toNanos(timeout));
+        }
+
+        /**
+         * Attempts to release this lock.  If the current thread is
+         * the holder of this lock then the hold count is decremented.
+         * If the hold count is now zero then the lock is released.
+         *
+         * @throws IllegalMonitorStateException if the current thread does not
+         * hold this lock
+         */
+        public void unlock() {
+            lock.releaseWrite();
+        }
+
+        /**
+         * Throws {@code UnsupportedOperationException} because
+         * write locks of this class do not support conditions.
+         *
+         * @throws UnsupportedOperationException always
+         */
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Queries if this write lock is held by the current thread.
+         *
+         * @return {@code true} if the current thread holds this lock and
+         *         {@code false} otherwise
+         */
+        public boolean isHeldByCurrentThread() {
+            return lock.isWriteLockedByCurrentThread();
+        }
+
+        /**
+         * Returns a string identifying this lock, as well as its lock
+         * state.  The state, in brackets, includes either the String
+         * {@code "Unlocked"} or the String {@code "Locked"}.
+         *
+         * @return a string identifying this lock, as well as its lock state
+         */
+        public String toString() {
+            return super.toString() +
+                (lock.isWriteLocked() ? "[Locked]" : "[Unlocked]");
+        }
+    }
+
+    /**
+     * Reconstitutes the lock in the unlocked state.
+     *
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (stripes <= 0 || (stripes & (stripes - 1)) != 0)
+            throw new java.io.InvalidObjectException("Bad stripes");
+        initState();
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long WRITER;
+    private static final long VERSION;
+    private static final long PROBE;
+    private static final long LBASE;
+    private static final int LSHIFT;
+
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = StripedReadWriteLock.class;
+            WRITER = U.objectFieldOffset
+                (k.getDeclaredField("writer"));
+            VERSION = U.objectFieldOffset
+                (k.getDeclaredField("version"));
+            Class<?> tk = Thread.class;
+            PROBE = U.objectFieldOffset
+                (tk.getDeclaredField("threadLocalRandomProbe"));
+            LBASE = U.arrayBaseOffset(long[].class);
+            int scale = U.arrayIndexScale(long[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            LSHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -206,6 +206,16 @@ class JarFile extends ZipFile {
 
     private native String[] getMetaInfEntryNames();
 
+    /*
+     * Returns the names of the "META-INF/" entries, from the mapped
+     * index of the zip file if it has one.
+     */
+    private String[] metaInfEntryNames() {
+        String[] names = SharedSecrets.getJavaUtilZipFileAccess()
+                                      .getMetaInfEntryNames(this);
+        return (names != null) ? names : getMetaInfEntryNames();
+    }
+
     /**
      * Returns the <code>JarEntry</code> for the given entry name or
      * <code>null</code> if not found.
@@ -330,7 +340,7 @@ class JarFile extends ZipFile {
         }
 
         if (verify) {
-            String[] names = getMetaInfEntryNames();
+            String[] names = metaInfEntryNames();
             if (names != null) {
                 for (int i = 0; i < names.length; i++) {
                     String name = names[i].toUpperCase(Locale.ENGLISH);
@@ -362,7 +372,7 @@ class JarFile extends ZipFile {
 
         // Verify "META-INF/" entries...
         try {
-            String[] names = getMetaInfEntryNames();
+            String[] names = metaInfEntryNames();
             if (names != null) {
                 for (int i = 0; i < names.length; i++) {
                     String uname = names[i].toUpperCase(Locale.ENGLISH);
@@ -495,7 +505,7 @@ class JarFile extends ZipFile {
             if (manEntry == null) {
                 // If not found, then iterate through all the "META-INF/"
                 // entries to find a match.
-                String[] names = getMetaInfEntryNames();
+                String[] names = metaInfEntryNames();
                 if (names != null) {
                     for (int i = 0; i < names.length; i++) {
                         if (MANIFEST_NAME.equals(
@@ -24,8 +24,13 @@
  */
 package java.util.stream;
 
+import java.security.AccessController;
+import java.security.PrivilegedAction;
 import java.util.Objects;
 import java.util.Spliterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.IntFunction;
 import java.util.function.Supplier;
 
@@ -74,6 +79,28 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
     private static final String MSG_STREAM_LINKED = "stream has already been operated upon or closed";
     private static final String MSG_CONSUMED = "source already consumed or closed";
 
+    private static final String BULK_PROPERTY = "java.util.stream.bulk";
+
+    /**
+     * Whether pipelines over {@code int} and {@code long} sources push
+     * elements through their sinks in chunks, using
+     * {@link Sink#accept(int[], int, int)} and friends, when no stage is
+     * short-circuiting.  Stages that process chunks apply each function to a
+     * whole chunk before passing it on, so side-effects of behavioral
+     * parameters in different stages are no longer interleaved per element.
+     * Turned on if the system property {@code java.util.stream.bulk} is
+     * considered {@code true} according to {@link Boolean#getBoolean(String)}.
+     */
+    static final boolean BULK_ENABLED = AccessController.doPrivileged(
+            (PrivilegedAction<Boolean>) () -> Boolean.getBoolean(BULK_PROPERTY));
+
+    /**
+     * The maximum number of elements in a chunk pushed to a sink when
+     * {@link #BULK_ENABLED} is set; small enough for the chunk buffer and
+     * its derived buffers to stay in the L1 cache.
+     */
+    static final int BULK_CHUNK_SIZE = 1 << 10;
+
     /**
      * Backlink to the head of the pipeline chain (self if this is the source
      * stage).
@@ -148,6 +175,19 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
      */
     private boolean parallel;
 
+    /**
+     * The pool in which parallel evaluation is performed, or null for the
+     * common pool; only valid for the source stage.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * The expected cost of processing an element in nanoseconds, zero if the
+     * cost is to be measured, or negative if parallel tasks are sized by
+     * count only; only valid for the source stage.
+     */
+    private long costHint = -1L;
+
     /**
      * Constructor for the head of a stream pipeline.
      *
@@ -230,10 +270,27 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         linkedOrConsumed = true;
 
         return isParallel()
-               ? terminalOp.evaluateParallel(this, sourceSpliterator(terminalOp.getOpFlags()))
+               ? evaluateInPool(() -> terminalOp.evaluateParallel(this, sourceSpliterator(terminalOp.getOpFlags())))
                : terminalOp.evaluateSequential(this, sourceSpliterator(terminalOp.getOpFlags()));
     }
 
+    /**
+     * Performs a parallel evaluation in the pool given by
+     * {@link #parallel(ForkJoinPool)}, if any and if the current thread does
+     * not already run in that pool, so that the tasks of the evaluation are
+     * forked into that pool rather than into the common pool.
+     *
+     * @param <R> the type of result
+     * @param evaluation the evaluation
+     * @return the result
+     */
+    private <R> R evaluateInPool(Supplier<R> evaluation) {
+        ForkJoinPool p = sourceStage.pool;
+        if (p == null || ForkJoinTask.getPool() == p)
+            return evaluation.get();
+        return p.invoke(ForkJoinTask.adapt((Callable<R>) evaluation::get));
+    }
+
     /**
      * Collect the elements output from the pipeline stage.
      *
@@ -254,7 +311,10 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             // upstream slice and upstream operations will not be included
             // in this slice
             depth = 0;
-            return opEvaluateParallel(previousStage, previousStage.sourceSpliterator(0), generator);
+            return evaluateInPool(() -> opEvaluateParallel(previousStage, previousStage.sourceSpliterator(0), generator));
+        }
+        else if (isParallel()) {
+            return evaluateInPool(() -> evaluate(sourceSpliterator(0), true, generator));
         }
         else {
             return evaluate(sourceSpliterator(0), true, generator);
@@ -312,6 +372,23 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         return (S) this;
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public final S parallel(ForkJoinPool pool) {
+        sourceStage.pool = Objects.requireNonNull(pool);
+        sourceStage.parallel = true;
+        return (S) this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public final S costHint(long nanosPerElement) {
+        if (nanosPerElement < 0)
+            throw new IllegalArgumentException(Long.toString(nanosPerElement));
+        sourceStage.costHint = nanosPerElement;
+        return (S) this;
+    }
+
     @Override
     public void close() {
         linkedOrConsumed = true;
@@ -474,12 +551,23 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     final <P_IN> void copyInto(Sink<P_IN> wrappedSink, Spliterator<P_IN> spliterator) {
         Objects.requireNonNull(wrappedSink);
 
         if (!StreamOpFlag.SHORT_CIRCUIT.isKnown(getStreamAndOpFlags())) {
             wrappedSink.begin(spliterator.getExactSizeIfKnown());
-            spliterator.forEachRemaining(wrappedSink);
+            if (BULK_ENABLED) {
+                @SuppressWarnings({"rawtypes","unchecked"})
+                AbstractPipeline p = AbstractPipeline.this;
+                while (p.depth > 0) {
+                    p = p.previousStage;
+                }
+                p.forEachChunked(spliterator, wrappedSink);
+            }
+            else {
+                spliterator.forEachRemaining(wrappedSink);
+            }
             wrappedSink.end();
         }
         else {
@@ -505,6 +593,11 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         return combinedFlags;
     }
 
+    @Override
+    final long getCostHint() {
+        return sourceStage.costHint;
+    }
+
     final boolean isOrdered() {
         return StreamOpFlag.ORDERED.isKnown(combinedFlags);
     }
@@ -605,6 +698,21 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
      */
     abstract void forEachWithCancel(Spliterator<E_OUT> spliterator, Sink<E_OUT> sink);
 
+    /**
+     * Traverse the elements of a spliterator compatible with this stream shape,
+     * pushing those elements into a sink in chunks where the shape supports
+     * it.  The sink must not request cancellation.
+     *
+     * @implSpec The default implementation pushes each element in turn, as
+     * for {@code spliterator.forEachRemaining(sink)}.
+     *
+     * @param spliterator the spliterator to pull elements from
+     * @param sink the sink to push elements to
+     */
+    void forEachChunked(Spliterator<E_OUT> spliterator, Sink<E_OUT> sink) {
+        spliterator.forEachRemaining(sink);
+    }
+
     /**
      * Make a node builder compatible with this stream shape.
      *
@@ -112,7 +112,7 @@ abstract class AbstractShortCircuitTask<P_IN, P_OUT, R,
                 break;
             }
             if (sizeEstimate <= sizeThreshold || (ls = rs.trySplit()) == null) {
-                result = task.doLeaf();
+                result = task.doMeasuredLeaf();
                 break;
             }
             K leftChild, rightChild, taskToFork;
@@ -132,6 +132,8 @@ abstract class AbstractShortCircuitTask<P_IN, P_OUT, R,
             }
             taskToFork.fork();
             sizeEstimate = rs.estimateSize();
+            if (leafCost != null)
+                sizeThreshold = getTargetSize(sizeEstimate);
         }
         task.setLocalResult(result);
         task.tryComplete();
@@ -24,9 +24,12 @@
  */
 package java.util.stream;
 
+import java.security.AccessController;
+import java.security.PrivilegedAction;
 import java.util.Spliterator;
 import java.util.concurrent.CountedCompleter;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Abstract base class for most fork-join tasks used to implement stream ops.
@@ -73,6 +76,17 @@ import java.util.concurrent.ForkJoinPool;
  *     }
  * }</pre>
  *
+ * <p>Leaf tasks are ordinarily sized by splitting the estimated size of the
+ * input into {@link #LEAF_TARGET} portions, which over-splits cheap
+ * per-element work and under-splits expensive or skewed work.  If
+ * {@link #ADAPTIVE_ENABLED} is set, or a
+ * {@link BaseStream#costHint(long) cost hint} has been given, then leaf tasks
+ * of known size are timed, and the size of leaves split afterwards is chosen
+ * so that each takes about {@link LeafCost#LEAF_NANOS} nanoseconds to
+ * traverse.  Splits forked early in a computation are computed after the
+ * first leaves have completed, so most of the computation is split according
+ * to the measured cost.
+ *
  * <p>Serialization is not supported as there is no intention to serialize
  * tasks managed by stream ops.
  *
@@ -96,6 +110,18 @@ abstract class AbstractTask<P_IN, P_OUT, R,
      */
     static final int LEAF_TARGET = ForkJoinPool.getCommonPoolParallelism() << 2;
 
+    private static final String ADAPTIVE_PROPERTY = "java.util.stream.adaptiveSplitting";
+
+    /**
+     * Whether leaf tasks of all parallel computations are sized by the
+     * measured cost of processing elements, rather than only those of
+     * pipelines given a {@link BaseStream#costHint(long) cost hint}.  Turned
+     * on if the system property {@code java.util.stream.adaptiveSplitting} is
+     * considered {@code true} according to {@link Boolean#getBoolean(String)}.
+     */
+    static final boolean ADAPTIVE_ENABLED = AccessController.doPrivileged(
+            (PrivilegedAction<Boolean>) () -> Boolean.getBoolean(ADAPTIVE_PROPERTY));
+
     /** The pipeline helper, common to all tasks in a computation */
     protected final PipelineHelper<P_OUT> helper;
 
@@ -108,6 +134,12 @@ abstract class AbstractTask<P_IN, P_OUT, R,
     /** Target leaf size, common to all tasks in a computation */
     protected long targetSize; // may be laziliy initialized
 
+    /**
+     * The measured cost of leaves, common to all tasks in a computation, or
+     * null if leaves are sized by {@link #targetSize} only
+     */
+    protected final LeafCost leafCost;
+
     /**
      * The left child.
      * null if no children
@@ -139,6 +171,7 @@ abstract class AbstractTask<P_IN, P_OUT, R,
         this.helper = helper;
         this.spliterator = spliterator;
         this.targetSize = 0L;
+        this.leafCost = LeafCost.of(helper, spliterator);
     }
 
     /**
@@ -154,6 +187,7 @@ abstract class AbstractTask<P_IN, P_OUT, R,
         this.spliterator = spliterator;
         this.helper = parent.helper;
         this.targetSize = parent.targetSize;
+        this.leafCost = parent.leafCost;
     }
 
     /**
@@ -181,18 +215,52 @@ abstract class AbstractTask<P_IN, P_OUT, R,
      * @return suggested target leaf size
      */
     public static long suggestTargetSize(long sizeEstimate) {
-        long est = sizeEstimate / LEAF_TARGET;
+        long est = sizeEstimate / leafTarget();
         return est > 0L ? est : 1L;
     }
 
+    /**
+     * Returns the target factor of leaf tasks for the pool the current
+     * thread runs in, which is {@link #LEAF_TARGET} unless a parallel stream
+     * is evaluated in a pool other than the common pool.
+     *
+     * @return target factor of leaf tasks
+     */
+    static int leafTarget() {
+        ForkJoinPool pool = ForkJoinTask.getPool();
+        return (pool == null || pool == ForkJoinPool.commonPool())
+               ? LEAF_TARGET
+               : pool.getParallelism() << 2;
+    }
+
     /**
      * Returns the targetSize, initializing it via the supplied
-     * size estimate if not already initialized.
+     * size estimate if not already initialized.  If leaves are sized by
+     * their measured cost, and a leaf has been measured, then returns the
+     * size of a leaf of the target cost instead.
      */
     protected final long getTargetSize(long sizeEstimate) {
         long s;
-        return ((s = targetSize) != 0 ? s :
-                (targetSize = suggestTargetSize(sizeEstimate)));
+        if ((s = targetSize) == 0)
+            targetSize = s = suggestTargetSize(sizeEstimate);
+        return (leafCost == null) ? s : leafCost.targetSize(s);
+    }
+
+    /**
+     * Calls {@link #doLeaf}, measuring its cost if leaves are sized by their
+     * measured cost.
+     *
+     * @return the computed result of a leaf node
+     */
+    protected final R doMeasuredLeaf() {
+        LeafCost lc = leafCost;
+        if (lc == null)
+            return doLeaf();
+        long n = spliterator.getExactSizeIfKnown();
+        long start = System.nanoTime();
+        R result = doLeaf();
+        lc.sample(n, System.nanoTime() - start);
+        return result;
     }
 
     /**
@@ -312,8 +380,10 @@ abstract class AbstractTask<P_IN, P_OUT, R,
             }
             taskToFork.fork();
             sizeEstimate = rs.estimateSize();
+            if (leafCost != null)
+                sizeThreshold = getTargetSize(sizeEstimate);
         }
-        task.setLocalResult(task.doLeaf());
+        task.setLocalResult(task.doMeasuredLeaf());
         task.tryComplete();
     }
 
@@ -349,4 +419,69 @@ abstract class AbstractTask<P_IN, P_OUT, R,
         }
         return true;
     }
+
+    /**
+     * The cost of processing an element, measured from the leaves of a
+     * computation.  The estimate is a moving average of the cost per element
+     * of each leaf of known size, seeded by the cost hint, if any, so that it
+     * follows work whose cost varies across the input.
+     */
+    static final class LeafCost {
+        /**
+         * The target time taken to traverse a leaf, long enough to amortize
+         * the cost of forking it and short enough for the leaves of most
+         * computations to be balanced among workers.
+         */
+        static final long LEAF_NANOS = 1L << 18;
+
+        /** The maximum leaf size, leaving at least one leaf per worker */
+        private final long maxSize;
+
+        /** The estimated cost of an element in nanoseconds, or 0 if none */
+        private volatile double nanosPerElement;
+
+        private LeafCost(long hint, long maxSize) {
+            this.nanosPerElement = hint;
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * Returns a new {@code LeafCost} for a computation of the given
+         * pipeline over the given root spliterator, or null if its leaves
+         * are sized by count only.
+         */
+        static LeafCost of(PipelineHelper<?> helper, Spliterator<?> spliterator) {
+            long hint = helper.getCostHint();
+            if (hint < 0 && !ADAPTIVE_ENABLED)
+                return null;
+            long max = spliterator.estimateSize() / (leafTarget() >>> 2);
+            return new LeafCost(Math.max(hint, 0L), Math.max(max, 1L));
+        }
+
+        /**
+         * Returns the size of a leaf taking about {@link #LEAF_NANOS} to
+         * traverse, or the given size if no cost is known.
+         */
+        long targetSize(long sizeByCount) {
+            double c = nanosPerElement;
+            if (c <= 0.0)
+                return sizeByCount;
+            double size = LEAF_NANOS / c;
+            return (size >= maxSize) ? maxSize : (size < 1.0) ? 1L : (long) size;
+        }
+
+        /**
+         * Records that a leaf of the given size took the given time to
+         * traverse.  Leaves of unknown size are ignored.
+         */
+        void sample(long size, long nanos) {
+            if (size > 0L && nanos > 0L) {
+                double c = (double) nanos / size;
+                synchronized (this) {
+                    double p = nanosPerElement;
+                    nanosPerElement = (p <= 0.0) ? c : p + (c - p) * 0.25;
+                }
+            }
+        }
+    }
 }
@@ -29,8 +29,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Objects;
 import java.util.Spliterator;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.IntConsumer;
 import java.util.function.Predicate;
 
@@ -116,6 +118,67 @@ public interface BaseStream<T, S extends BaseStream<T, S>>
      */
     S parallel();
 
+    /**
+     * Returns an equivalent stream that is parallel, and whose terminal
+     * operation is evaluated in the given pool rather than in the
+     * {@link ForkJoinPool#commonPool() common pool}.  The stream is split
+     * into tasks according to the parallelism of the given pool.
+     *
+     * <p>This is an <a href="package-summary.html#StreamOps">intermediate
+     * operation</a>.
+     *
+     * @apiNote
+     * Evaluating in a dedicated pool keeps long-running or blocking stream
+     * computations from occupying the workers of the common pool, and bounds
+     * the number of threads a computation may use.  Elements traversed through
+     * the {@link #iterator()} or {@link #spliterator()} of the stream are
+     * processed in the traversing thread, whatever the pool.
+     *
+     * @implSpec
+     * The default implementation checks that {@code pool} is not null and
+     * returns {@link #parallel()}, evaluating in the common pool.
+     *
+     * @param pool the pool in which to evaluate the stream
+     * @return a parallel stream
+     * @throws NullPointerException if {@code pool} is null
+     * @since 1.8
+     */
+    default S parallel(ForkJoinPool pool) {
+        Objects.requireNonNull(pool);
+        return parallel();
+    }
+
+    /**
+     * Returns an equivalent stream whose parallel evaluation sizes its tasks
+     * by the measured cost of processing its elements, starting from the given
+     * expected cost.  Without a hint, tasks are sized by splitting the
+     * estimated number of elements evenly among a small multiple of the
+     * parallelism of the pool, which splits cheap per-element work into more
+     * tasks than are worth forking and expensive or unevenly costly work into
+     * too few tasks to keep the workers busy.  With a hint, the time taken by
+     * each task is measured, and later tasks are sized to take roughly the
+     * same time, at most one worker's share of the stream.
+     *
+     * <p>This is an <a href="package-summary.html#StreamOps">intermediate
+     * operation</a>.
+     *
+     * @implSpec
+     * The default implementation checks {@code nanosPerElement} and returns
+     * this stream, as returned by {@link #parallel()} if this stream is
+     * parallel and by {@link #sequential()} otherwise.
+     *
+     * @param nanosPerElement the expected cost of processing an element of
+     *        this stream, in nanoseconds, or zero if unknown
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code nanosPerElement} is negative
+     * @since 1.8
+     */
+    default S costHint(long nanosPerElement) {
+        if (nanosPerElement < 0)
+            throw new IllegalArgumentException(Long.toString(nanosPerElement));
+        return isParallel() ? parallel() : sequential();
+    }
+
     /**
      * Returns an equivalent stream that is
      * <a href="package-summary.html#Ordering">unordered</a>.  May return
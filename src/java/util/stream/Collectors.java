@@ -35,13 +35,19 @@ import java.util.DoubleSummaryStatistics;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IntIntMap;
+import java.util.IntLongMap;
+import java.util.IntObjectMap;
 import java.util.IntSummaryStatistics;
 import java.util.Iterator;
 import java.util.List;
+import java.util.LongLongMap;
+import java.util.LongObjectMap;
 import java.util.LongSummaryStatistics;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.PrimitiveIterator;
 import java.util.Set;
 import java.util.StringJoiner;
 import java.util.concurrent.ConcurrentHashMap;
@@ -51,6 +57,8 @@ import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongBinaryOperator;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.function.ToDoubleFunction;
@@ -1091,6 +1099,354 @@ public final class Collectors {
         }
     }
 
+    /**
+     * Returns a {@code Collector} implementing a "group by" operation on
+     * input elements of type {@code T}, grouping elements according to an
+     * {@code int}-valued classification function, and returning the results
+     * in an {@link IntObjectMap}.
+     *
+     * <p>The collector produces an {@code IntObjectMap<List<T>>} whose keys
+     * are the values resulting from applying the classification function to
+     * the input elements, and whose corresponding values are {@code List}s
+     * containing the input elements which map to the associated key under
+     * the classification function.  Keys are neither boxed nor hashed as
+     * objects.
+     *
+     * <p>There are no guarantees on the mutability, serializability, or
+     * thread-safety of the {@code IntObjectMap} or {@code List} objects
+     * returned.
+     * @implSpec
+     * This produces a result similar to:
+     * <pre>{@code
+     *     groupingByInt(classifier, toList());
+     * }</pre>
+     *
+     * @param <T> the type of the input elements
+     * @param classifier the classifier function mapping input elements to keys
+     * @return a {@code Collector} implementing the group-by operation
+     *
+     * @see #groupingByInt(ToIntFunction, Collector)
+     * @see #groupingBy(Function)
+     * @since 1.8
+     */
+    public static <T> Collector<T, ?, IntObjectMap<List<T>>>
+    groupingByInt(ToIntFunction<? super T> classifier) {
+        return groupingByInt(classifier, toList());
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a cascaded "group by" operation
+     * on input elements of type {@code T}, grouping elements according to an
+     * {@code int}-valued classification function, and then performing a
+     * reduction operation on the values associated with a given key using the
+     * specified downstream {@code Collector}.
+     *
+     * <p>The downstream collector operates on elements of type {@code T} and
+     * produces a result of type {@code D}. The resulting collector produces an
+     * {@code IntObjectMap<D>}, so that keys are neither boxed nor hashed as
+     * objects.
+     *
+     * <p>There are no guarantees on the mutability, serializability, or
+     * thread-safety of the {@code IntObjectMap} returned.
+     *
+     * <p>For example, to compute the set of last names of people of each age:
+     * <pre>{@code
+     *     IntObjectMap<Set<String>> namesByAge
+     *         = people.stream().collect(groupingByInt(Person::getAge,
+     *                                                 mapping(Person::getLastName, toSet())));
+     * }</pre>
+     *
+     * @implNote
+     * The returned {@code Collector} is not concurrent.  For parallel stream
+     * pipelines, the {@code combiner} function merges the keys of the smaller
+     * of two partial tables into the larger one, so that each key is moved
+     * at most a logarithmic number of times, without allocating entries or
+     * boxed keys.
+     *
+     * @param <T> the type of the input elements
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param classifier a classifier function mapping input elements to keys
+     * @param downstream a {@code Collector} implementing the downstream reduction
+     * @return a {@code Collector} implementing the cascaded group-by operation
+     *
+     * @see #groupingByInt(ToIntFunction)
+     * @see #groupingBy(Function, Collector)
+     * @since 1.8
+     */
+    public static <T, A, D>
+    Collector<T, ?, IntObjectMap<D>> groupingByInt(ToIntFunction<? super T> classifier,
+                                                   Collector<? super T, A, D> downstream) {
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        BiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+        BiConsumer<IntObjectMap<A>, T> accumulator = (m, t) -> {
+            int key = classifier.applyAsInt(t);
+            A container = m.get(key);
+            if (container == null)
+                m.put(key, container = downstreamSupplier.get());
+            downstreamAccumulator.accept(container, t);
+        };
+        BinaryOperator<IntObjectMap<A>> merger = intObjectMapMerger(downstream.combiner());
+
+        if (downstream.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)) {
+            @SuppressWarnings("unchecked")
+            Function<IntObjectMap<A>, IntObjectMap<D>> finisher = castingIdentity();
+            return new CollectorImpl<>(IntObjectMap::new, accumulator, merger, finisher, CH_ID);
+        }
+        else {
+            @SuppressWarnings("unchecked")
+            Function<A, A> downstreamFinisher = (Function<A, A>) downstream.finisher();
+            Function<IntObjectMap<A>, IntObjectMap<D>> finisher = intermediate -> {
+                // replacing values of existing keys is not a structural modification
+                PrimitiveIterator.OfInt keys = (PrimitiveIterator.OfInt) intermediate.keySet().iterator();
+                while (keys.hasNext()) {
+                    int k = keys.nextInt();
+                    intermediate.put(k, downstreamFinisher.apply(intermediate.get(k)));
+                }
+                @SuppressWarnings("unchecked")
+                IntObjectMap<D> castResult = (IntObjectMap<D>) (IntObjectMap<?>) intermediate;
+                return castResult;
+            };
+            return new CollectorImpl<>(IntObjectMap::new, accumulator, merger, finisher, CH_NOID);
+        }
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a "group by" operation on
+     * input elements of type {@code T}, grouping elements according to a
+     * {@code long}-valued classification function, and returning the results
+     * in a {@link LongObjectMap}.
+     *
+     * <p>The collector produces a {@code LongObjectMap<List<T>>} whose keys
+     * are the values resulting from applying the classification function to
+     * the input elements, and whose corresponding values are {@code List}s
+     * containing the input elements which map to the associated key under
+     * the classification function.  Keys are neither boxed nor hashed as
+     * objects.
+     *
+     * <p>There are no guarantees on the mutability, serializability, or
+     * thread-safety of the {@code LongObjectMap} or {@code List} objects
+     * returned.
+     * @implSpec
+     * This produces a result similar to:
+     * <pre>{@code
+     *     groupingByLong(classifier, toList());
+     * }</pre>
+     *
+     * @param <T> the type of the input elements
+     * @param classifier the classifier function mapping input elements to keys
+     * @return a {@code Collector} implementing the group-by operation
+     *
+     * @see #groupingByLong(ToLongFunction, Collector)
+     * @see #groupingBy(Function)
+     * @since 1.8
+     */
+    public static <T> Collector<T, ?, LongObjectMap<List<T>>>
+    groupingByLong(ToLongFunction<? super T> classifier) {
+        return groupingByLong(classifier, toList());
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a cascaded "group by" operation
+     * on input elements of type {@code T}, grouping elements according to a
+     * {@code long}-valued classification function, and then performing a
+     * reduction operation on the values associated with a given key using the
+     * specified downstream {@code Collector}.
+     *
+     * <p>The downstream collector operates on elements of type {@code T} and
+     * produces a result of type {@code D}. The resulting collector produces a
+     * {@code LongObjectMap<D>}, so that keys are neither boxed nor hashed as
+     * objects.
+     *
+     * <p>There are no guarantees on the mutability, serializability, or
+     * thread-safety of the {@code LongObjectMap} returned.
+     *
+     * @implNote
+     * The returned {@code Collector} is not concurrent.  For parallel stream
+     * pipelines, the {@code combiner} function merges the keys of the smaller
+     * of two partial tables into the larger one, so that each key is moved
+     * at most a logarithmic number of times, without allocating entries or
+     * boxed keys.
+     *
+     * @param <T> the type of the input elements
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param classifier a classifier function mapping input elements to keys
+     * @param downstream a {@code Collector} implementing the downstream reduction
+     * @return a {@code Collector} implementing the cascaded group-by operation
+     *
+     * @see #groupingByLong(ToLongFunction)
+     * @see #groupingBy(Function, Collector)
+     * @since 1.8
+     */
+    public static <T, A, D>
+    Collector<T, ?, LongObjectMap<D>> groupingByLong(ToLongFunction<? super T> classifier,
+                                                     Collector<? super T, A, D> downstream) {
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        BiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+        BiConsumer<LongObjectMap<A>, T> accumulator = (m, t) -> {
+            long key = classifier.applyAsLong(t);
+            A container = m.get(key);
+            if (container == null)
+                m.put(key, container = downstreamSupplier.get());
+            downstreamAccumulator.accept(container, t);
+        };
+        BinaryOperator<LongObjectMap<A>> merger = longObjectMapMerger(downstream.combiner());
+
+        if (downstream.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)) {
+            @SuppressWarnings("unchecked")
+            Function<LongObjectMap<A>, LongObjectMap<D>> finisher = castingIdentity();
+            return new CollectorImpl<>(LongObjectMap::new, accumulator, merger, finisher, CH_ID);
+        }
+        else {
+            @SuppressWarnings("unchecked")
+            Function<A, A> downstreamFinisher = (Function<A, A>) downstream.finisher();
+            Function<LongObjectMap<A>, LongObjectMap<D>> finisher = intermediate -> {
+                // replacing values of existing keys is not a structural modification
+                PrimitiveIterator.OfLong keys = (PrimitiveIterator.OfLong) intermediate.keySet().iterator();
+                while (keys.hasNext()) {
+                    long k = keys.nextLong();
+                    intermediate.put(k, downstreamFinisher.apply(intermediate.get(k)));
+                }
+                @SuppressWarnings("unchecked")
+                LongObjectMap<D> castResult = (LongObjectMap<D>) (LongObjectMap<?>) intermediate;
+                return castResult;
+            };
+            return new CollectorImpl<>(LongObjectMap::new, accumulator, merger, finisher, CH_NOID);
+        }
+    }
+
+    /**
+     * Returns a {@code Collector} counting input elements of type {@code T}
+     * by an {@code int}-valued classification function, producing an
+     * {@link IntLongMap} from each key to the number of elements mapped to
+     * it.  Neither keys nor counts are boxed.
+     *
+     * @implSpec
+     * This produces a result similar to:
+     * <pre>{@code
+     *     summingLongBy(classifier, t -> 1L);
+     * }</pre>
+     *
+     * @param <T> the type of the input elements
+     * @param classifier a classifier function mapping input elements to keys
+     * @return a {@code Collector} counting the input elements by key
+     *
+     * @see #summingLongBy(ToIntFunction, ToLongFunction)
+     * @see #groupingBy(Function, Collector)
+     * @see #counting()
+     * @since 1.8
+     */
+    public static <T> Collector<T, ?, IntLongMap>
+    countingBy(ToIntFunction<? super T> classifier) {
+        return summingLongBy(classifier, t -> 1L);
+    }
+
+    /**
+     * Returns a {@code Collector} grouping input elements of type {@code T}
+     * by an {@code int}-valued classification function and summing a
+     * {@code long}-valued function of the elements of each group, producing
+     * an {@link IntLongMap} from each key to its sum.  Neither keys nor sums
+     * are boxed.
+     *
+     * <p>For example, to compute the total salary of employees in each
+     * department:
+     * <pre>{@code
+     *     IntLongMap totalByDept
+     *         = employees.stream().collect(summingLongBy(Employee::getDepartmentId,
+     *                                                    Employee::getSalary));
+     * }</pre>
+     *
+     * @implNote
+     * The returned {@code Collector} is not concurrent.  For parallel stream
+     * pipelines, the {@code combiner} function adds the sums of the smaller
+     * of two partial tables into the larger one.
+     *
+     * @param <T> the type of the input elements
+     * @param classifier a classifier function mapping input elements to keys
+     * @param mapper a function extracting the property to be summed
+     * @return a {@code Collector} producing the sum of the derived property
+     *         for each key
+     *
+     * @see #countingBy(ToIntFunction)
+     * @see #summingLong(ToLongFunction)
+     * @since 1.8
+     */
+    public static <T> Collector<T, ?, IntLongMap>
+    summingLongBy(ToIntFunction<? super T> classifier,
+                  ToLongFunction<? super T> mapper) {
+        BiConsumer<IntLongMap, T> accumulator
+                = (m, t) -> m.merge(classifier.applyAsInt(t), mapper.applyAsLong(t), Long::sum);
+        BinaryOperator<IntLongMap> merger = (m1, m2) -> {
+            IntLongMap big = m1, small = m2;
+            if (m1.size() < m2.size()) {
+                big = m2;
+                small = m1;
+            }
+            PrimitiveIterator.OfInt keys = (PrimitiveIterator.OfInt) small.keySet().iterator();
+            while (keys.hasNext()) {
+                int k = keys.nextInt();
+                big.merge(k, small.getLongOrDefault(k, 0L), Long::sum);
+            }
+            return big;
+        };
+        return new CollectorImpl<>(IntLongMap::new, accumulator, merger, CH_ID);
+    }
+
+    /**
+     * {@code BinaryOperator<IntObjectMap>} that merges the contents of the
+     * smaller of its map arguments into the larger one, using the provided
+     * merge function to combine the values of duplicate keys in encounter
+     * order.
+     *
+     * @param <A> the type of the map values
+     * @param mergeFunction a merge function suitable for
+     * {@link Collector#combiner()}
+     * @return a merge function for two maps
+     */
+    private static <A> BinaryOperator<IntObjectMap<A>>
+    intObjectMapMerger(BinaryOperator<A> mergeFunction) {
+        return (m1, m2) -> {
+            boolean leftBig = m1.size() >= m2.size();
+            IntObjectMap<A> big = leftBig ? m1 : m2, small = leftBig ? m2 : m1;
+            PrimitiveIterator.OfInt keys = (PrimitiveIterator.OfInt) small.keySet().iterator();
+            while (keys.hasNext()) {
+                int k = keys.nextInt();
+                A v = small.get(k), w = big.get(k);
+                big.put(k, (w == null) ? v :
+                        leftBig ? mergeFunction.apply(w, v) : mergeFunction.apply(v, w));
+            }
+            return big;
+        };
+    }
+
+    /**
+     * {@code BinaryOperator<LongObjectMap>} that merges the contents of the
+     * smaller of its map arguments into the larger one, using the provided
+     * merge function to combine the values of duplicate keys in encounter
+     * order.
+     *
+     * @param <A> the type of the map values
+     * @param mergeFunction a merge function suitable for
+     * {@link Collector#combiner()}
+     * @return a merge function for two maps
+     */
+    private static <A> BinaryOperator<LongObjectMap<A>>
+    longObjectMapMerger(BinaryOperator<A> mergeFunction) {
+        return (m1, m2) -> {
+            boolean leftBig = m1.size() >= m2.size();
+            LongObjectMap<A> big = leftBig ? m1 : m2, small = leftBig ? m2 : m1;
+            PrimitiveIterator.OfLong keys = (PrimitiveIterator.OfLong) small.keySet().iterator();
+            while (keys.hasNext()) {
+                long k = keys.nextLong();
+                A v = small.get(k), w = big.get(k);
+                big.put(k, (w == null) ? v :
+                        leftBig ? mergeFunction.apply(w, v) : mergeFunction.apply(v, w));
+            }
+            return big;
+        };
+    }
+
     /**
      * Returns a {@code Collector} which partitions the input elements according
      * to a {@code Predicate}, and organizes them into a
@@ -1474,6 +1830,176 @@ public final class Collectors {
         return new CollectorImpl<>(mapSupplier, accumulator, mapMerger(mergeFunction), CH_CONCURRENT_ID);
     }
 
+    /**
+     * Returns a {@code Collector} that accumulates elements into an
+     * {@link IntIntMap} whose keys and values are the result of applying the
+     * provided {@code int}-valued mapping functions to the input elements.
+     * Neither keys nor values are boxed.
+     *
+     * <p>If the mapped keys contains duplicates, an
+     * {@code IllegalStateException} is thrown when the collection operation
+     * is performed.  If the mapped keys may have duplicates, use
+     * {@link #toIntMap(ToIntFunction, ToIntFunction, IntBinaryOperator)}
+     * instead.
+     *
+     * @param <T> the type of the input elements
+     * @param keyMapper a mapping function to produce keys
+     * @param valueMapper a mapping function to produce values
+     * @return a {@code Collector} which collects elements into an
+     * {@code IntIntMap} whose keys and values are the result of applying
+     * mapping functions to the input elements
+     *
+     * @see #toIntMap(ToIntFunction, ToIntFunction, IntBinaryOperator)
+     * @see #toMap(Function, Function)
+     * @since 1.8
+     */
+    public static <T>
+    Collector<T, ?, IntIntMap> toIntMap(ToIntFunction<? super T> keyMapper,
+                                        ToIntFunction<? super T> valueMapper) {
+        return toIntMap(keyMapper, valueMapper, (u, v) -> {
+            throw new IllegalStateException(String.format("Duplicate value %d", u));
+        });
+    }
+
+    /**
+     * Returns a {@code Collector} that accumulates elements into an
+     * {@link IntIntMap} whose keys and values are the result of applying the
+     * provided {@code int}-valued mapping functions to the input elements.
+     * Neither keys nor values are boxed.
+     *
+     * <p>If the mapped keys contains duplicates, the value mapping function
+     * is applied to each equal element, and the results are merged using the
+     * provided merging function, in encounter order.
+     *
+     * @implNote
+     * The returned {@code Collector} is not concurrent.  For parallel stream
+     * pipelines, the {@code combiner} function merges the keys of the smaller
+     * of two partial tables into the larger one.
+     *
+     * @param <T> the type of the input elements
+     * @param keyMapper a mapping function to produce keys
+     * @param valueMapper a mapping function to produce values
+     * @param mergeFunction a merge function, used to resolve collisions
+     *                      between values associated with the same key
+     * @return a {@code Collector} which collects elements into an
+     * {@code IntIntMap} whose keys are the result of applying a key mapping
+     * function to the input elements, and whose values are the result of
+     * applying a value mapping function to all input elements equal to the
+     * key and combining them using the merge function
+     *
+     * @see #toIntMap(ToIntFunction, ToIntFunction)
+     * @see #toMap(Function, Function, BinaryOperator)
+     * @since 1.8
+     */
+    public static <T>
+    Collector<T, ?, IntIntMap> toIntMap(ToIntFunction<? super T> keyMapper,
+                                        ToIntFunction<? super T> valueMapper,
+                                        IntBinaryOperator mergeFunction) {
+        Objects.requireNonNull(mergeFunction);
+        BiConsumer<IntIntMap, T> accumulator
+                = (m, t) -> m.merge(keyMapper.applyAsInt(t), valueMapper.applyAsInt(t), mergeFunction);
+        BinaryOperator<IntIntMap> merger = (m1, m2) -> {
+            boolean leftBig = m1.size() >= m2.size();
+            IntIntMap big = leftBig ? m1 : m2, small = leftBig ? m2 : m1;
+            PrimitiveIterator.OfInt keys = (PrimitiveIterator.OfInt) small.keySet().iterator();
+            while (keys.hasNext()) {
+                int k = keys.nextInt(), v = small.getIntOrDefault(k, 0);
+                if (!big.putIfAbsent(k, v)) {
+                    int w = big.getIntOrDefault(k, 0);
+                    big.put(k, leftBig ? mergeFunction.applyAsInt(w, v)
+                                       : mergeFunction.applyAsInt(v, w));
+                }
+            }
+            return big;
+        };
+        return new CollectorImpl<>(IntIntMap::new, accumulator, merger, CH_ID);
+    }
+
+    /**
+     * Returns a {@code Collector} that accumulates elements into a
+     * {@link LongLongMap} whose keys and values are the result of applying
+     * the provided {@code long}-valued mapping functions to the input
+     * elements.  Neither keys nor values are boxed.
+     *
+     * <p>If the mapped keys contains duplicates, an
+     * {@code IllegalStateException} is thrown when the collection operation
+     * is performed.  If the mapped keys may have duplicates, use
+     * {@link #toLongMap(ToLongFunction, ToLongFunction, LongBinaryOperator)}
+     * instead.
+     *
+     * @param <T> the type of the input elements
+     * @param keyMapper a mapping function to produce keys
+     * @param valueMapper a mapping function to produce values
+     * @return a {@code Collector} which collects elements into a
+     * {@code LongLongMap} whose keys and values are the result of applying
+     * mapping functions to the input elements
+     *
+     * @see #toLongMap(ToLongFunction, ToLongFunction, LongBinaryOperator)
+     * @see #toMap(Function, Function)
+     * @since 1.8
+     */
+    public static <T>
+    Collector<T, ?, LongLongMap> toLongMap(ToLongFunction<? super T> keyMapper,
+                                           ToLongFunction<? super T> valueMapper) {
+        return toLongMap(keyMapper, valueMapper, (u, v) -> {
+            throw new IllegalStateException(String.format("Duplicate value %d", u));
+        });
+    }
+
+    /**
+     * Returns a {@code Collector} that accumulates elements into a
+     * {@link LongLongMap} whose keys and values are the result of applying
+     * the provided {@code long}-valued mapping functions to the input
+     * elements.  Neither keys nor values are boxed.
+     *
+     * <p>If the mapped keys contains duplicates, the value mapping function
+     * is applied to each equal element, and the results are merged using the
+     * provided merging function, in encounter order.
+     *
+     * @implNote
+     * The returned {@code Collector} is not concurrent.  For parallel stream
+     * pipelines, the {@code combiner} function merges the keys of the smaller
+     * of two partial tables into the larger one.
+     *
+     * @param <T> the type of the input elements
+     * @param keyMapper a mapping function to produce keys
+     * @param valueMapper a mapping function to produce values
+     * @param mergeFunction a merge function, used to resolve collisions
+     *                      between values associated with the same key
+     * @return a {@code Collector} which collects elements into a
+     * {@code LongLongMap} whose keys are the result of applying a key mapping
+     * function to the input elements, and whose values are the result of
+     * applying a value mapping function to all input elements equal to the
+     * key and combining them using the merge function
+     *
+     * @see #toLongMap(ToLongFunction, ToLongFunction)
+     * @see #toMap(Function, Function, BinaryOperator)
+     * @since 1.8
+     */
+    public static <T>
+    Collector<T, ?, LongLongMap> toLongMap(ToLongFunction<? super T> keyMapper,
+                                           ToLongFunction<? super T> valueMapper,
+                                           LongBinaryOperator mergeFunction) {
+        Objects.requireNonNull(mergeFunction);
+        BiConsumer<LongLongMap, T> accumulator
+                = (m, t) -> m.merge(keyMapper.applyAsLong(t), valueMapper.applyAsLong(t), mergeFunction);
+        BinaryOperator<LongLongMap> merger = (m1, m2) -> {
+            boolean leftBig = m1.size() >= m2.size();
+            LongLongMap big = leftBig ? m1 : m2, small = leftBig ? m2 : m1;
+            PrimitiveIterator.OfLong keys = (PrimitiveIterator.OfLong) small.keySet().iterator();
+            while (keys.hasNext()) {
+                long k = keys.nextLong(), v = small.getLongOrDefault(k, 0L);
+                if (!big.putIfAbsent(k, v)) {
+                    long w = big.getLongOrDefault(k, 0L);
+                    big.put(k, leftBig ? mergeFunction.applyAsLong(w, v)
+                                       : mergeFunction.applyAsLong(v, w));
+                }
+            }
+            return big;
+        };
+        return new CollectorImpl<>(LongLongMap::new, accumulator, merger, CH_ID);
+    }
+
     /**
      * Returns a {@code Collector} which applies an {@code int}-producing
      * mapping function to each input element, and returns summary statistics
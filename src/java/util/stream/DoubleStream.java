@@ -279,6 +279,68 @@ public interface DoubleStream extends BaseStream<Double, DoubleStream> {
      */
     DoubleStream skip(long n);
 
+    /**
+     * Returns a stream consisting of the elements of this stream gathered
+     * into consecutive arrays of {@code size} elements, in encounter order.
+     * The last array holds the remaining elements and may be shorter than
+     * {@code size}; it is never empty.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote
+     * Parallel pipelines split this operation as described for
+     * {@link Stream#chunked(int)}.
+     *
+     * @implSpec
+     * The default implementation checks {@code size} and returns a stream
+     * over the chunks of the elements of this stream's
+     * {@link #spliterator() spliterator}.
+     *
+     * @param size the number of elements in each chunk
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} is not positive
+     * @since 1.8
+     */
+    default Stream<double[]> chunked(int size) {
+        WindowOps.checkWindow(size, size);
+        return StreamSupport.stream(WindowOps.spliterator(spliterator(), size, size, true), isParallel())
+                .onClose(this::close);
+    }
+
+    /**
+     * Returns a stream consisting of the arrays of {@code size} consecutive
+     * elements of this stream starting at every {@code step}th element, in
+     * encounter order.  Trailing elements not enough to fill an array are
+     * discarded.  For example, the windows of size 3 and step 2 of the
+     * elements {@code 1.0, 2.0, 3.0, 4.0, 5.0, 6.0} are {@code {1.0, 2.0, 3.0}} and {@code {3.0, 4.0, 5.0}}.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote
+     * Parallel pipelines split this operation as described for
+     * {@link Stream#chunked(int)}.
+     *
+     * @implSpec
+     * The default implementation checks {@code size} and {@code step} and
+     * returns a stream over the windows of the elements of this stream's
+     * {@link #spliterator() spliterator}.
+     *
+     * @param size the number of elements in each window
+     * @param step the distance between the first elements of successive
+     *             windows
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} or {@code step} is
+     *         not positive
+     * @since 1.8
+     */
+    default Stream<double[]> windowed(int size, int step) {
+        WindowOps.checkWindow(size, step);
+        return StreamSupport.stream(WindowOps.spliterator(spliterator(), size, step, false), isParallel())
+                .onClose(this::close);
+    }
+
     /**
      * Performs an action for each element of this stream.
      *
@@ -256,6 +256,7 @@ final class ForEachOps {
         private final Sink<S> sink;
         private final PipelineHelper<T> helper;
         private long targetSize;
+        private final AbstractTask.LeafCost leafCost;
 
         ForEachTask(PipelineHelper<T> helper,
                     Spliterator<S> spliterator,
@@ -265,6 +266,7 @@ final class ForEachOps {
             this.helper = helper;
             this.spliterator = spliterator;
             this.targetSize = 0L;
+            this.leafCost = AbstractTask.LeafCost.of(helper, spliterator);
         }
 
         ForEachTask(ForEachTask<S, T> parent, Spliterator<S> spliterator) {
@@ -273,6 +275,7 @@ final class ForEachOps {
             this.sink = parent.sink;
             this.targetSize = parent.targetSize;
             this.helper = parent.helper;
+            this.leafCost = parent.leafCost;
         }
 
         // Similar to AbstractTask but doesn't need to track child tasks
@@ -281,6 +284,9 @@ final class ForEachOps {
             long sizeEstimate = rightSplit.estimateSize(), sizeThreshold;
             if ((sizeThreshold = targetSize) == 0L)
                 targetSize = sizeThreshold = AbstractTask.suggestTargetSize(sizeEstimate);
+            AbstractTask.LeafCost lc = leafCost;
+            if (lc != null)
+                sizeThreshold = lc.targetSize(sizeThreshold);
             boolean isShortCircuit = StreamOpFlag.SHORT_CIRCUIT.isKnown(helper.getStreamAndOpFlags());
             boolean forkRight = false;
             Sink<S> taskSink = sink;
@@ -288,7 +294,14 @@ final class ForEachOps {
             while (!isShortCircuit || !taskSink.cancellationRequested()) {
                 if (sizeEstimate <= sizeThreshold ||
                     (leftSplit = rightSplit.trySplit()) == null) {
-                    task.helper.copyInto(taskSink, rightSplit);
+                    if (lc == null)
+                        task.helper.copyInto(taskSink, rightSplit);
+                    else {
+                        long n = rightSplit.getExactSizeIfKnown();
+                        long start = System.nanoTime();
+                        task.helper.copyInto(taskSink, rightSplit);
+                        lc.sample(n, System.nanoTime() - start);
+                    }
                     break;
                 }
                 ForEachTask<S, T> leftTask = new ForEachTask<>(task, leftSplit);
@@ -306,6 +319,8 @@ final class ForEachOps {
                 }
                 taskToFork.fork();
                 sizeEstimate = rightSplit.estimateSize();
+                if (lc != null)
+                    sizeThreshold = lc.targetSize(targetSize);
             }
             task.spliterator = null;
             task.propagateCompletion();
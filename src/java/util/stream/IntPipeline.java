@@ -162,6 +162,21 @@ abstract class IntPipeline<E_IN>
         do { } while (!sink.cancellationRequested() && spl.tryAdvance(adaptedSink));
     }
 
+    @Override
+    final void forEachChunked(Spliterator<Integer> spliterator, Sink<Integer> sink) {
+        Spliterator.OfInt spl = adapt(spliterator);
+        long est = spl.estimateSize();
+        int[] buf = new int[est < BULK_CHUNK_SIZE ? Math.max((int) est, 1) : BULK_CHUNK_SIZE];
+        if (spl instanceof Streams.RangeIntSpliterator) {
+            ((Streams.RangeIntSpliterator) spl).forEachRemaining(buf, sink);
+        }
+        else {
+            Chunker chunker = new Chunker(buf, sink);
+            spl.forEachRemaining(chunker);
+            chunker.flush();
+        }
+    }
+
     @Override
     final Node.Builder<Integer> makeNodeBuilder(long exactSizeIfKnown,
                                                 IntFunction<Integer[]> generator) {
@@ -190,10 +205,22 @@ abstract class IntPipeline<E_IN>
             @Override
             Sink<Integer> opWrapSink(int flags, Sink<Long> sink) {
                 return new Sink.ChainedInt<Long>(sink) {
+                    long[] chunk;
+
                     @Override
                     public void accept(int t) {
                         downstream.accept((long) t);
                     }
+
+                    @Override
+                    public void accept(int[] buf, int off, int len) {
+                        long[] c = chunk;
+                        if (c == null || c.length < len)
+                            chunk = c = new long[len];
+                        for (int i = 0; i < len; i++)
+                            c[i] = buf[off + i];
+                        downstream.accept(c, 0, len);
+                    }
                 };
             }
         };
@@ -232,6 +259,13 @@ abstract class IntPipeline<E_IN>
                     public void accept(int t) {
                         downstream.accept(mapper.applyAsInt(t));
                     }
+
+                    @Override
+                    public void accept(int[] buf, int off, int len) {
+                        for (int i = off, end = off + len; i < end; i++)
+                            buf[i] = mapper.applyAsInt(buf[i]);
+                        downstream.accept(buf, off, len);
+                    }
                 };
             }
         };
@@ -262,10 +296,22 @@ abstract class IntPipeline<E_IN>
             @Override
             Sink<Integer> opWrapSink(int flags, Sink<Long> sink) {
                 return new Sink.ChainedInt<Long>(sink) {
+                    long[] chunk;
+
                     @Override
                     public void accept(int t) {
                         downstream.accept(mapper.applyAsLong(t));
                     }
+
+                    @Override
+                    public void accept(int[] buf, int off, int len) {
+                        long[] c = chunk;
+                        if (c == null || c.length < len)
+                            chunk = c = new long[len];
+                        for (int i = 0; i < len; i++)
+                            c[i] = mapper.applyAsLong(buf[off + i]);
+                        downstream.accept(c, 0, len);
+                    }
                 };
             }
         };
@@ -344,6 +390,19 @@ abstract class IntPipeline<E_IN>
                         if (predicate.test(t))
                             downstream.accept(t);
                     }
+
+                    @Override
+                    public void accept(int[] buf, int off, int len) {
+                        // Compact the accepted elements to the front of the chunk
+                        int n = off;
+                        for (int i = off, end = off + len; i < end; i++) {
+                            int t = buf[i];
+                            if (predicate.test(t))
+                                buf[n++] = t;
+                        }
+                        if (n > off)
+                            downstream.accept(buf, off, n - off);
+                    }
                 };
             }
         };
@@ -386,6 +445,18 @@ abstract class IntPipeline<E_IN>
             return SliceOps.makeInt(this, n, -1);
     }
 
+    @Override
+    public final Stream<int[]> chunked(int size) {
+        WindowOps.checkWindow(size, size);
+        return WindowOps.makeInt(this, size, size, true);
+    }
+
+    @Override
+    public final Stream<int[]> windowed(int size, int step) {
+        WindowOps.checkWindow(size, step);
+        return WindowOps.makeInt(this, size, step, false);
+    }
+
     @Override
     public final IntStream sorted() {
         return SortedOps.makeInt(this);
@@ -632,4 +703,42 @@ abstract class IntPipeline<E_IN>
                                                          Spliterator<P_IN> spliterator,
                                                          IntFunction<Integer[]> generator);
     }
+
+    /**
+     * An {@code IntConsumer} that gathers the elements it accepts into chunks,
+     * pushing each full chunk to a sink.
+     */
+    private static final class Chunker implements IntConsumer {
+        private final int[] buf;
+        private final Sink<Integer> sink;
+        private int size;
+
+        Chunker(int[] buf, Sink<Integer> sink) {
+            this.buf = buf;
+            this.sink = sink;
+        }
+
+        @Override
+        public void accept(int t) {
+            int[] b = buf;
+            int n = size;
+            b[n++] = t;
+            if (n == b.length) {
+                size = 0;
+                sink.accept(b, 0, n);
+            }
+            else {
+                size = n;
+            }
+        }
+
+        /** Pushes the last, partially filled, chunk if any. */
+        void flush() {
+            int n = size;
+            if (n > 0) {
+                size = 0;
+                sink.accept(buf, 0, n);
+            }
+        }
+    }
 }
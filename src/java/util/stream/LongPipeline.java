@@ -160,6 +160,21 @@ abstract class LongPipeline<E_IN>
         do { } while (!sink.cancellationRequested() && spl.tryAdvance(adaptedSink));
     }
 
+    @Override
+    final void forEachChunked(Spliterator<Long> spliterator, Sink<Long> sink) {
+        Spliterator.OfLong spl = adapt(spliterator);
+        long est = spl.estimateSize();
+        long[] buf = new long[est < BULK_CHUNK_SIZE ? Math.max((int) est, 1) : BULK_CHUNK_SIZE];
+        if (spl instanceof Streams.RangeLongSpliterator) {
+            ((Streams.RangeLongSpliterator) spl).forEachRemaining(buf, sink);
+        }
+        else {
+            Chunker chunker = new Chunker(buf, sink);
+            spl.forEachRemaining(chunker);
+            chunker.flush();
+        }
+    }
+
     @Override
     final Node.Builder<Long> makeNodeBuilder(long exactSizeIfKnown, IntFunction<Long[]> generator) {
         return Nodes.longBuilder(exactSizeIfKnown);
@@ -213,6 +228,13 @@ abstract class LongPipeline<E_IN>
                     public void accept(long t) {
                         downstream.accept(mapper.applyAsLong(t));
                     }
+
+                    @Override
+                    public void accept(long[] buf, int off, int len) {
+                        for (int i = off, end = off + len; i < end; i++)
+                            buf[i] = mapper.applyAsLong(buf[i]);
+                        downstream.accept(buf, off, len);
+                    }
                 };
             }
         };
@@ -325,6 +347,19 @@ abstract class LongPipeline<E_IN>
                         if (predicate.test(t))
                             downstream.accept(t);
                     }
+
+                    @Override
+                    public void accept(long[] buf, int off, int len) {
+                        // Compact the accepted elements to the front of the chunk
+                        int n = off;
+                        for (int i = off, end = off + len; i < end; i++) {
+                            long t = buf[i];
+                            if (predicate.test(t))
+                                buf[n++] = t;
+                        }
+                        if (n > off)
+                            downstream.accept(buf, off, n - off);
+                    }
                 };
             }
         };
@@ -367,6 +402,18 @@ abstract class LongPipeline<E_IN>
             return SliceOps.makeLong(this, n, -1);
     }
 
+    @Override
+    public final Stream<long[]> chunked(int size) {
+        WindowOps.checkWindow(size, size);
+        return WindowOps.makeLong(this, size, size, true);
+    }
+
+    @Override
+    public final Stream<long[]> windowed(int size, int step) {
+        WindowOps.checkWindow(size, step);
+        return WindowOps.makeLong(this, size, step, false);
+    }
+
     @Override
     public final LongStream sorted() {
         return SortedOps.makeLong(this);
@@ -612,4 +659,42 @@ abstract class LongPipeline<E_IN>
                                                       Spliterator<P_IN> spliterator,
                                                       IntFunction<Long[]> generator);
     }
+
+    /**
+     * A {@code LongConsumer} that gathers the elements it accepts into chunks,
+     * pushing each full chunk to a sink.
+     */
+    private static final class Chunker implements LongConsumer {
+        private final long[] buf;
+        private final Sink<Long> sink;
+        private int size;
+
+        Chunker(long[] buf, Sink<Long> sink) {
+            this.buf = buf;
+            this.sink = sink;
+        }
+
+        @Override
+        public void accept(long t) {
+            long[] b = buf;
+            int n = size;
+            b[n++] = t;
+            if (n == b.length) {
+                size = 0;
+                sink.accept(b, 0, n);
+            }
+            else {
+                size = n;
+            }
+        }
+
+        /** Pushes the last, partially filled, chunk if any. */
+        void flush() {
+            int n = size;
+            if (n > 0) {
+                size = 0;
+                sink.accept(buf, 0, n);
+            }
+        }
+    }
 }
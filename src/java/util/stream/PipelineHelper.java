@@ -71,6 +71,15 @@ abstract class PipelineHelper<P_OUT> {
      */
     abstract int getStreamAndOpFlags();
 
+    /**
+     * Gets the expected cost of processing an element of the pipeline, as
+     * given by {@link BaseStream#costHint(long)}.
+     *
+     * @return the cost hint in nanoseconds, zero if the cost is to be
+     *         measured without a hint, or negative if none was given
+     */
+    abstract long getCostHint();
+
     /**
      * Returns the exact output size of the portion of the output resulting from
      * applying the pipeline stages described by this {@code PipelineHelper} to
@@ -258,6 +258,14 @@ final class ReduceOps {
                 state = operator.applyAsInt(state, t);
             }
 
+            @Override
+            public void accept(int[] buf, int off, int len) {
+                int s = state;
+                for (int i = off, end = off + len; i < end; i++)
+                    s = operator.applyAsInt(s, buf[i]);
+                state = s;
+            }
+
             @Override
             public Integer get() {
                 return state;
@@ -307,6 +315,24 @@ final class ReduceOps {
                 }
             }
 
+            @Override
+            public void accept(int[] buf, int off, int len) {
+                if (len > 0) {
+                    int i = off, end = off + len;
+                    int s;
+                    if (empty) {
+                        empty = false;
+                        s = buf[i++];
+                    }
+                    else {
+                        s = state;
+                    }
+                    for (; i < end; i++)
+                        s = operator.applyAsInt(s, buf[i]);
+                    state = s;
+                }
+            }
+
             @Override
             public OptionalInt get() {
                 return empty ? OptionalInt.empty() : OptionalInt.of(state);
@@ -394,6 +420,14 @@ final class ReduceOps {
                 state = operator.applyAsLong(state, t);
             }
 
+            @Override
+            public void accept(long[] buf, int off, int len) {
+                long s = state;
+                for (int i = off, end = off + len; i < end; i++)
+                    s = operator.applyAsLong(s, buf[i]);
+                state = s;
+            }
+
             @Override
             public Long get() {
                 return state;
@@ -443,6 +477,24 @@ final class ReduceOps {
                 }
             }
 
+            @Override
+            public void accept(long[] buf, int off, int len) {
+                if (len > 0) {
+                    int i = off, end = off + len;
+                    long s;
+                    if (empty) {
+                        empty = false;
+                        s = buf[i++];
+                    }
+                    else {
+                        s = state;
+                    }
+                    for (; i < end; i++)
+                        s = operator.applyAsLong(s, buf[i]);
+                    state = s;
+                }
+            }
+
             @Override
             public OptionalLong get() {
                 return empty ? OptionalLong.empty() : OptionalLong.of(state);
@@ -26,6 +26,7 @@ package java.util.stream;
 
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Spliterator;
@@ -394,6 +395,21 @@ abstract class ReferencePipeline<P_IN, P_OUT>
         return SortedOps.makeRef(this, comparator);
     }
 
+    @Override
+    public final Stream<P_OUT> distinct(int spillThreshold) {
+        if (spillThreshold <= 0)
+            throw new IllegalArgumentException(Integer.toString(spillThreshold));
+        return SpillingOps.makeDistinct(this, spillThreshold);
+    }
+
+    @Override
+    public final Stream<P_OUT> sorted(Comparator<? super P_OUT> comparator, int spillThreshold) {
+        Objects.requireNonNull(comparator);
+        if (spillThreshold <= 0)
+            throw new IllegalArgumentException(Integer.toString(spillThreshold));
+        return SpillingOps.makeSorted(this, comparator, spillThreshold);
+    }
+
     @Override
     public final Stream<P_OUT> limit(long maxSize) {
         if (maxSize < 0)
@@ -411,6 +427,18 @@ abstract class ReferencePipeline<P_IN, P_OUT>
             return SliceOps.makeRef(this, n, -1);
     }
 
+    @Override
+    public final Stream<List<P_OUT>> chunked(int size) {
+        WindowOps.checkWindow(size, size);
+        return WindowOps.makeRef(this, size, size, true);
+    }
+
+    @Override
+    public final Stream<List<P_OUT>> windowed(int size, int step) {
+        WindowOps.checkWindow(size, step);
+        return WindowOps.makeRef(this, size, step, false);
+    }
+
     // Terminal operations from Stream
 
     @Override
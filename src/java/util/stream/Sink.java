@@ -50,6 +50,14 @@ import java.util.function.LongConsumer;
  * the initial state, where it can be re-used.  Data-accepting methods (such as
  * {@code accept()} are only valid in the active state.
  *
+ * <p>Primitive values may also be pushed in chunks, through the bulk methods
+ * {@code accept(int[], int, int)}, {@code accept(long[], int, int)} and
+ * {@code accept(double[], int, int)}, whose default implementations fall back
+ * to pushing each element in turn.  Stateless stages may override these to
+ * process a whole chunk in one loop and pass it on with a single downstream
+ * call, so that a chain of sinks costs one virtual call per stage per chunk
+ * rather than per element.
+ *
  * @apiNote
  * A stream pipeline consists of a source, zero or more intermediate stages
  * (such as filtering or mapping), and a terminal stage, such as reduction or
@@ -181,6 +189,66 @@ interface Sink<T> extends Consumer<T> {
         throw new IllegalStateException("called wrong accept method");
     }
 
+    /**
+     * Accepts a chunk of int values, the elements of {@code buf} in the
+     * range {@code [off, off + len)}, in order.
+     *
+     * <p>The chunk is lent to this sink for the duration of the call only.
+     * The sink may overwrite elements of {@code buf} within the range (for
+     * example, to map or filter the chunk in place before passing it
+     * downstream), and must not retain a reference to {@code buf} after
+     * returning.  Bulk chunks are only pushed to sinks for which
+     * cancellation is never requested.
+     *
+     * @implSpec The default implementation calls {@link #accept(int)} for
+     * each element of the chunk.
+     *
+     * @param buf the array holding the values
+     * @param off the index of the first value
+     * @param len the number of values
+     * @throws IllegalStateException if this sink does not accept int values
+     */
+    default void accept(int[] buf, int off, int len) {
+        for (int i = off, end = off + len; i < end; i++)
+            accept(buf[i]);
+    }
+
+    /**
+     * Accepts a chunk of long values, the elements of {@code buf} in the
+     * range {@code [off, off + len)}, in order, as for
+     * {@link #accept(int[], int, int)}.
+     *
+     * @implSpec The default implementation calls {@link #accept(long)} for
+     * each element of the chunk.
+     *
+     * @param buf the array holding the values
+     * @param off the index of the first value
+     * @param len the number of values
+     * @throws IllegalStateException if this sink does not accept long values
+     */
+    default void accept(long[] buf, int off, int len) {
+        for (int i = off, end = off + len; i < end; i++)
+            accept(buf[i]);
+    }
+
+    /**
+     * Accepts a chunk of double values, the elements of {@code buf} in the
+     * range {@code [off, off + len)}, in order, as for
+     * {@link #accept(int[], int, int)}.
+     *
+     * @implSpec The default implementation calls {@link #accept(double)} for
+     * each element of the chunk.
+     *
+     * @param buf the array holding the values
+     * @param off the index of the first value
+     * @param len the number of values
+     * @throws IllegalStateException if this sink does not accept double values
+     */
+    default void accept(double[] buf, int off, int len) {
+        for (int i = off, end = off + len; i < end; i++)
+            accept(buf[i]);
+    }
+
     /**
      * {@code Sink} that implements {@code Sink<Integer>}, re-abstracts
      * {@code accept(int)}, and wires {@code accept(Integer)} to bridge to
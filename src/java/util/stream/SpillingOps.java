@@ -0,0 +1,1059 @@
+/*
+ * Copyright (c) 2012, 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Factory methods for transforming streams into sorted or duplicate-free
+ * streams while holding a bounded number of elements in memory, spilling the
+ * remaining elements to temporary files.
+ *
+ * <p>Spilled elements are written with {@link ObjectOutputStream}, and so
+ * must be serializable, to files in a temporary directory that is created on
+ * the first spill.  The directory is deleted once the spilled elements have
+ * been consumed, or when the stream is {@linkplain BaseStream#close closed}.
+ *
+ * @since 1.8
+ */
+final class SpillingOps {
+
+    private SpillingOps() { }
+
+    /**
+     * The maximum number of runs merged at once.  Sorts that spill more runs
+     * than this merge them in several passes.
+     */
+    static final int MERGE_FAN_IN = 64;
+
+    /**
+     * The number of partitions that elements not yet known to be distinct
+     * are hashed into, a power of two.
+     */
+    static final int DISTINCT_PARTITIONS = 64;
+
+    /**
+     * The number of times a partition holding more distinct elements than
+     * the spill threshold is split again, using further bits of the element
+     * hash codes, before it is deduplicated in memory regardless.
+     */
+    static final int MAX_PARTITION_LEVEL = 3;
+
+    /**
+     * The number of elements after which an object stream is reset, so that
+     * its table of back references does not retain every spilled element.
+     */
+    private static final int RESET_INTERVAL = 1 << 10;
+
+    /** The buffer size of each spill file stream. */
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    /**
+     * Appends a "sorted" operation to the provided stream, spilling sorted
+     * runs of elements to disk when more than {@code spillThreshold} elements
+     * are buffered.
+     *
+     * @param <T> the type of both input and output elements
+     * @param upstream a reference stream with element type T
+     * @param comparator the comparator to order elements by
+     * @param spillThreshold the maximum number of elements buffered in memory
+     */
+    static <T> Stream<T> makeSorted(AbstractPipeline<?, T, ?> upstream,
+                                    Comparator<? super T> comparator,
+                                    int spillThreshold) {
+        return new OfSorted<>(upstream, comparator, spillThreshold);
+    }
+
+    /**
+     * Appends a "distinct" operation to the provided stream, spilling
+     * elements to disk when more than {@code spillThreshold} distinct
+     * elements have been seen.
+     *
+     * @param <T> the type of both input and output elements
+     * @param upstream a reference stream with element type T
+     * @param spillThreshold the maximum number of elements held in memory
+     */
+    static <T> Stream<T> makeDistinct(AbstractPipeline<?, T, ?> upstream,
+                                      int spillThreshold) {
+        return new OfDistinct<>(upstream, spillThreshold);
+    }
+
+    /**
+     * Base class for spilling stateful operations.
+     *
+     * @param <T> the type of both input and output elements
+     */
+    private static abstract class SpillingOp<T> extends ReferencePipeline.StatefulOp<T, T> {
+        protected final int spillThreshold;
+
+        SpillingOp(AbstractPipeline<?, T, ?> upstream, int opFlags, int spillThreshold) {
+            super(upstream, StreamShape.REFERENCE, opFlags);
+            this.spillThreshold = spillThreshold;
+        }
+
+        /**
+         * Returns a new spill directory that is deleted, if not already, when
+         * the stream is closed.
+         */
+        final SpillDirectory newSpillDirectory() {
+            SpillDirectory spills = new SpillDirectory();
+            onClose(spills::close);
+            return spills;
+        }
+
+        @Override
+        final <P_IN> Node<T> opEvaluateParallel(PipelineHelper<T> helper,
+                                                Spliterator<P_IN> spliterator,
+                                                IntFunction<T[]> generator) {
+            Spliterator<T> s = opEvaluateParallelLazy(helper, spliterator);
+            long size = s.getExactSizeIfKnown();
+            Node.Builder<T> builder = Nodes.builder(size, generator);
+            builder.begin(size);
+            s.forEachRemaining(builder);
+            builder.end();
+            return builder.build();
+        }
+    }
+
+    /**
+     * Specialized subtype for sorting reference streams
+     */
+    private static final class OfSorted<T> extends SpillingOp<T> {
+        private final Comparator<? super T> comparator;
+
+        OfSorted(AbstractPipeline<?, T, ?> upstream, Comparator<? super T> comparator,
+                 int spillThreshold) {
+            super(upstream, StreamOpFlag.IS_ORDERED | StreamOpFlag.NOT_SORTED, spillThreshold);
+            this.comparator = Objects.requireNonNull(comparator);
+        }
+
+        @Override
+        Sink<T> opWrapSink(int flags, Sink<T> sink) {
+            Objects.requireNonNull(sink);
+            return new SpillingSortingSink<>(sink, comparator, spillThreshold, newSpillDirectory());
+        }
+
+        @Override
+        <P_IN> Spliterator<T> opEvaluateParallelLazy(PipelineHelper<T> helper,
+                                                     Spliterator<P_IN> spliterator) {
+            long size = helper.exactOutputSizeIfKnown(spliterator);
+            if (size >= 0 && size <= spillThreshold) {
+                // Fits in memory; parallel collect, parallel sort
+                @SuppressWarnings("unchecked")
+                IntFunction<T[]> generator = i -> (T[]) new Object[i];
+                T[] flattenedData = helper.evaluate(spliterator, true, generator).asArray(generator);
+                Arrays.parallelSort(flattenedData, comparator);
+                return Nodes.node(flattenedData).spliterator();
+            }
+
+            // Each leaf task spills the sorted runs of its portion of the input,
+            // which are then merged lazily as the result is traversed
+            SpillDirectory spills = newSpillDirectory();
+            try {
+                List<Run> runs = new SortTask<>(helper, spliterator, comparator,
+                                                spillThreshold, spills).invoke();
+                long count = 0;
+                for (Run run : runs)
+                    count += run.count;
+                return new CursorSpliterator<>(mergeSorted(runs, null, comparator, spills),
+                                               count, spills);
+            }
+            catch (IOException e) {
+                spills.close();
+                throw new UncheckedIOException(e);
+            }
+            catch (RuntimeException | Error e) {
+                spills.close();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Specialized subtype for removing duplicates from reference streams
+     */
+    private static final class OfDistinct<T> extends SpillingOp<T> {
+        OfDistinct(AbstractPipeline<?, T, ?> upstream, int spillThreshold) {
+            super(upstream, StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED, spillThreshold);
+        }
+
+        @Override
+        Sink<T> opWrapSink(int flags, Sink<T> sink) {
+            Objects.requireNonNull(sink);
+            if (StreamOpFlag.DISTINCT.isKnown(flags))
+                return sink;
+            else
+                return new SpillingDistinctSink<>(sink, spillThreshold, newSpillDirectory());
+        }
+
+        @Override
+        <P_IN> Spliterator<T> opEvaluateParallelLazy(PipelineHelper<T> helper,
+                                                     Spliterator<P_IN> spliterator) {
+            if (StreamOpFlag.DISTINCT.isKnown(helper.getStreamAndOpFlags())) {
+                // No-op
+                return helper.wrapSpliterator(spliterator);
+            }
+
+            long size = helper.exactOutputSizeIfKnown(spliterator);
+            if (size >= 0 && size <= spillThreshold) {
+                // Fits in memory; parallel reduce preserving encounter order
+                TerminalOp<T, LinkedHashSet<T>> reduceOp
+                        = ReduceOps.<T, LinkedHashSet<T>>makeRef(LinkedHashSet::new, LinkedHashSet::add,
+                                                                 LinkedHashSet::addAll);
+                return Nodes.node(reduceOp.evaluateParallel(helper, spliterator)).spliterator();
+            }
+
+            // Selecting the first occurrence of each element relies on the
+            // encounter index of each element, so the upstream is traversed
+            // sequentially
+            SpillDirectory spills = newSpillDirectory();
+            try {
+                DistinctSpill<T> spill = new DistinctSpill<>(spillThreshold, spills);
+                ArrayList<T> first = new ArrayList<>();
+                helper.wrapAndCopyInto((Sink<T>) t -> {
+                    try {
+                        if (spill.add(t))
+                            first.add(t);
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, spliterator);
+                Cursor<T> rest = spill.remaining();
+                Cursor<T> all = (rest == null)
+                                ? new ListCursor<>(first, 0)
+                                : new Merger<>(Arrays.asList(new ListCursor<>(first, 0), rest),
+                                               SpillingOps::compareIndex);
+                return new CursorSpliterator<>(all, -1, spills);
+            }
+            catch (IOException e) {
+                spills.close();
+                throw new UncheckedIOException(e);
+            }
+            catch (RuntimeException | Error e) {
+                spills.close();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * {@link Sink} for implementing a spilling sort on reference streams.
+     */
+    private static final class SpillingSortingSink<T> extends Sink.ChainedReference<T, T> {
+        private final Comparator<? super T> comparator;
+        private final int spillThreshold;
+        private final SpillDirectory spills;
+        private RunBuffer<T> buffer;
+        private boolean cancellationWasRequested;
+
+        SpillingSortingSink(Sink<? super T> downstream, Comparator<? super T> comparator,
+                            int spillThreshold, SpillDirectory spills) {
+            super(downstream);
+            this.comparator = comparator;
+            this.spillThreshold = spillThreshold;
+            this.spills = spills;
+        }
+
+        @Override
+        public void begin(long size) {
+            buffer = new RunBuffer<>(comparator, spillThreshold, spills);
+        }
+
+        @Override
+        public void end() {
+            RunBuffer<T> b = buffer;
+            buffer = null;
+            try {
+                b.list.sort(comparator);
+                Cursor<T> sorted = mergeSorted(b.runs, b.list, comparator, spills);
+                try {
+                    downstream.begin(b.count);
+                    if (!cancellationWasRequested) {
+                        while (sorted.advance())
+                            downstream.accept(sorted.head);
+                    }
+                    else {
+                        while (!downstream.cancellationRequested() && sorted.advance())
+                            downstream.accept(sorted.head);
+                    }
+                }
+                finally {
+                    sorted.close();
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            finally {
+                spills.close();
+            }
+            downstream.end();
+        }
+
+        @Override
+        public void accept(T t) {
+            try {
+                buffer.add(t);
+            }
+            catch (IOException e) {
+                spills.close();
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Records is cancellation is requested so short-circuiting behaviour
+         * can be preserved when the sorted elements are pushed downstream.
+         *
+         * @return false, as this sink never short-circuits.
+         */
+        @Override
+        public boolean cancellationRequested() {
+            cancellationWasRequested = true;
+            return false;
+        }
+    }
+
+    /**
+     * {@link Sink} for implementing a spilling distinct on reference streams.
+     * Elements are pushed downstream as they are first seen until the spill
+     * threshold is reached, and the remaining distinct elements are pushed
+     * when all elements have been received.
+     */
+    private static final class SpillingDistinctSink<T> extends Sink.ChainedReference<T, T> {
+        private final int spillThreshold;
+        private final SpillDirectory spills;
+        private DistinctSpill<T> spill;
+
+        SpillingDistinctSink(Sink<? super T> downstream, int spillThreshold,
+                             SpillDirectory spills) {
+            super(downstream);
+            this.spillThreshold = spillThreshold;
+            this.spills = spills;
+        }
+
+        @Override
+        public void begin(long size) {
+            spill = new DistinctSpill<>(spillThreshold, spills);
+            downstream.begin(-1);
+        }
+
+        @Override
+        public void end() {
+            DistinctSpill<T> s = spill;
+            spill = null;
+            try {
+                Cursor<T> rest = s.remaining();
+                if (rest != null) {
+                    try {
+                        while (!downstream.cancellationRequested() && rest.advance())
+                            downstream.accept(rest.head);
+                    }
+                    finally {
+                        rest.close();
+                    }
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            finally {
+                spills.close();
+            }
+            downstream.end();
+        }
+
+        @Override
+        public void accept(T t) {
+            boolean first;
+            try {
+                first = spill.add(t);
+            }
+            catch (IOException e) {
+                spills.close();
+                throw new UncheckedIOException(e);
+            }
+            if (first)
+                downstream.accept(t);
+        }
+    }
+
+    /**
+     * {@code ForkJoinTask} implementing a parallel spilling sort, in which
+     * each leaf spills the sorted runs of its portion of the input.  The
+     * result is the list of all runs in encounter order.
+     */
+    @SuppressWarnings("serial")
+    private static final class SortTask<P_IN, T>
+            extends AbstractTask<P_IN, T, List<Run>, SortTask<P_IN, T>> {
+        private final Comparator<? super T> comparator;
+        private final int spillThreshold;
+        private final SpillDirectory spills;
+
+        SortTask(PipelineHelper<T> helper, Spliterator<P_IN> spliterator,
+                 Comparator<? super T> comparator, int spillThreshold,
+                 SpillDirectory spills) {
+            super(helper, spliterator);
+            this.comparator = comparator;
+            this.spillThreshold = spillThreshold;
+            this.spills = spills;
+        }
+
+        SortTask(SortTask<P_IN, T> parent, Spliterator<P_IN> spliterator) {
+            super(parent, spliterator);
+            this.comparator = parent.comparator;
+            this.spillThreshold = parent.spillThreshold;
+            this.spills = parent.spills;
+        }
+
+        @Override
+        protected SortTask<P_IN, T> makeChild(Spliterator<P_IN> spliterator) {
+            return new SortTask<>(this, spliterator);
+        }
+
+        @Override
+        protected List<Run> doLeaf() {
+            // Leaves run concurrently, so share the budget between workers
+            ForkJoinPool pool = getPool();
+            int parallelism = (pool == null) ? 1 : pool.getParallelism();
+            RunBuffer<T> buffer = new RunBuffer<>(comparator,
+                                                  Math.max(spillThreshold / parallelism, 1),
+                                                  spills);
+            helper.wrapAndCopyInto((Sink<T>) t -> {
+                try {
+                    buffer.add(t);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, spliterator);
+            try {
+                if (!buffer.list.isEmpty())
+                    buffer.spill();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return buffer.runs;
+        }
+
+        @Override
+        public void onCompletion(CountedCompleter<?> caller) {
+            if (!isLeaf()) {
+                List<Run> runs = new ArrayList<>(leftChild.getLocalResult());
+                runs.addAll(rightChild.getLocalResult());
+                setLocalResult(runs);
+            }
+            super.onCompletion(caller);
+        }
+    }
+
+    /**
+     * Buffers elements, spilling them as a sorted run whenever the spill
+     * threshold is reached.
+     */
+    private static final class RunBuffer<T> {
+        final Comparator<? super T> comparator;
+        final int spillThreshold;
+        final SpillDirectory spills;
+        final ArrayList<T> list = new ArrayList<>();
+        final ArrayList<Run> runs = new ArrayList<>();
+        long count;
+
+        RunBuffer(Comparator<? super T> comparator, int spillThreshold, SpillDirectory spills) {
+            this.comparator = comparator;
+            this.spillThreshold = spillThreshold;
+            this.spills = spills;
+        }
+
+        void add(T t) throws IOException {
+            list.add(t);
+            count++;
+            if (list.size() >= spillThreshold)
+                spill();
+        }
+
+        void spill() throws IOException {
+            list.sort(comparator);
+            RunWriter<T> w = new RunWriter<>(spills);
+            for (T t : list)
+                w.write(t);
+            runs.add(w.finish());
+            list.clear();
+        }
+    }
+
+    /**
+     * The state of a spilling distinct operation.  Until the spill threshold
+     * is reached, each element is held in a set and reported as distinct if
+     * not already present.  After that, the set is frozen, and elements not
+     * in it are written, with their encounter index, to partition files
+     * chosen by hash code.  Since equal elements fall in the same partition,
+     * each partition can be deduplicated on its own, keeping the first
+     * occurrence, and the survivors of all partitions merged by encounter
+     * index.  Every survivor follows, in encounter order, every element
+     * reported while the set was filling.
+     */
+    private static final class DistinctSpill<T> {
+        private final int spillThreshold;
+        private final SpillDirectory spills;
+        private Set<T> seen = new HashSet<>();
+        private RunWriter<T>[] partitions;   // null until the set is full
+        private long index;
+
+        DistinctSpill(int spillThreshold, SpillDirectory spills) {
+            this.spillThreshold = spillThreshold;
+            this.spills = spills;
+        }
+
+        /**
+         * Adds an element, returning {@code true} if it is the first
+         * occurrence of the element and may be pushed downstream now.
+         */
+        boolean add(T t) throws IOException {
+            long i = index++;
+            if (partitions == null) {
+                if (!seen.add(t))
+                    return false;
+                if (seen.size() >= spillThreshold)
+                    partitions = newPartitions();
+                return true;
+            }
+            if (!seen.contains(t))
+                partitions[partition(t, 0)].write(i, t);
+            return false;
+        }
+
+        /**
+         * Returns a cursor over the spilled distinct elements in encounter
+         * order, or {@code null} if nothing was spilled.
+         */
+        Cursor<T> remaining() throws IOException {
+            seen = null;
+            RunWriter<T>[] parts = partitions;
+            if (parts == null)
+                return null;
+            partitions = null;
+            return new Merger<>(dedupe(parts, 0), SpillingOps::compareIndex);
+        }
+
+        @SuppressWarnings({"rawtypes","unchecked"})
+        private RunWriter<T>[] newPartitions() throws IOException {
+            RunWriter<T>[] parts = (RunWriter<T>[]) new RunWriter[DISTINCT_PARTITIONS];
+            for (int i = 0; i < parts.length; i++)
+                parts[i] = new RunWriter<>(spills);
+            return parts;
+        }
+
+        /**
+         * Finishes the given partitions and returns cursors over the first
+         * occurrences of the elements of each.
+         */
+        private List<Cursor<T>> dedupe(RunWriter<T>[] parts, int level) throws IOException {
+            List<Cursor<T>> survivors = new ArrayList<>(parts.length);
+            for (RunWriter<T> part : parts) {
+                Run run = part.finish();
+                if (run.count > 0)
+                    survivors.add(new RunCursor<>(dedupe(run, level), true,
+                                                  survivors.size(), spills));
+                run.delete();
+            }
+            return survivors;
+        }
+
+        /**
+         * Returns a run of the first occurrences of the elements of the given
+         * run, in encounter order.
+         */
+        private Run dedupe(Run run, int level) throws IOException {
+            HashSet<T> set = new HashSet<>();
+            RunWriter<T> out = new RunWriter<>(spills);
+            RunCursor<T> in = new RunCursor<>(run, true, 0, spills);
+            try {
+                while (in.advance()) {
+                    if (set.add(in.head)) {
+                        if (set.size() > spillThreshold && level < MAX_PARTITION_LEVEL) {
+                            set = null;
+                            out.abort();
+                            return repartition(run, level + 1);
+                        }
+                        out.write(in.index, in.head);
+                    }
+                }
+            }
+            finally {
+                in.close();
+            }
+            return out.finish();
+        }
+
+        /**
+         * Splits a run holding too many distinct elements into partitions
+         * by further bits of the hash codes, and merges the first
+         * occurrences of each back into a single run.
+         */
+        private Run repartition(Run run, int level) throws IOException {
+            RunWriter<T>[] parts = newPartitions();
+            RunCursor<T> in = new RunCursor<>(run, true, 0, spills);
+            try {
+                while (in.advance())
+                    parts[partition(in.head, level)].write(in.index, in.head);
+            }
+            finally {
+                in.close();
+            }
+            Merger<T> merger = new Merger<>(dedupe(parts, level), SpillingOps::compareIndex);
+            try {
+                return writeRun(merger, true, spills);
+            }
+            finally {
+                merger.close();
+            }
+        }
+
+        /**
+         * Returns the partition of an element at the given level, taking
+         * successively lower bits of the spread hash code at each level.
+         */
+        private static int partition(Object t, int level) {
+            int h = Objects.hashCode(t) * 0x9e3779b9;
+            return (h >>> (26 - 6 * level)) & (DISTINCT_PARTITIONS - 1);
+        }
+    }
+
+    /**
+     * Orders cursors by the encounter index of their current elements.
+     */
+    static <T> int compareIndex(Cursor<T> a, Cursor<T> b) {
+        return Long.compare(a.index, b.index);
+    }
+
+    /**
+     * Returns a cursor over the elements of the given sorted runs and the
+     * optional sorted list that follows them, merged in sorted order.  Ties
+     * are resolved in favor of the earlier run, so that merging is stable.
+     * When there are more than {@link #MERGE_FAN_IN} runs, consecutive runs
+     * are first merged into longer runs, in passes that each reduce the
+     * number of runs by that factor.
+     */
+    static <T> Cursor<T> mergeSorted(List<Run> runs, List<T> last,
+                                     Comparator<? super T> comparator,
+                                     SpillDirectory spills) throws IOException {
+        Comparator<Cursor<T>> order = (a, b) -> {
+            int c = comparator.compare(a.head, b.head);
+            return (c != 0) ? c : Integer.compare(a.order, b.order);
+        };
+        while (runs.size() > MERGE_FAN_IN) {
+            // one pass: merge each group of consecutive runs into a new run
+            List<Run> next = new ArrayList<>((runs.size() - 1) / MERGE_FAN_IN + 1);
+            for (int i = 0, n = runs.size(); i < n; i += MERGE_FAN_IN) {
+                List<Run> group = runs.subList(i, Math.min(i + MERGE_FAN_IN, n));
+                if (group.size() == 1) {
+                    next.add(group.get(0));
+                    continue;
+                }
+                Merger<T> merger = new Merger<>(openRuns(group, false, spills), order);
+                try {
+                    next.add(writeRun(merger, false, spills));
+                }
+                finally {
+                    merger.close();
+                }
+                for (Run run : group)
+                    run.delete();
+            }
+            runs = next;
+        }
+        List<Cursor<T>> cursors = openRuns(runs, false, spills);
+        if (last != null && !last.isEmpty())
+            cursors.add(new ListCursor<>(last, cursors.size()));
+        return new Merger<>(cursors, order);
+    }
+
+    private static <T> List<Cursor<T>> openRuns(List<Run> runs, boolean indexed,
+                                                SpillDirectory spills) throws IOException {
+        List<Cursor<T>> cursors = new ArrayList<>(runs.size() + 1);
+        for (Run run : runs)
+            cursors.add(new RunCursor<>(run, indexed, cursors.size(), spills));
+        return cursors;
+    }
+
+    private static <T> Run writeRun(Cursor<T> source, boolean indexed,
+                                    SpillDirectory spills) throws IOException {
+        RunWriter<T> w = new RunWriter<>(spills);
+        if (indexed) {
+            while (source.advance())
+                w.write(source.index, source.head);
+        }
+        else {
+            while (source.advance())
+                w.write(source.head);
+        }
+        return w.finish();
+    }
+
+    /**
+     * A temporary directory holding spill files, created on first use.  The
+     * classes of spilled objects are recorded, so that they are resolved
+     * when read back regardless of the class loaders of the calling context.
+     */
+    static final class SpillDirectory {
+        final ConcurrentHashMap<String, Class<?>> classes = new ConcurrentHashMap<>();
+        private Path dir;
+        private int files;
+
+        synchronized Path newFile() throws IOException {
+            if (dir == null)
+                dir = Files.createTempDirectory("stream-spill");
+            return dir.resolve(Integer.toString(files++));
+        }
+
+        /**
+         * Deletes the directory and any files in it, ignoring failures.
+         */
+        synchronized void close() {
+            Path d = dir;
+            if (d != null) {
+                dir = null;
+                try {
+                    try (DirectoryStream<Path> ds = Files.newDirectoryStream(d)) {
+                        for (Path p : ds)
+                            Files.deleteIfExists(p);
+                    }
+                    Files.deleteIfExists(d);
+                }
+                catch (IOException ignore) {
+                }
+            }
+        }
+    }
+
+    /**
+     * A finished spill file of {@code count} elements.
+     */
+    static final class Run {
+        final Path path;
+        final long count;
+
+        Run(Path path, long count) {
+            this.path = path;
+            this.count = count;
+        }
+
+        void delete() throws IOException {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Writes a spill file of elements, each optionally preceded by its
+     * encounter index.
+     */
+    static final class RunWriter<T> {
+        private final Path path;
+        private final ObjectOutputStream out;
+        private long count;
+
+        RunWriter(SpillDirectory spills) throws IOException {
+            this.path = spills.newFile();
+            OutputStream os = Channels.newOutputStream(
+                    FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+            this.out = new ObjectOutputStream(new BufferedOutputStream(os, BUFFER_SIZE)) {
+                @Override
+                protected void annotateClass(Class<?> cl) {
+                    spills.classes.putIfAbsent(cl.getName(), cl);
+                }
+            };
+        }
+
+        void write(T t) throws IOException {
+            out.writeObject(t);
+            if (++count % RESET_INTERVAL == 0)
+                out.reset();
+        }
+
+        void write(long index, T t) throws IOException {
+            out.writeLong(index);
+            write(t);
+        }
+
+        Run finish() throws IOException {
+            out.close();
+            return new Run(path, count);
+        }
+
+        void abort() throws IOException {
+            out.close();
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * A forward-only cursor over a sequence of elements, each with an
+     * encounter index where known.
+     */
+    static abstract class Cursor<T> {
+        /** The position of this cursor amongst those merged, to break ties */
+        final int order;
+        T head;
+        long index;
+
+        Cursor(int order) {
+            this.order = order;
+        }
+
+        /**
+         * Moves to the next element, returning {@code false} if there are no
+         * more elements.
+         */
+        abstract boolean advance();
+
+        /** Releases any resources held by this cursor. */
+        void close() { }
+    }
+
+    /**
+     * Cursor over a list, whose encounter indexes are the list positions.
+     */
+    static final class ListCursor<T> extends Cursor<T> {
+        private List<T> list;
+        private int next;
+
+        ListCursor(List<T> list, int order) {
+            super(order);
+            this.list = list;
+        }
+
+        @Override
+        boolean advance() {
+            List<T> l = list;
+            if (l != null) {
+                if (next < l.size()) {
+                    index = next;
+                    head = l.get(next++);
+                    return true;
+                }
+                close();
+            }
+            return false;
+        }
+
+        @Override
+        void close() {
+            list = null;
+            head = null;
+        }
+    }
+
+    /**
+     * Cursor reading a spill file, which is deleted when the cursor is
+     * exhausted or closed.
+     */
+    static final class RunCursor<T> extends Cursor<T> {
+        private final Path path;
+        private final boolean indexed;
+        private ObjectInputStream in;
+        private long remaining;
+
+        RunCursor(Run run, boolean indexed, int order, SpillDirectory spills) throws IOException {
+            super(order);
+            this.path = run.path;
+            this.indexed = indexed;
+            this.remaining = run.count;
+            InputStream is = Channels.newInputStream(
+                    FileChannel.open(run.path, StandardOpenOption.READ));
+            this.in = new ObjectInputStream(new BufferedInputStream(is, BUFFER_SIZE)) {
+                @Override
+                protected Class<?> resolveClass(ObjectStreamClass desc)
+                        throws IOException, ClassNotFoundException {
+                    Class<?> cl = spills.classes.get(desc.getName());
+                    return (cl != null) ? cl : super.resolveClass(desc);
+                }
+            };
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        boolean advance() {
+            if (remaining <= 0) {
+                close();
+                return false;
+            }
+            remaining--;
+            try {
+                if (indexed)
+                    index = in.readLong();
+                head = (T) in.readObject();
+                return true;
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        void close() {
+            ObjectInputStream s = in;
+            if (s != null) {
+                in = null;
+                head = null;
+                remaining = 0;
+                try {
+                    s.close();
+                    Files.deleteIfExists(path);
+                }
+                catch (IOException ignore) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Cursor merging other cursors, in the given order of their current
+     * elements.
+     */
+    static final class Merger<T> extends Cursor<T> {
+        private final PriorityQueue<Cursor<T>> queue;
+
+        Merger(List<Cursor<T>> cursors, Comparator<? super Cursor<T>> order) {
+            super(0);
+            queue = new PriorityQueue<>(Math.max(cursors.size(), 1), order);
+            for (Cursor<T> c : cursors) {
+                if (c.advance())
+                    queue.add(c);
+            }
+        }
+
+        @Override
+        boolean advance() {
+            Cursor<T> c = queue.poll();
+            if (c == null) {
+                head = null;
+                return false;
+            }
+            head = c.head;
+            index = c.index;
+            if (c.advance())
+                queue.add(c);
+            return true;
+        }
+
+        @Override
+        void close() {
+            for (Cursor<T> c : queue)
+                c.close();
+            queue.clear();
+            head = null;
+        }
+    }
+
+    /**
+     * A non-splitting spliterator over the elements of a cursor, which
+     * deletes the spill directory once traversed.
+     */
+    static final class CursorSpliterator<T> implements Spliterator<T> {
+        private final SpillDirectory spills;
+        private final boolean sized;
+        private Cursor<T> cursor;
+        private long est;
+
+        /**
+         * @param size the exact number of elements, or -1 if unknown
+         */
+        CursorSpliterator(Cursor<T> cursor, long size, SpillDirectory spills) {
+            this.cursor = cursor;
+            this.sized = size >= 0;
+            this.est = sized ? size : Long.MAX_VALUE;
+            this.spills = spills;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            Cursor<T> c = cursor;
+            if (c != null) {
+                if (c.advance()) {
+                    if (sized)
+                        est--;
+                    action.accept(c.head);
+                    return true;
+                }
+                cursor = null;
+                est = 0;
+                c.close();
+                spills.close();
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return est;
+        }
+
+        @Override
+        public int characteristics() {
+            return sized ? Spliterator.ORDERED | Spliterator.SIZED : Spliterator.ORDERED;
+        }
+    }
+}
@@ -31,6 +31,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Spliterator;
@@ -358,6 +359,55 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     Stream<T> distinct();
 
+    /**
+     * Returns a stream consisting of the distinct elements (according to
+     * {@link Object#equals(Object)}) of this stream, holding at most about
+     * {@code spillThreshold} elements in memory and writing the remainder to
+     * temporary files.
+     *
+     * <p>Distinct elements are passed on as they are first seen until
+     * {@code spillThreshold} of them have been seen.  Elements not among
+     * those are then written to temporary files, partitioned by hash code,
+     * and the first occurrences of the elements of each partition are
+     * passed on, in encounter order, after the input has been consumed.  The
+     * elements of this stream must be {@link java.io.Serializable}, as for
+     * {@link java.io.ObjectOutputStream}, if the threshold is exceeded.
+     * Temporary files are deleted once the result has been traversed, or
+     * when the stream is {@linkplain #close closed}.
+     *
+     * <p>The selection of distinct elements is stable (for duplicated
+     * elements, the element appearing first in the encounter order is
+     * preserved.)
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote
+     * This method is intended for streams too large for {@link #distinct()}
+     * to hold in memory.  In parallel pipelines whose size is not known to be
+     * within the threshold, elements are selected in a single sequential
+     * pass, as stability requires the encounter index of every element.
+     *
+     * @implSpec
+     * The default implementation checks {@code spillThreshold} and returns
+     * {@code distinct()}, holding every distinct element in memory.
+     *
+     * @param spillThreshold the number of distinct elements to hold in memory
+     *                       before writing elements to temporary files
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code spillThreshold} is not
+     *         positive
+     * @throws java.io.UncheckedIOException if an I/O error occurs writing or
+     *         reading temporary files, including if an element is not
+     *         serializable, when the terminal operation is executed
+     * @since 1.8
+     */
+    default Stream<T> distinct(int spillThreshold) {
+        if (spillThreshold <= 0)
+            throw new IllegalArgumentException(Integer.toString(spillThreshold));
+        return distinct();
+    }
+
     /**
      * Returns a stream consisting of the elements of this stream, sorted
      * according to natural order.  If the elements of this stream are not
@@ -391,6 +441,57 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     Stream<T> sorted(Comparator<? super T> comparator);
 
+    /**
+     * Returns a stream consisting of the elements of this stream, sorted
+     * according to the provided {@code Comparator}, holding at most
+     * {@code spillThreshold} elements in memory at a time.
+     *
+     * <p>Whenever {@code spillThreshold} elements have been buffered they are
+     * sorted and written as a run to a temporary file.  The runs are merged
+     * lazily as the result is traversed, and files are deleted once the
+     * result has been traversed, or when the stream is
+     * {@linkplain #close closed}.  The elements of this stream must be
+     * {@link java.io.Serializable}, as for {@link java.io.ObjectOutputStream},
+     * if the threshold is exceeded.
+     *
+     * <p>For ordered streams, the sort is stable.  For unordered streams, no
+     * stability guarantees are made.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote
+     * This method is intended for streams too large for
+     * {@link #sorted(Comparator)} to hold in memory.  To sort elements by
+     * natural order, use {@code sorted(Comparator.naturalOrder(), n)}.  In
+     * parallel pipelines, each leaf task sorts and writes the runs of its
+     * portion of the input, sharing the threshold between workers, and the
+     * merged result is traversed sequentially.
+     *
+     * @implSpec
+     * The default implementation checks {@code spillThreshold} and returns
+     * {@code sorted(comparator)}, holding every element in memory.
+     *
+     * @param comparator a <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *                   <a href="package-summary.html#Statelessness">stateless</a>
+     *                   {@code Comparator} to be used to compare stream elements
+     * @param spillThreshold the number of elements to buffer in memory before
+     *                       writing a sorted run to a temporary file
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code spillThreshold} is not
+     *         positive
+     * @throws java.io.UncheckedIOException if an I/O error occurs writing or
+     *         reading temporary files, including if an element is not
+     *         serializable, when the terminal operation is executed
+     * @since 1.8
+     */
+    default Stream<T> sorted(Comparator<? super T> comparator, int spillThreshold) {
+        Objects.requireNonNull(comparator);
+        if (spillThreshold <= 0)
+            throw new IllegalArgumentException(Integer.toString(spillThreshold));
+        return sorted(comparator);
+    }
+
     /**
      * Returns a stream consisting of the elements of this stream, additionally
      * performing the provided action on each element as elements are consumed
@@ -478,6 +579,76 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     Stream<T> skip(long n);
 
+    /**
+     * Returns a stream consisting of the elements of this stream gathered
+     * into consecutive lists of {@code size} elements, in encounter order.
+     * The last list holds the remaining elements and may be shorter than
+     * {@code size}; it is never empty.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote
+     * Parallel pipelines split this operation wherever their source splits,
+     * provided that the source reports exact sizes for its splits
+     * ({@link Spliterator#SUBSIZED}).  The elements either side of each split
+     * are exchanged between the two splits so that the chunks spanning the
+     * split can be formed without further coordination.  For other sources
+     * the chunks are formed sequentially and only their downstream
+     * processing proceeds in parallel.
+     *
+     * @implSpec
+     * The default implementation checks {@code size} and returns a stream
+     * over the chunks of the elements of this stream's
+     * {@link #spliterator() spliterator}.
+     *
+     * @param size the number of elements in each chunk
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} is not positive
+     * @since 1.8
+     */
+    default Stream<List<T>> chunked(int size) {
+        WindowOps.checkWindow(size, size);
+        return StreamSupport.stream(WindowOps.spliterator(spliterator(), size, size, true), isParallel())
+                .onClose(this::close);
+    }
+
+    /**
+     * Returns a stream consisting of the lists of {@code size} consecutive
+     * elements of this stream starting at every {@code step}th element, in
+     * encounter order.  Trailing elements not enough to fill a list are
+     * discarded.  For example, the windows of size 3 and step 2 of the
+     * elements {@code 1, 2, 3, 4, 5, 6} are {@code [1, 2, 3]} and
+     * {@code [3, 4, 5]}.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote
+     * This operation splits across parallel pipelines as does
+     * {@link #chunked(int)}.  Each window is a fresh list, so windows with a
+     * {@code step} much smaller than their {@code size} copy each element
+     * many times.
+     *
+     * @implSpec
+     * The default implementation checks {@code size} and {@code step} and
+     * returns a stream over the windows of the elements of this stream's
+     * {@link #spliterator() spliterator}.
+     *
+     * @param size the number of elements in each window
+     * @param step the distance between the first elements of successive
+     *             windows
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} or {@code step} is
+     *         not positive
+     * @since 1.8
+     */
+    default Stream<List<T>> windowed(int size, int step) {
+        WindowOps.checkWindow(size, step);
+        return StreamSupport.stream(WindowOps.spliterator(spliterator(), size, step, false), isParallel())
+                .onClose(this::close);
+    }
+
     /**
      * Performs an action for each element of this stream.
      *
@@ -1082,6 +1253,44 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
         return stream.onClose(Streams.composedClose(a, b));
     }
 
+    /**
+     * Creates a lazily zipped stream whose elements are the results of
+     * applying the given function to the elements of the two streams pairwise,
+     * in encounter order.  The resulting stream is as long as the shorter of
+     * the two input streams; the remaining elements of the longer stream are
+     * not consumed.  The resulting stream is ordered if both input streams are
+     * ordered, and parallel if either of the input streams is parallel.  When
+     * the resulting stream is closed, the close handlers for both input
+     * streams are invoked.
+     *
+     * @apiNote
+     * A parallel zipped stream splits only where both input streams split at
+     * the same position, as do two sized streams over arrays or lists of the
+     * same length.  Once the input streams split at different positions the
+     * remainder of the zipped stream is traversed sequentially.
+     *
+     * @param <A> the type of elements of the first stream
+     * @param <B> the type of elements of the second stream
+     * @param <R> the type of elements of the new stream
+     * @param a the first stream
+     * @param b the second stream
+     * @param zipper a <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *               <a href="package-summary.html#Statelessness">stateless</a>
+     *               function combining an element of each stream
+     * @return the zipped stream
+     * @since 1.8
+     */
+    public static <A, B, R> Stream<R> zip(Stream<? extends A> a, Stream<? extends B> b,
+                                          BiFunction<? super A, ? super B, ? extends R> zipper) {
+        Objects.requireNonNull(a);
+        Objects.requireNonNull(b);
+        Objects.requireNonNull(zipper);
+
+        Spliterator<R> split = new Streams.ZipSpliterator<>(a.spliterator(), b.spliterator(), zipper);
+        Stream<R> stream = StreamSupport.stream(split, a.isParallel() || b.isParallel());
+        return stream.onClose(Streams.composedClose(a, b));
+    }
+
     /**
      * A mutable builder for a {@code Stream}.  This allows the creation of a
      * {@code Stream} by generating elements individually and adding them to the
@@ -27,6 +27,7 @@ package java.util.stream;
 import java.util.Comparator;
 import java.util.Objects;
 import java.util.Spliterator;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.DoubleConsumer;
 import java.util.function.IntConsumer;
@@ -115,6 +116,33 @@ final class Streams {
             }
         }
 
+        /**
+         * Pushes the remaining elements to the sink in chunks of at most
+         * {@code buf.length} elements, filled directly from the range.
+         *
+         * @param buf the chunk buffer, lent to the sink on each push
+         * @param sink the sink to push chunks to
+         */
+        void forEachRemaining(int[] buf, Sink<Integer> sink) {
+            int i = from;
+            final int hUpTo = upTo;
+            int hLast = last;
+            from = upTo;
+            last = 0;
+            while (i < hUpTo) {
+                int n = (int) Math.min((long) hUpTo - i, buf.length);
+                for (int j = 0; j < n; j++)
+                    buf[j] = i + j;
+                i += n;
+                sink.accept(buf, 0, n);
+            }
+            if (hLast > 0) {
+                // Last element of closed range
+                buf[0] = i;
+                sink.accept(buf, 0, 1);
+            }
+        }
+
         @Override
         public long estimateSize() {
             // Ensure ranges of size > Integer.MAX_VALUE report the correct size
@@ -240,6 +268,33 @@ final class Streams {
             }
         }
 
+        /**
+         * Pushes the remaining elements to the sink in chunks of at most
+         * {@code buf.length} elements, filled directly from the range.
+         *
+         * @param buf the chunk buffer, lent to the sink on each push
+         * @param sink the sink to push chunks to
+         */
+        void forEachRemaining(long[] buf, Sink<Long> sink) {
+            long i = from;
+            final long hUpTo = upTo;
+            int hLast = last;
+            from = upTo;
+            last = 0;
+            while (i < hUpTo) {
+                int n = (int) Math.min(hUpTo - i, buf.length);
+                for (int j = 0; j < n; j++)
+                    buf[j] = i + j;
+                i += n;
+                sink.accept(buf, 0, n);
+            }
+            if (hLast > 0) {
+                // Last element of closed range
+                buf[0] = i;
+                sink.accept(buf, 0, 1);
+            }
+        }
+
         @Override
         public long estimateSize() {
             return upTo - from + last;
@@ -837,6 +892,75 @@ final class Streams {
         }
     }
 
+    /**
+     * A spliterator pairing the elements of two spliterators.  It splits only
+     * where both spliterators split at the same position; at the first split
+     * where they do not, the two halves of each are rejoined and no further
+     * splits are made.
+     */
+    static final class ZipSpliterator<A, B, R> implements Spliterator<R> {
+        private Spliterator<? extends A> aSpliterator;
+        private Spliterator<? extends B> bSpliterator;
+        private final BiFunction<? super A, ? super B, ? extends R> zipper;
+        // True while splits are attempted
+        private boolean splittable;
+        // The element of the first spliterator awaiting its pair
+        private A head;
+
+        ZipSpliterator(Spliterator<? extends A> aSpliterator,
+                       Spliterator<? extends B> bSpliterator,
+                       BiFunction<? super A, ? super B, ? extends R> zipper) {
+            this.aSpliterator = aSpliterator;
+            this.bSpliterator = bSpliterator;
+            this.zipper = zipper;
+            this.splittable = true;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) {
+            Objects.requireNonNull(action);
+            if (!aSpliterator.tryAdvance(a -> head = a))
+                return false;
+            boolean hasNext = bSpliterator.tryAdvance(b -> action.accept(zipper.apply(head, b)));
+            head = null;
+            return hasNext;
+        }
+
+        @Override
+        public Spliterator<R> trySplit() {
+            if (!splittable)
+                return null;
+            Spliterator<? extends A> a = aSpliterator.trySplit();
+            if (a == null)
+                return null;
+            long n = a.getExactSizeIfKnown();
+            Spliterator<? extends B> b = (n >= 0) ? bSpliterator.trySplit() : null;
+            if (b != null && b.getExactSizeIfKnown() == n)
+                return new ZipSpliterator<>(a, b, zipper);
+            splittable = false;
+            aSpliterator = concat(a, aSpliterator);
+            if (b != null)
+                bSpliterator = concat(b, bSpliterator);
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Spliterator<T> concat(Spliterator<? extends T> a, Spliterator<? extends T> b) {
+            return new ConcatSpliterator.OfRef<>((Spliterator<T>) a, (Spliterator<T>) b);
+        }
+
+        @Override
+        public long estimateSize() {
+            return Math.min(aSpliterator.estimateSize(), bSpliterator.estimateSize());
+        }
+
+        @Override
+        public int characteristics() {
+            return aSpliterator.characteristics() & bSpliterator.characteristics()
+                   & (Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED);
+        }
+    }
+
     /**
      * Given two Runnables, return a Runnable that executes both in sequence,
      * even if the first throws an exception, and if both throw exceptions, add
@@ -0,0 +1,694 @@
+/*
+ * Copyright (c) 2012, 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Factory methods for transforming streams into streams of fixed-size
+ * chunks or sliding windows of their elements.
+ *
+ * <p>A window of {@code size} elements starts at every encounter position
+ * that is a multiple of {@code step}.  Chunks are windows whose step equals
+ * their size, followed by a final partial chunk holding any remaining
+ * elements.  Sequential pipelines keep the last {@code size} elements in a
+ * ring buffer.  Parallel pipelines whose input splits with known sizes are
+ * split at arbitrary positions: each split emits the windows lying wholly
+ * within it, and the windows straddling the boundary between two adjacent
+ * splits are emitted by whichever of the two reaches its side of the
+ * boundary last, at the end of the left split or before the first window of
+ * the right split, so that encounter order is preserved.  Other parallel
+ * pipelines are windowed sequentially, with the resulting windows handed out
+ * in batches.
+ *
+ * @since 1.8
+ */
+final class WindowOps {
+
+    private WindowOps() { }
+
+    /** The increment of the number of windows in each batch split. */
+    static final int BATCH_UNIT = 1 << 4;
+
+    /** The maximum number of windows in a batch split. */
+    static final int MAX_BATCH = 1 << 10;
+
+    /**
+     * Appends a "windowed" operation to the provided reference stream.
+     *
+     * @param <T> the type of input elements
+     * @param upstream a reference stream with element type T
+     * @param size the number of elements in each window
+     * @param step the distance between the starts of successive windows
+     * @param partial whether to emit the last, partial, window if any
+     * @return the new stream
+     */
+    static <T> Stream<List<T>> makeRef(AbstractPipeline<?, T, ?> upstream,
+                                       int size, int step, boolean partial) {
+        return make(upstream, StreamShape.REFERENCE, new RefWindower<T>(size, step, partial, 0, null, null));
+    }
+
+    /**
+     * Appends a "windowed" operation to the provided int stream.
+     *
+     * @param upstream an int stream
+     * @param size the number of elements in each window
+     * @param step the distance between the starts of successive windows
+     * @param partial whether to emit the last, partial, window if any
+     * @return the new stream
+     */
+    static Stream<int[]> makeInt(AbstractPipeline<?, Integer, ?> upstream,
+                                 int size, int step, boolean partial) {
+        return make(upstream, StreamShape.INT_VALUE, new IntWindower(size, step, partial, 0, null, null));
+    }
+
+    /**
+     * Appends a "windowed" operation to the provided long stream.
+     *
+     * @param upstream a long stream
+     * @param size the number of elements in each window
+     * @param step the distance between the starts of successive windows
+     * @param partial whether to emit the last, partial, window if any
+     * @return the new stream
+     */
+    static Stream<long[]> makeLong(AbstractPipeline<?, Long, ?> upstream,
+                                   int size, int step, boolean partial) {
+        return make(upstream, StreamShape.LONG_VALUE, new LongWindower(size, step, partial, 0, null, null));
+    }
+
+    /**
+     * Appends a "windowed" operation to the provided double stream.
+     *
+     * @param upstream a double stream
+     * @param size the number of elements in each window
+     * @param step the distance between the starts of successive windows
+     * @param partial whether to emit the last, partial, window if any
+     * @return the new stream
+     */
+    static Stream<double[]> makeDouble(AbstractPipeline<?, Double, ?> upstream,
+                                       int size, int step, boolean partial) {
+        return make(upstream, StreamShape.DOUBLE_VALUE, new DoubleWindower(size, step, partial, 0, null, null));
+    }
+
+    /**
+     * Returns a spliterator over the windows of the elements of the given
+     * spliterator, for streams not implemented by a pipeline.
+     *
+     * @param <T> the type of input elements
+     * @param s the spliterator of input elements
+     * @param size the number of elements in each window
+     * @param step the distance between the starts of successive windows
+     * @param partial whether to emit the last, partial, window if any
+     * @return the spliterator of windows
+     */
+    static <T> Spliterator<List<T>> spliterator(Spliterator<T> s, int size, int step, boolean partial) {
+        return new WindowSpliterator<>(new RefWindower<T>(size, step, partial, 0, null, null), s);
+    }
+
+    /**
+     * Returns a spliterator over the windows of the elements of the given
+     * int spliterator, for streams not implemented by a pipeline.
+     *
+     * @param s the spliterator of input elements
+     * @param size the number of elements in each window
+     * @param step the distance between the starts of successive windows
+     * @param partial whether to emit the last, partial, window if any
+     * @return the spliterator of windows
+     */
+    static Spliterator<int[]> spliterator(Spliterator.OfInt s, int size, int step, boolean partial) {
+        return new WindowSpliterator<>(new IntWindower(size, step, partial, 0, null, null), s);
+    }
+
+    /**
+     * Returns a spliterator over the windows of the elements of the given
+     * long spliterator, for streams not implemented by a pipeline.
+     *
+     * @param s the spliterator of input elements
+     * @param size the number of elements in each window
+     * @param step the distance between the starts of successive windows
+     * @param partial whether to emit the last, partial, window if any
+     * @return the spliterator of windows
+     */
+    static Spliterator<long[]> spliterator(Spliterator.OfLong s, int size, int step, boolean partial) {
+        return new WindowSpliterator<>(new LongWindower(size, step, partial, 0, null, null), s);
+    }
+
+    /**
+     * Returns a spliterator over the windows of the elements of the given
+     * double spliterator, for streams not implemented by a pipeline.
+     *
+     * @param s the spliterator of input elements
+     * @param size the number of elements in each window
+     * @param step the distance between the starts of successive windows
+     * @param partial whether to emit the last, partial, window if any
+     * @return the spliterator of windows
+     */
+    static Spliterator<double[]> spliterator(Spliterator.OfDouble s, int size, int step, boolean partial) {
+        return new WindowSpliterator<>(new DoubleWindower(size, step, partial, 0, null, null), s);
+    }
+
+    /**
+     * Checks the size and step of windows.
+     *
+     * @throws IllegalArgumentException if either is not positive
+     */
+    static void checkWindow(int size, int step) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        if (step <= 0)
+            throw new IllegalArgumentException(Integer.toString(step));
+    }
+
+    private static <E_IN, R> Stream<R> make(AbstractPipeline<?, E_IN, ?> upstream,
+                                            StreamShape inputShape,
+                                            Windower<E_IN, R> prototype) {
+        return new ReferencePipeline.StatefulOp<E_IN, R>(upstream, inputShape,
+                                                         StreamOpFlag.NOT_SORTED | StreamOpFlag.NOT_DISTINCT |
+                                                         StreamOpFlag.NOT_SIZED) {
+            @Override
+            Sink<E_IN> opWrapSink(int flags, Sink<R> sink) {
+                Windower<E_IN, R> w = prototype.make(0, null, null);
+                w.downstream = Objects.requireNonNull(sink);
+                return w;
+            }
+
+            @Override
+            <P_IN> Spliterator<R> opEvaluateParallelLazy(PipelineHelper<R> helper,
+                                                         Spliterator<P_IN> spliterator) {
+                @SuppressWarnings("unchecked")
+                PipelineHelper<E_IN> ph = (PipelineHelper<E_IN>) (PipelineHelper<?>) helper;
+                return new WindowSpliterator<>(prototype, ph.wrapSpliterator(spliterator));
+            }
+
+            @Override
+            <P_IN> Node<R> opEvaluateParallel(PipelineHelper<R> helper,
+                                              Spliterator<P_IN> spliterator,
+                                              IntFunction<R[]> generator) {
+                Spliterator<R> s = opEvaluateParallelLazy(helper, spliterator);
+                Node.Builder<R> builder = Nodes.builder(-1, generator);
+                builder.begin(-1);
+                s.forEachRemaining(builder);
+                builder.end();
+                return builder.build();
+            }
+        };
+    }
+
+    /**
+     * A {@code Sink} gathering the elements of a contiguous portion of the
+     * input, those at encounter positions from {@code start}, into windows
+     * pushed to a downstream sink.  The last {@code size} elements are kept
+     * in a ring buffer.  A window is pushed when its last element arrives if
+     * it starts at or after {@code start}.  Windows straddling either end of
+     * the portion are handed to the {@link Connector} at that end.
+     *
+     * @param <E_IN> the type of input elements
+     * @param <R> the type of windows
+     */
+    private static abstract class Windower<E_IN, R> implements Sink<E_IN> {
+        final int size;
+        final int step;
+        final boolean partial;
+        final long start;
+        final Connector left;
+        final Connector right;
+        final Object ring;
+        Sink<? super R> downstream;
+        long pos;   // the encounter position of the next element
+        int slot;   // the ring slot of the next element
+
+        Windower(int size, int step, boolean partial, long start,
+                 Connector left, Connector right, Object ring) {
+            this.size = size;
+            this.step = step;
+            this.partial = partial;
+            this.start = start;
+            this.left = left;
+            this.right = right;
+            this.ring = ring;
+            this.pos = start;
+            this.slot = (int) (start % size);
+        }
+
+        /** Returns a windower of the same kind for another portion. */
+        abstract Windower<E_IN, R> make(long start, Connector left, Connector right);
+
+        /** Returns an array of the element type of the given length. */
+        abstract Object newArray(int length);
+
+        /** Returns a window holding the elements of the given array. */
+        abstract R window(Object array);
+
+        /** Returns the concatenation of two input spliterators. */
+        abstract Spliterator<E_IN> concat(Spliterator<E_IN> a, Spliterator<E_IN> b);
+
+        @Override
+        public void begin(long size) {
+            downstream.begin(-1);
+        }
+
+        @Override
+        public boolean cancellationRequested() {
+            return downstream.cancellationRequested();
+        }
+
+        /**
+         * Records the arrival of the element just stored in the current ring
+         * slot.
+         */
+        final void advance() {
+            long p = pos++;
+            if (++slot == size)
+                slot = 0;
+            long s = p - size + 1;
+            if (s >= start && s % step == 0)
+                downstream.accept(window(copyRing(s, size)));
+            if (left != null && p == start + size - 2)
+                left.depositHead(this, copyRing(start, size - 1));
+        }
+
+        @Override
+        public void end() {
+            if (right != null) {
+                right.depositTail(this, copyRing(pos - size + 1, size - 1));
+            }
+            else if (partial) {
+                long s = pos - pos % step;
+                if (s < pos && s >= start && pos - s < size)
+                    downstream.accept(window(copyRing(s, (int) (pos - s))));
+            }
+            downstream.end();
+        }
+
+        /**
+         * Copies the elements at the given encounter positions, which must
+         * be held in the ring, into a new array.
+         */
+        final Object copyRing(long from, int length) {
+            Object a = newArray(length);
+            int i = (int) (from % size);
+            int n = Math.min(length, size - i);
+            System.arraycopy(ring, i, a, 0, n);
+            if (n < length)
+                System.arraycopy(ring, 0, a, n, length - n);
+            return a;
+        }
+
+        /**
+         * Pushes the windows straddling the boundary at encounter position
+         * {@code c}, given the {@code size - 1} elements either side of it.
+         */
+        final void straddle(long c, Object tail, Object head) {
+            int n = size - 1;
+            Object all = newArray(2 * n);
+            System.arraycopy(tail, 0, all, 0, n);
+            System.arraycopy(head, 0, all, n, n);
+            long base = c - n;
+            for (long s = (base + step - 1) / step * step; s < c; s += step) {
+                Object a = newArray(size);
+                System.arraycopy(all, (int) (s - base), a, 0, size);
+                downstream.accept(window(a));
+            }
+        }
+    }
+
+    /**
+     * The meeting point of two adjacent portions of the input at encounter
+     * position {@code boundary}.  Each side deposits its {@code size - 1}
+     * elements nearest the boundary, and the second to do so pushes the
+     * straddling windows.
+     */
+    static final class Connector {
+        private final long boundary;
+        private Object tail;
+        private Object head;
+
+        Connector(long boundary) {
+            this.boundary = boundary;
+        }
+
+        void depositTail(Windower<?, ?> w, Object t) {
+            Object h;
+            synchronized (this) {
+                if ((h = head) == null) {
+                    tail = t;
+                    return;
+                }
+                head = null;
+            }
+            w.straddle(boundary, t, h);
+        }
+
+        void depositHead(Windower<?, ?> w, Object h) {
+            Object t;
+            synchronized (this) {
+                if ((t = tail) == null) {
+                    head = h;
+                    return;
+                }
+                tail = null;
+            }
+            w.straddle(boundary, t, h);
+        }
+    }
+
+    private static final class RefWindower<T> extends Windower<T, List<T>> {
+        private final Object[] elements;
+
+        RefWindower(int size, int step, boolean partial, long start,
+                    Connector left, Connector right) {
+            this(size, step, partial, start, left, right, new Object[size]);
+        }
+
+        private RefWindower(int size, int step, boolean partial, long start,
+                            Connector left, Connector right, Object[] elements) {
+            super(size, step, partial, start, left, right, elements);
+            this.elements = elements;
+        }
+
+        @Override
+        Windower<T, List<T>> make(long start, Connector left, Connector right) {
+            return new RefWindower<>(size, step, partial, start, left, right);
+        }
+
+        @Override
+        Object newArray(int length) {
+            return new Object[length];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        List<T> window(Object array) {
+            return Arrays.asList((T[]) array);
+        }
+
+        @Override
+        Spliterator<T> concat(Spliterator<T> a, Spliterator<T> b) {
+            return new Streams.ConcatSpliterator.OfRef<>(a, b);
+        }
+
+        @Override
+        public void accept(T t) {
+            elements[slot] = t;
+            advance();
+        }
+    }
+
+    private static final class IntWindower extends Windower<Integer, int[]> implements Sink.OfInt {
+        private final int[] elements;
+
+        IntWindower(int size, int step, boolean partial, long start,
+                    Connector left, Connector right) {
+            this(size, step, partial, start, left, right, new int[size]);
+        }
+
+        private IntWindower(int size, int step, boolean partial, long start,
+                            Connector left, Connector right, int[] elements) {
+            super(size, step, partial, start, left, right, elements);
+            this.elements = elements;
+        }
+
+        @Override
+        Windower<Integer, int[]> make(long start, Connector left, Connector right) {
+            return new IntWindower(size, step, partial, start, left, right);
+        }
+
+        @Override
+        Object newArray(int length) {
+            return new int[length];
+        }
+
+        @Override
+        int[] window(Object array) {
+            return (int[]) array;
+        }
+
+        @Override
+        Spliterator<Integer> concat(Spliterator<Integer> a, Spliterator<Integer> b) {
+            return new Streams.ConcatSpliterator.OfInt((Spliterator.OfInt) a, (Spliterator.OfInt) b);
+        }
+
+        @Override
+        public void accept(int t) {
+            elements[slot] = t;
+            advance();
+        }
+    }
+
+    private static final class LongWindower extends Windower<Long, long[]> implements Sink.OfLong {
+        private final long[] elements;
+
+        LongWindower(int size, int step, boolean partial, long start,
+                     Connector left, Connector right) {
+            this(size, step, partial, start, left, right, new long[size]);
+        }
+
+        private LongWindower(int size, int step, boolean partial, long start,
+                             Connector left, Connector right, long[] elements) {
+            super(size, step, partial, start, left, right, elements);
+            this.elements = elements;
+        }
+
+        @Override
+        Windower<Long, long[]> make(long start, Connector left, Connector right) {
+            return new LongWindower(size, step, partial, start, left, right);
+        }
+
+        @Override
+        Object newArray(int length) {
+            return new long[length];
+        }
+
+        @Override
+        long[] window(Object array) {
+            return (long[]) array;
+        }
+
+        @Override
+        Spliterator<Long> concat(Spliterator<Long> a, Spliterator<Long> b) {
+            return new Streams.ConcatSpliterator.OfLong((Spliterator.OfLong) a, (Spliterator.OfLong) b);
+        }
+
+        @Override
+        public void accept(long t) {
+            elements[slot] = t;
+            advance();
+        }
+    }
+
+    private static final class DoubleWindower extends Windower<Double, double[]> implements Sink.OfDouble {
+        private final double[] elements;
+
+        DoubleWindower(int size, int step, boolean partial, long start,
+                       Connector left, Connector right) {
+            this(size, step, partial, start, left, right, new double[size]);
+        }
+
+        private DoubleWindower(int size, int step, boolean partial, long start,
+                               Connector left, Connector right, double[] elements) {
+            super(size, step, partial, start, left, right, elements);
+            this.elements = elements;
+        }
+
+        @Override
+        Windower<Double, double[]> make(long start, Connector left, Connector right) {
+            return new DoubleWindower(size, step, partial, start, left, right);
+        }
+
+        @Override
+        Object newArray(int length) {
+            return new double[length];
+        }
+
+        @Override
+        double[] window(Object array) {
+            return (double[]) array;
+        }
+
+        @Override
+        Spliterator<Double> concat(Spliterator<Double> a, Spliterator<Double> b) {
+            return new Streams.ConcatSpliterator.OfDouble((Spliterator.OfDouble) a, (Spliterator.OfDouble) b);
+        }
+
+        @Override
+        public void accept(double t) {
+            elements[slot] = t;
+            advance();
+        }
+    }
+
+    /**
+     * A spliterator over the windows of a contiguous portion of the input.
+     * If the input splits with exact sizes, then it is split at whatever
+     * positions its spliterator chooses, provided that both portions hold at
+     * least a full window, and the two windowers of a split share a
+     * {@link Connector}.  Otherwise windows are handed out in batches.
+     *
+     * @param <E_IN> the type of input elements
+     * @param <R> the type of windows
+     */
+    static final class WindowSpliterator<E_IN, R> implements Spliterator<R> {
+        private final Windower<E_IN, R> prototype;
+        private final boolean sized;
+        private Spliterator<E_IN> s;
+        private long start;
+        private long end;   // if sized
+        private Connector left;
+        private final Connector right;
+        private boolean splittable;
+        private Windower<E_IN, R> windower;   // created on first traversal
+        private ArrayDeque<R> pending;
+        private boolean finished;
+        private int batch;
+
+        WindowSpliterator(Windower<E_IN, R> prototype, Spliterator<E_IN> s) {
+            this.prototype = prototype;
+            this.s = s;
+            long n = s.getExactSizeIfKnown();
+            this.sized = n >= 0 && s.hasCharacteristics(Spliterator.SUBSIZED);
+            this.end = n;
+            this.right = null;
+            this.splittable = sized;
+        }
+
+        private WindowSpliterator(WindowSpliterator<E_IN, R> parent, Spliterator<E_IN> s,
+                                  long start, long end, Connector left, Connector right) {
+            this.prototype = parent.prototype;
+            this.sized = true;
+            this.s = s;
+            this.start = start;
+            this.end = end;
+            this.left = left;
+            this.right = right;
+            this.splittable = true;
+        }
+
+        private Windower<E_IN, R> windower() {
+            Windower<E_IN, R> w = windower;
+            if (w == null) {
+                windower = w = prototype.make(start, left, right);
+                ArrayDeque<R> q = pending = new ArrayDeque<>();
+                w.downstream = (Sink<R>) q::add;
+            }
+            return w;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) {
+            Objects.requireNonNull(action);
+            Windower<E_IN, R> w = windower();
+            ArrayDeque<R> q = pending;
+            while (q.isEmpty() && !finished) {
+                if (!s.tryAdvance(w)) {
+                    finished = true;
+                    w.end();
+                }
+            }
+            R r = q.poll();
+            if (r == null)
+                return false;
+            action.accept(r);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super R> action) {
+            Objects.requireNonNull(action);
+            Windower<E_IN, R> w = windower();
+            for (R r; (r = pending.poll()) != null; )
+                action.accept(r);
+            if (!finished) {
+                finished = true;
+                w.downstream = (Sink<R>) action::accept;
+                s.forEachRemaining(w);
+                w.end();
+            }
+        }
+
+        @Override
+        public Spliterator<R> trySplit() {
+            if (!sized)
+                return trySplitBatch();
+            int size = prototype.size;
+            if (splittable && windower == null && end - start >= 2L * size) {
+                Spliterator<E_IN> p = s.trySplit();
+                if (p != null) {
+                    long k = p.getExactSizeIfKnown();
+                    if (k >= size && end - start - k >= size) {
+                        long c = start + k;
+                        Connector conn = (size > 1) ? new Connector(c) : null;
+                        WindowSpliterator<E_IN, R> prefix
+                                = new WindowSpliterator<>(this, p, start, c, left, conn);
+                        start = c;
+                        left = conn;
+                        return prefix;
+                    }
+                    // Too uneven a split for windows not to span three portions
+                    s = prototype.concat(p, s);
+                    splittable = false;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Splits off a batch of windows into an array, so that downstream
+         * processing of the windows may proceed in parallel.
+         */
+        private Spliterator<R> trySplitBatch() {
+            int n = Math.min(batch + BATCH_UNIT, MAX_BATCH);
+            ArrayList<R> b = new ArrayList<>(n);
+            while (b.size() < n && tryAdvance(b::add)) { }
+            if (b.isEmpty())
+                return null;
+            batch = b.size();
+            @SuppressWarnings("unchecked")
+            Spliterator<R> split = (Spliterator<R>) Spliterators.spliterator(
+                    b.toArray(), Spliterator.ORDERED | Spliterator.NONNULL);
+            return split;
+        }
+
+        @Override
+        public long estimateSize() {
+            if (finished && (pending == null || pending.isEmpty()))
+                return 0;
+            long n = sized ? end - start : s.estimateSize();
+            return (n == Long.MAX_VALUE) ? n : n / prototype.step + 1;
+        }
+
+        @Override
+        public int characteristics() {
+            return (s.characteristics() & Spliterator.ORDERED) | Spliterator.NONNULL;
+        }
+    }
+}
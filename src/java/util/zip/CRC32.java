@@ -131,6 +131,80 @@ class CRC32 implements Checksum {
         return (long)crc & 0xffffffffL;
     }
 
+    /**
+     * Returns the CRC-32 of the concatenation of two sequences of
+     * bytes, given the CRC-32 of each and the length of the second,
+     * in time logarithmic in that length. This allows the CRC-32 of
+     * data to be computed in parts, for example by several threads.
+     *
+     * @param crc1 the CRC-32 of the first sequence
+     * @param crc2 the CRC-32 of the second sequence
+     * @param len2 the length of the second sequence
+     * @return the CRC-32 of the first sequence followed by the second
+     * @throws IllegalArgumentException if {@code len2} is negative
+     * @since 1.8
+     */
+    public static long combine(long crc1, long crc2, long len2) {
+        return combine(POLY, X2N, (int)crc1, (int)crc2, len2);
+    }
+
+    /*
+     * Polynomial of CRC-32, reflected.
+     */
+    private static final int POLY = 0xedb88320;
+
+    private static final int[] X2N = x2nTable(POLY);
+
+    /*
+     * Returns a table of x^(2^n) modulo the given reflected
+     * polynomial, for n from 0 to 31.
+     */
+    static int[] x2nTable(int poly) {
+        int[] t = new int[32];
+        int p = 1 << 30;                       // x^1
+        for (int n = 0; n < 32; ++n) {
+            t[n] = p;
+            p = multModP(p, p, poly);
+        }
+        return t;
+    }
+
+    /*
+     * Combines reflected CRCs, with finalization, of the given
+     * reflected polynomial and its x^(2^n) table, as zlib's
+     * crc32_combine does.
+     */
+    static long combine(int poly, int[] x2n, int crc1, int crc2, long len2) {
+        if (len2 < 0)
+            throw new IllegalArgumentException("len2 < 0");
+        // x^(8 * len2) modulo the polynomial, starting from x^0
+        int p = 1 << 31;
+        int k = 3;
+        for (long n = len2; n != 0; n >>>= 1, ++k) {
+            if ((n & 1) != 0)
+                p = multModP(x2n[k & 31], p, poly);
+        }
+        return (multModP(p, crc1, poly) ^ crc2) & 0xffffffffL;
+    }
+
+    /*
+     * Multiplies a and b modulo the reflected polynomial.
+     */
+    static int multModP(int a, int b, int poly) {
+        int m = 1 << 31;
+        int p = 0;
+        for (;;) {
+            if ((a & m) != 0) {
+                p ^= b;
+                if ((a & (m - 1)) == 0)
+                    break;
+            }
+            m >>>= 1;
+            b = (b & 1) != 0 ? (b >>> 1) ^ poly : b >>> 1;
+        }
+        return p;
+    }
+
     private native static int update(int crc, int b);
     private native static int updateBytes(int crc, byte[] b, int off, int len);
 
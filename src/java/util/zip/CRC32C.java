@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.zip;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import sun.misc.Unsafe;
+import sun.nio.ch.DirectBuffer;
+
+/**
+ * A class that can be used to compute the CRC-32C of a data stream.
+ *
+ * <p>CRC-32C is defined in RFC 3720, and uses the Castagnoli
+ * polynomial, which has better error detection properties than that
+ * of CRC-32 and is used by iSCSI, SCTP, ext4 and many storage formats.
+ * The checksum is computed eight bytes at a time, reading arrays and
+ * direct buffers in place.
+ *
+ * <p> Passing a {@code null} argument to a method in this class will cause
+ * a {@link NullPointerException} to be thrown.
+ *
+ * @see         Checksum
+ * @since 1.8
+ */
+public final
+class CRC32C implements Checksum {
+    /*
+     * Castagnoli polynomial, reflected.
+     */
+    private static final int POLY = 0x82f63b78;
+
+    /*
+     * Tables for computing eight bytes at a time: entry k * 256 + n
+     * holds the CRC of byte n followed by k zero bytes.
+     */
+    private static final int[] TABLE = new int[8 * 256];
+
+    private static final int[] X2N = CRC32.x2nTable(POLY);
+
+    private static final Unsafe UNSAFE = Unsafe.getUnsafe();
+    private static final long ARRAY_BASE = Unsafe.ARRAY_BYTE_BASE_OFFSET;
+    private static final boolean BIG_ENDIAN =
+        ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+
+    static {
+        for (int n = 0; n < 256; ++n) {
+            int c = n;
+            for (int i = 0; i < 8; ++i)
+                c = (c & 1) != 0 ? (c >>> 1) ^ POLY : c >>> 1;
+            TABLE[n] = c;
+        }
+        for (int k = 1; k < 8; ++k) {
+            for (int n = 0; n < 256; ++n) {
+                int c = TABLE[(k - 1) * 256 + n];
+                TABLE[k * 256 + n] = (c >>> 8) ^ TABLE[c & 0xff];
+            }
+        }
+    }
+
+    /*
+     * The CRC of the data so far, without the final inversion.
+     */
+    private int crc = 0xFFFFFFFF;
+
+    /**
+     * Creates a new CRC32C object.
+     */
+    public CRC32C() {
+    }
+
+    /**
+     * Updates the CRC-32C checksum with the specified byte (the low
+     * eight bits of the argument b).
+     *
+     * @param b the byte to update the checksum with
+     */
+    public void update(int b) {
+        crc = (crc >>> 8) ^ TABLE[(crc ^ b) & 0xff];
+    }
+
+    /**
+     * Updates the CRC-32C checksum with the specified array of bytes.
+     *
+     * @throws  ArrayIndexOutOfBoundsException
+     *          if {@code off} is negative, or {@code len} is negative,
+     *          or {@code off+len} is greater than the length of the
+     *          array {@code b}
+     */
+    public void update(byte[] b, int off, int len) {
+        if (b == null) {
+            throw new NullPointerException();
+        }
+        if (off < 0 || len < 0 || off > b.length - len) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
+        crc = updateBytes(crc, b, ARRAY_BASE + off, ARRAY_BASE + off + len);
+    }
+
+    /**
+     * Updates the CRC-32C checksum with the bytes from the specified
+     * buffer.
+     *
+     * The checksum is updated using
+     * buffer.{@link java.nio.Buffer#remaining() remaining()}
+     * bytes starting at
+     * buffer.{@link java.nio.Buffer#position() position()}
+     * Upon return, the buffer's position will
+     * be updated to its limit; its limit will not have been changed.
+     *
+     * @param buffer the ByteBuffer to update the checksum with
+     */
+    public void update(ByteBuffer buffer) {
+        int pos = buffer.position();
+        int limit = buffer.limit();
+        assert (pos <= limit);
+        int rem = limit - pos;
+        if (rem <= 0)
+            return;
+        if (buffer instanceof DirectBuffer) {
+            long addr = ((DirectBuffer)buffer).address() + pos;
+            crc = updateBytes(crc, null, addr, addr + rem);
+        } else if (buffer.hasArray()) {
+            update(buffer.array(), pos + buffer.arrayOffset(), rem);
+        } else {
+            byte[] b = new byte[Math.min(rem, 4096)];
+            while (buffer.hasRemaining()) {
+                int len = Math.min(buffer.remaining(), b.length);
+                buffer.get(b, 0, len);
+                update(b, 0, len);
+            }
+        }
+        buffer.position(limit);
+    }
+
+    /**
+     * Resets CRC-32C to initial value.
+     */
+    public void reset() {
+        crc = 0xFFFFFFFF;
+    }
+
+    /**
+     * Returns CRC-32C value.
+     */
+    public long getValue() {
+        return (long)~crc & 0xffffffffL;
+    }
+
+    /**
+     * Returns the CRC-32C of the concatenation of two sequences of
+     * bytes, given the CRC-32C of each and the length of the second,
+     * in time logarithmic in that length. This allows the CRC-32C of
+     * data to be computed in parts, for example by several threads.
+     *
+     * @param crc1 the CRC-32C of the first sequence
+     * @param crc2 the CRC-32C of the second sequence
+     * @param len2 the length of the second sequence
+     * @return the CRC-32C of the first sequence followed by the second
+     * @throws IllegalArgumentException if {@code len2} is negative
+     */
+    public static long combine(long crc1, long crc2, long len2) {
+        return CRC32.combine(POLY, X2N, (int)crc1, (int)crc2, len2);
+    }
+
+    /*
+     * Updates the CRC with the bytes from address to end, relative to
+     * the array b, or absolute if b is null. Bytes are read one at a
+     * time until the address is aligned, and then eight at a time.
+     */
+    private static int updateBytes(int crc, Object b, long address, long end) {
+        final int[] t = TABLE;
+        for (; address < end && (address & 7) != 0; ++address)
+            crc = (crc >>> 8) ^ t[(crc ^ UNSAFE.getByte(b, address)) & 0xff];
+        for (; end - address >= 8; address += 8) {
+            long v = UNSAFE.getLong(b, address);
+            if (BIG_ENDIAN)
+                v = Long.reverseBytes(v);
+            int lo = crc ^ (int)v;
+            int hi = (int)(v >>> 32);
+            crc = t[7 * 256 + (lo & 0xff)] ^
+                  t[6 * 256 + ((lo >>> 8) & 0xff)] ^
+                  t[5 * 256 + ((lo >>> 16) & 0xff)] ^
+                  t[4 * 256 + (lo >>> 24)] ^
+                  t[3 * 256 + (hi & 0xff)] ^
+                  t[2 * 256 + ((hi >>> 8) & 0xff)] ^
+                  t[1 * 256 + ((hi >>> 16) & 0xff)] ^
+                  t[hi >>> 24];
+        }
+        for (; address < end; ++address)
+            crc = (crc >>> 8) ^ t[(crc ^ UNSAFE.getByte(b, address)) & 0xff];
+        return crc;
+    }
+}
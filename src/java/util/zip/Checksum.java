@@ -25,6 +25,8 @@
 
 package java.util.zip;
 
+import java.nio.ByteBuffer;
+
 /**
  * An interface representing a data checksum.
  *
@@ -47,6 +49,58 @@ interface Checksum {
      */
     public void update(byte[] b, int off, int len);
 
+    /**
+     * Updates the current checksum with the specified array of bytes.
+     *
+     * @implSpec This default implementation is equal to calling
+     * {@code update(b, 0, b.length)}.
+     *
+     * @param b the array of bytes to update the checksum with
+     * @since 1.8
+     */
+    default public void update(byte[] b) {
+        update(b, 0, b.length);
+    }
+
+    /**
+     * Updates the current checksum with the bytes from the specified buffer.
+     *
+     * The checksum is updated using
+     * buffer.{@link java.nio.Buffer#remaining() remaining()}
+     * bytes starting at
+     * buffer.{@link java.nio.Buffer#position() position()}
+     * Upon return, the buffer's position will be updated to its
+     * limit; its limit will not have been changed.
+     *
+     * @implSpec This default implementation updates the checksum with
+     * the backing array of the buffer, if it has one, and otherwise
+     * with the bytes of the buffer copied in chunks of at most 4096
+     * bytes to a temporary array. Implementations that can read
+     * direct buffers in place should override this method.
+     *
+     * @param buffer the ByteBuffer to update the checksum with
+     * @since 1.8
+     */
+    default public void update(ByteBuffer buffer) {
+        int pos = buffer.position();
+        int limit = buffer.limit();
+        assert (pos <= limit);
+        int rem = limit - pos;
+        if (rem <= 0)
+            return;
+        if (buffer.hasArray()) {
+            update(buffer.array(), pos + buffer.arrayOffset(), rem);
+        } else {
+            byte[] b = new byte[Math.min(rem, 4096)];
+            while (buffer.hasRemaining()) {
+                int len = Math.min(buffer.remaining(), b.length);
+                buffer.get(b, 0, len);
+                update(b, 0, len);
+            }
+        }
+        buffer.position(limit);
+    }
+
     /**
      * Returns the current checksum value.
      * @return the current checksum value
@@ -81,6 +81,7 @@ class Deflater {
     private boolean finish, finished;
     private long bytesRead;
     private long bytesWritten;
+    final boolean nowrap;
 
     /**
      * Compression method for the deflate algorithm (the only one currently
@@ -169,6 +170,18 @@ class Deflater {
         this.level = level;
         this.strategy = DEFAULT_STRATEGY;
         this.zsRef = new ZStreamRef(init(level, DEFAULT_STRATEGY, nowrap));
+        this.nowrap = nowrap;
+        ZStreamPool.deflaterCreated();
+    }
+
+    /*
+     * Creates a compressor for the native stream of another one.
+     */
+    private Deflater(long addr, int level, boolean nowrap) {
+        this.level = level;
+        this.strategy = DEFAULT_STRATEGY;
+        this.zsRef = new ZStreamRef(addr);
+        this.nowrap = nowrap;
     }
 
     /**
@@ -542,6 +555,7 @@ class Deflater {
             if (addr != 0) {
                 end(addr);
                 buf = null;
+                ZStreamPool.deflaterEnded();
             }
         }
     }
@@ -559,6 +573,38 @@ class Deflater {
             throw new NullPointerException("Deflater has been closed");
     }
 
+    /*
+     * Resets the native stream of this compressor and moves it to a new
+     * compressor, for ZStreamPool, leaving this one as if ended. If the
+     * level or strategy has been changed since the last deflate, or the
+     * strategy is not the default, the stream is ended instead. Returns
+     * null if the stream has been ended.
+     */
+    Deflater detach() {
+        synchronized (zsRef) {
+            long addr = zsRef.address();
+            if (addr == 0)
+                return null;
+            if (setParams || strategy != DEFAULT_STRATEGY) {
+                end();
+                return null;
+            }
+            reset(addr);
+            zsRef.clear();
+            buf = null;
+            return new Deflater(addr, level, nowrap);
+        }
+    }
+
+    /*
+     * Returns the compression level, for ZStreamPool.
+     */
+    int level() {
+        synchronized (zsRef) {
+            return level;
+        }
+    }
+
     private static native void initIDs();
     private native static long init(int level, int strategy, boolean nowrap);
     private native static void setDictionary(long addr, byte[] b, int off, int len);
@@ -159,7 +159,8 @@ class DeflaterOutputStream extends FilterOutputStream {
      * @since 1.7
      */
     public DeflaterOutputStream(OutputStream out, boolean syncFlush) {
-        this(out, new Deflater(), 512, syncFlush);
+        this(out, ZStreamPool.getDeflater(Deflater.DEFAULT_COMPRESSION, false),
+             512, syncFlush);
         usesDefaultDeflater = true;
     }
 
@@ -237,7 +238,7 @@ class DeflaterOutputStream extends FilterOutputStream {
         if (!closed) {
             finish();
             if (usesDefaultDeflater)
-                def.end();
+                ZStreamPool.releaseDeflater(def);
             out.close();
             closed = true;
         }
@@ -80,6 +80,7 @@ class Inflater {
     private boolean needDict;
     private long bytesRead;
     private long bytesWritten;
+    final boolean nowrap;
 
     private static final byte[] defaultBuf = new byte[0];
 
@@ -101,6 +102,16 @@ class Inflater {
      */
     public Inflater(boolean nowrap) {
         zsRef = new ZStreamRef(init(nowrap));
+        this.nowrap = nowrap;
+        ZStreamPool.inflaterCreated();
+    }
+
+    /*
+     * Creates a decompressor for the native stream of another one.
+     */
+    private Inflater(long addr, boolean nowrap) {
+        zsRef = new ZStreamRef(addr);
+        this.nowrap = nowrap;
     }
 
     /**
@@ -372,6 +383,7 @@ class Inflater {
             if (addr != 0) {
                 end(addr);
                 buf = null;
+                ZStreamPool.inflaterEnded();
             }
         }
     }
@@ -389,9 +401,20 @@ class Inflater {
             throw new NullPointerException("Inflater has been closed");
     }
 
-    boolean ended() {
+    /*
+     * Resets the native stream of this decompressor and moves it to a
+     * new decompressor, for ZStreamPool, leaving this one as if ended.
+     * Returns null if the stream has been ended.
+     */
+    Inflater detach() {
         synchronized (zsRef) {
-            return zsRef.address() == 0;
+            long addr = zsRef.address();
+            if (addr == 0)
+                return null;
+            reset(addr);
+            zsRef.clear();
+            buf = null;
+            return new Inflater(addr, nowrap);
         }
     }
 
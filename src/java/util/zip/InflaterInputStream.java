@@ -105,7 +105,7 @@ class InflaterInputStream extends FilterInputStream {
      * @param in the input stream
      */
     public InflaterInputStream(InputStream in) {
-        this(in, new Inflater());
+        this(in, ZStreamPool.getInflater(false));
         usesDefaultInflater = true;
     }
 
@@ -223,7 +223,7 @@ class InflaterInputStream extends FilterInputStream {
     public void close() throws IOException {
         if (!closed) {
             if (usesDefaultInflater)
-                inf.end();
+                ZStreamPool.releaseInflater(inf);
             in.close();
             closed = true;
         }
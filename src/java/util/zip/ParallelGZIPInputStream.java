@@ -0,0 +1,515 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.zip;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * This class implements a stream filter for reading compressed data in
+ * the GZIP file format, decompressing the members of blocked GZIP data
+ * in parallel.
+ *
+ * <p>A member whose header holds a {@code BC} extra subfield giving
+ * its total size, as written in the BGZF format, is read whole and
+ * decompressed by a task of a {@link ForkJoinPool}, while the
+ * following members are read and decompressed ahead. Members without
+ * this field cannot be located without decompressing them, and are
+ * decompressed by the reading thread as by {@link GZIPInputStream}.
+ * Members are read in order, and the CRC-32 and size of each is
+ * checked.
+ *
+ * <p>At most twice as many members as the parallelism of the pool are
+ * decompressed ahead of the reading thread.
+ *
+ * @see GZIPInputStream
+ */
+public
+class ParallelGZIPInputStream extends FilterInputStream {
+    /*
+     * GZIP header magic number.
+     */
+    private final static int GZIP_MAGIC = 0x8b1f;
+
+    /*
+     * File header flags.
+     */
+    private final static int FTEXT      = 1;    // Extra text
+    private final static int FHCRC      = 2;    // Header CRC
+    private final static int FEXTRA     = 4;    // Extra field
+    private final static int FNAME      = 8;    // File name
+    private final static int FCOMMENT   = 16;   // File comment
+
+    /*
+     * Trailer size in bytes.
+     */
+    private final static int TRAILER_SIZE = 8;
+
+    private final ForkJoinPool pool;
+    private final int maxPending;
+    private final ArrayDeque<ForkJoinTask<byte[]>> pending = new ArrayDeque<>();
+
+    private byte[] data;            // decompressed member being read
+    private int pos;                // position in data
+
+    // state of a member decompressed by the reading thread
+    private boolean streaming;
+    private final Inflater inf = ZStreamPool.getInflater(true);
+    private final CRC32 crc = new CRC32();
+    private final byte[] buf;
+    private int len;
+
+    private boolean first = true;   // if no member has been read
+    private boolean eos;
+    private boolean closed = false;
+
+    /**
+     * Creates a new input stream decompressing members in the
+     * {@linkplain ForkJoinPool#commonPool() common pool}.
+     * @param in the input stream
+     *
+     * @exception ZipException if a GZIP format error has occurred or the
+     *                         compression method used is unsupported
+     * @exception IOException if an I/O error has occurred
+     */
+    public ParallelGZIPInputStream(InputStream in) throws IOException {
+        this(in, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new input stream decompressing members in the given pool.
+     * @param in the input stream
+     * @param pool the pool in which members are decompressed
+     *
+     * @exception ZipException if a GZIP format error has occurred or the
+     *                         compression method used is unsupported
+     * @exception IOException if an I/O error has occurred
+     * @exception NullPointerException if {@code pool} is null
+     */
+    public ParallelGZIPInputStream(InputStream in, ForkJoinPool pool)
+        throws IOException
+    {
+        super(new PushbackInputStream(in, 8192));
+        if (pool == null)
+            throw new NullPointerException();
+        this.pool = pool;
+        this.maxPending = Math.max(2, pool.getParallelism() << 1);
+        this.buf = new byte[8192];
+        readAhead();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    /**
+     * Reads uncompressed data into an array of bytes. If <code>len</code> is not
+     * zero, the method will block until some input can be decompressed; otherwise,
+     * no bytes are read and <code>0</code> is returned.
+     * @param b the buffer into which the data is read
+     * @param off the start offset in the destination array <code>b</code>
+     * @param len the maximum number of bytes read
+     * @return  the actual number of bytes read, or -1 if the end of the
+     *          compressed input stream is reached
+     *
+     * @exception  NullPointerException If <code>b</code> is <code>null</code>.
+     * @exception  IndexOutOfBoundsException If <code>off</code> is negative,
+     * <code>len</code> is negative, or <code>len</code> is greater than
+     * <code>b.length - off</code>
+     * @exception ZipException if the compressed input data is corrupt.
+     * @exception IOException if an I/O error has occurred.
+     */
+    public int read(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        } else if (len == 0) {
+            return 0;
+        }
+        for (;;) {
+            if (data != null) {
+                int n = Math.min(len, data.length - pos);
+                if (n > 0) {
+                    System.arraycopy(data, pos, b, off, n);
+                    pos += n;
+                    return n;
+                }
+                data = null;
+            }
+            if (!pending.isEmpty()) {
+                data = join(pending.poll());
+                pos = 0;
+                readAhead();
+            } else if (streaming) {
+                int n = inflate(b, off, len);
+                if (n > 0)
+                    return n;
+                readAhead();
+            } else if (eos) {
+                return -1;
+            } else {
+                readAhead();
+            }
+        }
+    }
+
+    /**
+     * Reads a byte of uncompressed data.
+     * @return the byte read, or -1 if the end of the compressed input
+     *         stream is reached
+     * @exception ZipException if the compressed input data is corrupt.
+     * @exception IOException if an I/O error has occurred.
+     */
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return (read(b, 0, 1) == -1) ? -1 : b[0] & 0xff;
+    }
+
+    /**
+     * Returns the number of bytes that have been decompressed and
+     * can be read without blocking.
+     * @return the number of bytes that can be read without blocking
+     * @exception IOException if an I/O error has occurred.
+     */
+    public int available() throws IOException {
+        ensureOpen();
+        return (data == null) ? 0 : data.length - pos;
+    }
+
+    /**
+     * Skips over and discards <code>n</code> bytes of uncompressed data.
+     * @param n the number of bytes to skip
+     * @return the actual number of bytes skipped
+     * @exception IOException if an I/O error has occurred.
+     */
+    public long skip(long n) throws IOException {
+        if (n <= 0)
+            return 0;
+        byte[] b = new byte[(int)Math.min(n, 8192)];
+        long total = 0;
+        while (total < n) {
+            int r = read(b, 0, (int)Math.min(n - total, b.length));
+            if (r == -1)
+                break;
+            total += r;
+        }
+        return total;
+    }
+
+    /**
+     * Mark is not supported.
+     * @return false
+     */
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Closes this input stream and releases any system resources
+     * associated with the stream.
+     * @exception IOException if an I/O error has occurred
+     */
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            for (ForkJoinTask<byte[]> t : pending)
+                t.cancel(false);
+            pending.clear();
+            data = null;
+            ZStreamPool.releaseInflater(inf);
+            in.close();
+        }
+    }
+
+    /*
+     * Reads headers of following members, and either submits blocked
+     * members for decompression, or prepares to decompress a member
+     * that is not blocked once the preceding members have been read.
+     */
+    private void readAhead() throws IOException {
+        while (!eos && !streaming && pending.size() < maxPending) {
+            int size;
+            try {
+                size = readHeader();
+            } catch (IOException e) {
+                if (first)
+                    throw e;
+                eos = true;  // ignore any trailing data, as GZIPInputStream
+                break;
+            }
+            first = false;
+            if (size < 0) {
+                inf.reset();
+                crc.reset();
+                streaming = true;
+            } else {
+                byte[] block = new byte[size];
+                readFully(block, 0, size);
+                pending.add(pool.submit(() -> inflateBlock(block)));
+            }
+        }
+    }
+
+    /*
+     * Reads a member header, returning the number of bytes of the
+     * member that follow it if given by a BGZF BC subfield, else -1.
+     * Throws EOFException if no bytes remain.
+     */
+    private int readHeader() throws IOException {
+        CheckedInputStream in = new CheckedInputStream(this.in, new CRC32());
+        int magic = in.read();
+        if (magic == -1)
+            throw new EOFException();
+        if ((magic | (readUByte(in) << 8)) != GZIP_MAGIC) {
+            throw new ZipException("Not in GZIP format");
+        }
+        // Check compression method
+        if (readUByte(in) != 8) {
+            throw new ZipException("Unsupported compression method");
+        }
+        // Read flags
+        int flg = readUByte(in);
+        // Skip MTIME, XFL, and OS fields
+        skipBytes(in, 6);
+        int n = 2 + 2 + 6;
+        int bsize = -1;
+        // Read optional extra field, looking for the BC subfield
+        if ((flg & FEXTRA) == FEXTRA) {
+            int m = readUShort(in);
+            n += m + 2;
+            while (m >= 4) {
+                int si = readUShort(in);
+                int slen = readUShort(in);
+                m -= 4;
+                if (slen > m)
+                    throw new ZipException("Corrupt GZIP header");
+                if (si == ('B' | ('C' << 8)) && slen == 2) {
+                    bsize = readUShort(in);
+                } else {
+                    skipBytes(in, slen);
+                }
+                m -= slen;
+            }
+            skipBytes(in, m);
+        }
+        // Skip optional file name
+        if ((flg & FNAME) == FNAME) {
+            do {
+                n++;
+            } while (readUByte(in) != 0);
+        }
+        // Skip optional file comment
+        if ((flg & FCOMMENT) == FCOMMENT) {
+            do {
+                n++;
+            } while (readUByte(in) != 0);
+        }
+        // Check optional header CRC
+        if ((flg & FHCRC) == FHCRC) {
+            int v = (int)in.getChecksum().getValue() & 0xffff;
+            if (readUShort(in) != v) {
+                throw new ZipException("Corrupt GZIP header");
+            }
+            n += 2;
+        }
+        if (bsize < 0)
+            return -1;
+        // BSIZE is the total member size minus one
+        int size = bsize + 1 - n;
+        if (size < TRAILER_SIZE)
+            throw new ZipException("Corrupt BGZF block size");
+        return size;
+    }
+
+    /*
+     * Decompresses a blocked member, given its compressed data and
+     * trailer, checking its CRC-32 and size.
+     */
+    private byte[] inflateBlock(byte[] block) throws IOException {
+        int end = block.length - TRAILER_SIZE;
+        long crcv = getUInt(block, end);
+        long isize = getUInt(block, end + 4);
+        if (isize > Integer.MAX_VALUE - 8)
+            throw new ZipException("Corrupt GZIP trailer");
+        byte[] out = new byte[(int)isize];
+        Inflater i = ZStreamPool.getInflater(true);
+        try {
+            // the trailer provides the extra input byte that a
+            // nowrap inflater may need
+            i.setInput(block, 0, block.length);
+            int n = 0;
+            while (n < out.length) {
+                int r = i.inflate(out, n, out.length - n);
+                if (r == 0 && (i.finished() || i.needsInput() ||
+                               i.needsDictionary()))
+                    throw new ZipException("Corrupt GZIP trailer");
+                n += r;
+            }
+            if (!i.finished() &&
+                (i.inflate(new byte[1]) != 0 || !i.finished()))
+                throw new ZipException("Corrupt GZIP trailer");
+            if (i.getRemaining() != TRAILER_SIZE)
+                throw new ZipException("Corrupt BGZF block size");
+        } catch (DataFormatException e) {
+            String s = e.getMessage();
+            throw new ZipException(s != null ? s : "Invalid ZLIB data format");
+        } finally {
+            ZStreamPool.releaseInflater(i);
+        }
+        CRC32 c = new CRC32();
+        c.update(out, 0, out.length);
+        if (c.getValue() != crcv)
+            throw new ZipException("Corrupt GZIP trailer");
+        return out;
+    }
+
+    /*
+     * Decompresses data of a member that is not blocked, returning
+     * 0 and checking its trailer at the end of the member.
+     */
+    private int inflate(byte[] b, int off, int n) throws IOException {
+        try {
+            for (;;) {
+                int r = inf.inflate(b, off, n);
+                if (r > 0) {
+                    crc.update(b, off, r);
+                    return r;
+                }
+                if (inf.finished()) {
+                    readTrailer();
+                    return 0;
+                }
+                if (inf.needsDictionary()) {
+                    throw new ZipException("Corrupt GZIP member");
+                }
+                if (inf.needsInput()) {
+                    len = in.read(buf, 0, buf.length);
+                    if (len == -1) {
+                        throw new EOFException("Unexpected end of ZLIB input stream");
+                    }
+                    inf.setInput(buf, 0, len);
+                }
+            }
+        } catch (DataFormatException e) {
+            String s = e.getMessage();
+            throw new ZipException(s != null ? s : "Invalid ZLIB data format");
+        }
+    }
+
+    /*
+     * Returns unread input to the stream and checks the trailer of
+     * a member that is not blocked.
+     */
+    private void readTrailer() throws IOException {
+        int n = inf.getRemaining();
+        if (n > 0)
+            ((PushbackInputStream)in).unread(buf, len - n, n);
+        // Uses left-to-right evaluation order
+        if ((readUInt(in) != crc.getValue()) ||
+            // rfc1952; ISIZE is the input size modulo 2^32
+            (readUInt(in) != (inf.getBytesWritten() & 0xffffffffL)))
+            throw new ZipException("Corrupt GZIP trailer");
+        streaming = false;
+    }
+
+    private static byte[] join(ForkJoinTask<byte[]> t) throws IOException {
+        try {
+            return t.join();
+        } catch (RuntimeException | Error ex) {
+            // the task's IOException, possibly wrapped more than once
+            for (Throwable c = ex.getCause(); c != null; c = c.getCause()) {
+                if (c instanceof IOException)
+                    throw (IOException)c;
+            }
+            throw ex;
+        }
+    }
+
+    private static long getUInt(byte[] b, int off) {
+        return ((b[off] & 0xff) | ((b[off + 1] & 0xff) << 8) |
+                ((b[off + 2] & 0xff) << 16) | ((long)(b[off + 3] & 0xff) << 24));
+    }
+
+    /*
+     * Reads unsigned integer in Intel byte order.
+     */
+    private long readUInt(InputStream in) throws IOException {
+        long s = readUShort(in);
+        return ((long)readUShort(in) << 16) | s;
+    }
+
+    /*
+     * Reads unsigned short in Intel byte order.
+     */
+    private int readUShort(InputStream in) throws IOException {
+        int b = readUByte(in);
+        return (readUByte(in) << 8) | b;
+    }
+
+    /*
+     * Reads unsigned byte.
+     */
+    private int readUByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException();
+        }
+        if (b < -1 || b > 255) {
+            // Report on this.in, not argument in; see read{Header, Trailer}.
+            throw new IOException(this.in.getClass().getName()
+                + ".read() returned value out of range -1..255: " + b);
+        }
+        return b;
+    }
+
+    private void readFully(byte[] b, int off, int n) throws IOException {
+        while (n > 0) {
+            int r = in.read(b, off, n);
+            if (r == -1)
+                throw new EOFException("Unexpected end of BGZF block");
+            off += r;
+            n -= r;
+        }
+    }
+
+    private void skipBytes(InputStream in, int n) throws IOException {
+        while (n > 0) {
+            int r = in.read(buf, 0, n < buf.length ? n : buf.length);
+            if (r == -1) {
+                throw new EOFException();
+            }
+            n -= r;
+        }
+    }
+}
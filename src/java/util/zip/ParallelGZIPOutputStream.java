@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.zip;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * This class implements a stream filter for writing compressed data in
+ * the GZIP file format, compressing blocks of the uncompressed data in
+ * parallel.
+ *
+ * <p>Data written to the stream is divided into blocks, each of which
+ * is compressed by a task of a {@link ForkJoinPool} using its own
+ * {@link Deflater}, primed with the preceding 32K of uncompressed data
+ * as its dictionary so that compression is nearly as good as that of
+ * a single deflater. The compressed blocks, each ending with a sync
+ * flush, are written in order to the underlying stream, forming a
+ * single GZIP member, while the CRC-32 of the uncompressed data is
+ * computed by the writing thread. The output can be read by {@link
+ * GZIPInputStream} or any other GZIP reader.
+ *
+ * <p>At most twice as many blocks as the parallelism of the pool are
+ * compressed or awaiting output at any time, so the writing thread
+ * waits for earlier blocks to be written when the pool falls behind.
+ *
+ * @see GZIPOutputStream
+ */
+public
+class ParallelGZIPOutputStream extends FilterOutputStream {
+    /**
+     * CRC-32 of uncompressed data.
+     */
+    protected CRC32 crc = new CRC32();
+
+    /*
+     * GZIP header magic number.
+     */
+    private final static int GZIP_MAGIC = 0x8b1f;
+
+    /*
+     * Size of the deflate window, and so of the dictionary of each block.
+     */
+    private final static int DICT_SIZE = 32768;
+
+    /*
+     * Default block size.
+     */
+    private final static int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    private final ForkJoinPool pool;
+    private final int level;
+    private final int maxPending;
+    private final ArrayDeque<ForkJoinTask<byte[]>> pending = new ArrayDeque<>();
+
+    private byte[] block;          // uncompressed data of the current block
+    private int count;             // number of bytes in block
+    private byte[] dict;           // last 32K of data in earlier blocks
+    private long total;            // number of bytes written
+    private boolean finished = false;
+    private boolean closed = false;
+
+    /**
+     * Creates a new output stream with a default block size and
+     * compression level, compressing blocks in the
+     * {@linkplain ForkJoinPool#commonPool() common pool}.
+     * @param out the output stream
+     * @exception IOException If an I/O error has occurred.
+     */
+    public ParallelGZIPOutputStream(OutputStream out) throws IOException {
+        this(out, DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION,
+             ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new output stream with the specified block size and
+     * compression level, compressing blocks in the given pool.
+     * @param out the output stream
+     * @param blockSize the number of uncompressed bytes in each block
+     * @param level the compression level (0-9), or
+     *        {@link Deflater#DEFAULT_COMPRESSION}
+     * @param pool the pool in which blocks are compressed
+     * @exception IOException If an I/O error has occurred.
+     * @exception IllegalArgumentException if {@code blockSize <= 0}, or
+     *            the compression level is invalid
+     * @exception NullPointerException if {@code pool} is null
+     */
+    public ParallelGZIPOutputStream(OutputStream out, int blockSize,
+                                    int level, ForkJoinPool pool)
+        throws IOException
+    {
+        super(out);
+        if (blockSize <= 0)
+            throw new IllegalArgumentException("blockSize <= 0");
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION)
+            throw new IllegalArgumentException("invalid compression level");
+        if (pool == null)
+            throw new NullPointerException();
+        this.pool = pool;
+        this.level = level;
+        this.maxPending = Math.max(2, pool.getParallelism() << 1);
+        this.block = new byte[blockSize];
+        writeHeader();
+    }
+
+    /**
+     * Writes a byte to the compressed output stream.
+     * @param b the byte to be written
+     * @exception IOException If an I/O error has occurred.
+     */
+    public void write(int b) throws IOException {
+        byte[] buf = new byte[1];
+        buf[0] = (byte)(b & 0xff);
+        write(buf, 0, 1);
+    }
+
+    /**
+     * Writes array of bytes to the compressed output stream. This
+     * method will block until earlier blocks have been compressed if
+     * the pool falls behind.
+     * @param b the data to be written
+     * @param off the start offset of the data
+     * @param len the length of the data
+     * @exception IOException If an I/O error has occurred.
+     */
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if ((off | len | (off + len) | (b.length - (off + len))) < 0)
+            throw new IndexOutOfBoundsException();
+        crc.update(b, off, len);
+        total += len;
+        while (len > 0) {
+            int n = Math.min(len, block.length - count);
+            System.arraycopy(b, off, block, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == block.length)
+                submitBlock();
+        }
+    }
+
+    /**
+     * Flushes the compressed output stream. The data written so far
+     * is compressed and written to the underlying stream, which is
+     * then flushed.
+     * @exception IOException If an I/O error has occurred.
+     */
+    public void flush() throws IOException {
+        ensureOpen();
+        submitBlock();
+        while (!pending.isEmpty())
+            writeBlock();
+        out.flush();
+    }
+
+    /**
+     * Finishes writing compressed data to the output stream without closing
+     * the underlying stream. Use this method when applying multiple filters
+     * in succession to the same output stream.
+     * @exception IOException if an I/O error has occurred
+     */
+    public void finish() throws IOException {
+        if (finished)
+            return;
+        ensureOpen();
+        submitBlock();
+        while (!pending.isEmpty())
+            writeBlock();
+        // an empty final block with fixed Huffman codes
+        out.write(3);
+        out.write(0);
+        writeTrailer();
+        finished = true;
+        block = null;
+        dict = null;
+    }
+
+    /**
+     * Writes remaining compressed data to the output stream and closes the
+     * underlying stream.
+     * @exception IOException if an I/O error has occurred
+     */
+    public void close() throws IOException {
+        if (!closed) {
+            try {
+                finish();
+            } finally {
+                for (ForkJoinTask<byte[]> t : pending)
+                    t.cancel(false);
+                pending.clear();
+                closed = true;
+                out.close();
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed)
+            throw new IOException("Stream closed");
+        if (finished)
+            throw new IOException("write beyond end of stream");
+    }
+
+    /*
+     * Submits the current block, if not empty, for compression,
+     * writing the oldest pending block first if there are too many.
+     */
+    private void submitBlock() throws IOException {
+        if (count == 0)
+            return;
+        while (pending.size() >= maxPending)
+            writeBlock();
+        final byte[] data = block;
+        final int len = count;
+        final byte[] prev = dict;
+        pending.add(pool.submit(() -> deflate(prev, data, len)));
+        dict = nextDict(prev, data, len);
+        block = new byte[data.length];
+        count = 0;
+    }
+
+    /*
+     * Waits for the oldest pending block and writes it.
+     */
+    private void writeBlock() throws IOException {
+        ForkJoinTask<byte[]> t = pending.poll();
+        byte[] b;
+        try {
+            b = t.join();
+        } catch (RuntimeException | Error ex) {
+            // the task's IOException, possibly wrapped more than once
+            for (Throwable c = ex.getCause(); c != null; c = c.getCause()) {
+                if (c instanceof IOException)
+                    throw (IOException)c;
+            }
+            throw ex;
+        }
+        out.write(b, 0, b.length);
+    }
+
+    /*
+     * Returns the last 32K of the data preceding and in the given block.
+     */
+    private static byte[] nextDict(byte[] prev, byte[] data, int len) {
+        if (len >= DICT_SIZE)
+            return Arrays.copyOfRange(data, len - DICT_SIZE, len);
+        int keep = (prev == null) ? 0 : Math.min(prev.length, DICT_SIZE - len);
+        byte[] d = new byte[keep + len];
+        if (keep > 0)
+            System.arraycopy(prev, prev.length - keep, d, 0, keep);
+        System.arraycopy(data, 0, d, keep, len);
+        return d;
+    }
+
+    /*
+     * Compresses a block as a raw deflate stream ending with a sync
+     * flush, using a deflater of the shared pool.
+     */
+    private byte[] deflate(byte[] dict, byte[] data, int len) {
+        Deflater def = ZStreamPool.getDeflater(level, true);
+        try {
+            if (dict != null)
+                def.setDictionary(dict);
+            def.setInput(data, 0, len);
+            byte[] buf = new byte[len + (len >>> 3) + 64];
+            int pos = 0;
+            for (;;) {
+                pos += def.deflate(buf, pos, buf.length - pos,
+                                   Deflater.SYNC_FLUSH);
+                if (pos < buf.length && def.needsInput())
+                    break;
+                if (pos == buf.length)
+                    buf = Arrays.copyOf(buf, buf.length << 1);
+            }
+            return (pos == buf.length) ? buf : Arrays.copyOf(buf, pos);
+        } finally {
+            ZStreamPool.releaseDeflater(def);
+        }
+    }
+
+    /*
+     * Writes GZIP member header.
+     */
+    private void writeHeader() throws IOException {
+        out.write(new byte[] {
+                      (byte) GZIP_MAGIC,        // Magic number (short)
+                      (byte)(GZIP_MAGIC >> 8),  // Magic number (short)
+                      Deflater.DEFLATED,        // Compression method (CM)
+                      0,                        // Flags (FLG)
+                      0,                        // Modification time MTIME (int)
+                      0,                        // Modification time MTIME (int)
+                      0,                        // Modification time MTIME (int)
+                      0,                        // Modification time MTIME (int)
+                      0,                        // Extra flags (XFLG)
+                      0                         // Operating system (OS)
+                  });
+    }
+
+    /*
+     * Writes GZIP member trailer.
+     */
+    private void writeTrailer() throws IOException {
+        byte[] buf = new byte[8];
+        writeInt((int)crc.getValue(), buf, 0); // CRC-32 of uncompr. data
+        writeInt((int)total, buf, 4);          // Number of uncompr. bytes
+        out.write(buf, 0, 8);
+    }
+
+    /*
+     * Writes integer in Intel byte order to a byte array, starting at a
+     * given offset.
+     */
+    private void writeInt(int i, byte[] buf, int offset) {
+        buf[offset] = (byte)(i & 0xff);
+        buf[offset + 1] = (byte)((i >> 8) & 0xff);
+        buf[offset + 2] = (byte)((i >> 16) & 0xff);
+        buf[offset + 3] = (byte)((i >> 24) & 0xff);
+    }
+}
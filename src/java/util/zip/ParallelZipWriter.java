@@ -0,0 +1,917 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.zip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import static java.util.zip.ZipConstants.*;
+import static java.util.zip.ZipConstants64.*;
+import static java.util.zip.ZipUtils.*;
+
+/**
+ * This class writes files in the ZIP file format, compressing the
+ * entries in parallel.
+ *
+ * <p>Unlike {@link ZipOutputStream}, which compresses the data of one
+ * entry at a time as it is written, a {@code ParallelZipWriter} is
+ * given the complete data of each entry, either as an array of bytes
+ * or as a file, and compresses it in a task of a {@link ForkJoinPool}
+ * using its own {@link Deflater}. Entries may be put by several
+ * threads concurrently. They are written to the underlying stream in
+ * the order in which they were put, whatever the order in which their
+ * compression completes, so the same sequence of entries always
+ * produces the same ZIP file.
+ *
+ * <p>Since the sizes and CRC-32 of each entry are known before its
+ * local header is written, no data descriptors are needed, and ZIP64
+ * extra fields and end records are written only when the sizes,
+ * offsets or number of entries require them. The compressed data of
+ * large files is spilled to temporary files rather than held in
+ * memory, and this data, as well as the data of files that are
+ * STORED, is copied to the underlying stream with {@link
+ * FileChannel#transferTo FileChannel.transferTo}, which avoids copying
+ * it through the Java heap when the underlying stream is a {@link
+ * FileOutputStream}.
+ *
+ * <p>At most twice as many entries as the parallelism of the pool are
+ * compressed or awaiting output at any time, so a thread putting an
+ * entry waits for earlier entries to be written when the pool falls
+ * behind.
+ *
+ * @see ZipOutputStream
+ */
+public
+class ParallelZipWriter implements Closeable {
+
+    /*
+     * Whether to use ZIP64 for zip files with more than 64k entries,
+     * as for ZipOutputStream.
+     */
+    private static final boolean inhibitZip64 =
+        Boolean.parseBoolean(
+            java.security.AccessController.doPrivileged(
+                new sun.security.action.GetPropertyAction(
+                    "jdk.util.zip.inhibitZip64", "false")));
+
+    /*
+     * Size of files above which their compressed data is written to a
+     * temporary file rather than kept in memory.
+     */
+    private final static long SPILL_THRESHOLD = 8 * 1024 * 1024;
+
+    /*
+     * Size of the buffers used to read files.
+     */
+    private final static int BUF_SIZE = 64 * 1024;
+
+    /*
+     * An entry and its data, once compressed.
+     */
+    private static class XEntry {
+        final ZipEntry entry;
+        long offset;            // offset of LOC header
+        byte[] buf;             // data, if in memory
+        Path file;              // data, if in a file
+        boolean spilled;        // true if file is a temporary file
+        XEntry(ZipEntry entry) {
+            this.entry = entry;
+        }
+    }
+
+    private final OutputStream out;
+    private final WritableByteChannel ch;
+    private final ForkJoinPool pool;
+    private final ZipCoder zc;
+    private final int maxPending;
+    private final ArrayDeque<ForkJoinTask<XEntry>> pending = new ArrayDeque<>();
+    private final ArrayList<XEntry> xentries = new ArrayList<>();
+    private final HashSet<String> names = new HashSet<>();
+    private byte[] hbuf = new byte[1024];  // headers not yet written
+    private int hcount;
+    private long written = 0;
+    private byte[] comment;
+    private int method = ZipEntry.DEFLATED;
+    private int level = Deflater.DEFAULT_COMPRESSION;
+    private boolean finished = false;
+    private boolean closed = false;
+
+    /**
+     * Creates a new ZIP writer compressing entries in the
+     * {@linkplain ForkJoinPool#commonPool() common pool}.
+     *
+     * <p>The UTF-8 {@link java.nio.charset.Charset charset} is used
+     * to encode the entry names and comments.
+     *
+     * @param out the actual output stream
+     */
+    public ParallelZipWriter(OutputStream out) {
+        this(out, StandardCharsets.UTF_8, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new ZIP writer compressing entries in the given pool.
+     *
+     * @param out the actual output stream
+     * @param charset the {@linkplain java.nio.charset.Charset charset}
+     *                to be used to encode the entry names and comments
+     * @param pool the pool in which entries are compressed
+     * @exception NullPointerException if {@code out}, {@code charset}
+     *            or {@code pool} is null
+     */
+    public ParallelZipWriter(OutputStream out, Charset charset,
+                             ForkJoinPool pool) {
+        if (out == null || pool == null)
+            throw new NullPointerException();
+        if (charset == null)
+            throw new NullPointerException("charset is null");
+        this.out = out;
+        this.ch = (out instanceof FileOutputStream)
+            ? ((FileOutputStream)out).getChannel()
+            : Channels.newChannel(out);
+        this.pool = pool;
+        this.zc = ZipCoder.get(charset);
+        this.maxPending = Math.max(2, pool.getParallelism() << 1);
+    }
+
+    /**
+     * Sets the ZIP file comment.
+     * @param comment the comment string
+     * @exception IllegalArgumentException if the length of the specified
+     *            ZIP file comment is greater than 0xFFFF bytes
+     */
+    public synchronized void setComment(String comment) {
+        if (comment != null) {
+            this.comment = zc.getBytes(comment);
+            if (this.comment.length > 0xffff)
+                throw new IllegalArgumentException("ZIP file comment too long.");
+        }
+    }
+
+    /**
+     * Sets the default compression method for subsequent entries. This
+     * default will be used whenever the compression method is not specified
+     * for an individual ZIP file entry, and is initially set to DEFLATED.
+     * @param method the default compression method
+     * @exception IllegalArgumentException if the specified compression method
+     *            is invalid
+     */
+    public synchronized void setMethod(int method) {
+        if (method != ZipEntry.DEFLATED && method != ZipEntry.STORED) {
+            throw new IllegalArgumentException("invalid compression method");
+        }
+        this.method = method;
+    }
+
+    /**
+     * Sets the compression level for subsequent entries which are DEFLATED.
+     * The default setting is DEFAULT_COMPRESSION.
+     * @param level the compression level (0-9)
+     * @exception IllegalArgumentException if the compression level is invalid
+     */
+    public synchronized void setLevel(int level) {
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION)
+            throw new IllegalArgumentException("invalid compression level");
+        this.level = level;
+    }
+
+    /**
+     * Puts a ZIP file entry with the given data. The data is copied, so
+     * the array may be reused as soon as this method returns.
+     *
+     * <p>The default compression method will be used if no compression
+     * method was specified for the entry, and the current time will be
+     * used if the entry has no set modification time. The size and
+     * CRC-32 of the entry need not be set, even if it is STORED, but
+     * are checked against the data if they are.
+     *
+     * @param e the ZIP entry to be written
+     * @param b the data of the entry
+     * @param off the start offset of the data
+     * @param len the length of the data
+     * @exception ZipException if a ZIP format error has occurred
+     * @exception IOException if an I/O error has occurred
+     */
+    public void putEntry(ZipEntry e, byte[] b, int off, int len)
+        throws IOException
+    {
+        if ((off | len | (off + len) | (b.length - (off + len))) < 0)
+            throw new IndexOutOfBoundsException();
+        final byte[] data = Arrays.copyOfRange(b, off, off + len);
+        synchronized (this) {
+            ensureOpen();
+            if (e.xdostime == -1)
+                e.setTime(System.currentTimeMillis());
+            final XEntry xe = newXEntry(e);
+            final int level = this.level;
+            submit(() -> compress(xe, data, level));
+        }
+    }
+
+    /**
+     * Puts a ZIP file entry with the given data.
+     * @param e the ZIP entry to be written
+     * @param b the data of the entry
+     * @exception ZipException if a ZIP format error has occurred
+     * @exception IOException if an I/O error has occurred
+     * @see #putEntry(ZipEntry, byte[], int, int)
+     */
+    public void putEntry(ZipEntry e, byte[] b) throws IOException {
+        putEntry(e, b, 0, b.length);
+    }
+
+    /**
+     * Puts a ZIP file entry with the contents of the given file as its
+     * data. The file is read by the task compressing the entry, and, if
+     * the entry is STORED, again when it is written, so it must not be
+     * modified until then.
+     *
+     * <p>The default compression method will be used if no compression
+     * method was specified for the entry, and the last modified time of
+     * the file will be used if the entry has no set modification time.
+     * The size and CRC-32 of the entry need not be set, even if it is
+     * STORED; if both are set for a STORED entry, the file is not read
+     * to compute them.
+     *
+     * @param e the ZIP entry to be written
+     * @param file the file whose contents are the data of the entry
+     * @exception ZipException if a ZIP format error has occurred
+     * @exception IOException if an I/O error has occurred
+     */
+    public void putEntry(ZipEntry e, Path file) throws IOException {
+        if (file == null)
+            throw new NullPointerException();
+        synchronized (this) {
+            ensureOpen();
+            if (e.xdostime == -1)
+                e.setTime(Files.getLastModifiedTime(file).toMillis());
+            final XEntry xe = newXEntry(e);
+            final int level = this.level;
+            submit(() -> compress(xe, file, level));
+        }
+    }
+
+    /**
+     * Finishes writing the contents of the ZIP file, waiting for the
+     * entries put so far to be compressed, without closing the
+     * underlying stream.
+     * @exception ZipException if a ZIP file error has occurred
+     * @exception IOException if an I/O exception has occurred
+     */
+    public synchronized void finish() throws IOException {
+        if (closed)
+            throw new IOException("Stream closed");
+        if (finished) {
+            return;
+        }
+        while (!pending.isEmpty())
+            writeEntry();
+        // write central directory
+        long off = written;
+        for (XEntry xentry : xentries) {
+            writeCEN(xentry);
+            if (hcount >= BUF_SIZE)
+                flushHeaders();
+        }
+        writeEND(off, written - off);
+        flushHeaders();
+        finished = true;
+    }
+
+    /**
+     * Finishes writing the ZIP file and closes the underlying stream.
+     * @exception ZipException if a ZIP file error has occurred
+     * @exception IOException if an I/O error has occurred
+     */
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            try {
+                finish();
+            } finally {
+                for (ForkJoinTask<XEntry> t : pending) {
+                    t.cancel(false);
+                    if (t.isDone() && !t.isCompletedAbnormally())
+                        deleteSpill(t.join());
+                }
+                pending.clear();
+                closed = true;
+                try {
+                    ch.close();
+                } finally {
+                    out.close();
+                }
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed)
+            throw new IOException("Stream closed");
+        if (finished)
+            throw new IOException("write beyond end of stream");
+    }
+
+    /*
+     * Checks the name and method of a new entry.
+     */
+    private XEntry newXEntry(ZipEntry e) throws ZipException {
+        if (e.method == -1) {
+            e.method = method;  // use default method
+        }
+        if (e.method != ZipEntry.DEFLATED && e.method != ZipEntry.STORED)
+            throw new ZipException("unsupported compression method");
+        if (! names.add(e.name)) {
+            throw new ZipException("duplicate entry: " + e.name);
+        }
+        e.flag = zc.isUTF8() ? EFS : 0;
+        return new XEntry(e);
+    }
+
+    /*
+     * Submits the compression of an entry, writing the oldest pending
+     * entry first if there are too many.
+     */
+    private void submit(Callable<XEntry> task)
+        throws IOException
+    {
+        while (pending.size() >= maxPending)
+            writeEntry();
+        pending.add(pool.submit(task));
+    }
+
+    /*
+     * Waits for the oldest pending entry and writes its LOC header and
+     * data.
+     */
+    private void writeEntry() throws IOException {
+        ForkJoinTask<XEntry> t = pending.poll();
+        XEntry xe;
+        try {
+            xe = t.join();
+        } catch (RuntimeException | Error ex) {
+            // the task's IOException, possibly wrapped more than once
+            for (Throwable c = ex.getCause(); c != null; c = c.getCause()) {
+                if (c instanceof IOException)
+                    throw (IOException)c;
+            }
+            throw ex;
+        }
+        try {
+            xe.offset = written;
+            writeLOC(xe);
+            flushHeaders();
+            if (xe.buf != null) {
+                ByteBuffer bb = ByteBuffer.wrap(xe.buf);
+                while (bb.hasRemaining())
+                    ch.write(bb);
+                written += xe.buf.length;
+                xe.buf = null;
+            } else {
+                transfer(xe.file, xe.entry.csize);
+            }
+            xentries.add(xe);
+        } finally {
+            deleteSpill(xe);
+        }
+    }
+
+    /*
+     * Copies the first size bytes of a file to the underlying stream.
+     */
+    private void transfer(Path file, long size) throws IOException {
+        try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (fc.size() != size)
+                throw new ZipException("file changed: " + file);
+            long pos = 0;
+            while (pos < size) {
+                long n = fc.transferTo(pos, size - pos, ch);
+                if (n <= 0)
+                    throw new ZipException("file changed: " + file);
+                pos += n;
+            }
+        }
+        written += size;
+    }
+
+    private static void deleteSpill(XEntry xe) throws IOException {
+        if (xe.spilled) {
+            xe.spilled = false;
+            Files.deleteIfExists(xe.file);
+        }
+    }
+
+    /*
+     * Compresses, or for a STORED entry just checks, the data of an
+     * entry held in memory.
+     */
+    private static XEntry compress(XEntry xe, byte[] data, int level)
+        throws ZipException
+    {
+        ZipEntry e = xe.entry;
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        if (e.method == ZipEntry.STORED) {
+            xe.buf = data;
+            setSizes(e, data.length, data.length, crc.getValue());
+            return xe;
+        }
+        Deflater def = ZStreamPool.getDeflater(level, true);
+        try {
+            def.setInput(data, 0, data.length);
+            def.finish();
+            int len = data.length;
+            byte[] buf = new byte[len + (len >>> 3) + 64];
+            int pos = 0;
+            for (;;) {
+                pos += def.deflate(buf, pos, buf.length - pos);
+                if (def.finished())
+                    break;
+                buf = Arrays.copyOf(buf, buf.length << 1);
+            }
+            xe.buf = (pos == buf.length) ? buf : Arrays.copyOf(buf, pos);
+            setSizes(e, def.getBytesRead(), def.getBytesWritten(),
+                     crc.getValue());
+        } finally {
+            ZStreamPool.releaseDeflater(def);
+        }
+        return xe;
+    }
+
+    /*
+     * Compresses, or for a STORED entry just checks, the contents of a
+     * file, spilling the compressed data of large files to a temporary
+     * file.
+     */
+    private static XEntry compress(XEntry xe, Path file, int level)
+        throws IOException
+    {
+        ZipEntry e = xe.entry;
+        if (e.method == ZipEntry.STORED) {
+            xe.file = file;
+            if (e.size != -1 && e.crc != -1) {
+                long size = Files.size(file);
+                setSizes(e, size, size, e.crc);
+                return xe;
+            }
+        }
+        CRC32 crc = new CRC32();
+        byte[] b = new byte[BUF_SIZE];
+        if (e.method == ZipEntry.STORED) {
+            long size = 0;
+            try (InputStream in = Files.newInputStream(file)) {
+                for (int n; (n = in.read(b, 0, b.length)) > 0; ) {
+                    crc.update(b, 0, n);
+                    size += n;
+                }
+            }
+            setSizes(e, size, size, crc.getValue());
+            return xe;
+        }
+        OutputStream dst;
+        ByteArrayOutputStream bout = null;
+        if (Files.size(file) > SPILL_THRESHOLD) {
+            xe.file = Files.createTempFile("zip", ".tmp");
+            xe.spilled = true;
+            dst = new BufferedOutputStream(Files.newOutputStream(xe.file),
+                                           BUF_SIZE);
+        } else {
+            dst = bout = new ByteArrayOutputStream();
+        }
+        Deflater def = ZStreamPool.getDeflater(level, true);
+        boolean ok = false;
+        try {
+            try (InputStream in = Files.newInputStream(file);
+                 DeflaterOutputStream dout =
+                     new DeflaterOutputStream(dst, def, BUF_SIZE)) {
+                for (int n; (n = in.read(b, 0, b.length)) > 0; ) {
+                    crc.update(b, 0, n);
+                    dout.write(b, 0, n);
+                }
+                dout.finish();
+            }
+            setSizes(e, def.getBytesRead(), def.getBytesWritten(),
+                     crc.getValue());
+            if (bout != null)
+                xe.buf = bout.toByteArray();
+            ok = true;
+        } finally {
+            ZStreamPool.releaseDeflater(def);
+            if (!ok)
+                deleteSpill(xe);
+        }
+        return xe;
+    }
+
+    /*
+     * Sets the sizes and CRC-32 of an entry, checking them against any
+     * values already set.
+     */
+    private static void setSizes(ZipEntry e, long size, long csize, long crc)
+        throws ZipException
+    {
+        if (e.size != -1 && e.size != size) {
+            throw new ZipException(
+                "invalid entry size (expected " + e.size +
+                " but got " + size + " bytes)");
+        }
+        if (e.csize != -1 && e.csize != csize) {
+            throw new ZipException(
+                "invalid entry compressed size (expected " +
+                e.csize + " but got " + csize + " bytes)");
+        }
+        if (e.crc != -1 && e.crc != crc) {
+            throw new ZipException(
+                "invalid entry CRC-32 (expected 0x" +
+                Long.toHexString(e.crc) + " but got 0x" +
+                Long.toHexString(crc) + ")");
+        }
+        e.size = size;
+        e.csize = csize;
+        e.crc = crc;
+    }
+
+    private static int version(ZipEntry e) {
+        return (e.method == ZipEntry.DEFLATED) ? 20 : 10;
+    }
+
+    /*
+     * Writes local file (LOC) header for specified entry. The sizes and
+     * crc-32 are always known, so no data descriptor follows the data.
+     */
+    private void writeLOC(XEntry xentry) throws IOException {
+        ZipEntry e = xentry.entry;
+        boolean hasZip64 = false;
+        int elen = getExtraLen(e.extra);
+
+        writeInt(LOCSIG);               // LOC header signature
+        if (e.csize >= ZIP64_MAGICVAL || e.size >= ZIP64_MAGICVAL) {
+            hasZip64 = true;
+            writeShort(45);             // ver 4.5 for zip64
+        } else {
+            writeShort(version(e));     // version needed to extract
+        }
+        writeShort(e.flag);             // general purpose bit flag
+        writeShort(e.method);           // compression method
+        writeInt(e.xdostime);           // last modification time
+        writeInt(e.crc);                // crc-32
+        if (hasZip64) {
+            writeInt(ZIP64_MAGICVAL);
+            writeInt(ZIP64_MAGICVAL);
+            elen += 20;        //headid(2) + size(2) + size(8) + csize(8)
+        } else {
+            writeInt(e.csize);          // compressed size
+            writeInt(e.size);           // uncompressed size
+        }
+        byte[] nameBytes = zc.getBytes(e.name);
+        writeShort(nameBytes.length);
+
+        int elenEXTT = 0;               // info-zip extended timestamp
+        int flagEXTT = 0;
+        if (e.mtime != null) {
+            elenEXTT += 4;
+            flagEXTT |= EXTT_FLAG_LMT;
+        }
+        if (e.atime != null) {
+            elenEXTT += 4;
+            flagEXTT |= EXTT_FLAG_LAT;
+        }
+        if (e.ctime != null) {
+            elenEXTT += 4;
+            flagEXTT |= EXTT_FLAT_CT;
+        }
+        if (flagEXTT != 0)
+            elen += (elenEXTT + 5);    // headid(2) + size(2) + flag(1) + data
+        writeShort(elen);
+        writeBytes(nameBytes, 0, nameBytes.length);
+        if (hasZip64) {
+            writeShort(ZIP64_EXTID);
+            writeShort(16);
+            writeLong(e.size);
+            writeLong(e.csize);
+        }
+        if (flagEXTT != 0) {
+            writeShort(EXTID_EXTT);
+            writeShort(elenEXTT + 1);      // flag + data
+            writeByte(flagEXTT);
+            if (e.mtime != null)
+                writeInt(fileTimeToUnixTime(e.mtime));
+            if (e.atime != null)
+                writeInt(fileTimeToUnixTime(e.atime));
+            if (e.ctime != null)
+                writeInt(fileTimeToUnixTime(e.ctime));
+        }
+        writeExtra(e.extra);
+    }
+
+    /*
+     * Write central directory (CEN) header for specified entry.
+     */
+    private void writeCEN(XEntry xentry) throws IOException {
+        ZipEntry e  = xentry.entry;
+        int version = version(e);
+        long csize = e.csize;
+        long size = e.size;
+        long offset = xentry.offset;
+        int elenZIP64 = 0;
+        boolean hasZip64 = false;
+
+        if (e.csize >= ZIP64_MAGICVAL) {
+            csize = ZIP64_MAGICVAL;
+            elenZIP64 += 8;              // csize(8)
+            hasZip64 = true;
+        }
+        if (e.size >= ZIP64_MAGICVAL) {
+            size = ZIP64_MAGICVAL;    // size(8)
+            elenZIP64 += 8;
+            hasZip64 = true;
+        }
+        if (xentry.offset >= ZIP64_MAGICVAL) {
+            offset = ZIP64_MAGICVAL;
+            elenZIP64 += 8;              // offset(8)
+            hasZip64 = true;
+        }
+        writeInt(CENSIG);           // CEN header signature
+        if (hasZip64) {
+            writeShort(45);         // ver 4.5 for zip64
+            writeShort(45);
+        } else {
+            writeShort(version);    // version made by
+            writeShort(version);    // version needed to extract
+        }
+        writeShort(e.flag);         // general purpose bit flag
+        writeShort(e.method);       // compression method
+        writeInt(e.xdostime);       // last modification time
+        writeInt(e.crc);            // crc-32
+        writeInt(csize);            // compressed size
+        writeInt(size);             // uncompressed size
+        byte[] nameBytes = zc.getBytes(e.name);
+        writeShort(nameBytes.length);
+
+        int elen = getExtraLen(e.extra);
+        if (hasZip64) {
+            elen += (elenZIP64 + 4);// + headid(2) + datasize(2)
+        }
+        // cen info-zip extended timestamp only outputs mtime
+        // but set the flag for a/ctime, if present in loc
+        int flagEXTT = 0;
+        if (e.mtime != null) {
+            elen += 4;              // + mtime(4)
+            flagEXTT |= EXTT_FLAG_LMT;
+        }
+        if (e.atime != null) {
+            flagEXTT |= EXTT_FLAG_LAT;
+        }
+        if (e.ctime != null) {
+            flagEXTT |= EXTT_FLAT_CT;
+        }
+        if (flagEXTT != 0) {
+            elen += 5;             // headid + sz + flag
+        }
+        writeShort(elen);
+        byte[] commentBytes;
+        if (e.comment != null) {
+            commentBytes = zc.getBytes(e.comment);
+            writeShort(Math.min(commentBytes.length, 0xffff));
+        } else {
+            commentBytes = null;
+            writeShort(0);
+        }
+        writeShort(0);              // starting disk number
+        writeShort(0);              // internal file attributes (unused)
+        writeInt(0);                // external file attributes (unused)
+        writeInt(offset);           // relative offset of local header
+        writeBytes(nameBytes, 0, nameBytes.length);
+
+        // take care of EXTID_ZIP64 and EXTID_EXTT
+        if (hasZip64) {
+            writeShort(ZIP64_EXTID);// Zip64 extra
+            writeShort(elenZIP64);
+            if (size == ZIP64_MAGICVAL)
+                writeLong(e.size);
+            if (csize == ZIP64_MAGICVAL)
+                writeLong(e.csize);
+            if (offset == ZIP64_MAGICVAL)
+                writeLong(xentry.offset);
+        }
+        if (flagEXTT != 0) {
+            writeShort(EXTID_EXTT);
+            if (e.mtime != null) {
+                writeShort(5);      // flag + mtime
+                writeByte(flagEXTT);
+                writeInt(fileTimeToUnixTime(e.mtime));
+            } else {
+                writeShort(1);      // flag only
+                writeByte(flagEXTT);
+            }
+        }
+        writeExtra(e.extra);
+        if (commentBytes != null) {
+            writeBytes(commentBytes, 0, Math.min(commentBytes.length, 0xffff));
+        }
+    }
+
+    /*
+     * Writes end of central directory (END) header.
+     */
+    private void writeEND(long off, long len) throws IOException {
+        boolean hasZip64 = false;
+        long xlen = len;
+        long xoff = off;
+        if (xlen >= ZIP64_MAGICVAL) {
+            xlen = ZIP64_MAGICVAL;
+            hasZip64 = true;
+        }
+        if (xoff >= ZIP64_MAGICVAL) {
+            xoff = ZIP64_MAGICVAL;
+            hasZip64 = true;
+        }
+        int count = xentries.size();
+        if (count >= ZIP64_MAGICCOUNT) {
+            hasZip64 |= !inhibitZip64;
+            if (hasZip64) {
+                count = ZIP64_MAGICCOUNT;
+            }
+        }
+        if (hasZip64) {
+            long off64 = written;
+            //zip64 end of central directory record
+            writeInt(ZIP64_ENDSIG);        // zip64 END record signature
+            writeLong(ZIP64_ENDHDR - 12);  // size of zip64 end
+            writeShort(45);                // version made by
+            writeShort(45);                // version needed to extract
+            writeInt(0);                   // number of this disk
+            writeInt(0);                   // central directory start disk
+            writeLong(xentries.size());    // number of directory entires on disk
+            writeLong(xentries.size());    // number of directory entires
+            writeLong(len);                // length of central directory
+            writeLong(off);                // offset of central directory
+
+            //zip64 end of central directory locator
+            writeInt(ZIP64_LOCSIG);        // zip64 END locator signature
+            writeInt(0);                   // zip64 END start disk
+            writeLong(off64);              // offset of zip64 END
+            writeInt(1);                   // total number of disks (?)
+        }
+        writeInt(ENDSIG);                 // END record signature
+        writeShort(0);                    // number of this disk
+        writeShort(0);                    // central directory start disk
+        writeShort(count);                // number of directory entries on disk
+        writeShort(count);                // total number of directory entries
+        writeInt(xlen);                   // length of central directory
+        writeInt(xoff);                   // offset of central directory
+        if (comment != null) {            // zip file comment
+            writeShort(comment.length);
+            writeBytes(comment, 0, comment.length);
+        } else {
+            writeShort(0);
+        }
+    }
+
+    /*
+     * Returns the length of extra data without EXTT and ZIP64.
+     */
+    private static int getExtraLen(byte[] extra) {
+        if (extra == null)
+            return 0;
+        int skipped = 0;
+        int len = extra.length;
+        int off = 0;
+        while (off + 4 <= len) {
+            int tag = get16(extra, off);
+            int sz = get16(extra, off + 2);
+            if (sz < 0 || (off + 4 + sz) > len) {
+                break;
+            }
+            if (tag == EXTID_EXTT || tag == EXTID_ZIP64) {
+                skipped += (sz + 4);
+            }
+            off += (sz + 4);
+        }
+        return len - skipped;
+    }
+
+    /*
+     * Writes extra data without EXTT and ZIP64.
+     */
+    private void writeExtra(byte[] extra) throws IOException {
+        if (extra != null) {
+            int len = extra.length;
+            int off = 0;
+            while (off + 4 <= len) {
+                int tag = get16(extra, off);
+                int sz = get16(extra, off + 2);
+                if (sz < 0 || (off + 4 + sz) > len) {
+                    writeBytes(extra, off, len - off);
+                    return;
+                }
+                if (tag != EXTID_EXTT && tag != EXTID_ZIP64) {
+                    writeBytes(extra, off, sz + 4);
+                }
+                off += (sz + 4);
+            }
+            if (off < len) {
+                writeBytes(extra, off, len - off);
+            }
+        }
+    }
+
+    /*
+     * Writes the buffered headers to the underlying stream.
+     */
+    private void flushHeaders() throws IOException {
+        ByteBuffer bb = ByteBuffer.wrap(hbuf, 0, hcount);
+        while (bb.hasRemaining())
+            ch.write(bb);
+        hcount = 0;
+    }
+
+    /*
+     * Appends bytes to the header buffer, growing it as needed.
+     */
+    private void writeBytes(byte[] b, int off, int len) {
+        if (hcount + len > hbuf.length)
+            hbuf = Arrays.copyOf(hbuf, Math.max(hbuf.length << 1, hcount + len));
+        System.arraycopy(b, off, hbuf, hcount, len);
+        hcount += len;
+        written += len;
+    }
+
+    /*
+     * Writes a 8-bit byte to the header buffer.
+     */
+    private void writeByte(int v) {
+        writeLE(v, 1);
+    }
+
+    /*
+     * Writes a 16-bit short to the header buffer in little-endian byte order.
+     */
+    private void writeShort(int v) {
+        writeLE(v, 2);
+    }
+
+    /*
+     * Writes a 32-bit int to the header buffer in little-endian byte order.
+     */
+    private void writeInt(long v) {
+        writeLE(v, 4);
+    }
+
+    /*
+     * Writes a 64-bit int to the header buffer in little-endian byte order.
+     */
+    private void writeLong(long v) {
+        writeLE(v, 8);
+    }
+
+    private void writeLE(long v, int n) {
+        if (hcount + n > hbuf.length)
+            hbuf = Arrays.copyOf(hbuf, hbuf.length << 1);
+        for (int i = 0; i < n; i++)
+            hbuf[hcount++] = (byte)(v >>> (i << 3));
+        written += n;
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.zip;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of {@link Inflater} and {@link Deflater} objects,
+ * each of which holds a native zlib stream, and counts of the zlib
+ * streams in use.
+ *
+ * <p>Streams that create their own decompressor or compressor, such
+ * as {@link GZIPInputStream}, {@link InflaterInputStream} constructed
+ * without an inflater, {@link GZIPOutputStream} and {@link
+ * DeflaterOutputStream} constructed without a deflater, as well as
+ * {@link ZipFile}, obtain it from this pool and return it when closed,
+ * so that its native memory is reused rather than freed and allocated
+ * again for each stream, and is not left for finalization.
+ *
+ * <p>Released objects are left as if {@linkplain Inflater#end ended},
+ * so that a stream still holding one after it is closed cannot affect
+ * another stream; the native zlib stream is reset and pooled in a new
+ * object. Deflaters are pooled separately for each compression level,
+ * and those whose level or strategy have been changed since they were
+ * last used are ended.
+ *
+ * <p>Pooled objects are held in a small number of slots for each
+ * kind, in proportion to the number of available processors. Each
+ * thread looks for and returns objects first at a slot chosen by its
+ * identity, so that a thread usually reuses the objects it returned.
+ * Objects returned when all nearby slots are full are ended.
+ *
+ * <p>The counts are available through {@link
+ * java.lang.management.ZStreamPoolMXBean}.
+ *
+ * @since 1.8
+ */
+public final class ZStreamPool {
+
+    private ZStreamPool() {}
+
+    /*
+     * Number of slots examined when getting or returning an object.
+     */
+    private static final int PROBES = 4;
+
+    private static final int MASK;
+
+    static {
+        int n = Runtime.getRuntime().availableProcessors();
+        MASK = (Integer.highestOneBit(Math.min(Math.max(n, 1), 64)) << 2) - 1;
+    }
+
+    /*
+     * Number of kinds of deflaters: one for each compression level,
+     * from DEFAULT_COMPRESSION to 9, without and with nowrap.
+     */
+    private static final int DEFLATER_KINDS = 22;
+
+    // slots for inflaters, without and with nowrap
+    private static final AtomicReferenceArray<Inflater> inflaters =
+        new AtomicReferenceArray<>(MASK + 1);
+    private static final AtomicReferenceArray<Inflater> rawInflaters =
+        new AtomicReferenceArray<>(MASK + 1);
+    // slots for deflaters, MASK + 1 for each kind
+    private static final AtomicReferenceArray<Deflater> deflaters =
+        new AtomicReferenceArray<>((MASK + 1) * DEFLATER_KINDS);
+
+    private static final LongAdder liveInflaters = new LongAdder();
+    private static final LongAdder liveDeflaters = new LongAdder();
+    private static final LongAdder inflaterHits = new LongAdder();
+    private static final LongAdder inflaterMisses = new LongAdder();
+    private static final LongAdder deflaterHits = new LongAdder();
+    private static final LongAdder deflaterMisses = new LongAdder();
+
+    /**
+     * Returns an inflater from the pool, or a new inflater if none
+     * is available.
+     *
+     * @param nowrap if true then support GZIP compatible compression
+     * @return an inflater in its initial state
+     * @see Inflater#Inflater(boolean)
+     */
+    public static Inflater getInflater(boolean nowrap) {
+        Inflater inf = poll(nowrap ? rawInflaters : inflaters, 0);
+        if (inf != null) {
+            inflaterHits.increment();
+            return inf;
+        }
+        inflaterMisses.increment();
+        return new Inflater(nowrap);
+    }
+
+    /**
+     * Returns the native stream of the given inflater to the pool, or
+     * ends it if the pool is full. The inflater is left as if ended.
+     * Inflaters that have been ended are ignored.
+     *
+     * @param inf the inflater
+     */
+    public static void releaseInflater(Inflater inf) {
+        Inflater x = inf.detach();
+        if (x != null && !offer(x.nowrap ? rawInflaters : inflaters, 0, x))
+            x.end();
+    }
+
+    /**
+     * Returns a deflater with the given compression level from the
+     * pool, or a new deflater if none is available.
+     *
+     * @param level the compression level (0-9)
+     * @param nowrap if true then use GZIP compatible compression
+     * @return a deflater in its initial state, with the default
+     *         compression strategy
+     * @throws IllegalArgumentException if the compression level is invalid
+     * @see Deflater#Deflater(int, boolean)
+     */
+    public static Deflater getDeflater(int level, boolean nowrap) {
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION)
+            throw new IllegalArgumentException("invalid compression level");
+        Deflater def = poll(deflaters, base(level, nowrap));
+        if (def != null) {
+            deflaterHits.increment();
+            return def;
+        }
+        deflaterMisses.increment();
+        return new Deflater(level, nowrap);
+    }
+
+    /**
+     * Returns the native stream of the given deflater to the pool, or
+     * ends it if the pool is full or the deflater's strategy or level
+     * have been changed since it was last used. The deflater is left
+     * as if ended. Deflaters that have been ended are ignored.
+     *
+     * @param def the deflater
+     */
+    public static void releaseDeflater(Deflater def) {
+        Deflater x = def.detach();
+        if (x != null &&
+            !offer(deflaters, base(x.level(), x.nowrap), x))
+            x.end();
+    }
+
+    /**
+     * Returns the number of inflaters whose native zlib stream has
+     * been created and not yet ended, whether pooled or in use.
+     *
+     * @return the number of live inflaters
+     */
+    public static long getLiveInflaterCount() {
+        return liveInflaters.sum();
+    }
+
+    /**
+     * Returns the number of deflaters whose native zlib stream has
+     * been created and not yet ended, whether pooled or in use.
+     *
+     * @return the number of live deflaters
+     */
+    public static long getLiveDeflaterCount() {
+        return liveDeflaters.sum();
+    }
+
+    /**
+     * Returns the number of inflaters held in the pool.
+     *
+     * @return the number of pooled inflaters
+     */
+    public static int getPooledInflaterCount() {
+        return count(inflaters) + count(rawInflaters);
+    }
+
+    /**
+     * Returns the number of deflaters held in the pool.
+     *
+     * @return the number of pooled deflaters
+     */
+    public static int getPooledDeflaterCount() {
+        return count(deflaters);
+    }
+
+    /**
+     * Returns the number of inflaters obtained from the pool.
+     *
+     * @return the number of inflater requests satisfied by the pool
+     */
+    public static long getInflaterHitCount() {
+        return inflaterHits.sum();
+    }
+
+    /**
+     * Returns the number of inflaters created because the pool held
+     * none.
+     *
+     * @return the number of inflater requests not satisfied by the pool
+     */
+    public static long getInflaterMissCount() {
+        return inflaterMisses.sum();
+    }
+
+    /**
+     * Returns the number of deflaters obtained from the pool.
+     *
+     * @return the number of deflater requests satisfied by the pool
+     */
+    public static long getDeflaterHitCount() {
+        return deflaterHits.sum();
+    }
+
+    /**
+     * Returns the number of deflaters created because the pool held
+     * none.
+     *
+     * @return the number of deflater requests not satisfied by the pool
+     */
+    public static long getDeflaterMissCount() {
+        return deflaterMisses.sum();
+    }
+
+    /*
+     * Records the creation and ending of native zlib streams.
+     */
+    static void inflaterCreated() { liveInflaters.increment(); }
+    static void inflaterEnded()   { liveInflaters.decrement(); }
+    static void deflaterCreated() { liveDeflaters.increment(); }
+    static void deflaterEnded()   { liveDeflaters.decrement(); }
+
+    /*
+     * Returns the first slot examined by the current thread.
+     */
+    private static int home() {
+        long id = Thread.currentThread().getId();
+        return (int)(id * 0x9E3779B97F4A7C15L >>> 32) & MASK;
+    }
+
+    /*
+     * Returns the index of the first slot for deflaters of the given
+     * level and nowrap.
+     */
+    private static int base(int level, boolean nowrap) {
+        return (((level + 1) << 1) | (nowrap ? 1 : 0)) * (MASK + 1);
+    }
+
+    private static <T> T poll(AtomicReferenceArray<T> slots, int base) {
+        for (int i = home(), k = 0; k < PROBES; ++k, i = (i + 1) & MASK) {
+            T x = slots.get(base + i);
+            if (x != null && slots.compareAndSet(base + i, x, null))
+                return x;
+        }
+        return null;
+    }
+
+    private static <T> boolean offer(AtomicReferenceArray<T> slots,
+                                     int base, T x) {
+        for (int i = home(), k = 0; k < PROBES; ++k, i = (i + 1) & MASK) {
+            if (slots.get(base + i) == null &&
+                slots.compareAndSet(base + i, null, x))
+                return true;
+        }
+        return false;
+    }
+
+    private static int count(AtomicReferenceArray<?> slots) {
+        int n = 0;
+        for (int i = 0; i < slots.length(); ++i) {
+            if (slots.get(i) != null)
+                ++n;
+        }
+        return n;
+    }
+}
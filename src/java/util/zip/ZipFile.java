@@ -30,13 +30,14 @@ import java.io.InputStream;
 import java.io.IOException;
 import java.io.EOFException;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Spliterator;
@@ -63,6 +64,8 @@ class ZipFile implements ZipConstants, Closeable {
     private final int total;       // total number of entries
     private final boolean locsig;  // if zip file starts with LOCSIG (usually true)
     private volatile boolean closeRequested = false;
+    private ZipIndex index;        // mapped central directory, or null
+                                   // if read through jzfile
 
     private static final int STORED = ZipEntry.STORED;
     private static final int DEFLATED = ZipEntry.DEFLATED;
@@ -92,6 +95,8 @@ class ZipFile implements ZipConstants, Closeable {
 
     private static final boolean ensuretrailingslash;
 
+    private static final boolean usemappedindex;
+
     static {
         // A system prpperty to disable mmap use to avoid vm crash when
         // in-use zip file is accidently overwritten by others.
@@ -102,6 +107,12 @@ class ZipFile implements ZipConstants, Closeable {
         // see getEntry() for details
         prop = sun.misc.VM.getSavedProperty("jdk.util.zip.ensureTrailingSlash");
         ensuretrailingslash = prop == null || !prop.equalsIgnoreCase("false");
+
+        // Entries are looked up, listed and read through a mapped
+        // index of the central directory, rather than through the
+        // native zip library, if jdk.util.zip.mappedIndex=true
+        prop = sun.misc.VM.getSavedProperty("jdk.util.zip.mappedIndex");
+        usemappedindex = usemmap && prop != null && prop.equalsIgnoreCase("true");
     }
 
     /**
@@ -222,12 +233,26 @@ class ZipFile implements ZipConstants, Closeable {
             throw new NullPointerException("charset is null");
         this.zc = ZipCoder.get(charset);
         long t0 = System.nanoTime();
-        jzfile = open(name, mode, file.lastModified(), usemmap);
+        if (usemappedindex && (mode & OPEN_DELETE) == 0) {
+            // the native zip file is not opened if the index can be
+            // built; otherwise it reports the error, if any
+            try {
+                index = ZipIndex.open(file);
+            } catch (IOException x) {
+            }
+        }
+        if (index == null)
+            jzfile = open(name, mode, file.lastModified(), usemmap);
         sun.misc.PerfCounter.getZipFileOpenTime().addElapsedTimeFrom(t0);
         sun.misc.PerfCounter.getZipFileCount().increment();
         this.name = name;
-        this.total = getTotal(jzfile);
-        this.locsig = startsWithLOC(jzfile);
+        if (index != null) {
+            this.total = index.total();
+            this.locsig = index.startsWithLOC();
+        } else {
+            this.total = getTotal(jzfile);
+            this.locsig = startsWithLOC(jzfile);
+        }
     }
 
     /**
@@ -291,7 +316,8 @@ class ZipFile implements ZipConstants, Closeable {
     public String getComment() {
         synchronized (this) {
             ensureOpen();
-            byte[] bcomm = getCommentBytes(jzfile);
+            byte[] bcomm = (index != null) ? index.getCommentBytes()
+                                           : getCommentBytes(jzfile);
             if (bcomm == null)
                 return null;
             return zc.toString(bcomm, bcomm.length);
@@ -313,6 +339,13 @@ class ZipFile implements ZipConstants, Closeable {
         long jzentry = 0;
         synchronized (this) {
             ensureOpen();
+            if (index != null) {
+                int pos = index.getEntryPos(zc.getBytes(name), true);
+                if (pos < 0)
+                    return null;
+                return ensuretrailingslash ? getZipEntry(null, pos)
+                                           : getZipEntry(name, pos);
+            }
             jzentry = getEntry(jzfile, zc.getBytes(name), true);
             if (jzentry != 0) {
                 // If no entry is found for the specified 'name' and
@@ -361,20 +394,36 @@ class ZipFile implements ZipConstants, Closeable {
             throw new NullPointerException("entry");
         }
         long jzentry = 0;
-        ZipFileInputStream in = null;
+        InputStream in = null;
         synchronized (this) {
             ensureOpen();
+            byte[] bname;
             if (!zc.isUTF8() && (entry.flag & EFS) != 0) {
-                jzentry = getEntry(jzfile, zc.getBytesUTF8(entry.name), false);
+                bname = zc.getBytesUTF8(entry.name);
             } else {
-                jzentry = getEntry(jzfile, zc.getBytes(entry.name), false);
+                bname = zc.getBytes(entry.name);
             }
-            if (jzentry == 0) {
-                return null;
+            long entrySize;
+            int method;
+            if (index != null) {
+                int pos = index.getEntryPos(bname, false);
+                if (pos < 0) {
+                    return null;
+                }
+                in = new ZipFileMappedInputStream(index.getData(pos));
+                entrySize = index.getSize(pos);
+                method = index.getMethod(pos);
+            } else {
+                jzentry = getEntry(jzfile, bname, false);
+                if (jzentry == 0) {
+                    return null;
+                }
+                in = new ZipFileInputStream(jzentry);
+                entrySize = getEntrySize(jzentry);
+                method = getEntryMethod(jzentry);
             }
-            in = new ZipFileInputStream(jzentry);
 
-            switch (getEntryMethod(jzentry)) {
+            switch (method) {
             case STORED:
                 synchronized (streams) {
                     streams.put(in, null);
@@ -382,12 +431,12 @@ class ZipFile implements ZipConstants, Closeable {
                 return in;
             case DEFLATED:
                 // MORE: Compute good size for inflater stream:
-                long size = getEntrySize(jzentry) + 2; // Inflater likes a bit of slack
+                long size = entrySize + 2; // Inflater likes a bit of slack
                 if (size > 65536) size = 8192;
                 if (size <= 0) size = 4096;
                 Inflater inf = getInflater();
                 InputStream is =
-                    new ZipFileInflaterInputStream(in, inf, (int)size);
+                    new ZipFileInflaterInputStream(in, entrySize, inf, (int)size);
                 synchronized (streams) {
                     streams.put(is, inf);
                 }
@@ -401,12 +450,12 @@ class ZipFile implements ZipConstants, Closeable {
     private class ZipFileInflaterInputStream extends InflaterInputStream {
         private volatile boolean closeRequested = false;
         private boolean eof = false;
-        private final ZipFileInputStream zfin;
+        private final long entrySize;
 
-        ZipFileInflaterInputStream(ZipFileInputStream zfin, Inflater inf,
-                int size) {
+        ZipFileInflaterInputStream(InputStream zfin, long entrySize,
+                Inflater inf, int size) {
             super(zfin, inf, size);
-            this.zfin = zfin;
+            this.entrySize = entrySize;
         }
 
         public void close() throws IOException {
@@ -443,7 +492,7 @@ class ZipFile implements ZipConstants, Closeable {
         public int available() throws IOException {
             if (closeRequested)
                 return 0;
-            long avail = zfin.size() - inf.getBytesWritten();
+            long avail = entrySize - inf.getBytesWritten();
             return (avail > (long) Integer.MAX_VALUE ?
                     Integer.MAX_VALUE : (int) avail);
         }
@@ -454,36 +503,20 @@ class ZipFile implements ZipConstants, Closeable {
     }
 
     /*
-     * Gets an inflater from the list of available inflaters or allocates
+     * Gets an inflater from the shared pool of inflaters or allocates
      * a new one.
      */
     private Inflater getInflater() {
-        Inflater inf;
-        synchronized (inflaterCache) {
-            while (null != (inf = inflaterCache.poll())) {
-                if (false == inf.ended()) {
-                    return inf;
-                }
-            }
-        }
-        return new Inflater(true);
+        return ZStreamPool.getInflater(true);
     }
 
     /*
-     * Releases the specified inflater to the list of available inflaters.
+     * Releases the specified inflater to the shared pool of inflaters.
      */
     private void releaseInflater(Inflater inf) {
-        if (false == inf.ended()) {
-            inf.reset();
-            synchronized (inflaterCache) {
-                inflaterCache.add(inf);
-            }
-        }
+        ZStreamPool.releaseInflater(inf);
     }
 
-    // List of available Inflater objects for decompression
-    private Deque<Inflater> inflaterCache = new ArrayDeque<>();
-
     /**
      * Returns the path name of the ZIP file.
      * @return the path name of the ZIP file
@@ -520,6 +553,9 @@ class ZipFile implements ZipConstants, Closeable {
                 if (i >= total) {
                     throw new NoSuchElementException();
                 }
+                if (index != null) {
+                    return getZipEntry(null, index.entryPos(i++));
+                }
                 long jzentry = getNextEntry(jzfile, i++);
                 if (jzentry == 0) {
                     String message;
@@ -602,6 +638,39 @@ class ZipFile implements ZipConstants, Closeable {
         return e;
     }
 
+    private ZipEntry getZipEntry(String name, int pos) {
+        ZipIndex zi = index;
+        ZipEntry e = new ZipEntry();
+        e.flag = zi.getFlag(pos);  // get the flag first
+        e.name = (name != null) ? name : getEntryName(pos);
+        e.xdostime = zi.getTime(pos);
+        e.crc = zi.getCrc(pos);
+        e.size = zi.getSize(pos);
+        e.csize = zi.getCSize(pos);
+        e.method = zi.getMethod(pos);
+        e.setExtra0(zi.getExtra(pos), false);
+        byte[] bcomm = zi.getComment(pos);
+        if (bcomm == null) {
+            e.comment = null;
+        } else {
+            if (!zc.isUTF8() && (e.flag & EFS) != 0) {
+                e.comment = zc.toStringUTF8(bcomm, bcomm.length);
+            } else {
+                e.comment = zc.toString(bcomm, bcomm.length);
+            }
+        }
+        return e;
+    }
+
+    private String getEntryName(int pos) {
+        byte[] bname = index.getName(pos);
+        if (!zc.isUTF8() && (index.getFlag(pos) & EFS) != 0) {
+            return zc.toStringUTF8(bname, bname.length);
+        } else {
+            return zc.toString(bname, bname.length);
+        }
+    }
+
     private static native long getNextEntry(long jzfile, int i);
 
     /**
@@ -643,12 +712,9 @@ class ZipFile implements ZipConstants, Closeable {
                 }
             }
 
-            // Release cached inflaters
-            Inflater inf;
-            synchronized (inflaterCache) {
-                while (null != (inf = inflaterCache.poll())) {
-                    inf.end();
-                }
+            if (index != null) {
+                // Unmap the index; streams check closeRequested
+                index.close();
             }
 
             if (jzfile != 0) {
@@ -686,7 +752,7 @@ class ZipFile implements ZipConstants, Closeable {
             throw new IllegalStateException("zip file closed");
         }
 
-        if (jzfile == 0) {
+        if (jzfile == 0 && index == null) {
             throw new IllegalStateException("The object is not initialized.");
         }
     }
@@ -794,12 +860,84 @@ class ZipFile implements ZipConstants, Closeable {
         }
     }
 
+    /*
+     * Inner class implementing the input stream used to read the
+     * (possibly compressed) data of a zip file entry directly from
+     * the mapped zip file.
+     */
+    private class ZipFileMappedInputStream extends InputStream {
+        private final ByteBuffer data; // entry data, sharing the mapping
+
+        ZipFileMappedInputStream(ByteBuffer data) {
+            this.data = data;
+        }
+
+        public int read(byte b[], int off, int len) throws IOException {
+            synchronized (ZipFile.this) {
+                int rem = data.remaining();
+                if (rem == 0) {
+                    return -1;
+                }
+                if (len <= 0) {
+                    return 0;
+                }
+                if (len > rem) {
+                    len = rem;
+                }
+
+                // Check if ZipFile open
+                ensureOpenOrZipException();
+                data.get(b, off, len);
+            }
+            return len;
+        }
+
+        public int read() throws IOException {
+            synchronized (ZipFile.this) {
+                if (!data.hasRemaining()) {
+                    return -1;
+                }
+                ensureOpenOrZipException();
+                return data.get() & 0xff;
+            }
+        }
+
+        public long skip(long n) {
+            synchronized (ZipFile.this) {
+                int rem = data.remaining();
+                if (n > rem)
+                    n = rem;
+                if (n > 0)
+                    data.position(data.position() + (int)n);
+                return Math.max(n, 0);
+            }
+        }
+
+        public int available() {
+            synchronized (ZipFile.this) {
+                return data.remaining();
+            }
+        }
+
+        public void close() {
+            synchronized (ZipFile.this) {
+                data.position(data.limit());
+            }
+            synchronized (streams) {
+                streams.remove(this);
+            }
+        }
+    }
+
     static {
         sun.misc.SharedSecrets.setJavaUtilZipFileAccess(
             new sun.misc.JavaUtilZipFileAccess() {
                 public boolean startsWithLocHeader(ZipFile zip) {
                     return zip.startsWithLocHeader();
                 }
+                public String[] getMetaInfEntryNames(ZipFile zip) {
+                    return zip.getMetaInfEntryNames();
+                }
              }
         );
     }
@@ -812,6 +950,24 @@ class ZipFile implements ZipConstants, Closeable {
         return locsig;
     }
 
+    /*
+     * Returns the names of the entries whose names begin with "META-INF/",
+     * ignoring case, or null if the entries are not indexed, in which case
+     * JarFile gets them from the native zip file.
+     */
+    private synchronized String[] getMetaInfEntryNames() {
+        if (index == null)
+            return null;
+        ensureOpen();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            int pos = index.entryPos(i);
+            if (index.isMetaName(pos))
+                names.add(getEntryName(pos));
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
     private static native long open(String name, int mode, long lastModified,
                                     boolean usemmap) throws IOException;
     private static native int getTotal(long jzfile);
@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.zip;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import static java.util.zip.ZipConstants.*;
+import static java.util.zip.ZipConstants64.*;
+
+/**
+ * An index of the central directory of a memory-mapped zip file.
+ * Entries are identified by the position of their central directory
+ * header in the mapping, and found by name through an open-addressed
+ * hash table of these positions, so that no name is decoded to a
+ * String until an entry is returned. Entry data is read directly
+ * from the mapping. Files larger than 2GB are not indexed. A ZipFile
+ * that has an index does not open the file through the native zip
+ * library.
+ */
+final class ZipIndex {
+    private MappedByteBuffer map;  // the whole file, unmapped by close
+    private final ByteBuffer buf;  // little-endian view of map
+    private final long locpos;     // position of first LOC header
+    private final int endpos;      // position of END header
+    private final int total;       // number of entries
+    private final int[] entries;   // position of each CEN header
+    private final int[] hashes;    // hash of the name of each entry
+    private final int[] table;     // entry index + 1, or 0 if empty
+
+    private ZipIndex(MappedByteBuffer map) throws IOException {
+        this.map = map;
+        this.buf = map.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int end = findEND();
+        long cenlen = get32(end + ENDSIZ);
+        long cenoff = get32(end + ENDOFF);
+        long tot = get16(end + ENDTOT);
+        int cenend = end;
+        if (cenlen == ZIP64_MAGICVAL || cenoff == ZIP64_MAGICVAL ||
+            tot == ZIP64_MAGICCOUNT) {
+            int loc64 = end - ZIP64_LOCHDR;
+            if (loc64 >= 0 && get32(loc64) == ZIP64_LOCSIG) {
+                long end64 = get64(loc64 + ZIP64_LOCOFF);
+                if (end64 < 0 || end64 > loc64 - ZIP64_ENDHDR ||
+                    get32((int)end64) != ZIP64_ENDSIG)
+                    throw new ZipException("invalid zip64 END header");
+                cenlen = get64((int)end64 + ZIP64_ENDSIZ);
+                cenoff = get64((int)end64 + ZIP64_ENDOFF);
+                tot = get64((int)end64 + ZIP64_ENDTOT);
+                cenend = (int)end64;
+            }
+        }
+        if (cenlen < 0 || cenlen > cenend)
+            throw new ZipException("invalid END header (bad central directory size)");
+        int cenpos = (int)(cenend - cenlen);
+        this.locpos = cenpos - cenoff;
+        if (locpos < 0 || cenoff < 0)
+            throw new ZipException("invalid END header (bad central directory offset)");
+        if (tot < 0 || tot > cenlen / CENHDR)
+            throw new ZipException("invalid END header (bad entry count)");
+        this.endpos = end;
+        this.total = (int)tot;
+        this.entries = new int[total];
+        this.hashes = new int[total];
+        int cap = Integer.highestOneBit(Math.max(total, 1)) << 2;
+        this.table = new int[cap];
+        int mask = cap - 1;
+        int pos = cenpos;
+        for (int i = 0; i < total; ++i) {
+            if (pos + CENHDR > cenend || get32(pos) != CENSIG)
+                throw new ZipException("invalid CEN header (bad signature)");
+            int nlen = get16(pos + CENNAM);
+            int next = pos + CENHDR + nlen + get16(pos + CENEXT) +
+                get16(pos + CENCOM);
+            if (next > cenend)
+                throw new ZipException("invalid CEN header (bad header size)");
+            int h = hash(0, pos + CENHDR, nlen);
+            entries[i] = pos;
+            hashes[i] = h;
+            // a later entry of the same name replaces the earlier one,
+            // as in the native zip library
+            int j = h & mask, k;
+            while ((k = table[j]) != 0 &&
+                   (hashes[k - 1] != h || !nameEquals(entries[k - 1], pos)))
+                j = (j + 1) & mask;
+            table[j] = i + 1;
+            pos = next;
+        }
+    }
+
+    /**
+     * Maps and indexes the given file, returning null if it is too
+     * large to be mapped as a single buffer.
+     */
+    static ZipIndex open(File file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file.toPath(),
+                                               StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE)
+                return null;
+            if (size < ENDHDR)
+                throw new ZipException("zip file is empty");
+            return new ZipIndex(ch.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Returns the position of the END header, searching backwards
+     * over the longest possible zip file comment.
+     */
+    private int findEND() throws ZipException {
+        int limit = buf.capacity() - ENDHDR;
+        int min = Math.max(0, limit - 0xFFFF);
+        for (int pos = limit; pos >= min; --pos) {
+            if (buf.get(pos) == (byte)'P' && get32(pos) == ENDSIG &&
+                pos + ENDHDR + get16(pos + ENDCOM) <= buf.capacity())
+                return pos;
+        }
+        throw new ZipException("zip END header not found");
+    }
+
+    private int get16(int pos) {
+        return buf.getShort(pos) & 0xffff;
+    }
+
+    private long get32(int pos) {
+        return buf.getInt(pos) & 0xffffffffL;
+    }
+
+    private long get64(int pos) {
+        return buf.getLong(pos);
+    }
+
+    /**
+     * Continues the hash h over the bytes of the mapping at pos.
+     */
+    private int hash(int h, int pos, int len) {
+        for (int end = pos + len; pos < end; ++pos)
+            h = 31 * h + buf.get(pos);
+        return h;
+    }
+
+    private static int hash(int h, byte[] b) {
+        for (byte x : b)
+            h = 31 * h + x;
+        return h;
+    }
+
+    /**
+     * Returns true if the name of the entry at the given CEN
+     * position is equal to b, followed by '/' if addSlash.
+     */
+    private boolean nameEquals(int cen, byte[] b, boolean addSlash) {
+        int len = b.length;
+        if (get16(cen + CENNAM) != (addSlash ? len + 1 : len))
+            return false;
+        int pos = cen + CENHDR;
+        for (int i = 0; i < len; ++i) {
+            if (buf.get(pos + i) != b[i])
+                return false;
+        }
+        return !addSlash || buf.get(pos + len) == (byte)'/';
+    }
+
+    /**
+     * Returns true if the entries at the given CEN positions have the
+     * same name.
+     */
+    private boolean nameEquals(int cen1, int cen2) {
+        int len = get16(cen1 + CENNAM);
+        if (get16(cen2 + CENNAM) != len)
+            return false;
+        for (int i = 0; i < len; ++i) {
+            if (buf.get(cen1 + CENHDR + i) != buf.get(cen2 + CENHDR + i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the name of the entry at the given CEN position
+     * begins with "META-INF/", ignoring case.
+     */
+    boolean isMetaName(int cen) {
+        int len = META_INF.length;
+        if (get16(cen + CENNAM) < len)
+            return false;
+        for (int i = 0; i < len; ++i) {
+            int c = buf.get(cen + CENHDR + i);
+            if (c >= 'a' && c <= 'z')
+                c += 'A' - 'a';
+            if (c != META_INF[i])
+                return false;
+        }
+        return true;
+    }
+
+    private static final byte[] META_INF = {
+        'M', 'E', 'T', 'A', '-', 'I', 'N', 'F', '/'
+    };
+
+    /**
+     * Returns the CEN position of the entry with the given name, or,
+     * if there is none and addSlash is true, of the entry with the
+     * given name followed by '/', or -1 if not found.
+     */
+    int getEntryPos(byte[] name, boolean addSlash) {
+        int h = hash(0, name);
+        int pos = find(name, h, false);
+        if (pos < 0 && addSlash && name.length > 0 &&
+            name[name.length - 1] != '/')
+            pos = find(name, 31 * h + '/', true);
+        return pos;
+    }
+
+    private int find(byte[] name, int h, boolean addSlash) {
+        int mask = table.length - 1;
+        for (int j = h & mask, i; (i = table[j]) != 0; j = (j + 1) & mask) {
+            int cen = entries[i - 1];
+            if (hashes[i - 1] == h && nameEquals(cen, name, addSlash))
+                return cen;
+        }
+        return -1;
+    }
+
+    int total() {
+        return total;
+    }
+
+    /**
+     * Returns the CEN position of the i-th entry.
+     */
+    int entryPos(int i) {
+        return entries[i];
+    }
+
+    boolean startsWithLOC() {
+        return get32(0) == LOCSIG;
+    }
+
+    byte[] getCommentBytes() {
+        int len = get16(endpos + ENDCOM);
+        return (len == 0) ? null : bytes(endpos + ENDHDR, len);
+    }
+
+    private byte[] bytes(int pos, int len) {
+        byte[] b = new byte[len];
+        ByteBuffer bb = buf.duplicate();
+        bb.position(pos);
+        bb.get(b);
+        return b;
+    }
+
+    int getFlag(int cen)       { return get16(cen + CENFLG); }
+    int getMethod(int cen)     { return get16(cen + CENHOW); }
+    long getTime(int cen)      { return get32(cen + CENTIM); }
+    long getCrc(int cen)       { return get32(cen + CENCRC); }
+
+    byte[] getName(int cen) {
+        return bytes(cen + CENHDR, get16(cen + CENNAM));
+    }
+
+    byte[] getExtra(int cen) {
+        int len = get16(cen + CENEXT);
+        return (len == 0) ? null :
+            bytes(cen + CENHDR + get16(cen + CENNAM), len);
+    }
+
+    byte[] getComment(int cen) {
+        int len = get16(cen + CENCOM);
+        return (len == 0) ? null :
+            bytes(cen + CENHDR + get16(cen + CENNAM) + get16(cen + CENEXT), len);
+    }
+
+    private static final int[] ZIP64_FIELDS = { CENLEN, CENSIZ, CENOFF };
+
+    long getSize(int cen)      { return zip64(cen, 0); }
+    long getCSize(int cen)     { return zip64(cen, 1); }
+    long getLocOffset(int cen) { return zip64(cen, 2); }
+
+    /**
+     * Returns the uncompressed size (0), compressed size (1) or LOC
+     * offset (2) of an entry, reading it from the zip64 extra field
+     * if the CEN header holds the magic value, in which case the
+     * field holds each such value in this order.
+     */
+    private long zip64(int cen, int which) {
+        int[] offs = ZIP64_FIELDS;
+        long v = get32(cen + offs[which]);
+        if (v != ZIP64_MAGICVAL)
+            return v;
+        int pos = cen + CENHDR + get16(cen + CENNAM);
+        int end = pos + get16(cen + CENEXT);
+        while (pos + 4 <= end) {
+            int tag = get16(pos);
+            int sz = get16(pos + 2);
+            pos += 4;
+            if (tag == EXTID_ZIP64) {
+                for (int k = 0; k <= which; ++k) {
+                    if (get32(cen + offs[k]) != ZIP64_MAGICVAL)
+                        continue;
+                    if (sz < 8)
+                        break;
+                    if (k == which)
+                        return get64(pos);
+                    pos += 8;
+                    sz -= 8;
+                }
+                break;
+            }
+            pos += sz;
+        }
+        return v;
+    }
+
+    /**
+     * Returns a buffer holding the (possibly compressed) data of the
+     * entry at the given CEN position, sharing the mapping.
+     */
+    ByteBuffer getData(int cen) throws ZipException {
+        long loc = locpos + getLocOffset(cen);
+        long csize = getCSize(cen);
+        if (loc < 0 || loc + LOCHDR > endpos || get32((int)loc) != LOCSIG)
+            throw new ZipException("invalid LOC header (bad signature)");
+        long start = loc + LOCHDR + get16((int)loc + LOCNAM) +
+            get16((int)loc + LOCEXT);
+        if (csize < 0 || start + csize > endpos)
+            throw new ZipException("invalid LOC header (bad entry size)");
+        ByteBuffer bb = map.duplicate();
+        bb.position((int)start);
+        bb.limit((int)(start + csize));
+        return bb.slice();
+    }
+
+    /**
+     * Unmaps the file. Callers ensure that no buffer returned by
+     * getData is accessed afterwards.
+     */
+    void close() {
+        MappedByteBuffer m = map;
+        if (m != null) {
+            map = null;
+            sun.misc.Cleaner cl = ((sun.nio.ch.DirectBuffer)m).cleaner();
+            if (cl != null)
+                cl.clean();
+        }
+    }
+}
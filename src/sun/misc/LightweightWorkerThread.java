@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package sun.misc;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * A worker thread of a pool created by {@link
+ * java.util.concurrent.Executors#newLightweightThreadExecutor}. Socket
+ * reads and accepts by threads of this class, and only of this class,
+ * are performed as {@link ForkJoinPool.ManagedBlocker managed blockers},
+ * so that the pool may replace a blocked thread. Workers of other
+ * pools, including the common pool, block in the usual way.
+ */
+public final class LightweightWorkerThread extends ForkJoinWorkerThread {
+
+    /**
+     * Factory for the worker threads of lightweight thread executors.
+     */
+    public static final ForkJoinPool.ForkJoinWorkerThreadFactory FACTORY =
+        LightweightWorkerThread::new;
+
+    private LightweightWorkerThread(ForkJoinPool pool) {
+        super(pool);
+    }
+}
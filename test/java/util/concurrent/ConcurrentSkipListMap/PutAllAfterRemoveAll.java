@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+/*
+ * @test
+ * @summary putAll of a sorted map appends its entries to a map whose
+ *          index levels have been emptied by removals
+ */
+
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+public class PutAllAfterRemoveAll {
+    public static void main(String[] args) {
+        ConcurrentSkipListMap<Integer,Integer> m = new ConcurrentSkipListMap<>();
+        for (int i = 0; i < 100; i++)
+            m.put(i, i);
+        for (int i = 0; i < 100; i++)
+            m.remove(i);
+        TreeMap<Integer,Integer> t = new TreeMap<>();
+        for (int i = 1000; i < 1010; i++)
+            t.put(i, i);
+        m.putAll(t);
+        if (!m.equals(t))
+            throw new RuntimeException("Expected " + t + ", got " + m);
+        for (int i = 1000; i < 1010; i++) {
+            if (m.get(i) == null)
+                throw new RuntimeException("Missing key " + i);
+        }
+    }
+}